@@ -20,10 +20,28 @@ package com.cordys.coe.ac.scriptconnector;
 import com.cordys.coe.ac.scriptconnector.aclib.INomConnector;
 import com.cordys.coe.ac.scriptconnector.aclib.ISoapRequestContext;
 import com.cordys.coe.ac.scriptconnector.aclib.NomConnectorImpl;
+import com.cordys.coe.ac.scriptconnector.config.OutboundPolicy;
 import com.cordys.coe.ac.scriptconnector.config.ScriptConnectorConfiguration;
+import com.cordys.coe.ac.scriptconnector.config.ScriptLocator;
 import com.cordys.coe.ac.scriptconnector.config.SoapMethodInfo;
 import com.cordys.coe.ac.scriptconnector.exception.ScriptConnectorException;
 import com.cordys.coe.ac.scriptconnector.exception.SoapFaultWrapException;
+import com.cordys.coe.ac.scriptconnector.scheduler.RequestJournal;
+import com.cordys.coe.ac.scriptconnector.scheduler.ScheduledTask;
+import com.cordys.coe.ac.scriptconnector.scheduler.TaskScheduler;
+import com.cordys.coe.ac.scriptconnector.scripting.CompiledScriptCache;
+import com.cordys.coe.ac.scriptconnector.scripting.ExecutionBudget;
+import com.cordys.coe.ac.scriptconnector.scripting.ScriptContextFactory;
+import com.cordys.coe.ac.scriptconnector.scripting.ScriptEnginePool;
+import com.cordys.coe.ac.scriptconnector.scripting.ScriptWarmup;
+import com.cordys.coe.ac.scriptconnector.scripting.ScriptWatchdog;
+import com.cordys.coe.ac.scriptconnector.soap.DelayedSoapRequest;
+import com.cordys.coe.ac.scriptconnector.soap.OutboundExecutor;
+import com.cordys.coe.ac.scriptconnector.soap.OutboundRequestKey;
+import com.cordys.coe.ac.scriptconnector.soap.OutboundTarget;
+import com.cordys.coe.ac.scriptconnector.soap.RequestBatcher;
+import com.cordys.coe.ac.scriptconnector.soap.RequestCoalescer;
+import com.cordys.coe.ac.scriptconnector.soap.ResponseCache;
 import com.cordys.coe.ac.scriptconnector.soap.ScriptSoapMessage;
 import com.cordys.coe.util.soap.SoapFaultInfo;
 
@@ -35,18 +53,27 @@ import com.eibus.soap.Processor;
 import com.eibus.soap.SOAPTransaction;
 
 import com.eibus.util.logger.CordysLogger;
+import com.eibus.util.logger.Severity;
 import com.eibus.util.system.EIBProperties;
 
 import com.eibus.xml.nom.Document;
 import com.eibus.xml.nom.Node;
 
 import java.io.File;
+import java.io.IOException;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.mozilla.javascript.ScriptableObject;
 
 /**
  * An application connector that can run javascripts.
@@ -61,10 +88,60 @@ public class ScriptConnector extends ApplicationConnector
      * Holds the name of the connector.
      */
     private static final String CONNECTOR_NAME = "ScriptConnector Connector";
+    /**
+     * Name of the scheduled request journal file under the journal folder.
+     */
+    private static final String JOURNAL_FILE_NAME = "scheduled-requests.journal";
     /**
      * Holds the configuration object for this connector.
      */
     protected ScriptConnectorConfiguration acConfiguration;
+    /**
+     * Optional on-disk cache for compiled E4X scripts.
+     */
+    protected CompiledScriptCache compiledScriptCache;
+    /**
+     * Rhino context factory used for compiling and executing E4X scripts.
+     */
+    protected ScriptContextFactory contextFactory = new ScriptContextFactory();
+    /**
+     * Sealed root scope containing the Javascript standard objects. This is shared by all E4X
+     * scripts.
+     */
+    protected volatile ScriptableObject rootScope;
+    /**
+     * Pool of Java scripting API engines.
+     */
+    protected volatile ScriptEnginePool scriptEnginePool;
+    /**
+     * Watchdog for scripts which have a time limit. This is created when needed.
+     */
+    protected volatile ScriptWatchdog scriptWatchdog;
+    /**
+     * Executor for concurrent outbound SOAP requests. This is created when needed.
+     */
+    protected volatile OutboundExecutor outboundExecutor;
+    /**
+     * Cache for outbound SOAP responses. This is created when needed.
+     */
+    protected volatile ResponseCache responseCache;
+    /**
+     * Coalesces identical concurrent outbound requests. This is created when needed.
+     */
+    protected volatile RequestCoalescer requestCoalescer;
+    /**
+     * Scheduler for executing delayed tasks. This is created when needed.
+     */
+    protected volatile TaskScheduler taskScheduler;
+    /**
+     * Journal for the scheduled SOAP requests. This is <code>null</code> if the journal folder is
+     * not configured.
+     */
+    protected volatile RequestJournal requestJournal;
+    /**
+     * Groups the due scheduled requests. This is created when needed.
+     */
+    protected volatile RequestBatcher requestBatcher;
     /**
      * NOM document for parsing the XML.
      */
@@ -82,9 +159,17 @@ public class ScriptConnector extends ApplicationConnector
      */
     private ConcurrentMap<String, SoapMethodInfo> soapMethodMap = new ConcurrentHashMap<String, SoapMethodInfo>();
     /**
-     * Timer object for executing delayed tasks.
+     * Contains the guards of the outbound target methods.
+     */
+    private ConcurrentMap<ScriptLocator, OutboundTarget> outboundTargetMap = new ConcurrentHashMap<ScriptLocator, OutboundTarget>();
+    /**
+     * Contains the scheduled SOAP requests which have not been completed by the task ID.
+     */
+    private ConcurrentMap<Long, DelayedSoapRequest> scheduledRequestMap = new ConcurrentHashMap<Long, DelayedSoapRequest>();
+    /**
+     * Task ID generator for scheduled requests when the journal is not used.
      */
-    private Timer timer = new Timer();
+    private AtomicLong taskIdSequence = new AtomicLong();
 
     /**
      * This method creates the transaction that will handle the requests.
@@ -127,6 +212,26 @@ public class ScriptConnector extends ApplicationConnector
             acConfiguration = new ScriptConnectorConfiguration(this, getConfiguration(),
                                                                installationFolder);
 
+            // Create the shared Javascript standard objects.
+            rootScope = contextFactory.createSealedRootScope();
+            scriptEnginePool = new ScriptEnginePool(acConfiguration.getScriptEnginePoolSize());
+
+            File scriptCachePath = acConfiguration.getScriptCachePath();
+
+            if (scriptCachePath != null)
+            {
+                compiledScriptCache = new CompiledScriptCache(scriptCachePath);
+            }
+
+            // Compile all scripts now, so the first requests do not have to wait for it.
+            if (acConfiguration.isWarmupEnabled())
+            {
+                ScriptWarmup warmup = new ScriptWarmup(this, acConfiguration.getWarmupParallelism(),
+                                                       acConfiguration.isWarmupFailFast());
+
+                warmup.run(acConfiguration.getScripts());
+            }
+
             // Open the client connector
             Connector conn = Connector.getInstance(CONNECTOR_NAME);
 
@@ -137,6 +242,24 @@ public class ScriptConnector extends ApplicationConnector
 
             nomConnector = new NomConnectorImpl(conn);
 
+            // Reschedule the requests which were not sent before the connector was stopped.
+            File journalPath = acConfiguration.getSchedulerJournalPath();
+
+            if (journalPath != null)
+            {
+                RequestJournal journal = new RequestJournal(new File(journalPath,
+                                                                     JOURNAL_FILE_NAME));
+
+                Map<Long, byte[]> entries = journal.open();
+
+                // Set the journal first, so replayed requests are removed when they are sent.
+                requestJournal = journal;
+                replayJournal(journal, entries);
+            }
+
+            // Start detecting configuration and script file changes in the background.
+            acConfiguration.startFileWatcher();
+
             if (LOG.isDebugEnabled())
             {
                 LOG.debug("ScriptConnector started.");
@@ -150,6 +273,66 @@ public class ScriptConnector extends ApplicationConnector
         }
     }
 
+    /**
+     * This method gets called when the processor is stopped.
+     *
+     * @param  processor  The processor that is stopped.
+     */
+    @Override
+    public void close(Processor processor)
+    {
+        if (acConfiguration != null)
+        {
+            acConfiguration.close();
+        }
+
+        synchronized (this)
+        {
+            if (scriptWatchdog != null)
+            {
+                scriptWatchdog.stop();
+                scriptWatchdog = null;
+            }
+
+            if (taskScheduler != null)
+            {
+                taskScheduler.stop();
+                taskScheduler = null;
+            }
+
+            if (requestJournal != null)
+            {
+                requestJournal.close();
+                requestJournal = null;
+            }
+
+            if (requestBatcher != null)
+            {
+                requestBatcher.stop();
+                requestBatcher = null;
+            }
+
+            scheduledRequestMap.clear();
+
+            if (outboundExecutor != null)
+            {
+                outboundExecutor.stop();
+                outboundExecutor = null;
+            }
+
+            if (responseCache != null)
+            {
+                responseCache.clear();
+                responseCache = null;
+            }
+        }
+
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("ScriptConnector stopped.");
+        }
+    }
+
     /**
      * This method gets called when the processor is ordered to rest.
      *
@@ -167,15 +350,218 @@ public class ScriptConnector extends ApplicationConnector
         soapMethodMap.clear();
     }
 
+    /**
+     * Cancels a scheduled SOAP request which has not been started yet.
+     *
+     * @param   taskId  Task ID returned by <code>scheduleSoapRequest</code>.
+     *
+     * @return  <code>true</code> if the request was cancelled.
+     */
+    public boolean cancelScheduledRequest(long taskId)
+    {
+        DelayedSoapRequest req = scheduledRequestMap.get(taskId);
+
+        if ((req == null) || req.isStarted())
+        {
+            return false;
+        }
+
+        synchronized (req)
+        {
+            ScheduledTask task = req.getScheduledTask();
+
+            if ((task == null) || !getTaskScheduler().cancel(task))
+            {
+                return false;
+            }
+        }
+
+        scheduledRequestMap.remove(taskId);
+        removeJournalEntry(req);
+        req.getRequest().clear();
+
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Cancelled scheduled request " + taskId);
+        }
+
+        return true;
+    }
+
+    /**
+     * Called by a scheduled SOAP request when it has been executed. This removes the request from
+     * the journal. If the scheduler was stopped while the request was executing, the request is
+     * kept in the journal and it will be sent again when the connector is started.
+     *
+     * @param  req  Executed request.
+     */
+    public void completeScheduledRequest(DelayedSoapRequest req)
+    {
+        scheduledRequestMap.remove(req.getTaskId());
+
+        if (Thread.currentThread().isInterrupted())
+        {
+            return;
+        }
+
+        removeJournalEntry(req);
+    }
+
+    /**
+     * Returns the scheduled SOAP requests which have not been completed. This includes the
+     * requests which are being sent. Only the methods of DelayedSoapRequest which do not access
+     * the request message can be called for these.
+     *
+     * @return  Unmodifiable collection of requests.
+     */
+    public Collection<DelayedSoapRequest> getScheduledRequests()
+    {
+        return Collections.unmodifiableCollection(scheduledRequestMap.values());
+    }
+
+    /**
+     * Changes the delay of a scheduled SOAP request which has not been started yet.
+     *
+     * @param   taskId  Task ID returned by <code>scheduleSoapRequest</code>.
+     * @param   delay   New delay from now in milliseconds.
+     *
+     * @return  <code>true</code> if the request was rescheduled, <code>false</code> if it was not
+     *          found or it has already been started.
+     *
+     * @throws  ScriptConnectorException  Thrown if the request could not be scheduled again. The
+     *                                    request is cancelled in that case.
+     */
+    public boolean rescheduleScheduledRequest(long taskId, long delay)
+                                       throws ScriptConnectorException
+    {
+        DelayedSoapRequest req = scheduledRequestMap.get(taskId);
+
+        if ((req == null) || req.isStarted())
+        {
+            return false;
+        }
+
+        synchronized (req)
+        {
+            ScheduledTask task = req.getScheduledTask();
+
+            if ((task == null) || !getTaskScheduler().cancel(task))
+            {
+                return false;
+            }
+
+            req.setDueTime(System.currentTimeMillis() + delay);
+
+            RequestJournal journal = requestJournal;
+
+            if ((journal != null) && (req.getJournalId() != 0))
+            {
+                try
+                {
+                    journal.add(req.getJournalId(), req.serialize());
+                }
+                catch (IOException e)
+                {
+                    // The old due time is used if the journal is replayed.
+                    LOG.log(Severity.WARN,
+                            "Unable to update the scheduled request " + taskId +
+                            " in the journal.", e);
+                }
+            }
+
+            try
+            {
+                req.setScheduledTask(scheduleTasks(req, delay));
+            }
+            catch (ScriptConnectorException e)
+            {
+                scheduledRequestMap.remove(taskId);
+                removeJournalEntry(req);
+                req.getRequest().clear();
+
+                throw e;
+            }
+        }
+
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Rescheduled request " + taskId + " after delay " + delay);
+        }
+
+        return true;
+    }
+
+    /**
+     * Schedules a SOAP request to be sent after the given delay. If the journal is configured,
+     * the request is written to the journal before this method returns.
+     *
+     * @param   req    Request to be scheduled.
+     * @param   delay  Time after the request is sent. This is in milliseconds.
+     *
+     * @return  Task ID of the request. This can be used for cancelling or rescheduling the
+     *          request.
+     *
+     * @throws  ScriptConnectorException  Thrown if the request could not be written to the
+     *                                    journal or the scheduler queue is full.
+     */
+    public long scheduleSoapRequest(DelayedSoapRequest req, long delay)
+                             throws ScriptConnectorException
+    {
+        RequestJournal journal = requestJournal;
+        long id = (journal != null) ? journal.nextId() : taskIdSequence.incrementAndGet();
+
+        req.setTaskId(id);
+        req.setDueTime(System.currentTimeMillis() + delay);
+
+        if (journal != null)
+        {
+            try
+            {
+                journal.add(id, req.serialize());
+            }
+            catch (IOException e)
+            {
+                throw new ScriptConnectorException("Unable to write the scheduled request to the journal.",
+                                                   e);
+            }
+
+            req.setJournalId(id);
+        }
+
+        scheduledRequestMap.put(id, req);
+
+        synchronized (req)
+        {
+            try
+            {
+                req.setScheduledTask(scheduleTasks(req, delay));
+            }
+            catch (ScriptConnectorException e)
+            {
+                scheduledRequestMap.remove(id);
+                removeJournalEntry(req);
+
+                throw e;
+            }
+        }
+
+        return id;
+    }
+
     /**
      * Adds a task to be scheduled.
      *
-     * @param  task   Task to be scheduled.
-     * @param  delay  Time after the task is executed. This is in milliseconds.
+     * @param   task   Task to be scheduled.
+     * @param   delay  Time after the task is executed. This is in milliseconds.
+     *
+     * @return  Scheduler task which can be used for cancelling the task.
+     *
+     * @throws  ScriptConnectorException  Thrown if the scheduler queue is full.
      */
-    public void scheduleTasks(TimerTask task, long delay)
+    public ScheduledTask scheduleTasks(Runnable task, long delay)
+                                throws ScriptConnectorException
     {
-        timer.schedule(task, delay);
+        return getTaskScheduler().schedule(task, delay);
     }
 
     /**
@@ -236,7 +622,9 @@ public class ScriptConnector extends ApplicationConnector
     }
 
     /**
-     * Sends a SOAP request and returns a response.
+     * Sends a SOAP request and returns a response. Depending on the outbound policy of the
+     * method, the response can come from the response cache or from an identical request which
+     * is already in flight.
      *
      * @param   msg             SOAP request to be sent.
      * @param   checkSoapFault  If <code>true</code>, an exception is thrown when SOAP:Fault is
@@ -249,87 +637,98 @@ public class ScriptConnector extends ApplicationConnector
     public ScriptSoapMessage sendSoapRequestAndWait(ScriptSoapMessage msg, boolean checkSoapFault)
                                              throws ScriptConnectorException
     {
-        int requestEnvNode = 0;
-        int responseEnvNode = 0;
+        OutboundPolicy policy = acConfiguration.getOutboundPolicy(msg.getMethodName());
+        OutboundRequestKey requestKey = null;
+        OutboundRequestKey cacheKey = null;
+        RequestCoalescer.Call call = null;
 
-        try
+        if (policy.isCacheEnabled() || policy.isCoalesce())
         {
-            requestEnvNode = createSoapRequest(msg);
+            requestKey = OutboundRequestKey.create(msg);
+        }
 
-            if (LOG.isDebugEnabled())
-            {
-                LOG.debug("Sending a SOAP request: " + Node.writeToString(requestEnvNode, true));
-            }
+        if (policy.isCacheEnabled())
+        {
+            cacheKey = requestKey;
 
-            responseEnvNode = nomConnector.sendAndWait(requestEnvNode,
-                                                       acConfiguration.getSoapRequestTimeout(),
-                                                       false);
+            ScriptSoapMessage cached = readCachedResponse(cacheKey);
 
-            if (LOG.isDebugEnabled())
+            if (cached != null)
             {
-                LOG.debug("Received a SOAP response: " + Node.writeToString(responseEnvNode, true));
+                return cached;
             }
+        }
 
-            if (checkSoapFault)
+        if (policy.isCoalesce())
+        {
+            long deadline = System.currentTimeMillis() + acConfiguration.getSoapRequestTimeout();
+
+            while (true)
             {
-                SoapFaultInfo faultInfo = SoapFaultInfo.findSoapFault(responseEnvNode);
+                call = getRequestCoalescer().join(requestKey);
 
-                if (faultInfo != null)
+                if (call.isLeader())
                 {
-                    String faultCode = faultInfo.getFaultcode();
-                    String faultString = faultInfo.getFaultstring();
-                    String faultActor = faultInfo.getFaultactor();
-                    String faultStr = null;
-                    int faultNode = SoapFaultInfo.findSoapFaultNode(responseEnvNode);
-
-                    if (faultNode != 0)
-                    {
-                        // Define the SOAP namespace.
-                        Node.setNSDefinition(faultNode, Node.getPrefix(faultNode),
-                                             Node.getNamespaceURI(faultNode));
-                        faultStr = Node.writeToString(faultNode, false);
-                    }
+                    break;
+                }
 
-                    // Delete the response (including the fault XML).
-                    Node.delete(responseEnvNode);
-                    responseEnvNode = 0;
+                // An identical request is in flight, so use its response.
+                int responseEnvNode = call.awaitResponse(Math.max(deadline -
+                                                                  System.currentTimeMillis(), 0));
 
-                    throw new SoapFaultWrapException(faultCode, faultActor, faultString, faultStr);
+                if (responseEnvNode != 0)
+                {
+                    return readSoapResponse(responseEnvNode, checkSoapFault, null, policy);
                 }
-            }
 
-            ScriptSoapMessage res = new ScriptSoapMessage(dDoc);
+                // The leader was interrupted, so send the request again.
+            }
+        }
 
-            res.readFromSoapMessage(responseEnvNode);
+        int responseEnvNode = 0;
+        Exception error = null;
 
-            return res;
-        }
-        catch (SoapFaultWrapException e)
+        try
         {
-            throw e;
+            responseEnvNode = sendSoapRequestEnvelope(msg, policy);
         }
         catch (ScriptConnectorException e)
         {
+            error = e;
+
             throw e;
         }
-        catch (Exception e)
+        catch (RuntimeException e)
         {
-            throw new ScriptConnectorException("SOAP request failed.", e);
+            error = e;
+
+            throw e;
         }
         finally
         {
-            if (responseEnvNode != 0)
-            {
-                Node.delete(responseEnvNode);
-                responseEnvNode = 0;
-            }
-
-            if (requestEnvNode != 0)
+            if (call != null)
             {
-                Node.delete(requestEnvNode);
-                requestEnvNode = 0;
+                // This is done also for an Error, so the followers do not wait for a request
+                // which never completes.
+                if (responseEnvNode != 0)
+                {
+                    call.complete(responseEnvNode);
+                }
+                else if (isInterrupted(error))
+                {
+                    // The failure was caused by this thread, e.g. the script watchdog, not by
+                    // the request. The followers send the request themselves.
+                    call.abandon();
+                }
+                else
+                {
+                    call.fail((error != null)
+                              ? error : new ScriptConnectorException("SOAP request failed."));
+                }
             }
         }
+
+        return readSoapResponse(responseEnvNode, checkSoapFault, cacheKey, policy);
     }
 
     /**
@@ -354,13 +753,300 @@ public class ScriptConnector extends ApplicationConnector
     }
 
     /**
-     * Returns the shared NOM document.
+     * Returns the compiled script cache.
      *
-     * @return  The shared NOM document.
+     * @return  Compiled script cache or <code>null</code> if caching is not enabled.
      */
-    public Document getDocument()
+    public CompiledScriptCache getCompiledScriptCache()
     {
-        return dDoc;
+        return compiledScriptCache;
+    }
+
+    /**
+     * Returns the Rhino context factory used for E4X scripts.
+     *
+     * @return  Context factory.
+     */
+    public ScriptContextFactory getContextFactory()
+    {
+        return contextFactory;
+    }
+
+    /**
+     * Returns the sealed root scope shared by all E4X scripts. The scope is normally created when
+     * the connector is opened, but it is created here if that has not been done.
+     *
+     * @return  Root scope.
+     */
+    public ScriptableObject getRootScope()
+    {
+        ScriptableObject scope = rootScope;
+
+        if (scope == null)
+        {
+            synchronized (this)
+            {
+                if (rootScope == null)
+                {
+                    rootScope = contextFactory.createSealedRootScope();
+                }
+
+                scope = rootScope;
+            }
+        }
+
+        return scope;
+    }
+
+    /**
+     * Returns the Java scripting API engine pool. The pool is normally created when the
+     * connector is opened, but it is created here if that has not been done.
+     *
+     * @return  Script engine pool.
+     */
+    public ScriptEnginePool getScriptEnginePool()
+    {
+        ScriptEnginePool pool = scriptEnginePool;
+
+        if (pool == null)
+        {
+            synchronized (this)
+            {
+                if (scriptEnginePool == null)
+                {
+                    int poolSize = (acConfiguration != null)
+                                   ? acConfiguration.getScriptEnginePoolSize()
+                                   : ScriptEnginePool.DEFAULT_POOL_SIZE;
+
+                    scriptEnginePool = new ScriptEnginePool(poolSize);
+                }
+
+                pool = scriptEnginePool;
+            }
+        }
+
+        return pool;
+    }
+
+    /**
+     * Returns the executor for concurrent outbound SOAP requests. The executor is created on the
+     * first call.
+     *
+     * @return  Outbound request executor.
+     */
+    public OutboundExecutor getOutboundExecutor()
+    {
+        OutboundExecutor executor = outboundExecutor;
+
+        if (executor == null)
+        {
+            synchronized (this)
+            {
+                if (outboundExecutor == null)
+                {
+                    outboundExecutor = new OutboundExecutor(acConfiguration.getOutboundThreads(),
+                                                            acConfiguration.getOutboundQueueSize());
+                }
+
+                executor = outboundExecutor;
+            }
+        }
+
+        return executor;
+    }
+
+    /**
+     * Returns the batcher for the due scheduled requests. The batcher is created on the first
+     * call.
+     *
+     * @return  Request batcher or <code>null</code> if batching is not enabled.
+     */
+    public RequestBatcher getRequestBatcher()
+    {
+        RequestBatcher batcher = requestBatcher;
+
+        if ((batcher == null) && (acConfiguration.getSchedulerBatchWindow() > 0))
+        {
+            synchronized (this)
+            {
+                if (requestBatcher == null)
+                {
+                    // The batcher has its own threads, so batches do not use the outbound
+                    // request threads of the scripts.
+                    int queueSize = RequestBatcher.getQueueSize(acConfiguration.getSchedulerThreads());
+                    OutboundExecutor executor = new OutboundExecutor("Batch",
+                                                                     acConfiguration.getOutboundThreads(),
+                                                                     queueSize);
+
+                    requestBatcher = new RequestBatcher(this,
+                                                        acConfiguration.getSchedulerBatchWindow(),
+                                                        executor);
+                }
+
+                batcher = requestBatcher;
+            }
+        }
+
+        return batcher;
+    }
+
+    /**
+     * Returns the coalescer for identical concurrent outbound requests. The coalescer is created
+     * on the first call.
+     *
+     * @return  Request coalescer.
+     */
+    public RequestCoalescer getRequestCoalescer()
+    {
+        RequestCoalescer coalescer = requestCoalescer;
+
+        if (coalescer == null)
+        {
+            synchronized (this)
+            {
+                if (requestCoalescer == null)
+                {
+                    requestCoalescer = new RequestCoalescer();
+                }
+
+                coalescer = requestCoalescer;
+            }
+        }
+
+        return coalescer;
+    }
+
+    /**
+     * Returns the guard for the outbound target method. The guard is created on the first call.
+     *
+     * @param   methodName  Target method name.
+     * @param   namespace   Target method namespace.
+     *
+     * @return  Target guard.
+     */
+    public OutboundTarget getOutboundTarget(String methodName, String namespace)
+    {
+        ScriptLocator key = new ScriptLocator(methodName, namespace);
+        OutboundTarget target = outboundTargetMap.get(key);
+
+        if (target == null)
+        {
+            OutboundTarget newTarget = new OutboundTarget(methodName, namespace);
+
+            target = outboundTargetMap.putIfAbsent(key, newTarget);
+
+            if (target == null)
+            {
+                target = newTarget;
+            }
+        }
+
+        return target;
+    }
+
+    /**
+     * Returns the guards of all outbound target methods which have been called.
+     *
+     * @return  Target guards.
+     */
+    public Collection<OutboundTarget> getOutboundTargets()
+    {
+        return Collections.unmodifiableCollection(outboundTargetMap.values());
+    }
+
+    /**
+     * Returns the outbound SOAP response cache. The cache is created on the first call. The
+     * cache size limit is updated from the configuration.
+     *
+     * @return  Response cache.
+     */
+    public ResponseCache getResponseCache()
+    {
+        ResponseCache cache = responseCache;
+
+        if (cache == null)
+        {
+            synchronized (this)
+            {
+                if (responseCache == null)
+                {
+                    responseCache = new ResponseCache(acConfiguration.getOutboundCacheMaxBytes());
+                }
+
+                cache = responseCache;
+            }
+        }
+
+        long maxBytes = acConfiguration.getOutboundCacheMaxBytes();
+
+        if (cache.getMaxBytes() != maxBytes)
+        {
+            cache.setMaxBytes(maxBytes);
+        }
+
+        return cache;
+    }
+
+    /**
+     * Returns the scheduler for delayed tasks. The scheduler is created on the first call.
+     *
+     * @return  Task scheduler.
+     */
+    public TaskScheduler getTaskScheduler()
+    {
+        TaskScheduler scheduler = taskScheduler;
+
+        if (scheduler == null)
+        {
+            synchronized (this)
+            {
+                if (taskScheduler == null)
+                {
+                    taskScheduler = new TaskScheduler(acConfiguration.getSchedulerThreads(),
+                                                      acConfiguration.getSchedulerMaxPending(),
+                                                      acConfiguration.getSchedulerTickMillis());
+                }
+
+                scheduler = taskScheduler;
+            }
+        }
+
+        return scheduler;
+    }
+
+    /**
+     * Returns the script watchdog. The watchdog is created on the first call.
+     *
+     * @return  Script watchdog.
+     */
+    public ScriptWatchdog getScriptWatchdog()
+    {
+        ScriptWatchdog watchdog = scriptWatchdog;
+
+        if (watchdog == null)
+        {
+            synchronized (this)
+            {
+                if (scriptWatchdog == null)
+                {
+                    scriptWatchdog = new ScriptWatchdog();
+                }
+
+                watchdog = scriptWatchdog;
+            }
+        }
+
+        return watchdog;
+    }
+
+    /**
+     * Returns the shared NOM document.
+     *
+     * @return  The shared NOM document.
+     */
+    public Document getDocument()
+    {
+        return dDoc;
     }
 
     /**
@@ -468,4 +1154,345 @@ public class ScriptConnector extends ApplicationConnector
             throw new ScriptConnectorException("SOAP request failed.", e);
         }
     }
+
+    /**
+     * Reads the response message from the received SOAP envelope. The response is added to the
+     * response cache if a cache key is given.
+     *
+     * @param   responseEnvNode  Response SOAP envelope. This method takes the ownership of the
+     *                           envelope.
+     * @param   checkSoapFault   If <code>true</code>, an exception is thrown when SOAP:Fault is
+     *                           received.
+     * @param   cacheKey         Response cache key or <code>null</code>.
+     * @param   policy           Outbound policy of the method.
+     *
+     * @return  Response message.
+     *
+     * @throws  ScriptConnectorException
+     */
+    private ScriptSoapMessage readSoapResponse(int responseEnvNode, boolean checkSoapFault,
+                                               OutboundRequestKey cacheKey, OutboundPolicy policy)
+                                        throws ScriptConnectorException
+    {
+        try
+        {
+            if (checkSoapFault)
+            {
+                SoapFaultInfo faultInfo = SoapFaultInfo.findSoapFault(responseEnvNode);
+
+                if (faultInfo != null)
+                {
+                    String faultCode = faultInfo.getFaultcode();
+                    String faultString = faultInfo.getFaultstring();
+                    String faultActor = faultInfo.getFaultactor();
+                    String faultStr = null;
+                    int faultNode = SoapFaultInfo.findSoapFaultNode(responseEnvNode);
+
+                    if (faultNode != 0)
+                    {
+                        // Define the SOAP namespace.
+                        Node.setNSDefinition(faultNode, Node.getPrefix(faultNode),
+                                             Node.getNamespaceURI(faultNode));
+                        faultStr = Node.writeToString(faultNode, false);
+                    }
+
+                    // Delete the response (including the fault XML).
+                    Node.delete(responseEnvNode);
+                    responseEnvNode = 0;
+
+                    throw new SoapFaultWrapException(faultCode, faultActor, faultString, faultStr);
+                }
+            }
+
+            if ((cacheKey != null) &&
+                    (checkSoapFault || (SoapFaultInfo.findSoapFault(responseEnvNode) == null)))
+            {
+                // Only successful responses are cached.
+                ResponseCache cache = getResponseCache();
+
+                cache.put(cacheKey, Node.writeToString(responseEnvNode, false),
+                          policy.getCacheTtl(), policy.getCacheMaxEntries());
+            }
+
+            ScriptSoapMessage res = new ScriptSoapMessage(dDoc);
+
+            res.readFromSoapMessage(responseEnvNode);
+
+            return res;
+        }
+        catch (SoapFaultWrapException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            throw new ScriptConnectorException("SOAP request failed.", e);
+        }
+        finally
+        {
+            if (responseEnvNode != 0)
+            {
+                Node.delete(responseEnvNode);
+                responseEnvNode = 0;
+            }
+        }
+    }
+
+    /**
+     * Removes the request from the journal if it is journaled.
+     *
+     * @param  req  Request to be removed.
+     */
+    private void removeJournalEntry(DelayedSoapRequest req)
+    {
+        RequestJournal journal = requestJournal;
+
+        if ((journal == null) || (req.getJournalId() == 0))
+        {
+            return;
+        }
+
+        try
+        {
+            journal.remove(req.getJournalId());
+        }
+        catch (IOException e)
+        {
+            LOG.log(Severity.WARN,
+                    "Unable to remove the scheduled request " + req.getJournalId() +
+                    " from the journal.", e);
+        }
+    }
+
+    /**
+     * Reschedules the requests read from the journal. Requests which are already due are sent at
+     * the configured replay rate, so a long outage does not flood the target services.
+     *
+     * @param   journal  Opened journal.
+     * @param   entries  Journal entries which were not sent.
+     *
+     * @throws  IOException               Thrown if an invalid entry could not be removed.
+     * @throws  ScriptConnectorException  Thrown if the scheduler queue is full.
+     */
+    private void replayJournal(RequestJournal journal, Map<Long, byte[]> entries)
+                        throws IOException, ScriptConnectorException
+    {
+        List<DelayedSoapRequest> requests = new ArrayList<DelayedSoapRequest>(entries.size());
+
+        for (Map.Entry<Long, byte[]> entry : entries.entrySet())
+        {
+            try
+            {
+                DelayedSoapRequest req = DelayedSoapRequest.deserialize(this, entry.getValue());
+
+                req.setTaskId(entry.getKey());
+                req.setJournalId(entry.getKey());
+                requests.add(req);
+            }
+            catch (ScriptConnectorException e)
+            {
+                LOG.log(Severity.WARN,
+                        "Removing invalid scheduled request " + entry.getKey() +
+                        " from the journal.", e);
+                journal.remove(entry.getKey());
+            }
+        }
+
+        Collections.sort(requests, new Comparator<DelayedSoapRequest>()
+            {
+                public int compare(DelayedSoapRequest a, DelayedSoapRequest b)
+                {
+                    return (a.getDueTime() < b.getDueTime())
+                           ? -1 : ((a.getDueTime() > b.getDueTime()) ? 1 : 0);
+                }
+            });
+
+        long now = System.currentTimeMillis();
+        int replayRate = acConfiguration.getSchedulerReplayRate();
+        int overdueCount = 0;
+
+        for (DelayedSoapRequest req : requests)
+        {
+            long delay = req.getDueTime() - now;
+
+            if (delay <= 0)
+            {
+                delay = (overdueCount * 1000L) / replayRate;
+                overdueCount++;
+            }
+
+            scheduledRequestMap.put(req.getTaskId(), req);
+
+            synchronized (req)
+            {
+                req.setScheduledTask(scheduleTasks(req, delay));
+            }
+        }
+
+        if (LOG.isInfoEnabled() && !requests.isEmpty())
+        {
+            LOG.log(Severity.INFO,
+                    "Rescheduled " + requests.size() + " requests from the journal. Overdue: " +
+                    overdueCount);
+        }
+    }
+
+    /**
+     * Sends the SOAP request and waits for the response envelope. If the method has a
+     * concurrency limit or a circuit breaker, the request is sent through the target guard.
+     *
+     * @param   msg     SOAP request to be sent.
+     * @param   policy  Outbound policy of the method.
+     *
+     * @return  Response SOAP envelope. Caller is responsible for deleting this.
+     *
+     * @throws  ScriptConnectorException
+     */
+    private int sendSoapRequestEnvelope(ScriptSoapMessage msg, OutboundPolicy policy)
+                                 throws ScriptConnectorException
+    {
+        int requestEnvNode = 0;
+
+        try
+        {
+            requestEnvNode = createSoapRequest(msg);
+
+            if (LOG.isDebugEnabled())
+            {
+                LOG.debug("Sending a SOAP request: " + Node.writeToString(requestEnvNode, true));
+            }
+
+            int responseEnvNode;
+
+            if (policy.isGuarded())
+            {
+                OutboundTarget target = getOutboundTarget(msg.getMethodName(), msg.getNamespace());
+                boolean probe = target.acquire(policy);
+                int guardedEnvNode = 0;
+
+                try
+                {
+                    guardedEnvNode = nomConnector.sendAndWait(requestEnvNode,
+                                                              acConfiguration.getSoapRequestTimeout(),
+                                                              false);
+                }
+                finally
+                {
+                    // A SOAP:Fault response counts as a failure.
+                    target.release(policy, probe, guardedEnvNode);
+                }
+
+                responseEnvNode = guardedEnvNode;
+            }
+            else
+            {
+                responseEnvNode = nomConnector.sendAndWait(requestEnvNode,
+                                                           acConfiguration.getSoapRequestTimeout(),
+                                                           false);
+            }
+
+            if (LOG.isDebugEnabled())
+            {
+                LOG.debug("Received a SOAP response: " + Node.writeToString(responseEnvNode, true));
+            }
+
+            return responseEnvNode;
+        }
+        catch (ScriptConnectorException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            throw new ScriptConnectorException("SOAP request failed.", e);
+        }
+        finally
+        {
+            if (requestEnvNode != 0)
+            {
+                Node.delete(requestEnvNode);
+                requestEnvNode = 0;
+            }
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the current thread has been interrupted, the current script
+     * has been aborted or the error was caused by an interrupt.
+     *
+     * @param   error  Error received when sending the request or <code>null</code>.
+     *
+     * @return  <code>true</code> if the request failed because of an interrupt.
+     */
+    private static boolean isInterrupted(Throwable error)
+    {
+        if (Thread.currentThread().isInterrupted() || ExecutionBudget.isCurrentScriptAborted())
+        {
+            return true;
+        }
+
+        for (Throwable t = error; t != null; t = t.getCause())
+        {
+            if (t instanceof InterruptedException)
+            {
+                return true;
+            }
+
+            if (t.getCause() == t)
+            {
+                break;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns a response from the outbound response cache. The cached XML is parsed into new
+     * NOM nodes.
+     *
+     * @param   key  Request key.
+     *
+     * @return  Response message or <code>null</code> if the response was not cached.
+     */
+    private ScriptSoapMessage readCachedResponse(OutboundRequestKey key)
+    {
+        String xml = getResponseCache().get(key);
+
+        if (xml == null)
+        {
+            return null;
+        }
+
+        int envNode = 0;
+
+        try
+        {
+            envNode = dDoc.parseString(xml);
+
+            ScriptSoapMessage res = new ScriptSoapMessage(dDoc);
+
+            res.readFromSoapMessage(envNode);
+
+            if (LOG.isDebugEnabled())
+            {
+                LOG.debug("Using a cached SOAP response for request: " + key);
+            }
+
+            return res;
+        }
+        catch (Exception e)
+        {
+            LOG.log(Severity.WARN, "Unable to parse the cached SOAP response.", e);
+
+            return null;
+        }
+        finally
+        {
+            if (envNode != 0)
+            {
+                Node.delete(envNode);
+            }
+        }
+    }
 }
@@ -30,11 +30,14 @@ import com.cordys.coe.ac.scriptconnector.config.SoapMethodInfo;
 import com.cordys.coe.ac.scriptconnector.exception.ScriptConnectorException;
 import com.cordys.coe.ac.scriptconnector.exception.ScriptFaultException;
 import com.cordys.coe.ac.scriptconnector.exception.SoapFaultWrapException;
+import com.cordys.coe.ac.scriptconnector.methods.ConnectorStatus;
 import com.cordys.coe.ac.scriptconnector.methods.SavedSoapTransactions;
+import com.cordys.coe.ac.scriptconnector.methods.ScheduledRequests;
 import com.cordys.coe.ac.scriptconnector.processor.IScriptPreProcessor;
 import com.cordys.coe.ac.scriptconnector.scripting.BridgeObject;
 import com.cordys.coe.ac.scriptconnector.scripting.ConfiguredScript;
 import com.cordys.coe.ac.scriptconnector.scripting.IScriptHandler;
+import com.cordys.coe.ac.scriptconnector.soap.OutboundSoapRequest;
 import com.cordys.coe.ac.scriptconnector.soap.ScriptSoapMessage;
 import com.cordys.coe.util.general.Util;
 import com.eibus.connector.nom.SOAPMessage;
@@ -73,6 +76,10 @@ public class ScriptConnectorTransaction
      * Contains all SOAP messages create for this transaction.
      */
     final List<ScriptSoapMessage> soapMessageList = new LinkedList<ScriptSoapMessage>();
+    /**
+     * Contains all asynchronous outbound SOAP requests sent by this transaction.
+     */
+    final List<OutboundSoapRequest> outboundRequestList = new LinkedList<OutboundSoapRequest>();
 
     /**
      * Creates the transaction object.
@@ -95,6 +102,17 @@ public class ScriptConnectorTransaction
         }
     }
 
+    /**
+     * Adds the given outbound SOAP request to the garbage list. The request is abandoned when the
+     * transaction ends, so the response is deleted if the script has not fetched it.
+     *
+     * @param  request  Outbound request to be added.
+     */
+    public void addOutboundRequest(OutboundSoapRequest request)
+    {
+        outboundRequestList.add(request);
+    }
+
     /**
      * Adds the given SOAP message to the garbage list..
      *
@@ -129,6 +147,13 @@ public class ScriptConnectorTransaction
         }
 
         soapMessageList.clear();
+
+        for (OutboundSoapRequest request : outboundRequestList)
+        {
+            request.abandon();
+        }
+
+        outboundRequestList.clear();
     }
 
     /**
@@ -224,6 +249,37 @@ public class ScriptConnectorTransaction
                                                                                  bbResponse);
                         internalMethod = true;
                     }
+                    else if ("GetConnectorStatus".equals(action))
+                    {
+                        ConnectorStatus.processGetConnectorStatus(scConnector, bbRequest,
+                                                                  bbResponse);
+                        internalMethod = true;
+                    }
+                    else if ("ListScheduledRequests".equals(action))
+                    {
+                        ScheduledRequests.processListScheduledRequests(scConnector, bbRequest,
+                                                                       bbResponse);
+                        internalMethod = true;
+                    }
+                    else if ("CancelScheduledRequest".equals(action))
+                    {
+                        ScheduledRequests.processCancelScheduledRequest(scConnector, bbRequest,
+                                                                        bbResponse);
+                        internalMethod = true;
+                    }
+                    else if ("RescheduleScheduledRequest".equals(action))
+                    {
+                        ScheduledRequests.processRescheduleScheduledRequest(scConnector,
+                                                                            bbRequest,
+                                                                            bbResponse);
+                        internalMethod = true;
+                    }
+                    else if ("GetSchedulerStatistics".equals(action))
+                    {
+                        ScheduledRequests.processGetSchedulerStatistics(scConnector, bbRequest,
+                                                                        bbResponse);
+                        internalMethod = true;
+                    }
                 }
             }
 
@@ -387,6 +443,16 @@ public class ScriptConnectorTransaction
         return bReturn;
     }
 
+    /**
+     * Returns the script connector instance.
+     *
+     * @return  Script connector.
+     */
+    public ScriptConnector getConnector()
+    {
+        return scConnector;
+    }
+
     /**
      * Returns the transactionSaveId.
      *
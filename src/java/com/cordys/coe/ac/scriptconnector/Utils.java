@@ -20,6 +20,8 @@ package com.cordys.coe.ac.scriptconnector;
 import com.eibus.xml.nom.Node;
 import com.eibus.xml.nom.NodeType;
 
+import javax.xml.XMLConstants;
+
 /**
  * Contains utility methods for ScriptConnector.
  *
@@ -269,6 +271,42 @@ public class Utils
         }
     }
 
+    /**
+     * Returns the namespace URI bound to the prefix at the given element. The namespace
+     * declarations are searched from the element and its parents.
+     *
+     * @param   node    NOM element.
+     * @param   prefix  Namespace prefix.
+     *
+     * @return  Namespace URI or <code>null</code> if the prefix is not declared.
+     */
+    public static String lookupNamespaceURI(int node, String prefix)
+    {
+        if ("xml".equals(prefix))
+        {
+            return XMLConstants.XML_NS_URI;
+        }
+
+        String attrName = "xmlns:" + prefix;
+
+        for (int current = node; current != 0; current = Node.getParent(current))
+        {
+            if (Node.getType(current) != NodeType.ELEMENT)
+            {
+                break;
+            }
+
+            String uri = Node.getAttribute(current, attrName);
+
+            if (uri != null)
+            {
+                return uri;
+            }
+        }
+
+        return null;
+    }
+
     /**
      * Same an Node.unlink() but removes all extra namespace declarations (e.g. xmlns:SOAP).
      *
@@ -19,11 +19,18 @@ package com.cordys.coe.ac.scriptconnector.config;
 
 import java.io.File;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Holds a file last modification timestamp. This is used to check if the file has been modified
  * (but not with every access).
  *
- * <p>This class is not thread-safe and access to it synchronized.</p>
+ * <p>When the timestamp is registered to a FileWatcher, the file is not checked by hasChanged().
+ * Instead the watcher marks the timestamp as changed in the background.</p>
+ *
+ * <p>This class is thread-safe. When the file has changed, only one of the calling threads gets
+ * <code>true</code> from hasChanged().</p>
  *
  * @author  mpoyhone
  */
@@ -33,6 +40,10 @@ public class FileTimestamp
      * File status is checked only if last check was done after this time.
      */
     private static final long SCAN_INTERVAL = 300L;
+    /**
+     * Set by the file watcher when the file has changed.
+     */
+    private AtomicBoolean changed = new AtomicBoolean();
     /**
      * File object.
      */
@@ -40,11 +51,15 @@ public class FileTimestamp
     /**
      * Last modification check.
      */
-    private long lastCheck;
+    private AtomicLong lastCheck = new AtomicLong();
     /**
      * File's last modification time.
      */
-    private long lastModified;
+    private AtomicLong lastModified = new AtomicLong();
+    /**
+     * Set to <code>true</code> when this timestamp is updated by a file watcher.
+     */
+    private volatile boolean watched;
 
     /**
      * Constructor for FileTimestamp.
@@ -55,8 +70,8 @@ public class FileTimestamp
     {
         super();
         this.file = file;
-        this.lastModified = file.lastModified();
-        this.lastCheck = System.currentTimeMillis();
+        this.lastModified.set(file.lastModified());
+        this.lastCheck.set(System.currentTimeMillis());
     }
 
     /**
@@ -66,20 +81,23 @@ public class FileTimestamp
      */
     public boolean hasChanged()
     {
+        if (watched)
+        {
+            return changed.compareAndSet(true, false);
+        }
+
         long now = System.currentTimeMillis();
+        long last = lastCheck.get();
 
-        if ((now - lastCheck) < SCAN_INTERVAL)
+        // Only the thread which updates the check time reads the file status.
+        if (((now - last) < SCAN_INTERVAL) || !lastCheck.compareAndSet(last, now))
         {
             return false;
         }
 
         long fileTimestamp = file.lastModified();
-        boolean changed = fileTimestamp != lastModified;
-
-        lastCheck = now;
-        lastModified = fileTimestamp;
 
-        return changed;
+        return lastModified.getAndSet(fileTimestamp) != fileTimestamp;
     }
 
     /**
@@ -91,4 +109,36 @@ public class FileTimestamp
     {
         return file;
     }
+
+    /**
+     * Returns <code>true</code> if this timestamp is updated by a file watcher.
+     *
+     * @return  <code>true</code> if this timestamp is watched.
+     */
+    public boolean isWatched()
+    {
+        return watched;
+    }
+
+    /**
+     * Called by the file watcher when the file has changed.
+     */
+    void markChanged()
+    {
+        changed.set(true);
+    }
+
+    /**
+     * Called by the file watcher when this timestamp has been registered. Modifications made
+     * after this timestamp was created are detected here.
+     */
+    void setWatched()
+    {
+        if (file.lastModified() != lastModified.get())
+        {
+            changed.set(true);
+        }
+
+        watched = true;
+    }
 }
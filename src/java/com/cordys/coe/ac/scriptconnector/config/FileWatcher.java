@@ -0,0 +1,587 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.config;
+
+import com.eibus.util.logger.CordysLogger;
+import com.eibus.util.logger.Severity;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.lang.ref.WeakReference;
+
+import java.nio.file.FileStore;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches files in a background thread and marks the registered file timestamps as changed. This
+ * way the request threads only need to read a flag instead of checking the file modification
+ * time.
+ *
+ * <p>Folders are watched with the Java NIO watch service. The file modification times are polled
+ * in the background instead, if polling has been configured, the folder cannot be registered to
+ * the watch service or the folder is on a network file system (e.g. NFS or CIFS). Registration
+ * to the watch service succeeds on network file systems, but changes made by other hosts are
+ * not notified.</p>
+ *
+ * <p>File timestamps are referenced weakly, so timestamps of replaced scripts and configurations
+ * do not need to be removed from the watcher.</p>
+ */
+public class FileWatcher
+{
+    /**
+     * Logger for log messages from this class.
+     */
+    private static final CordysLogger LOG = CordysLogger.getCordysLogger(FileWatcher.class);
+    /**
+     * Default polling interval in milliseconds.
+     */
+    public static final long DEFAULT_POLL_INTERVAL = 2000L;
+    /**
+     * Watch method which disables the watcher. Files are then checked from the request threads.
+     */
+    public static final String METHOD_NONE = "none";
+    /**
+     * Watch method which uses the watch service with polling as a fallback.
+     */
+    public static final String METHOD_WATCHSERVICE = "watchservice";
+    /**
+     * Watch method which always polls the files.
+     */
+    public static final String METHOD_POLLING = "polling";
+    /**
+     * File store types of network file systems. Folders on these are always polled.
+     */
+    private static final Set<String> NETWORK_FILE_STORE_TYPES = new HashSet<String>(Arrays.asList("nfs", "nfs4", "cifs", "smb", "smb2", "smbfs", "afs", "ncpfs", "9p", "davfs",
+                                                                                                  "fuse.sshfs", "glusterfs", "fuse.glusterfs", "ceph", "lustre"));
+    /**
+     * Watched folders by the folder path.
+     */
+    private Map<File, WatchedFolder> folderMap = new HashMap<File, WatchedFolder>();
+    /**
+     * Polling interval in milliseconds.
+     */
+    private long pollInterval;
+    /**
+     * Set to <code>true</code> when the watcher has been stopped.
+     */
+    private volatile boolean stopped;
+    /**
+     * Background thread.
+     */
+    private Thread watcherThread;
+    /**
+     * Watch service or <code>null</code> if only polling is used.
+     */
+    private WatchService watchService;
+    /**
+     * Watched folders by the watch service key.
+     */
+    private Map<WatchKey, WatchedFolder> watchKeyMap = new HashMap<WatchKey, WatchedFolder>();
+
+    /**
+     * Constructor for FileWatcher.
+     *
+     * @param  usePolling    If <code>true</code>, the watch service is not used.
+     * @param  pollInterval  Polling interval in milliseconds.
+     */
+    public FileWatcher(boolean usePolling, long pollInterval)
+    {
+        this.pollInterval = pollInterval;
+
+        if (!usePolling)
+        {
+            try
+            {
+                watchService = FileSystems.getDefault().newWatchService();
+            }
+            catch (Exception e)
+            {
+                LOG.log(Severity.WARN,
+                        "Unable to create the file watch service. Using polling instead.", e);
+            }
+        }
+    }
+
+    /**
+     * Starts the background thread.
+     */
+    public void start()
+    {
+        watcherThread = new Thread(new Runnable()
+            {
+                public void run()
+                {
+                    runWatcher();
+                }
+            }, "ScriptConnector-FileWatcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("File watcher started. Using watch service: " + (watchService != null) +
+                      ", polling interval: " + pollInterval);
+        }
+    }
+
+    /**
+     * Stops the background thread and closes the watch service.
+     */
+    public void stop()
+    {
+        stopped = true;
+
+        if (watcherThread != null)
+        {
+            watcherThread.interrupt();
+        }
+
+        if (watchService != null)
+        {
+            try
+            {
+                watchService.close();
+            }
+            catch (IOException ignored)
+            {
+            }
+        }
+
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("File watcher stopped.");
+        }
+    }
+
+    /**
+     * Registers the timestamp to this watcher. After this the timestamp is marked as changed by
+     * the background thread.
+     *
+     * @param  timestamp  File timestamp.
+     */
+    public void watch(FileTimestamp timestamp)
+    {
+        File file = timestamp.getFile().getAbsoluteFile();
+        File folder = file.getParentFile();
+
+        if (folder == null)
+        {
+            return;
+        }
+
+        synchronized (folderMap)
+        {
+            WatchedFolder watchedFolder = folderMap.get(folder);
+
+            if (watchedFolder == null)
+            {
+                watchedFolder = new WatchedFolder(folder);
+                folderMap.put(folder, watchedFolder);
+            }
+
+            WatchedFile watchedFile = watchedFolder.files.get(file.getName());
+
+            if (watchedFile == null)
+            {
+                watchedFile = new WatchedFile(file);
+                watchedFolder.files.put(file.getName(), watchedFile);
+            }
+
+            if (!watchedFile.contains(timestamp))
+            {
+                watchedFile.timestamps.add(new WeakReference<FileTimestamp>(timestamp));
+            }
+        }
+
+        // From now on the flag is used, so check the modifications which happened before this.
+        timestamp.setWatched();
+    }
+
+    /**
+     * Checks if the file store type is a network file system, which does not notify the watch
+     * service about changes made by other hosts.
+     *
+     * @param   type  File store type.
+     *
+     * @return  <code>true</code> if the type is a network file system.
+     */
+    static boolean isNetworkFileStore(String type)
+    {
+        return (type != null) && NETWORK_FILE_STORE_TYPES.contains(type.toLowerCase());
+    }
+
+    /**
+     * Marks all timestamps of the file as changed. Must be called while synchronized over
+     * folderMap.
+     *
+     * @param  watchedFile  Watched file.
+     */
+    private void fileChanged(WatchedFile watchedFile)
+    {
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("File changed: " + watchedFile.file);
+        }
+
+        for (WeakReference<FileTimestamp> ref : watchedFile.timestamps)
+        {
+            FileTimestamp timestamp = ref.get();
+
+            if (timestamp != null)
+            {
+                timestamp.markChanged();
+            }
+        }
+    }
+
+    /**
+     * Handles the events of one watch service key.
+     *
+     * @param  key  Signalled watch key.
+     */
+    private void handleWatchKey(WatchKey key)
+    {
+        synchronized (folderMap)
+        {
+            WatchedFolder watchedFolder = watchKeyMap.get(key);
+
+            for (WatchEvent<?> event : key.pollEvents())
+            {
+                if (watchedFolder == null)
+                {
+                    continue;
+                }
+
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+                {
+                    // Events were lost, so all files are considered to be changed.
+                    for (WatchedFile watchedFile : watchedFolder.files.values())
+                    {
+                        fileChanged(watchedFile);
+                    }
+
+                    continue;
+                }
+
+                Path name = (Path) event.context();
+                WatchedFile watchedFile = watchedFolder.files.get(name.toString());
+
+                if (watchedFile != null)
+                {
+                    fileChanged(watchedFile);
+                }
+            }
+        }
+
+        if (!key.reset())
+        {
+            synchronized (folderMap)
+            {
+                WatchedFolder watchedFolder = watchKeyMap.remove(key);
+
+                if (watchedFolder != null)
+                {
+                    // The folder is no longer accessible, so fall back to polling.
+                    watchedFolder.watchKey = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Registers new folders to the watch service, polls the files of folders which are not
+     * registered and removes entries which no longer have any timestamps.
+     */
+    private void pollFiles()
+    {
+        synchronized (folderMap)
+        {
+            for (Iterator<WatchedFolder> folderIter = folderMap.values().iterator();
+                     folderIter.hasNext();)
+            {
+                WatchedFolder watchedFolder = folderIter.next();
+
+                for (Iterator<WatchedFile> fileIter = watchedFolder.files.values().iterator();
+                         fileIter.hasNext();)
+                {
+                    WatchedFile watchedFile = fileIter.next();
+
+                    if (!watchedFile.removeClearedTimestamps())
+                    {
+                        fileIter.remove();
+                        continue;
+                    }
+
+                    if (watchedFolder.watchKey == null)
+                    {
+                        long modified = watchedFile.file.lastModified();
+
+                        if (modified != watchedFile.lastModified)
+                        {
+                            watchedFile.lastModified = modified;
+                            fileChanged(watchedFile);
+                        }
+                    }
+                }
+
+                if (watchedFolder.files.isEmpty())
+                {
+                    if (watchedFolder.watchKey != null)
+                    {
+                        watchKeyMap.remove(watchedFolder.watchKey);
+                        watchedFolder.watchKey.cancel();
+                    }
+
+                    folderIter.remove();
+                    continue;
+                }
+
+                if ((watchedFolder.watchKey == null) && (watchService != null) &&
+                        !watchedFolder.registrationFailed)
+                {
+                    registerFolder(watchedFolder);
+                }
+            }
+        }
+    }
+
+    /**
+     * Registers the folder to the watch service. Must be called while synchronized over
+     * folderMap.
+     *
+     * @param  watchedFolder  Folder to be registered.
+     */
+    private void registerFolder(WatchedFolder watchedFolder)
+    {
+        try
+        {
+            FileStore store = Files.getFileStore(watchedFolder.folder.toPath());
+
+            if (isNetworkFileStore(store.type()))
+            {
+                watchedFolder.registrationFailed = true;
+
+                LOG.log(Severity.INFO,
+                        "Folder " + watchedFolder.folder + " is on a network file system (" +
+                        store.type() + "). Polling the files instead.");
+                return;
+            }
+
+            watchedFolder.watchKey = watchedFolder.folder.toPath().register(watchService,
+                                                                             StandardWatchEventKinds.ENTRY_CREATE,
+                                                                             StandardWatchEventKinds.ENTRY_MODIFY,
+                                                                             StandardWatchEventKinds.ENTRY_DELETE);
+            watchKeyMap.put(watchedFolder.watchKey, watchedFolder);
+
+            // Check the files once more in case they were modified before the registration.
+            for (WatchedFile watchedFile : watchedFolder.files.values())
+            {
+                long modified = watchedFile.file.lastModified();
+
+                if (modified != watchedFile.lastModified)
+                {
+                    watchedFile.lastModified = modified;
+                    fileChanged(watchedFile);
+                }
+            }
+
+            if (LOG.isDebugEnabled())
+            {
+                LOG.debug("Watching folder: " + watchedFolder.folder);
+            }
+        }
+        catch (Exception e)
+        {
+            watchedFolder.registrationFailed = true;
+
+            LOG.log(Severity.WARN,
+                    "Unable to watch folder " + watchedFolder.folder +
+                    ". Polling the files instead.", e);
+        }
+    }
+
+    /**
+     * Background thread main loop.
+     */
+    private void runWatcher()
+    {
+        long nextPoll = 0;
+
+        while (!stopped)
+        {
+            try
+            {
+                long now = System.currentTimeMillis();
+
+                if (now >= nextPoll)
+                {
+                    pollFiles();
+                    nextPoll = now + pollInterval;
+                }
+
+                long wait = Math.max(nextPoll - System.currentTimeMillis(), 1L);
+
+                if (watchService != null)
+                {
+                    WatchKey key = watchService.poll(wait, TimeUnit.MILLISECONDS);
+
+                    if (key != null)
+                    {
+                        handleWatchKey(key);
+                    }
+                }
+                else
+                {
+                    Thread.sleep(wait);
+                }
+            }
+            catch (InterruptedException e)
+            {
+                // Stopped.
+            }
+            catch (Exception e)
+            {
+                if (!stopped)
+                {
+                    LOG.log(Severity.ERROR, "File watcher failed.", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Contains the file timestamps registered for one file.
+     */
+    private static class WatchedFile
+    {
+        /**
+         * File.
+         */
+        private File file;
+        /**
+         * File's last modification time when it was last polled.
+         */
+        private long lastModified;
+        /**
+         * Registered timestamps.
+         */
+        private List<WeakReference<FileTimestamp>> timestamps = new ArrayList<WeakReference<FileTimestamp>>(2);
+
+        /**
+         * Constructor for WatchedFile.
+         *
+         * @param  file  File.
+         */
+        WatchedFile(File file)
+        {
+            this.file = file;
+            this.lastModified = file.lastModified();
+        }
+
+        /**
+         * Checks if the timestamp is already registered for this file.
+         *
+         * @param   timestamp  File timestamp.
+         *
+         * @return  <code>true</code> if the timestamp is registered.
+         */
+        boolean contains(FileTimestamp timestamp)
+        {
+            for (WeakReference<FileTimestamp> ref : timestamps)
+            {
+                if (ref.get() == timestamp)
+                {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * Removes timestamps which have been garbage collected.
+         *
+         * @return  <code>true</code> if there are timestamps left.
+         */
+        boolean removeClearedTimestamps()
+        {
+            for (Iterator<WeakReference<FileTimestamp>> iter = timestamps.iterator();
+                     iter.hasNext();)
+            {
+                if (iter.next().get() == null)
+                {
+                    iter.remove();
+                }
+            }
+
+            return !timestamps.isEmpty();
+        }
+    }
+
+    /**
+     * Contains the watched files of one folder.
+     */
+    private static class WatchedFolder
+    {
+        /**
+         * Watched files by the file name.
+         */
+        private Map<String, WatchedFile> files = new HashMap<String, WatchedFile>();
+        /**
+         * Folder.
+         */
+        private File folder;
+        /**
+         * Set to <code>true</code> if the folder could not be registered to the watch service or
+         * it is on a network file system.
+         */
+        private boolean registrationFailed;
+        /**
+         * Watch service key or <code>null</code> if the folder is polled.
+         */
+        private WatchKey watchKey;
+
+        /**
+         * Constructor for WatchedFolder.
+         *
+         * @param  folder  Folder.
+         */
+        WatchedFolder(File folder)
+        {
+            this.folder = folder;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.config;
+
+import com.cordys.coe.ac.scriptconnector.exception.ScriptConnectorException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Contains the outbound request policies by the method name. The policy of the method
+ * <code>*</code> is used for the methods which have no settings of their own.
+ */
+public class OutboundPolicies
+{
+    /**
+     * Default maximum size of the response cache in bytes.
+     */
+    public static final long DEFAULT_CACHE_MAX_BYTES = 16L * 1024 * 1024;
+    /**
+     * Method name for the default settings.
+     */
+    public static final String DEFAULT_METHOD = "*";
+    /**
+     * Maximum size of the response cache in bytes.
+     */
+    private final long cacheMaxBytes;
+    /**
+     * Policies by the method name.
+     */
+    private final Map<String, OutboundPolicy> policyMap;
+
+    /**
+     * Constructor for OutboundPolicies.
+     *
+     * @param  policyMap      Policies by the method name.
+     * @param  cacheMaxBytes  Maximum size of the response cache in bytes.
+     */
+    private OutboundPolicies(Map<String, OutboundPolicy> policyMap, long cacheMaxBytes)
+    {
+        this.policyMap = policyMap;
+        this.cacheMaxBytes = cacheMaxBytes;
+    }
+
+    /**
+     * Creates the policies from the settings. The default settings are merged into each method's
+     * settings.
+     *
+     * @param   settings       Settings by the method name and setting name.
+     * @param   cacheMaxBytes  Maximum size of the response cache in bytes.
+     *
+     * @return  Created policies.
+     *
+     * @throws  ScriptConnectorException  Thrown if a setting is invalid.
+     */
+    static OutboundPolicies create(Map<String, Map<String, String>> settings, long cacheMaxBytes)
+                            throws ScriptConnectorException
+    {
+        Map<String, String> defaults = settings.get(DEFAULT_METHOD);
+        Map<String, OutboundPolicy> policyMap = new HashMap<String, OutboundPolicy>();
+
+        for (Map.Entry<String, Map<String, String>> entry : settings.entrySet())
+        {
+            Map<String, String> merged = new HashMap<String, String>();
+
+            if (defaults != null)
+            {
+                merged.putAll(defaults);
+            }
+
+            merged.putAll(entry.getValue());
+
+            policyMap.put(entry.getKey(),
+                          OutboundPolicy.parse("outbound." + entry.getKey() + ".", merged));
+        }
+
+        return new OutboundPolicies(policyMap, cacheMaxBytes);
+    }
+
+    /**
+     * Returns the maximum size of the response cache in bytes.
+     *
+     * @return  Maximum cache size.
+     */
+    public long getCacheMaxBytes()
+    {
+        return cacheMaxBytes;
+    }
+
+    /**
+     * Returns the policy for the method.
+     *
+     * @param   methodName  Method name.
+     *
+     * @return  Method policy. This is never <code>null</code>.
+     */
+    public OutboundPolicy getPolicy(String methodName)
+    {
+        OutboundPolicy res = (methodName != null) ? policyMap.get(methodName) : null;
+
+        if (res == null)
+        {
+            res = policyMap.get(DEFAULT_METHOD);
+        }
+
+        return (res != null) ? res : OutboundPolicy.DEFAULT;
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.config;
+
+import com.cordys.coe.ac.scriptconnector.exception.ScriptConnectorException;
+
+import java.util.Map;
+
+/**
+ * Settings for outbound SOAP requests sent to one method. These are configured in the script
+ * configuration file with keys <code>outbound.[method name].[setting]</code>. The method name
+ * <code>*</code> sets the defaults for all methods.
+ */
+public class OutboundPolicy
+{
+    /**
+     * Setting for the number of consecutive failures which opens the circuit breaker.
+     */
+    public static final String SETTING_BREAKER_FAILURE_THRESHOLD = "breaker.failureThreshold";
+    /**
+     * Setting for the time in seconds the circuit breaker stays open before a probe request is
+     * let through.
+     */
+    public static final String SETTING_BREAKER_OPEN_TIME = "breaker.openTime";
+    /**
+     * Setting for the maximum number of cached responses for the method.
+     */
+    public static final String SETTING_CACHE_MAX_ENTRIES = "cache.maxEntries";
+    /**
+     * Setting for the response cache time-to-live in seconds.
+     */
+    public static final String SETTING_CACHE_TTL = "cache.ttl";
+    /**
+     * Setting for coalescing identical concurrent requests.
+     */
+    public static final String SETTING_COALESCE = "coalesce";
+    /**
+     * Setting for the maximum number of concurrent requests to the method.
+     */
+    public static final String SETTING_MAX_CONCURRENT = "maxConcurrent";
+    /**
+     * Policy for methods which have no settings.
+     */
+    static final OutboundPolicy DEFAULT = new OutboundPolicy();
+    /**
+     * Default time in milliseconds the circuit breaker stays open.
+     */
+    private static final long DEFAULT_BREAKER_OPEN_TIME = 30000L;
+    /**
+     * Default maximum number of cached responses per method.
+     */
+    private static final int DEFAULT_CACHE_MAX_ENTRIES = 1000;
+    /**
+     * Number of consecutive failures which opens the circuit breaker or 0 if the breaker is
+     * disabled.
+     */
+    private int breakerFailureThreshold;
+    /**
+     * Time in milliseconds the circuit breaker stays open.
+     */
+    private long breakerOpenTime = DEFAULT_BREAKER_OPEN_TIME;
+    /**
+     * Maximum number of cached responses for the method.
+     */
+    private int cacheMaxEntries = DEFAULT_CACHE_MAX_ENTRIES;
+    /**
+     * Response cache time-to-live in milliseconds or 0 if responses are not cached.
+     */
+    private long cacheTtl;
+    /**
+     * If <code>true</code>, identical concurrent requests are sent only once.
+     */
+    private boolean coalesce;
+    /**
+     * Maximum number of concurrent requests or 0 if there is no limit.
+     */
+    private int maxConcurrent;
+
+    /**
+     * Constructor for OutboundPolicy.
+     */
+    OutboundPolicy()
+    {
+    }
+
+    /**
+     * Parses the policy from the settings.
+     *
+     * @param   keyPrefix  Configuration key prefix for error messages.
+     * @param   settings   Settings by the setting name.
+     *
+     * @return  Parsed policy.
+     *
+     * @throws  ScriptConnectorException  Thrown if a setting is invalid.
+     */
+    public static OutboundPolicy parse(String keyPrefix, Map<String, String> settings)
+                                throws ScriptConnectorException
+    {
+        OutboundPolicy res = new OutboundPolicy();
+
+        for (Map.Entry<String, String> entry : settings.entrySet())
+        {
+            String name = entry.getKey();
+            String value = entry.getValue().trim();
+            String key = keyPrefix + name;
+
+            if (SETTING_CACHE_TTL.equals(name))
+            {
+                res.cacheTtl = parseSeconds(value, key);
+            }
+            else if (SETTING_CACHE_MAX_ENTRIES.equals(name))
+            {
+                res.cacheMaxEntries = parsePositiveInt(value, key);
+            }
+            else if (SETTING_COALESCE.equals(name))
+            {
+                res.coalesce = parseBoolean(value, key);
+            }
+            else if (SETTING_MAX_CONCURRENT.equals(name))
+            {
+                res.maxConcurrent = parsePositiveInt(value, key);
+            }
+            else if (SETTING_BREAKER_FAILURE_THRESHOLD.equals(name))
+            {
+                res.breakerFailureThreshold = parsePositiveInt(value, key);
+            }
+            else if (SETTING_BREAKER_OPEN_TIME.equals(name))
+            {
+                res.breakerOpenTime = parseSeconds(value, key);
+            }
+            else
+            {
+                throw new ScriptConnectorException("Unknown outbound setting: " + key);
+            }
+        }
+
+        return res;
+    }
+
+    /**
+     * Parses a boolean value.
+     *
+     * @param   value  Value to be parsed.
+     * @param   key    Configuration key for error messages.
+     *
+     * @return  Parsed value.
+     *
+     * @throws  ScriptConnectorException  Thrown if the value is invalid.
+     */
+    private static boolean parseBoolean(String value, String key)
+                                 throws ScriptConnectorException
+    {
+        if ("true".equalsIgnoreCase(value))
+        {
+            return true;
+        }
+
+        if ("false".equalsIgnoreCase(value))
+        {
+            return false;
+        }
+
+        throw new ScriptConnectorException("Invalid value for " + key + ": " + value);
+    }
+
+    /**
+     * Parses a positive integer value.
+     *
+     * @param   value  Value to be parsed.
+     * @param   key    Configuration key for error messages.
+     *
+     * @return  Parsed value.
+     *
+     * @throws  ScriptConnectorException  Thrown if the value is invalid.
+     */
+    private static int parsePositiveInt(String value, String key)
+                                 throws ScriptConnectorException
+    {
+        int res;
+
+        try
+        {
+            res = Integer.parseInt(value);
+        }
+        catch (NumberFormatException e)
+        {
+            throw new ScriptConnectorException("Invalid value for " + key + ": " + value);
+        }
+
+        if (res <= 0)
+        {
+            throw new ScriptConnectorException("Invalid value for " + key + ": " + value);
+        }
+
+        return res;
+    }
+
+    /**
+     * Parses a time value given in seconds.
+     *
+     * @param   value  Value to be parsed.
+     * @param   key    Configuration key for error messages.
+     *
+     * @return  Parsed value in milliseconds.
+     *
+     * @throws  ScriptConnectorException  Thrown if the value is invalid.
+     */
+    private static long parseSeconds(String value, String key)
+                              throws ScriptConnectorException
+    {
+        double res;
+
+        try
+        {
+            res = Double.parseDouble(value);
+        }
+        catch (NumberFormatException e)
+        {
+            throw new ScriptConnectorException("Invalid value for " + key + ": " + value);
+        }
+
+        if (res < 0)
+        {
+            throw new ScriptConnectorException("Invalid value for " + key + ": " + value);
+        }
+
+        return (long) (res * 1000);
+    }
+
+    /**
+     * Returns the breakerFailureThreshold.
+     *
+     * @return  Returns the breakerFailureThreshold.
+     */
+    public int getBreakerFailureThreshold()
+    {
+        return breakerFailureThreshold;
+    }
+
+    /**
+     * Returns the breakerOpenTime.
+     *
+     * @return  Returns the breakerOpenTime.
+     */
+    public long getBreakerOpenTime()
+    {
+        return breakerOpenTime;
+    }
+
+    /**
+     * Returns the cacheMaxEntries.
+     *
+     * @return  Returns the cacheMaxEntries.
+     */
+    public int getCacheMaxEntries()
+    {
+        return cacheMaxEntries;
+    }
+
+    /**
+     * Returns the cacheTtl.
+     *
+     * @return  Returns the cacheTtl.
+     */
+    public long getCacheTtl()
+    {
+        return cacheTtl;
+    }
+
+    /**
+     * Returns the maxConcurrent.
+     *
+     * @return  Returns the maxConcurrent.
+     */
+    public int getMaxConcurrent()
+    {
+        return maxConcurrent;
+    }
+
+    /**
+     * Returns <code>true</code> if the circuit breaker is enabled for this method.
+     *
+     * @return  <code>true</code> if the circuit breaker is enabled.
+     */
+    public boolean isBreakerEnabled()
+    {
+        return breakerFailureThreshold > 0;
+    }
+
+    /**
+     * Returns <code>true</code> if the responses for this method are cached.
+     *
+     * @return  <code>true</code> if the response cache is enabled.
+     */
+    public boolean isCacheEnabled()
+    {
+        return cacheTtl > 0;
+    }
+
+    /**
+     * Returns <code>true</code> if identical concurrent requests are coalesced.
+     *
+     * @return  <code>true</code> if coalescing is enabled.
+     */
+    public boolean isCoalesce()
+    {
+        return coalesce;
+    }
+
+    /**
+     * Returns <code>true</code> if requests to this method are guarded by a concurrency limit or
+     * a circuit breaker.
+     *
+     * @return  <code>true</code> if the requests are guarded.
+     */
+    public boolean isGuarded()
+    {
+        return (maxConcurrent > 0) || isBreakerEnabled();
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.config;
+
+import com.cordys.coe.ac.scriptconnector.processor.IScriptPreProcessor;
+import com.cordys.coe.ac.scriptconnector.scripting.ConfiguredScript;
+
+import com.eibus.util.logger.CordysLogger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Immutable snapshot of the script configuration. The configuration object publishes the current
+ * snapshot through a volatile reference, so requests can read it without locking. Changes are
+ * made by creating a new snapshot and replacing the reference.
+ *
+ * <p>Resolved lookups are cached per snapshot by the request method name and namespace, so a
+ * request needs only one map lookup. Negative results are cached as well. The cache is discarded
+ * with the snapshot when the configuration changes.</p>
+ */
+public class ScriptConfigurationSnapshot
+{
+    /**
+     * Logger for log messages from this class.
+     */
+    private static final CordysLogger LOG = CordysLogger.getCordysLogger(ScriptConfigurationSnapshot.class);
+    /**
+     * Maximum number of resolved routes kept in the cache. This protects against requests with
+     * arbitrary method names or namespaces.
+     */
+    private static final int MAX_ROUTE_CACHE_SIZE = 10000;
+    /**
+     * Contains configuration files and last modification time. This is used for determining if the
+     * scripts need to be reloaded.
+     */
+    private final List<FileTimestamp> configFileTimestampList;
+    /**
+     * Outbound request policies.
+     */
+    private final OutboundPolicies outboundPolicies;
+    /**
+     * A map containing script preprocessors.
+     */
+    private final Map<ScriptLocator, IScriptPreProcessor> preProcessorMap;
+    /**
+     * Contains the resolved routes by the request locator.
+     */
+    private final ConcurrentMap<ScriptLocator, Route> routeCache = new ConcurrentHashMap<ScriptLocator, Route>();
+    /**
+     * A map containing the configured scripts.
+     */
+    private final Map<ScriptLocator, ConfiguredScript> scriptMap;
+
+    /**
+     * Constructor for ScriptConfigurationSnapshot. The passed collections are copied.
+     *
+     * @param  scriptMap                Configured scripts.
+     * @param  preProcessorMap          Script pre-processors.
+     * @param  configFileTimestampList  Configuration file timestamps.
+     * @param  outboundPolicies         Outbound request policies.
+     */
+    public ScriptConfigurationSnapshot(Map<ScriptLocator, ConfiguredScript> scriptMap,
+                                       Map<ScriptLocator, IScriptPreProcessor> preProcessorMap,
+                                       List<FileTimestamp> configFileTimestampList,
+                                       OutboundPolicies outboundPolicies)
+    {
+        this.scriptMap = Collections.unmodifiableMap(new HashMap<ScriptLocator, ConfiguredScript>(scriptMap));
+        this.preProcessorMap = Collections.unmodifiableMap(new HashMap<ScriptLocator, IScriptPreProcessor>(preProcessorMap));
+        this.configFileTimestampList = Collections.unmodifiableList(new ArrayList<FileTimestamp>(configFileTimestampList));
+        this.outboundPolicies = outboundPolicies;
+    }
+
+    /**
+     * Checks if the configuration files have changed.
+     *
+     * @return  <code>true</code> if any of the files has changed.
+     */
+    public boolean configurationFilesChanged()
+    {
+        for (FileTimestamp entry : configFileTimestampList)
+        {
+            if (entry.hasChanged())
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Tries to find the pre-processor by the given locator. This method operates like
+     * findScript().
+     *
+     * @param   scriptId  Script ID to be located.
+     *
+     * @return  Script pre-processor or <code>null</code> if none was found.
+     */
+    public IScriptPreProcessor findPreProcessor(ScriptLocator scriptId)
+    {
+        return resolve(scriptId).preProcessor;
+    }
+
+    /**
+     * Tries to find the script by the given locator. This method will also try the script to find
+     * from default namespace or method name. Search order is: &lt;ul&gt; &lt;li&gt;-[method name,
+     * namespace]&lt;/li&gt; &lt;li&gt;-[*, namespace]&lt;/li&gt; &lt;li&gt;-[method name, *]&lt;/li&gt;
+     * &lt;li&gt;-[*, *]&lt;/li&gt; &lt;/ul&gt;
+     *
+     * @param   scriptId  Script ID to be located.
+     *
+     * @return  Script object or <code>null</code> if none was found.
+     */
+    public ConfiguredScript findScript(ScriptLocator scriptId)
+    {
+        return resolve(scriptId).script;
+    }
+
+    /**
+     * Returns the configuration file timestamps.
+     *
+     * @return  Unmodifiable list of timestamps.
+     */
+    public List<FileTimestamp> getConfigFileTimestamps()
+    {
+        return configFileTimestampList;
+    }
+
+    /**
+     * Returns the outbound request policies.
+     *
+     * @return  Outbound request policies.
+     */
+    public OutboundPolicies getOutboundPolicies()
+    {
+        return outboundPolicies;
+    }
+
+    /**
+     * Returns the configured script with exactly this locator.
+     *
+     * @param   scriptId  Script locator.
+     *
+     * @return  Script object or <code>null</code> if none was found.
+     */
+    public ConfiguredScript getScript(ScriptLocator scriptId)
+    {
+        return scriptMap.get(scriptId);
+    }
+
+    /**
+     * Returns all configured scripts.
+     *
+     * @return  Unmodifiable collection of scripts.
+     */
+    public Collection<ConfiguredScript> getScripts()
+    {
+        return scriptMap.values();
+    }
+
+    /**
+     * Returns the number of cached routes.
+     *
+     * @return  Route cache size.
+     */
+    public int getRouteCacheSize()
+    {
+        return routeCache.size();
+    }
+
+    /**
+     * Resolves the script and pre-processor for the request locator. The result is cached, so
+     * the wildcard search is done only once per method name and namespace.
+     *
+     * @param   scriptId  Request locator.
+     *
+     * @return  Resolved route. The script and pre-processor are <code>null</code> if none was
+     *          found.
+     */
+    public Route resolve(ScriptLocator scriptId)
+    {
+        Route route = routeCache.get(scriptId);
+
+        if (route != null)
+        {
+            return route;
+        }
+
+        route = new Route(findEntry(scriptMap, scriptId, "script"),
+                          findEntry(preProcessorMap, scriptId, "script pre-processor"));
+
+        if (routeCache.size() < MAX_ROUTE_CACHE_SIZE)
+        {
+            // The key is created without the script file, so the request file is not kept.
+            routeCache.putIfAbsent(new ScriptLocator(scriptId.getMethodName(),
+                                                     scriptId.getNamespace()), route);
+        }
+
+        return route;
+    }
+
+    /**
+     * Returns a new snapshot where the given script replaces the script with the same locator.
+     *
+     * @param   script  New script.
+     *
+     * @return  New snapshot.
+     */
+    public ScriptConfigurationSnapshot withScript(ConfiguredScript script)
+    {
+        Map<ScriptLocator, ConfiguredScript> newMap = new HashMap<ScriptLocator, ConfiguredScript>(scriptMap);
+
+        newMap.put(script.getLocator(), script);
+
+        return new ScriptConfigurationSnapshot(newMap, preProcessorMap, configFileTimestampList,
+                                               outboundPolicies);
+    }
+
+    /**
+     * Finds an entry from the map with the fallback search order described in findScript().
+     *
+     * @param   map       Map to be searched.
+     * @param   scriptId  Script ID to be located.
+     * @param   type      Entry type for log messages.
+     *
+     * @return  Found entry or <code>null</code>.
+     */
+    private static <T> T findEntry(Map<ScriptLocator, T> map, ScriptLocator scriptId, String type)
+    {
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Trying to find " + type + " with locator: " + scriptId);
+        }
+
+        T res;
+
+        if ((res = map.get(scriptId)) == null)
+        {
+            // Try [*, namespace]
+            ScriptLocator tmpScriptId = new ScriptLocator(null, scriptId.getNamespace());
+
+            if (LOG.isDebugEnabled())
+            {
+                LOG.debug("Trying to find " + type + " with locator: " + tmpScriptId);
+            }
+
+            if ((res = map.get(tmpScriptId)) == null)
+            {
+                // Try [method name, *]
+                tmpScriptId = new ScriptLocator(scriptId.getMethodName(), null);
+
+                if (LOG.isDebugEnabled())
+                {
+                    LOG.debug("Trying to find " + type + " with locator: " + tmpScriptId);
+                }
+
+                if ((res = map.get(tmpScriptId)) == null)
+                {
+                    // Try [*, *]
+                    tmpScriptId = new ScriptLocator(null, null);
+
+                    if (LOG.isDebugEnabled())
+                    {
+                        LOG.debug("Trying to find " + type + " with locator: " + tmpScriptId);
+                    }
+
+                    res = map.get(tmpScriptId);
+                }
+            }
+        }
+
+        return res;
+    }
+
+    /**
+     * Contains the resolved script and pre-processor for a request method name and namespace.
+     */
+    public static class Route
+    {
+        /**
+         * Resolved pre-processor or <code>null</code>.
+         */
+        private final IScriptPreProcessor preProcessor;
+        /**
+         * Resolved script or <code>null</code>.
+         */
+        private final ConfiguredScript script;
+
+        /**
+         * Constructor for Route.
+         *
+         * @param  script        Resolved script or <code>null</code>.
+         * @param  preProcessor  Resolved pre-processor or <code>null</code>.
+         */
+        Route(ConfiguredScript script, IScriptPreProcessor preProcessor)
+        {
+            this.script = script;
+            this.preProcessor = preProcessor;
+        }
+
+        /**
+         * Returns the preProcessor.
+         *
+         * @return  Returns the preProcessor.
+         */
+        public IScriptPreProcessor getPreProcessor()
+        {
+            return preProcessor;
+        }
+
+        /**
+         * Returns the script.
+         *
+         * @return  Returns the script.
+         */
+        public ConfiguredScript getScript()
+        {
+            return script;
+        }
+    }
+}
@@ -22,12 +22,15 @@ import com.cordys.coe.ac.scriptconnector.aclib.ISoapRequestContext;
 import com.cordys.coe.ac.scriptconnector.exception.ScriptConnectorException;
 import com.cordys.coe.ac.scriptconnector.processor.IScriptPreProcessor;
 import com.cordys.coe.ac.scriptconnector.scripting.ConfiguredScript;
+import com.cordys.coe.ac.scriptconnector.scripting.ScriptContextFactory;
+import com.cordys.coe.ac.scriptconnector.scripting.ScriptEnginePool;
 import com.cordys.coe.exception.GeneralException;
 import com.cordys.coe.util.FileUtils;
 import com.cordys.coe.util.XMLProperties;
 import com.cordys.coe.util.xml.nom.XPathHelper;
 
 import com.eibus.util.logger.CordysLogger;
+import com.eibus.util.logger.Severity;
 
 import com.eibus.xml.nom.Node;
 
@@ -38,6 +41,7 @@ import java.io.InputStream;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -46,10 +50,15 @@ import java.util.Properties;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.mozilla.javascript.Context;
+
 /**
  * This class holds the configuration details for the ScriptConnector.
  */
@@ -63,14 +72,38 @@ public class ScriptConnectorConfiguration
      * Property name for the default namespace definition.
      */
     private static final String PROP_NAME_DEFAULT_NAMESPACE = "property.file.default.namespace";
+    /**
+     * Property name for the default Rhino optimization level definition.
+     */
+    private static final String PROP_NAME_DEFAULT_OPTIMIZATION = "property.file.default.optimization";
     /**
      * Property name for the file include property.
      */
     private static final String PROP_NAME_INCLUDE = "property.file.include";
+    /**
+     * Property name for the maximum size of the outbound response cache in bytes.
+     */
+    private static final String PROP_NAME_OUTBOUND_CACHE_MAX_BYTES = "outbound.cache.maxBytes";
     /**
      * Property name for the method namespace property.
      */
     private static final String PROP_POSTFIX_NAMESPACE = ".namespace";
+    /**
+     * Property name for the method handler function property.
+     */
+    private static final String PROP_POSTFIX_HANDLER = ".handler";
+    /**
+     * Property name for the method instruction limit property.
+     */
+    private static final String PROP_POSTFIX_INSTRUCTION_LIMIT = ".instructionLimit";
+    /**
+     * Property name for the method Rhino optimization level property.
+     */
+    private static final String PROP_POSTFIX_OPTIMIZATION = ".optimization";
+    /**
+     * Property name for the method execution timeout property.
+     */
+    private static final String PROP_POSTFIX_TIMEOUT = ".timeout";
     /**
      * Property name for the method pre-processor property.
      */
@@ -80,21 +113,95 @@ public class ScriptConnectorConfiguration
      */
     private static final Pattern PROP_PATTERN_PREPROCESSOR_PARAMS = Pattern.compile("^([^.]+)\\.preprocessor\\.(.+)$");
     /**
-     * Singleton instance to represent a <code>null</code> value in the preprocessor map.
+     * Pattern for outbound request settings. Group 1 is the method name and group 2 the setting.
      */
-    private static final IScriptPreProcessor NULL_PREPROCESSOR = new NullPreProcessor();
+    private static final Pattern PROP_PATTERN_OUTBOUND = Pattern.compile("^outbound\\.([^.]+)\\.(.+)$");
     /**
-     * A map containing script preprocessors.
+     * Singleton instance to represent a <code>null</code> value in the preprocessor map.
      */
-    protected ConcurrentMap<ScriptLocator, IScriptPreProcessor> mPreProcessorMap = new ConcurrentHashMap<ScriptLocator, IScriptPreProcessor>();
+    private static final IScriptPreProcessor NULL_PREPROCESSOR = new NullPreProcessor();
     /**
-     * A map containing the configured scripts.
+     * Contains the current script configuration. Requests read this without locking and reloads
+     * replace it with a new snapshot.
      */
-    protected Map<ScriptLocator, ConfiguredScript> mScriptMap = new HashMap<ScriptLocator, ConfiguredScript>();
+    protected volatile ScriptConfigurationSnapshot snapshot;
     /**
      * Optional parent folder where to save the transaction request and response.
      */
     protected File transactionSavePath;
+    /**
+     * Background file watcher or <code>null</code> if the watcher has not been started.
+     */
+    private volatile FileWatcher fileWatcher;
+    /**
+     * File watch method: watchservice, polling or none.
+     */
+    private String fileWatchMethod;
+    /**
+     * File polling interval in milliseconds.
+     */
+    private long fileWatchPollInterval;
+    /**
+     * Default maximum number of Rhino instructions per request or 0 if there is no limit.
+     */
+    private long scriptInstructionLimit;
+    /**
+     * Default maximum script execution time in milliseconds or 0 if there is no limit.
+     */
+    private long scriptTimeout;
+    /**
+     * If <code>true</code>, all scripts are compiled when the connector is started.
+     */
+    private boolean warmupEnabled;
+    /**
+     * If <code>true</code>, the connector start fails if a script fails to compile in warm-up.
+     */
+    private boolean warmupFailFast;
+    /**
+     * Number of threads used for the script warm-up.
+     */
+    private int warmupParallelism;
+    /**
+     * Maximum number of script engines checked out per script type.
+     */
+    private int scriptEnginePoolSize;
+    /**
+     * Maximum number of outbound SOAP requests waiting for a free outbound request thread.
+     */
+    private int outboundQueueSize;
+    /**
+     * Maximum number of threads for sending concurrent outbound SOAP requests from scripts.
+     */
+    private int outboundThreads;
+    /**
+     * Number of worker threads for running scheduled SOAP requests.
+     */
+    private int schedulerThreads;
+    /**
+     * Maximum number of scheduled SOAP requests waiting to be sent.
+     */
+    private int schedulerMaxPending;
+    /**
+     * Number of overdue scheduled requests sent per second when the journal is replayed.
+     */
+    private int schedulerReplayRate;
+    /**
+     * Window for batching the due scheduled requests in milliseconds. Zero disables batching.
+     */
+    private long schedulerBatchWindow;
+    /**
+     * Timing wheel tick length of the scheduler in milliseconds. Zero means that the binary heap
+     * is used.
+     */
+    private long schedulerTickMillis;
+    /**
+     * Optional folder for the scheduled request journal.
+     */
+    protected File schedulerJournalPath;
+    /**
+     * Optional folder where the compiled script classes are cached.
+     */
+    protected File scriptCachePath;
     /**
      * Location of the script configuration file.
      */
@@ -103,11 +210,6 @@ public class ScriptConnectorConfiguration
      *  Maximum number of files per transaction.
      */
     private int maxFilesPerTransaction;
-    /**
-     * Contains configuration files and last modification time. This is used for determining if the
-     * scripts need to be reloaded.
-     */
-    private List<FileTimestamp> configFileTimestampList = new ArrayList<FileTimestamp>(10);
     /**
      * Connector instance.
      */
@@ -115,7 +217,7 @@ public class ScriptConnectorConfiguration
     /**
      * Contains properties loaded from the custom property file.
      */
-    private Map<String, String> customProperties = new HashMap<String, String>();
+    private volatile Map<String, String> customProperties = Collections.emptyMap();
     /**
      * Location of the custom property file.
      */
@@ -129,10 +231,60 @@ public class ScriptConnectorConfiguration
      * Contains the connector installation folder.
      */
     private File installationFolder;
+    /**
+     * Pre-processors created by the previous load. These are reused if their definition has not
+     * changed. This is accessed only while loading the scripts.
+     */
+    private Map<ScriptLocator, PreProcessorEntry> preProcessorCache = new HashMap<ScriptLocator, PreProcessorEntry>();
+    /**
+     * Property files parsed by the previous load. These are reused if the file has not changed.
+     * This is accessed only while loading the scripts.
+     */
+    private Map<File, PropertyFileEntry> propertyFileCache = new HashMap<File, PropertyFileEntry>();
+    /**
+     * Executor for compiling changed scripts in the background. This is created when needed.
+     */
+    private ExecutorService compileExecutor;
+    /**
+     * Contains the scripts whose new version is being compiled.
+     */
+    private ConcurrentMap<ConfiguredScript, Boolean> compilingScripts = new ConcurrentHashMap<ConfiguredScript, Boolean>();
+    /**
+     * Lock for replacing the configuration snapshot.
+     */
+    private final Object reloadLock = new Object();
     /**
      * SOAP request timeout in milliseconds from the configuration. Default is 30000.
      */
     private long soapRequestTimeout = 30000L;
+    /**
+     * Default number of outbound request threads.
+     */
+    private static final int DEFAULT_OUTBOUND_THREADS = 10;
+    /**
+     * Default maximum number of queued outbound requests.
+     */
+    private static final int DEFAULT_OUTBOUND_QUEUE_SIZE = 1000;
+    /**
+     * Default number of scheduler worker threads.
+     */
+    private static final int DEFAULT_SCHEDULER_THREADS = 4;
+    /**
+     * Default maximum number of pending scheduled requests.
+     */
+    private static final int DEFAULT_SCHEDULER_MAX_PENDING = 100000;
+    /**
+     * Default number of overdue scheduled requests sent per second after a restart.
+     */
+    private static final int DEFAULT_SCHEDULER_REPLAY_RATE = 10;
+    /**
+     * Default scheduler tick length. The binary heap is used by default.
+     */
+    private static final long DEFAULT_SCHEDULER_TICK_MILLIS = 0;
+    /**
+     * Default scheduled request batch window. Batching is disabled by default.
+     */
+    private static final long DEFAULT_SCHEDULER_BATCH_WINDOW = 0;
     /**
      * Default value for maximum log files per transaction.
      */
@@ -198,7 +350,12 @@ public class ScriptConnectorConfiguration
             throw new ScriptConnectorException("Configuration file doest not exist: " + configFile);
         }
 
-        loadScripts();
+        // Get the default script execution budget.
+        scriptTimeout = parseTimeout(xpBase.getStringValue("scriptTimeout"), "scriptTimeout");
+        scriptInstructionLimit = parseInstructionLimit(xpBase.getStringValue("scriptInstructionLimit"),
+                                                       "scriptInstructionLimit");
+
+        snapshot = loadScripts(null);
 
         // Get the custom property file path and load it.
         customPropertyFile = getCustomPropertyFile();
@@ -216,7 +373,7 @@ public class ScriptConnectorConfiguration
                                                    customPropertyFile);
             }
 
-            loadCustomProperties();
+            customProperties = loadCustomProperties();
             customPropertyFileTimestamp = new FileTimestamp(customPropertyFile);
         }
 
@@ -245,6 +402,47 @@ public class ScriptConnectorConfiguration
             }
         }
 
+        // Get the compiled script cache folder.
+        scriptCachePath = getScriptCacheFolder();
+
+        if (scriptCachePath != null)
+        {
+            if (!scriptCachePath.isAbsolute())
+            {
+                scriptCachePath = new File(installationFolder, scriptCachePath.getPath());
+            }
+
+            if (LOG.isDebugEnabled())
+            {
+                LOG.debug("Caching compiled scripts under folder: " + scriptCachePath);
+            }
+        }
+
+        // Get the scheduled request journal folder.
+        schedulerJournalPath = getSchedulerJournalFolder();
+
+        if (schedulerJournalPath != null)
+        {
+            if (!schedulerJournalPath.isAbsolute())
+            {
+                schedulerJournalPath = new File(installationFolder, schedulerJournalPath.getPath());
+            }
+
+            if (!schedulerJournalPath.exists())
+            {
+                if (!schedulerJournalPath.mkdirs())
+                {
+                    throw new ScriptConnectorException("Unable to create scheduler journal folder: " +
+                                                       schedulerJournalPath);
+                }
+            }
+
+            if (LOG.isDebugEnabled())
+            {
+                LOG.debug("Journaling scheduled requests under folder: " + schedulerJournalPath);
+            }
+        }
+
         // Get the SOAP request timeout parameter.
         String tmpStr = xpBase.getStringValue("soapRequestTimeout");
 
@@ -262,126 +460,377 @@ public class ScriptConnectorConfiguration
         
         
         initializeMaxFilesPerTransaction();
-    }
 
-	/**
-	 * Initialize the value of max files per transaction
-	 * 
-	 * @throws ScriptConnectorException
-	 */
-	private void initializeMaxFilesPerTransaction() throws ScriptConnectorException
-	{
-		maxFilesPerTransaction = 0;
-		boolean ok = false;
-		String sMaxFilesPerTransaction = xpBase.getStringValue("maxFiles");
-		
-        if ((sMaxFilesPerTransaction != null) && (sMaxFilesPerTransaction.length() > 0))
+        // Get the script engine pool size.
+        tmpStr = xpBase.getStringValue("scriptEnginePoolSize");
+        scriptEnginePoolSize = ScriptEnginePool.DEFAULT_POOL_SIZE;
+
+        if ((tmpStr != null) && (tmpStr.length() > 0))
         {
-		    try
-		    {
-		    	maxFilesPerTransaction = Integer.parseInt(sMaxFilesPerTransaction);
-		        if (maxFilesPerTransaction > 0)
-		        {
-		        	ok = true;
-		        }
-		    }
-		    catch (Exception e)
-		    {
-		    }	    
-        } else {
-            maxFilesPerTransaction = DEFAULT_MAX_FILES_PER_TRANSACTION;
-            ok = true;
+            try
+            {
+                scriptEnginePoolSize = Integer.parseInt(tmpStr);
+            }
+            catch (Exception e)
+            {
+                throw new ScriptConnectorException("Invalid script engine pool size value: " +
+                                                   tmpStr);
+            }
+
+            if (scriptEnginePoolSize <= 0)
+            {
+                throw new ScriptConnectorException("Invalid script engine pool size value: " +
+                                                   tmpStr);
+            }
         }
-        
-        if (!ok)
+
+        // Get the number of outbound request threads.
+        tmpStr = xpBase.getStringValue("outboundThreads");
+        outboundThreads = DEFAULT_OUTBOUND_THREADS;
+
+        if ((tmpStr != null) && (tmpStr.length() > 0))
         {
-        	throw new ScriptConnectorException("Invalid Max Files per transaction value : " + sMaxFilesPerTransaction);
+            try
+            {
+                outboundThreads = Integer.parseInt(tmpStr);
+            }
+            catch (Exception e)
+            {
+                throw new ScriptConnectorException("Invalid outbound thread count value: " +
+                                                   tmpStr);
+            }
+
+            if (outboundThreads <= 0)
+            {
+                throw new ScriptConnectorException("Invalid outbound thread count value: " +
+                                                   tmpStr);
+            }
         }
-	}
-	
-    /**
-     * Tries to find the pre-processor by the given locator. This method operates like findScript().
-     *
-     * @param   scriptId  Script ID to be located.
-     *
-     * @return  Script pre-processor or <code>null</code> if none was found.
-     */
-    public IScriptPreProcessor findPreProcessor(ScriptLocator scriptId)
-    {
-        if (LOG.isDebugEnabled())
+
+        // Get the maximum number of queued outbound requests.
+        tmpStr = xpBase.getStringValue("outboundQueueSize");
+        outboundQueueSize = DEFAULT_OUTBOUND_QUEUE_SIZE;
+
+        if ((tmpStr != null) && (tmpStr.length() > 0))
         {
-            LOG.debug("Trying to find script pre-processor with locator: " + scriptId);
+            try
+            {
+                outboundQueueSize = Integer.parseInt(tmpStr);
+            }
+            catch (Exception e)
+            {
+                throw new ScriptConnectorException("Invalid outbound queue size value: " + tmpStr);
+            }
+
+            if (outboundQueueSize <= 0)
+            {
+                throw new ScriptConnectorException("Invalid outbound queue size value: " + tmpStr);
+            }
         }
 
-        IScriptPreProcessor processor;
+        // Get the scheduler parameters.
+        tmpStr = xpBase.getStringValue("schedulerThreads");
+        schedulerThreads = DEFAULT_SCHEDULER_THREADS;
 
-        if ((processor = mPreProcessorMap.get(scriptId)) == null)
+        if ((tmpStr != null) && (tmpStr.length() > 0))
         {
-            // Try [*, namespace]
-            ScriptLocator tmpScriptId = new ScriptLocator(null, scriptId.getNamespace());
+            try
+            {
+                schedulerThreads = Integer.parseInt(tmpStr);
+            }
+            catch (Exception e)
+            {
+                throw new ScriptConnectorException("Invalid scheduler thread count value: " +
+                                                   tmpStr);
+            }
 
-            if (LOG.isDebugEnabled())
+            if (schedulerThreads <= 0)
             {
-                LOG.debug("Trying to find script pre-processor with locator: " + tmpScriptId);
+                throw new ScriptConnectorException("Invalid scheduler thread count value: " +
+                                                   tmpStr);
             }
+        }
 
-            if ((processor = mPreProcessorMap.get(tmpScriptId)) == null)
+        tmpStr = xpBase.getStringValue("schedulerMaxPending");
+        schedulerMaxPending = DEFAULT_SCHEDULER_MAX_PENDING;
+
+        if ((tmpStr != null) && (tmpStr.length() > 0))
+        {
+            try
             {
-                // Try [method name, *]
-                tmpScriptId = new ScriptLocator(scriptId.getMethodName(), null);
+                schedulerMaxPending = Integer.parseInt(tmpStr);
+            }
+            catch (Exception e)
+            {
+                throw new ScriptConnectorException("Invalid scheduler maximum pending value: " +
+                                                   tmpStr);
+            }
 
-                if (LOG.isDebugEnabled())
-                {
-                    LOG.debug("Trying to find script pre-processor with locator: " + tmpScriptId);
-                }
+            if (schedulerMaxPending <= 0)
+            {
+                throw new ScriptConnectorException("Invalid scheduler maximum pending value: " +
+                                                   tmpStr);
+            }
+        }
 
-                if ((processor = mPreProcessorMap.get(tmpScriptId)) == null)
-                {
-                    // Try [*, *]
-                    tmpScriptId = new ScriptLocator(null, null);
+        tmpStr = xpBase.getStringValue("schedulerTickMillis");
+        schedulerTickMillis = DEFAULT_SCHEDULER_TICK_MILLIS;
 
-                    if (LOG.isDebugEnabled())
-                    {
-                        LOG.debug("Trying to find script pre-processor with locator: " +
-                                  tmpScriptId);
-                    }
+        if ((tmpStr != null) && (tmpStr.length() > 0))
+        {
+            try
+            {
+                schedulerTickMillis = Long.parseLong(tmpStr);
+            }
+            catch (Exception e)
+            {
+                throw new ScriptConnectorException("Invalid scheduler tick length value: " +
+                                                   tmpStr);
+            }
 
-                    processor = mPreProcessorMap.get(tmpScriptId);
-                }
+            if (schedulerTickMillis < 0)
+            {
+                throw new ScriptConnectorException("Invalid scheduler tick length value: " +
+                                                   tmpStr);
             }
         }
 
-        return (processor != NULL_PREPROCESSOR) ? processor : null;
-    }
-
-    /**
-     * Returns the configFile configuration value.
-     *
-     * @return  configFile value.
-     */
-    public File getConfigFile()
-    {
-        String path = xpBase.getStringValue("configFile");
+        tmpStr = xpBase.getStringValue("schedulerBatchWindow");
+        schedulerBatchWindow = DEFAULT_SCHEDULER_BATCH_WINDOW;
 
-        if ((path == null) || (path.length() == 0))
+        if ((tmpStr != null) && (tmpStr.length() > 0))
         {
-            return null;
+            try
+            {
+                schedulerBatchWindow = Long.parseLong(tmpStr);
+            }
+            catch (Exception e)
+            {
+                throw new ScriptConnectorException("Invalid scheduler batch window value: " +
+                                                   tmpStr);
+            }
+
+            if (schedulerBatchWindow < 0)
+            {
+                throw new ScriptConnectorException("Invalid scheduler batch window value: " +
+                                                   tmpStr);
+            }
         }
 
-        return new File(path);
-    }
+        tmpStr = xpBase.getStringValue("schedulerReplayRate");
+        schedulerReplayRate = DEFAULT_SCHEDULER_REPLAY_RATE;
 
-    /**
-     * Returns a custom property loaded from the file.
-     *
-     * @param   name  Property name.
-     *
-     * @return  Property value or <code>null</code> if no property has been set.
-     */
-    public String getCustomProperty(String name)
-    {
-        return customProperties.get(name);
-    }
+        if ((tmpStr != null) && (tmpStr.length() > 0))
+        {
+            try
+            {
+                schedulerReplayRate = Integer.parseInt(tmpStr);
+            }
+            catch (Exception e)
+            {
+                throw new ScriptConnectorException("Invalid scheduler replay rate value: " +
+                                                   tmpStr);
+            }
+
+            if (schedulerReplayRate <= 0)
+            {
+                throw new ScriptConnectorException("Invalid scheduler replay rate value: " +
+                                                   tmpStr);
+            }
+        }
+
+        // Get the file watcher parameters.
+        tmpStr = xpBase.getStringValue("fileWatchMethod");
+        fileWatchMethod = FileWatcher.METHOD_WATCHSERVICE;
+
+        if ((tmpStr != null) && (tmpStr.length() > 0))
+        {
+            fileWatchMethod = tmpStr.trim().toLowerCase();
+
+            if (!FileWatcher.METHOD_WATCHSERVICE.equals(fileWatchMethod) &&
+                    !FileWatcher.METHOD_POLLING.equals(fileWatchMethod) &&
+                    !FileWatcher.METHOD_NONE.equals(fileWatchMethod))
+            {
+                throw new ScriptConnectorException("Invalid file watch method: " + tmpStr);
+            }
+        }
+
+        tmpStr = xpBase.getStringValue("fileWatchPollInterval");
+        fileWatchPollInterval = FileWatcher.DEFAULT_POLL_INTERVAL;
+
+        if ((tmpStr != null) && (tmpStr.length() > 0))
+        {
+            try
+            {
+                fileWatchPollInterval = (long) (Double.parseDouble(tmpStr) * 1000);
+            }
+            catch (Exception e)
+            {
+                throw new ScriptConnectorException("Invalid file watch polling interval value: " +
+                                                   tmpStr);
+            }
+
+            if (fileWatchPollInterval <= 0)
+            {
+                throw new ScriptConnectorException("Invalid file watch polling interval value: " +
+                                                   tmpStr);
+            }
+        }
+
+        // Get the script warm-up parameters.
+        warmupEnabled = "true".equalsIgnoreCase(xpBase.getStringValue("warmupScripts"));
+        warmupFailFast = "true".equalsIgnoreCase(xpBase.getStringValue("warmupFailFast"));
+        tmpStr = xpBase.getStringValue("warmupParallelism");
+        warmupParallelism = Runtime.getRuntime().availableProcessors();
+
+        if ((tmpStr != null) && (tmpStr.length() > 0))
+        {
+            try
+            {
+                warmupParallelism = Integer.parseInt(tmpStr);
+            }
+            catch (Exception e)
+            {
+                throw new ScriptConnectorException("Invalid script warm-up parallelism value: " +
+                                                   tmpStr);
+            }
+
+            if (warmupParallelism <= 0)
+            {
+                throw new ScriptConnectorException("Invalid script warm-up parallelism value: " +
+                                                   tmpStr);
+            }
+        }
+    }
+
+    /**
+     * Starts the background file watcher, unless it has been disabled in the configuration. After
+     * this the configuration and script file changes are detected by the watcher.
+     */
+    public void startFileWatcher()
+    {
+        if (FileWatcher.METHOD_NONE.equals(fileWatchMethod) || (fileWatcher != null))
+        {
+            return;
+        }
+
+        FileWatcher watcher = new FileWatcher(FileWatcher.METHOD_POLLING.equals(fileWatchMethod),
+                                              fileWatchPollInterval);
+
+        synchronized (reloadLock)
+        {
+            fileWatcher = watcher;
+            watchSnapshot(snapshot);
+
+            if (customPropertyFileTimestamp != null)
+            {
+                watcher.watch(customPropertyFileTimestamp);
+            }
+        }
+
+        watcher.start();
+    }
+
+    /**
+     * Stops the background file watcher and script compilation.
+     */
+    public void close()
+    {
+        FileWatcher watcher = fileWatcher;
+
+        if (watcher != null)
+        {
+            fileWatcher = null;
+            watcher.stop();
+        }
+
+        synchronized (reloadLock)
+        {
+            if (compileExecutor != null)
+            {
+                compileExecutor.shutdownNow();
+                compileExecutor = null;
+            }
+        }
+    }
+
+	/**
+	 * Initialize the value of max files per transaction
+	 * 
+	 * @throws ScriptConnectorException
+	 */
+	private void initializeMaxFilesPerTransaction() throws ScriptConnectorException
+	{
+		maxFilesPerTransaction = 0;
+		boolean ok = false;
+		String sMaxFilesPerTransaction = xpBase.getStringValue("maxFiles");
+		
+        if ((sMaxFilesPerTransaction != null) && (sMaxFilesPerTransaction.length() > 0))
+        {
+		    try
+		    {
+		    	maxFilesPerTransaction = Integer.parseInt(sMaxFilesPerTransaction);
+		        if (maxFilesPerTransaction > 0)
+		        {
+		        	ok = true;
+		        }
+		    }
+		    catch (Exception e)
+		    {
+		    }	    
+        } else {
+            maxFilesPerTransaction = DEFAULT_MAX_FILES_PER_TRANSACTION;
+            ok = true;
+        }
+        
+        if (!ok)
+        {
+        	throw new ScriptConnectorException("Invalid Max Files per transaction value : " + sMaxFilesPerTransaction);
+        }
+	}
+	
+    /**
+     * Tries to find the pre-processor by the given locator. This method operates like findScript().
+     *
+     * @param   scriptId  Script ID to be located.
+     *
+     * @return  Script pre-processor or <code>null</code> if none was found.
+     */
+    public IScriptPreProcessor findPreProcessor(ScriptLocator scriptId)
+    {
+        IScriptPreProcessor processor = snapshot.findPreProcessor(scriptId);
+
+        return (processor != NULL_PREPROCESSOR) ? processor : null;
+    }
+
+    /**
+     * Returns the configFile configuration value.
+     *
+     * @return  configFile value.
+     */
+    public File getConfigFile()
+    {
+        String path = xpBase.getStringValue("configFile");
+
+        if ((path == null) || (path.length() == 0))
+        {
+            return null;
+        }
+
+        return new File(path);
+    }
+
+    /**
+     * Returns a custom property loaded from the file.
+     *
+     * @param   name  Property name.
+     *
+     * @return  Property value or <code>null</code> if no property has been set.
+     */
+    public String getCustomProperty(String name)
+    {
+        return customProperties.get(name);
+    }
 
     /**
      * Returns the customPropertyFile configuration value.
@@ -423,178 +872,268 @@ public class ScriptConnectorConfiguration
     public ConfiguredScript getScript(ScriptLocator scriptId)
                                throws Exception
     {
-        ConfiguredScript csScript;
+        ScriptConfigurationSnapshot current = snapshot;
 
-        synchronized (mScriptMap)
+        // Check if the script property file needs to be reloaded.
+        if (current.configurationFilesChanged())
         {
-            // Check if the script property file needs to be reloaded.
-            if (configurationFilesChanged())
-            {
-                loadScripts();
-            }
+            current = reloadScripts(current);
+        }
 
-            csScript = findScript(scriptId);
+        ConfiguredScript csScript = current.findScript(scriptId);
 
-            if (csScript == null)
-            {
-                return null;
-            }
+        if (csScript == null)
+        {
+            return null;
+        }
 
-            if (csScript.isLoaded())
-            {
-                // Check if the script file has been changed.
-                FileTimestamp scriptTimestamp = csScript.getTimestamp();
+        if (csScript.isLoaded())
+        {
+            // Check if the script file has been changed.
+            FileTimestamp scriptTimestamp = csScript.getTimestamp();
 
-                if ((scriptTimestamp != null) && scriptTimestamp.hasChanged())
+            if ((scriptTimestamp != null) && scriptTimestamp.hasChanged())
+            {
+                if (connector != null)
+                {
+                    // The old version is used until the new one has been compiled.
+                    recompileScript(csScript);
+                }
+                else
                 {
-                    // Create a new instance and load the new version.
-                    mScriptMap.remove(csScript.getLocator());
-                    csScript = ConfiguredScript.createInstance(csScript.getLocator(),
-                                                               scriptTimestamp.getFile());
-                    mScriptMap.put(csScript.getLocator(), csScript);
+                    csScript = replaceScript(csScript, csScript.createNewInstance());
                 }
             }
         }
 
         // Check if we need to load the custom properties.
-        if (customPropertyFile != null)
+        if ((customPropertyFile != null) && customPropertyFileTimestamp.hasChanged())
         {
-            synchronized (customProperties)
-            {
-                // Check if the script property file needs to be reloaded.
-                if (customPropertyFileTimestamp.hasChanged())
-                {
-                    loadCustomProperties();
-                }
-            }
+            customProperties = loadCustomProperties();
         }
 
         return csScript;
     }
 
     /**
-     * Returns the soapRequestTimeout.
+     * Returns the number of cached script routes in the current configuration.
      *
-     * @return  Returns the soapRequestTimeout.
+     * @return  Route cache size.
      */
-    public long getSoapRequestTimeout()
+    public int getRouteCacheSize()
     {
-        return soapRequestTimeout;
+        return snapshot.getRouteCacheSize();
     }
 
     /**
-     * Returns the transactionSavePath.
+     * Returns all currently configured scripts.
      *
-     * @return  Returns the transactionSavePath.
+     * @return  Unmodifiable collection of scripts.
      */
-    public File getTransactionSavePath()
+    public Collection<ConfiguredScript> getScripts()
     {
-        return transactionSavePath;
+        return snapshot.getScripts();
     }
 
     /**
-     * Sets the soapRequestTimeout.
+     * Returns the warmupParallelism.
      *
-     * @param  soapRequestTimeout  The soapRequestTimeout to be set.
+     * @return  Returns the warmupParallelism.
      */
-    public void setSoapRequestTimeout(long soapRequestTimeout)
+    public int getWarmupParallelism()
     {
-        this.soapRequestTimeout = soapRequestTimeout;
+        return warmupParallelism;
     }
 
     /**
-     * Checks if the configuration files have changed.
+     * Returns the warmupEnabled.
      *
-     * @return
+     * @return  Returns the warmupEnabled.
      */
-    private boolean configurationFilesChanged()
+    public boolean isWarmupEnabled()
     {
-        for (FileTimestamp entry : configFileTimestampList)
-        {
-            if (entry.hasChanged())
-            {
-                return true;
-            }
-        }
-
-        return false;
+        return warmupEnabled;
     }
 
     /**
-     * Tries to find the script by the given locator. This method will also try the script to find
-     * from default namespace or method name. Search order is: &lt;ul&gt; &lt;li&gt;-[method name,
-     * namespace]&lt;/li&gt; &lt;li&gt;-[*, namespace]&lt;/li&gt; &lt;li&gt;-[method name, *]&lt;/li&gt;
-     * &lt;li&gt;-[*, *]&lt;/li&gt; &lt;/ul&gt;
+     * Returns the warmupFailFast.
      *
-     * <p>Note! The method call must be synchronized over mScriptMap.</p>
+     * @return  Returns the warmupFailFast.
+     */
+    public boolean isWarmupFailFast()
+    {
+        return warmupFailFast;
+    }
+
+    /**
+     * Returns the outbound request policy for the method.
      *
-     * @param   scriptId  Script ID to be located.
+     * @param   methodName  Outbound request method name.
      *
-     * @return  Script object or <code>null</code> if none was found.
+     * @return  Method policy.
      */
-    private ConfiguredScript findScript(ScriptLocator scriptId)
+    public OutboundPolicy getOutboundPolicy(String methodName)
     {
-        if (LOG.isDebugEnabled())
-        {
-            LOG.debug("Trying to find script with locator: " + scriptId);
-        }
-
-        ConfiguredScript csScript;
-
-        if ((csScript = mScriptMap.get(scriptId)) == null)
-        {
-            // Try [*, namespace]
-            ScriptLocator tmpScriptId = new ScriptLocator(null, scriptId.getNamespace());
-
-            if (LOG.isDebugEnabled())
-            {
-                LOG.debug("Trying to find script with locator: " + tmpScriptId);
-            }
+        return snapshot.getOutboundPolicies().getPolicy(methodName);
+    }
 
-            if ((csScript = mScriptMap.get(tmpScriptId)) == null)
-            {
-                // Try [method name, *]
-                tmpScriptId = new ScriptLocator(scriptId.getMethodName(), null);
+    /**
+     * Returns the maximum size of the outbound response cache in bytes.
+     *
+     * @return  Maximum cache size.
+     */
+    public long getOutboundCacheMaxBytes()
+    {
+        return snapshot.getOutboundPolicies().getCacheMaxBytes();
+    }
 
-                if (LOG.isDebugEnabled())
-                {
-                    LOG.debug("Trying to find script with locator: " + tmpScriptId);
-                }
+    /**
+     * Returns the outboundQueueSize.
+     *
+     * @return  Returns the outboundQueueSize.
+     */
+    public int getOutboundQueueSize()
+    {
+        return outboundQueueSize;
+    }
 
-                if ((csScript = mScriptMap.get(tmpScriptId)) == null)
-                {
-                    // Try [*, *]
-                    tmpScriptId = new ScriptLocator(null, null);
+    /**
+     * Returns the outboundThreads.
+     *
+     * @return  Returns the outboundThreads.
+     */
+    public int getOutboundThreads()
+    {
+        return outboundThreads;
+    }
 
-                    if (LOG.isDebugEnabled())
-                    {
-                        LOG.debug("Trying to find script with locator: " + tmpScriptId);
-                    }
+    /**
+     * Returns the schedulerBatchWindow.
+     *
+     * @return  Returns the schedulerBatchWindow.
+     */
+    public long getSchedulerBatchWindow()
+    {
+        return schedulerBatchWindow;
+    }
 
-                    csScript = mScriptMap.get(tmpScriptId);
-                }
-            }
-        }
+    /**
+     * Returns the schedulerJournalPath.
+     *
+     * @return  Returns the schedulerJournalPath.
+     */
+    public File getSchedulerJournalPath()
+    {
+        return schedulerJournalPath;
+    }
 
-        return csScript;
+    /**
+     * Returns the schedulerMaxPending.
+     *
+     * @return  Returns the schedulerMaxPending.
+     */
+    public int getSchedulerMaxPending()
+    {
+        return schedulerMaxPending;
     }
 
     /**
-     * Loads all custom properties from the custom property file. This method must be called from
-     * code which is synchronized over customProperties object.
+     * Returns the schedulerReplayRate.
      *
-     * @throws  ScriptConnectorException
+     * @return  Returns the schedulerReplayRate.
      */
-    private void loadCustomProperties()
-                               throws ScriptConnectorException
+    public int getSchedulerReplayRate()
     {
-        if (LOG.isDebugEnabled())
-        {
-            LOG.debug("Loading custom properties from file: " + customPropertyFile);
-        }
+        return schedulerReplayRate;
+    }
 
-        Map<String, String> tempMap = new HashMap<String, String>();
-        FileInputStream is = null;
+    /**
+     * Returns the schedulerThreads.
+     *
+     * @return  Returns the schedulerThreads.
+     */
+    public int getSchedulerThreads()
+    {
+        return schedulerThreads;
+    }
+
+    /**
+     * Returns the schedulerTickMillis.
+     *
+     * @return  Returns the schedulerTickMillis.
+     */
+    public long getSchedulerTickMillis()
+    {
+        return schedulerTickMillis;
+    }
+
+    /**
+     * Returns the scriptEnginePoolSize.
+     *
+     * @return  Returns the scriptEnginePoolSize.
+     */
+    public int getScriptEnginePoolSize()
+    {
+        return scriptEnginePoolSize;
+    }
+
+    /**
+     * Returns the scriptCachePath.
+     *
+     * @return  Returns the scriptCachePath.
+     */
+    public File getScriptCachePath()
+    {
+        return scriptCachePath;
+    }
+
+    /**
+     * Returns the soapRequestTimeout.
+     *
+     * @return  Returns the soapRequestTimeout.
+     */
+    public long getSoapRequestTimeout()
+    {
+        return soapRequestTimeout;
+    }
+
+    /**
+     * Returns the transactionSavePath.
+     *
+     * @return  Returns the transactionSavePath.
+     */
+    public File getTransactionSavePath()
+    {
+        return transactionSavePath;
+    }
+
+    /**
+     * Sets the soapRequestTimeout.
+     *
+     * @param  soapRequestTimeout  The soapRequestTimeout to be set.
+     */
+    public void setSoapRequestTimeout(long soapRequestTimeout)
+    {
+        this.soapRequestTimeout = soapRequestTimeout;
+    }
+
+    /**
+     * Loads all custom properties from the custom property file.
+     *
+     * @return  Unmodifiable map of the loaded properties.
+     *
+     * @throws  ScriptConnectorException
+     */
+    private Map<String, String> loadCustomProperties()
+                               throws ScriptConnectorException
+    {
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Loading custom properties from file: " + customPropertyFile);
+        }
+
+        Map<String, String> tempMap = new HashMap<String, String>();
+        FileInputStream is = null;
 
         try
         {
@@ -623,16 +1162,17 @@ public class ScriptConnectorConfiguration
             FileUtils.closeStream(is);
         }
 
-        customProperties.clear();
-        customProperties.putAll(tempMap);
+        return Collections.unmodifiableMap(tempMap);
     }
 
     /**
      * Loads script definitions. It handles the relative paths and property file includes (even
      * recursive ones).
      *
-     * @param   fileName   Property file to load.
-     * @param   relFolder  Parent folder for relative paths.
+     * @param   fileName             Property file to load.
+     * @param   relFolder            Parent folder for relative paths.
+     * @param   parentOptimization   Rhino optimization level inherited from the including file.
+     * @param   state                Contains the other results of this load.
      *
      * @return  Loaded properties.
      *
@@ -640,7 +1180,9 @@ public class ScriptConnectorConfiguration
      * @throws  ScriptConnectorException
      */
     private Collection<ConfiguredScript> loadScriptDefinitions(String fileName,
-                                                               String relFolder)
+                                                               String relFolder,
+                                                               int parentOptimization,
+                                                               LoadState state)
                                                         throws IOException, ScriptConnectorException
     {
         File file = new File(fileName);
@@ -655,34 +1197,26 @@ public class ScriptConnectorConfiguration
             throw new IOException("Property file does not exist: " + file);
         }
 
-        if (LOG.isDebugEnabled())
-        {
-            LOG.debug("Loading script definitions from file: " + file);
-        }
+        Properties pProps = readPropertyFile(file, state);
 
-        Properties pProps = new Properties();
-        InputStream in = null;
-
-        try
-        {
-            in = new FileInputStream(file);
-            pProps.load(in);
-        }
-        finally
-        {
-            FileUtils.closeStream(in);
-        }
-
-        configFileTimestampList.add(new FileTimestamp(file));
+        state.timestampList.add(new FileTimestamp(file));
 
         Collection<ConfiguredScript> resList = new ArrayList<ConfiguredScript>(20);
         Map<String, String> preProcessorClassMap = new HashMap<String, String>();
         Map<String, Map<String, String>> preProcessorParamMap = new HashMap<String, Map<String, String>>();
         String defaultNamespace;
+        int defaultOptimization = parentOptimization;
 
         defaultNamespace = pProps.getProperty(PROP_NAME_DEFAULT_NAMESPACE);
         pProps.remove(PROP_NAME_DEFAULT_NAMESPACE);
 
+        if (pProps.containsKey(PROP_NAME_DEFAULT_OPTIMIZATION))
+        {
+            defaultOptimization = parseOptimizationLevel(pProps.getProperty(PROP_NAME_DEFAULT_OPTIMIZATION),
+                                                         PROP_NAME_DEFAULT_OPTIMIZATION);
+            pProps.remove(PROP_NAME_DEFAULT_OPTIMIZATION);
+        }
+
         for (Iterator<Map.Entry<Object, Object>> iter = pProps.entrySet().iterator();
                  iter.hasNext();)
         {
@@ -694,13 +1228,35 @@ public class ScriptConnectorConfiguration
             if (key.equals(PROP_NAME_INCLUDE) || key.startsWith(PROP_NAME_INCLUDE + "."))
             {
                 Collection<ConfiguredScript> childList = loadScriptDefinitions(value,
-                                                                               file.getParent());
+                                                                               file.getParent(),
+                                                                               defaultOptimization,
+                                                                               state);
 
                 resList.addAll(childList);
             }
-            else if (key.endsWith(PROP_POSTFIX_NAMESPACE))
+            else if (key.equals(PROP_NAME_OUTBOUND_CACHE_MAX_BYTES))
             {
-                continue;
+                try
+                {
+                    state.outboundCacheMaxBytes = Long.parseLong(value.trim());
+                }
+                catch (NumberFormatException e)
+                {
+                    throw new ScriptConnectorException("Invalid value for " + key + ": " + value);
+                }
+            }
+            else if ((m = PROP_PATTERN_OUTBOUND.matcher(key)).matches())
+            {
+                String methodName = m.group(1);
+                Map<String, String> settings = state.outboundSettings.get(methodName);
+
+                if (settings == null)
+                {
+                    settings = new HashMap<String, String>();
+                    state.outboundSettings.put(methodName, settings);
+                }
+
+                settings.put(m.group(2), value);
             }
             else if ((m = PROP_PATTERN_PREPROCESSOR.matcher(key)).matches())
             {
@@ -730,10 +1286,24 @@ public class ScriptConnectorConfiguration
                     paramMap.put(paramName, value);
                 }
             }
+            else if (key.endsWith(PROP_POSTFIX_NAMESPACE) ||
+                         key.endsWith(PROP_POSTFIX_OPTIMIZATION) ||
+                         key.endsWith(PROP_POSTFIX_HANDLER) ||
+                         key.endsWith(PROP_POSTFIX_TIMEOUT) ||
+                         key.endsWith(PROP_POSTFIX_INSTRUCTION_LIMIT))
+            {
+                continue;
+            }
             else
             {
                 String methodName = key;
                 String methodNamespace = pProps.getProperty(methodName + PROP_POSTFIX_NAMESPACE);
+                String methodOptimization = pProps.getProperty(methodName +
+                                                               PROP_POSTFIX_OPTIMIZATION);
+                String methodHandler = pProps.getProperty(methodName + PROP_POSTFIX_HANDLER);
+                String methodTimeout = pProps.getProperty(methodName + PROP_POSTFIX_TIMEOUT);
+                String methodInstructionLimit = pProps.getProperty(methodName +
+                                                                   PROP_POSTFIX_INSTRUCTION_LIMIT);
                 File scriptFile = new File(value);
 
                 if (!scriptFile.isAbsolute())
@@ -762,6 +1332,51 @@ public class ScriptConnectorConfiguration
                                                                                             scriptFile),
                                                                           scriptFile);
 
+                if (methodOptimization != null)
+                {
+                    script.setOptimizationLevel(parseOptimizationLevel(methodOptimization,
+                                                                       key +
+                                                                       PROP_POSTFIX_OPTIMIZATION));
+                }
+                else
+                {
+                    script.setOptimizationLevel(defaultOptimization);
+                }
+
+                if ((methodHandler != null) && (methodHandler.trim().length() > 0))
+                {
+                    if (!(script instanceof ConfiguredScript.E4XScript))
+                    {
+                        throw new ScriptConnectorException("Handler functions are only supported for Javascript scripts: " +
+                                                           key + PROP_POSTFIX_HANDLER);
+                    }
+
+                    script.setHandlerFunctionName(methodHandler.trim());
+                }
+
+                script.setTimeout((methodTimeout != null)
+                                  ? parseTimeout(methodTimeout, key + PROP_POSTFIX_TIMEOUT)
+                                  : scriptTimeout);
+                script.setInstructionLimit((methodInstructionLimit != null)
+                                           ? parseInstructionLimit(methodInstructionLimit,
+                                                                   key +
+                                                                   PROP_POSTFIX_INSTRUCTION_LIMIT)
+                                           : scriptInstructionLimit);
+
+                if (script.hasExecutionBudget() &&
+                        !(script instanceof ConfiguredScript.E4XScript))
+                {
+                    if ((methodTimeout != null) || (methodInstructionLimit != null))
+                    {
+                        throw new ScriptConnectorException("Execution limits are only supported for Javascript scripts: " +
+                                                           key);
+                    }
+
+                    // The connector level defaults only apply to Javascript scripts.
+                    script.setTimeout(0);
+                    script.setInstructionLimit(0);
+                }
+
                 resList.add(script);
             }
         }
@@ -777,29 +1392,6 @@ public class ScriptConnectorConfiguration
 
             if ((className != null) && (className.length() > 0))
             {
-                try
-                {
-                    Object obj = Class.forName(className).newInstance();
-
-                    if (!(obj instanceof IScriptPreProcessor))
-                    {
-                        throw new IllegalStateException("Class does not implement interface: " +
-                                                        IScriptPreProcessor.class.getName());
-                    }
-
-                    processor = (IScriptPreProcessor) obj;
-                }
-                catch (Exception e)
-                {
-                    throw new ScriptConnectorException("Unable to instantiate script pre-processor class: " +
-                                                       className, e);
-                }
-
-                if (LOG.isDebugEnabled())
-                {
-                    LOG.debug("Initializing script pre-processor");
-                }
-
                 Map<String, String> params = preProcessorParamMap.get(methodName);
 
                 if (params == null)
@@ -807,21 +1399,29 @@ public class ScriptConnectorConfiguration
                     params = new HashMap<String, String>();
                 }
 
-                if (LOG.isDebugEnabled())
-                {
-                    LOG.debug("Initializing script pre-processor: " +
-                              processor.getClass().getName());
-                    LOG.debug("Pre-processor parameters are: " + params);
-                }
+                PreProcessorEntry previous = preProcessorCache.get(locator);
 
-                if (!processor.initialize(connector, params))
+                if ((previous != null) && previous.className.equals(className) &&
+                        previous.params.equals(params))
                 {
                     if (LOG.isDebugEnabled())
                     {
-                        LOG.debug("Pre-processor initialization returned false.");
+                        LOG.debug("Using the existing script pre-processor for method: " + locator);
+                    }
+
+                    processor = previous.processor;
+                }
+                else
+                {
+                    processor = createPreProcessor(className, params);
+
+                    if (processor == null)
+                    {
+                        continue;
                     }
-                    continue;
                 }
+
+                state.preProcessors.put(locator, new PreProcessorEntry(className, params, processor));
             }
             else
             {
@@ -833,7 +1433,7 @@ public class ScriptConnectorConfiguration
                 processor = NULL_PREPROCESSOR;
             }
 
-            mPreProcessorMap.put(locator, processor);
+            state.preProcessorMap.put(locator, processor);
         }
 
         return resList;
@@ -850,28 +1450,149 @@ public class ScriptConnectorConfiguration
 	}
 	
     /**
-     * Loads all scripts from the configuration file. This method must be called from code which is
-     * synchronized over mScriptMap object.
+     * Parses the Rhino optimization level from a property value.
+     *
+     * @param   value     Property value.
+     * @param   propName  Property name used in the error message.
+     *
+     * @return  Parsed optimization level.
+     *
+     * @throws  ScriptConnectorException  Thrown if the value is not a valid optimization level.
+     */
+    private static int parseOptimizationLevel(String value, String propName)
+                                       throws ScriptConnectorException
+    {
+        int level;
+
+        try
+        {
+            level = Integer.parseInt(value.trim());
+        }
+        catch (NumberFormatException e)
+        {
+            throw new ScriptConnectorException("Invalid optimization level for property " +
+                                               propName + ": " + value);
+        }
+
+        if (!Context.isValidOptimizationLevel(level))
+        {
+            throw new ScriptConnectorException("Invalid optimization level for property " +
+                                               propName + ": " + value +
+                                               ". Valid values are from -1 to 9.");
+        }
+
+        return level;
+    }
+
+    /**
+     * Parses the instruction limit from a configuration value.
+     *
+     * @param   value     Configuration value or <code>null</code>.
+     * @param   propName  Property name used in the error message.
+     *
+     * @return  Instruction limit or 0 if the value was not set.
+     *
+     * @throws  ScriptConnectorException  Thrown if the value is not valid.
+     */
+    private static long parseInstructionLimit(String value, String propName)
+                                       throws ScriptConnectorException
+    {
+        if ((value == null) || (value.trim().length() == 0))
+        {
+            return 0;
+        }
+
+        long limit;
+
+        try
+        {
+            limit = Long.parseLong(value.trim());
+        }
+        catch (NumberFormatException e)
+        {
+            throw new ScriptConnectorException("Invalid instruction limit for property " +
+                                               propName + ": " + value);
+        }
+
+        if (limit < 0)
+        {
+            throw new ScriptConnectorException("Invalid instruction limit for property " +
+                                               propName + ": " + value);
+        }
+
+        return limit;
+    }
+
+    /**
+     * Parses the script timeout from a configuration value. The value is in seconds.
+     *
+     * @param   value     Configuration value or <code>null</code>.
+     * @param   propName  Property name used in the error message.
+     *
+     * @return  Timeout in milliseconds or 0 if the value was not set.
+     *
+     * @throws  ScriptConnectorException  Thrown if the value is not valid.
+     */
+    private static long parseTimeout(String value, String propName)
+                              throws ScriptConnectorException
+    {
+        if ((value == null) || (value.trim().length() == 0))
+        {
+            return 0;
+        }
+
+        long timeout;
+
+        try
+        {
+            timeout = (long) (Double.parseDouble(value.trim()) * 1000);
+        }
+        catch (NumberFormatException e)
+        {
+            throw new ScriptConnectorException("Invalid timeout for property " + propName + ": " +
+                                               value);
+        }
+
+        if (timeout < 0)
+        {
+            throw new ScriptConnectorException("Invalid timeout for property " + propName + ": " +
+                                               value);
+        }
+
+        return timeout;
+    }
+
+    /**
+     * Loads all scripts from the configuration file into a new configuration snapshot. Scripts of
+     * the previous snapshot are kept if their definition has not changed, so they do not need to
+     * be compiled again. Unchanged property files are not read again.
+     *
+     * @param   previous  Previous snapshot or <code>null</code> if this is the initial load.
+     *
+     * @return  New configuration snapshot.
      *
      * @throws  ScriptConnectorException
      */
-    private void loadScripts()
-                      throws ScriptConnectorException
+    private ScriptConfigurationSnapshot loadScripts(ScriptConfigurationSnapshot previous)
+                                             throws ScriptConnectorException
     {
         if (LOG.isDebugEnabled())
         {
             LOG.debug("Loading scripts. Script root configuration file: " + configFile);
         }
 
-        configFileTimestampList.clear();
-
+        LoadState state = new LoadState();
         Map<ScriptLocator, ConfiguredScript> tempMap = new HashMap<ScriptLocator, ConfiguredScript>();
         String configFolder = configFile.getParent();
+        OutboundPolicies outboundPolicies;
 
         try
         {
             Collection<ConfiguredScript> list = loadScriptDefinitions(configFile.getPath(),
-                                                                      configFolder);
+                                                                      configFolder,
+                                                                      ScriptContextFactory.DEFAULT_OPTIMIZATION_LEVEL,
+                                                                      state);
+            int reusedCount = 0;
 
             for (ConfiguredScript script : list)
             {
@@ -882,8 +1603,28 @@ public class ScriptConnectorConfiguration
                                             script.getLocator().getScriptFile()));
                 }
 
+                if (previous != null)
+                {
+                    ConfiguredScript oldScript = previous.getScript(script.getLocator());
+
+                    if (script.hasSameDefinition(oldScript))
+                    {
+                        script = oldScript;
+                        reusedCount++;
+                    }
+                }
+
                 tempMap.put(script.getLocator(), script);
             }
+
+            if ((previous != null) && LOG.isDebugEnabled())
+            {
+                LOG.debug("Reloaded the configuration. Scripts kept: " + reusedCount + "/" +
+                          tempMap.size());
+            }
+
+            outboundPolicies = OutboundPolicies.create(state.outboundSettings,
+                                                       state.outboundCacheMaxBytes);
         }
         catch (Exception e)
         {
@@ -891,8 +1632,275 @@ public class ScriptConnectorConfiguration
                                                configFile, e);
         }
 
-        mScriptMap.clear();
-        mScriptMap.putAll(tempMap);
+        propertyFileCache = state.propertyFiles;
+        preProcessorCache = state.preProcessors;
+
+        return new ScriptConfigurationSnapshot(tempMap, state.preProcessorMap, state.timestampList,
+                                               outboundPolicies);
+    }
+
+    /**
+     * Creates and initializes a script pre-processor.
+     *
+     * @param   className  Pre-processor class name.
+     * @param   params     Pre-processor parameters.
+     *
+     * @return  Pre-processor or <code>null</code> if the initialization returned
+     *          <code>false</code>.
+     *
+     * @throws  ScriptConnectorException
+     */
+    private IScriptPreProcessor createPreProcessor(String className, Map<String, String> params)
+                                            throws ScriptConnectorException
+    {
+        IScriptPreProcessor processor;
+
+        try
+        {
+            Object obj = Class.forName(className).newInstance();
+
+            if (!(obj instanceof IScriptPreProcessor))
+            {
+                throw new IllegalStateException("Class does not implement interface: " +
+                                                IScriptPreProcessor.class.getName());
+            }
+
+            processor = (IScriptPreProcessor) obj;
+        }
+        catch (Exception e)
+        {
+            throw new ScriptConnectorException("Unable to instantiate script pre-processor class: " +
+                                               className, e);
+        }
+
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Initializing script pre-processor: " + processor.getClass().getName());
+            LOG.debug("Pre-processor parameters are: " + params);
+        }
+
+        if (!processor.initialize(connector, params))
+        {
+            if (LOG.isDebugEnabled())
+            {
+                LOG.debug("Pre-processor initialization returned false.");
+            }
+
+            return null;
+        }
+
+        return processor;
+    }
+
+    /**
+     * Reads a script configuration property file. If the file has not been modified since the
+     * previous load, the already parsed properties are returned.
+     *
+     * @param   file   Property file.
+     * @param   state  Current load state.
+     *
+     * @return  Properties, which can be modified by the caller.
+     *
+     * @throws  IOException
+     */
+    private Properties readPropertyFile(File file, LoadState state)
+                                 throws IOException
+    {
+        long lastModified = file.lastModified();
+        long length = file.length();
+        PropertyFileEntry entry = propertyFileCache.get(file);
+
+        if ((entry == null) || (entry.lastModified != lastModified) || (entry.length != length))
+        {
+            if (LOG.isDebugEnabled())
+            {
+                LOG.debug("Loading script definitions from file: " + file);
+            }
+
+            Properties pProps = new Properties();
+            InputStream in = null;
+
+            try
+            {
+                in = new FileInputStream(file);
+                pProps.load(in);
+            }
+            finally
+            {
+                FileUtils.closeStream(in);
+            }
+
+            entry = new PropertyFileEntry(lastModified, length, pProps);
+        }
+        else
+        {
+            if (LOG.isDebugEnabled())
+            {
+                LOG.debug("Using unchanged script definitions from file: " + file);
+            }
+        }
+
+        state.propertyFiles.put(file, entry);
+
+        return (Properties) entry.properties.clone();
+    }
+
+    /**
+     * Reloads all scripts and publishes the new configuration snapshot. If another thread has
+     * already replaced the snapshot, that one is returned instead.
+     *
+     * @param   current  Snapshot which was found to be out of date.
+     *
+     * @return  Current configuration snapshot.
+     *
+     * @throws  ScriptConnectorException
+     */
+    private ScriptConfigurationSnapshot reloadScripts(ScriptConfigurationSnapshot current)
+                                               throws ScriptConnectorException
+    {
+        synchronized (reloadLock)
+        {
+            if (snapshot != current)
+            {
+                return snapshot;
+            }
+
+            snapshot = loadScripts(current);
+            watchSnapshot(snapshot);
+
+            return snapshot;
+        }
+    }
+
+    /**
+     * Compiles the new version of a changed script in the background. The new version replaces
+     * the old one when it has been compiled. If the compilation fails, the error is logged and
+     * the old version is still used.
+     *
+     * @param  oldScript  Script whose file has changed.
+     */
+    private void recompileScript(final ConfiguredScript oldScript)
+    {
+        if (compilingScripts.putIfAbsent(oldScript, Boolean.TRUE) != null)
+        {
+            return;
+        }
+
+        Runnable task = new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        long startTime = System.currentTimeMillis();
+                        ConfiguredScript newScript = oldScript.createNewInstance();
+
+                        newScript.createHandler().loadScript(newScript, connector);
+                        replaceScript(oldScript, newScript);
+
+                        if (LOG.isDebugEnabled())
+                        {
+                            LOG.debug("Compiled the new version of script " +
+                                      oldScript.getScriptName() + " in " +
+                                      (System.currentTimeMillis() - startTime) + " ms.");
+                        }
+                    }
+                    catch (Throwable e)
+                    {
+                        LOG.log(Severity.ERROR,
+                                "Unable to compile the new version of script " +
+                                oldScript.getScriptName() + " for method " + oldScript.getLocator() +
+                                ". The previous version is used until the script is fixed.", e);
+                    }
+                    finally
+                    {
+                        compilingScripts.remove(oldScript);
+                    }
+                }
+            };
+
+        synchronized (reloadLock)
+        {
+            if (compileExecutor == null)
+            {
+                compileExecutor = Executors.newSingleThreadExecutor(new ThreadFactory()
+                    {
+                        public Thread newThread(Runnable r)
+                        {
+                            Thread t = new Thread(r, "ScriptConnector-Compiler");
+
+                            t.setDaemon(true);
+
+                            return t;
+                        }
+                    });
+            }
+
+            compileExecutor.execute(task);
+        }
+    }
+
+    /**
+     * Replaces a changed script with a new instance and publishes a new configuration snapshot
+     * containing it.
+     *
+     * @param   oldScript  Script whose file has changed.
+     * @param   newScript  New instance of the script.
+     *
+     * @return  Script to be used.
+     */
+    private ConfiguredScript replaceScript(ConfiguredScript oldScript, ConfiguredScript newScript)
+    {
+        synchronized (reloadLock)
+        {
+            ScriptConfigurationSnapshot current = snapshot;
+            ConfiguredScript script = current.getScript(oldScript.getLocator());
+
+            if (script != oldScript)
+            {
+                // The script has already been replaced or the configuration reloaded.
+                return (script != null) ? script : oldScript;
+            }
+
+            script = newScript;
+            snapshot = current.withScript(script);
+
+            if ((fileWatcher != null) && (script.getTimestamp() != null))
+            {
+                fileWatcher.watch(script.getTimestamp());
+            }
+
+            return script;
+        }
+    }
+
+    /**
+     * Registers the configuration file and script timestamps of the snapshot to the file
+     * watcher, if the watcher is running.
+     *
+     * @param  newSnapshot  Configuration snapshot.
+     */
+    private void watchSnapshot(ScriptConfigurationSnapshot newSnapshot)
+    {
+        FileWatcher watcher = fileWatcher;
+
+        if (watcher == null)
+        {
+            return;
+        }
+
+        for (FileTimestamp timestamp : newSnapshot.getConfigFileTimestamps())
+        {
+            watcher.watch(timestamp);
+        }
+
+        for (ConfiguredScript script : newSnapshot.getScripts())
+        {
+            if (script.getTimestamp() != null)
+            {
+                watcher.watch(script.getTimestamp());
+            }
+        }
     }
 
     /**
@@ -912,6 +1920,40 @@ public class ScriptConnectorConfiguration
         return new File(path);
     }
 
+    /**
+     * Returns the schedulerJournalFolder configuration value.
+     *
+     * @return  schedulerJournalFolder value.
+     */
+    private File getSchedulerJournalFolder()
+    {
+        String path = xpBase.getStringValue("schedulerJournalFolder");
+
+        if ((path == null) || (path.length() == 0))
+        {
+            return null;
+        }
+
+        return new File(path);
+    }
+
+    /**
+     * Returns the scriptCacheFolder configuration value.
+     *
+     * @return  scriptCacheFolder value.
+     */
+    private File getScriptCacheFolder()
+    {
+        String path = xpBase.getStringValue("scriptCacheFolder");
+
+        if ((path == null) || (path.length() == 0))
+        {
+            return null;
+        }
+
+        return new File(path);
+    }
+
     /**
      * A dummy class which is needed to be able to put <code>null</code> values into the map..
      *
@@ -942,4 +1984,102 @@ public class ScriptConnectorConfiguration
             return false;
         }
     }
+
+    /**
+     * Contains the results of one configuration load.
+     */
+    private static class LoadState
+    {
+        /**
+         * Script pre-processors by the locator.
+         */
+        private Map<ScriptLocator, IScriptPreProcessor> preProcessorMap = new HashMap<ScriptLocator, IScriptPreProcessor>();
+        /**
+         * Created pre-processors with their definitions.
+         */
+        private Map<ScriptLocator, PreProcessorEntry> preProcessors = new HashMap<ScriptLocator, PreProcessorEntry>();
+        /**
+         * Parsed property files.
+         */
+        private Map<File, PropertyFileEntry> propertyFiles = new HashMap<File, PropertyFileEntry>();
+        /**
+         * Configuration file timestamps.
+         */
+        private List<FileTimestamp> timestampList = new ArrayList<FileTimestamp>(10);
+        /**
+         * Maximum size of the outbound response cache in bytes.
+         */
+        private long outboundCacheMaxBytes = OutboundPolicies.DEFAULT_CACHE_MAX_BYTES;
+        /**
+         * Outbound request settings by the method name and setting name.
+         */
+        private Map<String, Map<String, String>> outboundSettings = new HashMap<String, Map<String, String>>();
+    }
+
+    /**
+     * Contains a script pre-processor and the definition it was created from.
+     */
+    private static class PreProcessorEntry
+    {
+        /**
+         * Pre-processor class name.
+         */
+        private String className;
+        /**
+         * Pre-processor parameters.
+         */
+        private Map<String, String> params;
+        /**
+         * Pre-processor instance.
+         */
+        private IScriptPreProcessor processor;
+
+        /**
+         * Constructor for PreProcessorEntry.
+         *
+         * @param  className  Pre-processor class name.
+         * @param  params     Pre-processor parameters.
+         * @param  processor  Pre-processor instance.
+         */
+        PreProcessorEntry(String className, Map<String, String> params,
+                          IScriptPreProcessor processor)
+        {
+            this.className = className;
+            this.params = params;
+            this.processor = processor;
+        }
+    }
+
+    /**
+     * Contains a parsed property file.
+     */
+    private static class PropertyFileEntry
+    {
+        /**
+         * File's last modification time when it was parsed.
+         */
+        private long lastModified;
+        /**
+         * File's length when it was parsed.
+         */
+        private long length;
+        /**
+         * Parsed properties. These must not be modified.
+         */
+        private Properties properties;
+
+        /**
+         * Constructor for PropertyFileEntry.
+         *
+         * @param  lastModified  File's last modification time.
+         * @param  length        File's length.
+         * @param  properties    Parsed properties.
+         */
+        PropertyFileEntry(long lastModified, long length, Properties properties)
+        {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.properties = properties;
+        }
+    }
 }
@@ -0,0 +1,35 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.exception;
+
+/**
+ * Thrown when an outbound SOAP request is not sent because the circuit breaker of the target
+ * method is open.
+ */
+public class CircuitOpenException extends ScriptConnectorException
+{
+    /**
+     * Constructor for CircuitOpenException.
+     *
+     * @param  sMessage  Exception message.
+     */
+    public CircuitOpenException(String sMessage)
+    {
+        super(sMessage);
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.exception;
+
+/**
+ * SOAP fault returned when a script was aborted because it exceeded its time or instruction
+ * budget.
+ */
+public class ScriptAbortedException extends ScriptFaultException
+{
+    /**
+     * SOAP fault code for aborted scripts.
+     */
+    public static final String FAULT_CODE = "Server.ScriptAborted";
+
+    /**
+     * Constructor for ScriptAbortedException.
+     *
+     * @param  scriptName        Script name.
+     * @param  reason            Abort reason.
+     * @param  elapsedTime       Script execution time in milliseconds.
+     * @param  instructionCount  Number of executed instructions.
+     */
+    public ScriptAbortedException(String scriptName, String reason, long elapsedTime,
+                                  long instructionCount)
+    {
+        super(FAULT_CODE, null, "Script " + scriptName + " was aborted: " + reason,
+              "<ScriptAborted><elapsedTime>" + elapsedTime + "</elapsedTime><instructionCount>" +
+              instructionCount + "</instructionCount></ScriptAborted>");
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.methods;
+
+import com.cordys.coe.ac.scriptconnector.ScriptConnector;
+import com.cordys.coe.ac.scriptconnector.exception.ScriptConnectorException;
+import com.cordys.coe.ac.scriptconnector.scheduler.TaskScheduler;
+import com.cordys.coe.ac.scriptconnector.scripting.ScriptEnginePool;
+import com.cordys.coe.ac.scriptconnector.soap.OutboundExecutor;
+import com.cordys.coe.ac.scriptconnector.soap.OutboundTarget;
+import com.cordys.coe.ac.scriptconnector.soap.RequestBatcher;
+import com.cordys.coe.ac.scriptconnector.soap.ResponseCache;
+
+import com.eibus.soap.BodyBlock;
+
+import com.eibus.xml.nom.Node;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Returns the runtime status of the connector. This contains the outbound target guards, the
+ * response cache, the outbound executor, the task scheduler and the script abort counts.
+ */
+public class ConnectorStatus
+{
+    /**
+     * This method processes the received request.
+     *
+     * @param   conn        ScriptConnector instance.
+     * @param   bbRequest   The request body block.
+     * @param   bbResponse  The response body block.
+     *
+     * @return  true if the connector has to send the response. If someone else sends the response
+     *          false is returned.
+     *
+     * @throws  ScriptConnectorException
+     */
+    public static boolean processGetConnectorStatus(ScriptConnector conn, BodyBlock bbRequest,
+                                                    BodyBlock bbResponse)
+                                             throws ScriptConnectorException
+    {
+        int responseNode = bbResponse.getXMLNode();
+
+        if (conn.getScriptConfig() == null)
+        {
+            throw new ScriptConnectorException("ScriptConnector is not initialized properly.");
+        }
+
+        Node.createTextElement("routeCacheSize",
+                               Integer.toString(conn.getScriptConfig().getRouteCacheSize()),
+                               responseNode);
+
+        OutboundExecutor executor = conn.getOutboundExecutor();
+        int executorNode = Node.createElement("outboundExecutor", responseNode);
+
+        addCounter(executorNode, "activeCount", executor.getActiveCount());
+        addCounter(executorNode, "queueSize", executor.getQueueSize());
+
+        ScriptEnginePool enginePool = conn.getScriptEnginePool();
+        int enginePoolNode = Node.createElement("scriptEnginePool", responseNode);
+
+        addCounter(enginePoolNode, "maxPoolSize", enginePool.getMaxPoolSize());
+        addCounter(enginePoolNode, "hitCount", enginePool.getHitCount());
+        addCounter(enginePoolNode, "missCount", enginePool.getMissCount());
+        addCounter(enginePoolNode, "checkoutTimeoutCount", enginePool.getCheckoutTimeoutCount());
+
+        ResponseCache cache = conn.getResponseCache();
+        int cacheNode = Node.createElement("responseCache", responseNode);
+
+        addCounter(cacheNode, "entryCount", cache.getEntryCount());
+        addCounter(cacheNode, "byteCount", cache.getByteCount());
+        addCounter(cacheNode, "maxBytes", cache.getMaxBytes());
+        addCounter(cacheNode, "hitCount", cache.getHitCount());
+        addCounter(cacheNode, "missCount", cache.getMissCount());
+        addCounter(cacheNode, "evictionCount", cache.getEvictionCount());
+        addCounter(cacheNode, "expiredCount", cache.getExpiredCount());
+
+        int coalescerNode = Node.createElement("requestCoalescer", responseNode);
+
+        addCounter(coalescerNode, "coalescedCount",
+                   conn.getRequestCoalescer().getCoalescedCount());
+        addCounter(coalescerNode, "inFlightCount", conn.getRequestCoalescer().getInFlightCount());
+
+        TaskScheduler scheduler = conn.getTaskScheduler();
+        int schedulerNode = Node.createElement("scheduler", responseNode);
+
+        addCounter(schedulerNode, "tickMillis", scheduler.getTickMillis());
+        addCounter(schedulerNode, "pendingCount", scheduler.getPendingCount());
+        addCounter(schedulerNode, "readyCount", scheduler.getReadyCount());
+        addCounter(schedulerNode, "activeCount", scheduler.getActiveCount());
+        addCounter(schedulerNode, "dispatchedCount", scheduler.getDispatchedCount());
+        addCounter(schedulerNode, "averageLag", scheduler.getAverageLag());
+        addCounter(schedulerNode, "maxLag", scheduler.getMaxLag());
+
+        RequestBatcher batcher = conn.getRequestBatcher();
+
+        if (batcher != null)
+        {
+            addCounter(schedulerNode, "batchCount", batcher.getBatchCount());
+            addCounter(schedulerNode, "batchedCount", batcher.getBatchedCount());
+            addCounter(schedulerNode, "batchWaitingCount", batcher.getWaitingCount());
+        }
+
+        int targetsNode = Node.createElement("outboundTargets", responseNode);
+
+        for (OutboundTarget target : conn.getOutboundTargets())
+        {
+            int targetNode = Node.createElement("target", targetsNode);
+
+            Node.setAttribute(targetNode, "method", target.getMethodName());
+            Node.setAttribute(targetNode, "namespace",
+                              (target.getNamespace() != null) ? target.getNamespace() : "");
+            Node.createTextElement("state", target.getState(), targetNode);
+            addCounter(targetNode, "activeCount", target.getActiveCount());
+            addCounter(targetNode, "consecutiveFailures", target.getConsecutiveFailures());
+            addCounter(targetNode, "successCount", target.getSuccessCount());
+            addCounter(targetNode, "failureCount", target.getFailureCount());
+            addCounter(targetNode, "rejectedCount", target.getRejectedCount());
+            addCounter(targetNode, "shortCircuitCount", target.getShortCircuitCount());
+            addCounter(targetNode, "openCount", target.getOpenCount());
+        }
+
+        int abortsNode = Node.createElement("scriptAborts", responseNode);
+        Map<String, Long> abortCounts = new TreeMap<String, Long>(conn.getScriptWatchdog()
+                                                                      .getAbortCounts());
+
+        for (Map.Entry<String, Long> entry : abortCounts.entrySet())
+        {
+            int scriptNode = Node.createTextElement("script", entry.getValue().toString(),
+                                                    abortsNode);
+
+            Node.setAttribute(scriptNode, "locator", entry.getKey());
+        }
+
+        return true;
+    }
+
+    /**
+     * Adds a counter element.
+     *
+     * @param  parent  Parent element.
+     * @param  name    Element name.
+     * @param  value   Counter value.
+     */
+    private static void addCounter(int parent, String name, long value)
+    {
+        Node.createTextElement(name, Long.toString(value), parent);
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.methods;
+
+import com.cordys.coe.ac.scriptconnector.ScriptConnector;
+import com.cordys.coe.ac.scriptconnector.exception.ScriptConnectorException;
+import com.cordys.coe.ac.scriptconnector.scheduler.TaskScheduler;
+import com.cordys.coe.ac.scriptconnector.soap.DelayedSoapRequest;
+
+import com.eibus.soap.BodyBlock;
+
+import com.eibus.xml.nom.Node;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Management methods for the scheduled SOAP requests. These list the pending requests, cancel
+ * and reschedule them and return the scheduler statistics. Requests which have been started are
+ * not listed, because they can finish at any time and their messages are owned by the worker
+ * threads.
+ */
+public class ScheduledRequests
+{
+    /**
+     * This method processes the received request.
+     *
+     * @param   conn        ScriptConnector instance.
+     * @param   bbRequest   The request body block.
+     * @param   bbResponse  The response body block.
+     *
+     * @return  true if the connector has to send the response. If someone else sends the response
+     *          false is returned.
+     *
+     * @throws  ScriptConnectorException
+     */
+    public static boolean processCancelScheduledRequest(ScriptConnector conn, BodyBlock bbRequest,
+                                                        BodyBlock bbResponse)
+                                                 throws ScriptConnectorException
+    {
+        long taskId = getLongParameter(bbRequest.getXMLNode(), "TaskId");
+        boolean cancelled = conn.cancelScheduledRequest(taskId);
+
+        Node.createTextElement("cancelled", Boolean.toString(cancelled), bbResponse.getXMLNode());
+
+        return true;
+    }
+
+    /**
+     * This method processes the received request.
+     *
+     * @param   conn        ScriptConnector instance.
+     * @param   bbRequest   The request body block.
+     * @param   bbResponse  The response body block.
+     *
+     * @return  true if the connector has to send the response. If someone else sends the response
+     *          false is returned.
+     *
+     * @throws  ScriptConnectorException
+     */
+    public static boolean processGetSchedulerStatistics(ScriptConnector conn, BodyBlock bbRequest,
+                                                        BodyBlock bbResponse)
+                                                 throws ScriptConnectorException
+    {
+        writeSchedulerStatistics(conn, bbResponse.getXMLNode());
+
+        return true;
+    }
+
+    /**
+     * This method processes the received request.
+     *
+     * @param   conn        ScriptConnector instance.
+     * @param   bbRequest   The request body block.
+     * @param   bbResponse  The response body block.
+     *
+     * @return  true if the connector has to send the response. If someone else sends the response
+     *          false is returned.
+     *
+     * @throws  ScriptConnectorException
+     */
+    public static boolean processListScheduledRequests(ScriptConnector conn, BodyBlock bbRequest,
+                                                       BodyBlock bbResponse)
+                                                throws ScriptConnectorException
+    {
+        writeScheduledRequests(conn, bbResponse.getXMLNode());
+
+        return true;
+    }
+
+    /**
+     * This method processes the received request.
+     *
+     * @param   conn        ScriptConnector instance.
+     * @param   bbRequest   The request body block.
+     * @param   bbResponse  The response body block.
+     *
+     * @return  true if the connector has to send the response. If someone else sends the response
+     *          false is returned.
+     *
+     * @throws  ScriptConnectorException
+     */
+    public static boolean processRescheduleScheduledRequest(ScriptConnector conn,
+                                                            BodyBlock bbRequest,
+                                                            BodyBlock bbResponse)
+                                                     throws ScriptConnectorException
+    {
+        int requestNode = bbRequest.getXMLNode();
+        long taskId = getLongParameter(requestNode, "TaskId");
+        long delay = getLongParameter(requestNode, "Delay");
+
+        if (delay < 0)
+        {
+            throw new ScriptConnectorException("Invalid parameter 'Delay' value: " + delay);
+        }
+
+        boolean rescheduled = conn.rescheduleScheduledRequest(taskId, delay);
+
+        Node.createTextElement("rescheduled", Boolean.toString(rescheduled),
+                               bbResponse.getXMLNode());
+
+        return true;
+    }
+
+    /**
+     * Adds the scheduled requests which have not been started to the response, ordered by the
+     * due time.
+     *
+     * @param  conn          ScriptConnector instance.
+     * @param  responseNode  Response method element.
+     */
+    static void writeScheduledRequests(ScriptConnector conn, int responseNode)
+    {
+        List<PendingRequest> requests = getPendingRequests(conn);
+        long now = System.currentTimeMillis();
+
+        Collections.sort(requests, new Comparator<PendingRequest>()
+            {
+                public int compare(PendingRequest a, PendingRequest b)
+                {
+                    return (a.dueTime < b.dueTime) ? -1 : ((a.dueTime > b.dueTime) ? 1 : 0);
+                }
+            });
+
+        for (PendingRequest pending : requests)
+        {
+            DelayedSoapRequest req = pending.request;
+            int taskNode = Node.createElement("task", responseNode);
+
+            Node.setAttribute(taskNode, "id", Long.toString(req.getTaskId()));
+            Node.createTextElement("method", toString(req.getMethodName()), taskNode);
+            Node.createTextElement("namespace", toString(req.getNamespace()), taskNode);
+            Node.createTextElement("user", toString(req.getUserDn()), taskNode);
+            Node.createTextElement("organization", toString(req.getOrgDn()), taskNode);
+            addCounter(taskNode, "dueTime", pending.dueTime);
+            addCounter(taskNode, "dueIn", pending.dueTime - now);
+            Node.createTextElement("journaled", Boolean.toString(req.getJournalId() != 0),
+                                   taskNode);
+        }
+    }
+
+    /**
+     * Adds the scheduler statistics to the response.
+     *
+     * @param  conn          ScriptConnector instance.
+     * @param  responseNode  Response method element.
+     */
+    static void writeSchedulerStatistics(ScriptConnector conn, int responseNode)
+    {
+        TaskScheduler scheduler = conn.getTaskScheduler();
+        long now = System.currentTimeMillis();
+        long oldestDue = now;
+        int requestCount = 0;
+
+        for (PendingRequest pending : getPendingRequests(conn))
+        {
+            oldestDue = Math.min(oldestDue, pending.dueTime);
+            requestCount++;
+        }
+
+        addCounter(responseNode, "queueDepth", scheduler.getPendingCount());
+        addCounter(responseNode, "readyCount", scheduler.getReadyCount());
+        addCounter(responseNode, "activeCount", scheduler.getActiveCount());
+        addCounter(responseNode, "scheduledRequestCount", requestCount);
+        addCounter(responseNode, "oldestDueAge", now - oldestDue);
+        addCounter(responseNode, "dispatchedCount", scheduler.getDispatchedCount());
+        Node.createTextElement("dispatchRate",
+                               Double.toString(Math.round(scheduler.getDispatchRate() * 100) /
+                                               100.0), responseNode);
+        addCounter(responseNode, "averageLag", scheduler.getAverageLag());
+        addCounter(responseNode, "maxLag", scheduler.getMaxLag());
+    }
+
+    /**
+     * Adds a counter element.
+     *
+     * @param  parent  Parent element.
+     * @param  name    Element name.
+     * @param  value   Counter value.
+     */
+    private static void addCounter(int parent, String name, long value)
+    {
+        Node.createTextElement(name, Long.toString(value), parent);
+    }
+
+    /**
+     * Returns the scheduled requests which have not been started. The due time is read once, so
+     * a concurrent reschedule does not change it while the requests are sorted.
+     *
+     * @param   conn  ScriptConnector instance.
+     *
+     * @return  Pending requests.
+     */
+    private static List<PendingRequest> getPendingRequests(ScriptConnector conn)
+    {
+        List<PendingRequest> res = new ArrayList<PendingRequest>();
+
+        for (DelayedSoapRequest req : conn.getScheduledRequests())
+        {
+            if (!req.isStarted())
+            {
+                res.add(new PendingRequest(req));
+            }
+        }
+
+        return res;
+    }
+
+    /**
+     * Reads a numeric request parameter.
+     *
+     * @param   requestNode  Request method element.
+     * @param   name         Parameter name.
+     *
+     * @return  Parameter value.
+     *
+     * @throws  ScriptConnectorException  Thrown if the parameter is not set or it is invalid.
+     */
+    private static long getLongParameter(int requestNode, String name)
+                                  throws ScriptConnectorException
+    {
+        String value = Node.getDataElement(requestNode, name, "");
+
+        if ((value == null) || (value.length() == 0))
+        {
+            throw new ScriptConnectorException("Parameter '" + name + "' is not set.");
+        }
+
+        try
+        {
+            return Long.parseLong(value.trim());
+        }
+        catch (NumberFormatException e)
+        {
+            throw new ScriptConnectorException("Invalid parameter '" + name + "' value: " + value);
+        }
+    }
+
+    /**
+     * Converts a <code>null</code> value to an empty string.
+     *
+     * @param   value  Value.
+     *
+     * @return  Value or an empty string.
+     */
+    private static String toString(String value)
+    {
+        return (value != null) ? value : "";
+    }
+
+    /**
+     * Scheduled request with the due time read when the requests were listed.
+     */
+    private static class PendingRequest
+    {
+        /**
+         * Due time of the request.
+         */
+        private long dueTime;
+        /**
+         * Scheduled request.
+         */
+        private DelayedSoapRequest request;
+
+        /**
+         * Constructor for PendingRequest.
+         *
+         * @param  request  Scheduled request.
+         */
+        PendingRequest(DelayedSoapRequest request)
+        {
+            this.request = request;
+            this.dueTime = request.getDueTime();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.scheduler;
+
+import java.util.concurrent.DelayQueue;
+
+/**
+ * Delay queue backed by a binary heap. Adding and taking a task is O(log n) and removing a task
+ * is O(n). The tasks are run exactly at their due time.
+ */
+public class HeapDelayQueue
+    implements IDelayQueue
+{
+    /**
+     * Tasks waiting for their due time.
+     */
+    private final DelayQueue<ScheduledTask> queue = new DelayQueue<ScheduledTask>();
+
+    /**
+     * @see  com.cordys.coe.ac.scriptconnector.scheduler.IDelayQueue#add(com.cordys.coe.ac.scriptconnector.scheduler.ScheduledTask)
+     */
+    public void add(ScheduledTask task)
+    {
+        queue.add(task);
+    }
+
+    /**
+     * @see  com.cordys.coe.ac.scriptconnector.scheduler.IDelayQueue#clear()
+     */
+    public int clear()
+    {
+        int count = queue.size();
+
+        queue.clear();
+
+        return count;
+    }
+
+    /**
+     * @see  com.cordys.coe.ac.scriptconnector.scheduler.IDelayQueue#remove(com.cordys.coe.ac.scriptconnector.scheduler.ScheduledTask)
+     */
+    public boolean remove(ScheduledTask task)
+    {
+        return queue.remove(task);
+    }
+
+    /**
+     * @see  com.cordys.coe.ac.scriptconnector.scheduler.IDelayQueue#size()
+     */
+    public int size()
+    {
+        return queue.size();
+    }
+
+    /**
+     * @see  com.cordys.coe.ac.scriptconnector.scheduler.IDelayQueue#take()
+     */
+    public ScheduledTask take()
+                       throws InterruptedException
+    {
+        return queue.take();
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.scheduler;
+
+/**
+ * Queue which holds the scheduled tasks until their due time. The task scheduler has one
+ * dispatcher thread which takes the due tasks from the queue.
+ */
+public interface IDelayQueue
+{
+    /**
+     * Adds a task to the queue.
+     *
+     * @param  task  Task to be added.
+     */
+    void add(ScheduledTask task);
+
+    /**
+     * Removes all tasks from the queue.
+     *
+     * @return  Number of tasks which were removed.
+     */
+    int clear();
+
+    /**
+     * Removes the task from the queue if it has not been taken yet.
+     *
+     * @param   task  Task to be removed.
+     *
+     * @return  <code>true</code> if the task was removed.
+     */
+    boolean remove(ScheduledTask task);
+
+    /**
+     * Returns the number of tasks in the queue.
+     *
+     * @return  Number of tasks.
+     */
+    int size();
+
+    /**
+     * Waits until a task is due and removes it from the queue.
+     *
+     * @return  Due task.
+     *
+     * @throws  InterruptedException  Thrown if the thread was interrupted while waiting.
+     */
+    ScheduledTask take()
+                 throws InterruptedException;
+}
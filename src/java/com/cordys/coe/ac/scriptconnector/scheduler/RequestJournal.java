@@ -0,0 +1,578 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.scheduler;
+
+import com.eibus.util.logger.CordysLogger;
+import com.eibus.util.logger.Severity;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal for scheduled tasks, so they survive connector restarts. Each scheduled
+ * task is written as an add record and a remove record is written when the task has completed.
+ * When the journal is opened, the tasks which have no remove record are returned for replay.
+ *
+ * <p>Records are protected with a CRC32 checksum. A partially written record at the end of the
+ * file is discarded when the journal is opened. Add records are synced to the disk before
+ * <code>add</code> returns. Concurrent callers share one sync (group commit), so the writers do
+ * not wait for a sync each. The file is rewritten with only the live tasks when most of the
+ * records belong to completed tasks. The rewritten file starts with a record containing the
+ * largest task ID, so IDs of completed tasks are not reused after a restart.</p>
+ */
+public class RequestJournal
+{
+    /**
+     * Logger for log messages from this class.
+     */
+    private static final CordysLogger LOG = CordysLogger.getCordysLogger(RequestJournal.class);
+    /**
+     * Minimum number of records before the journal is compacted.
+     */
+    private static final int COMPACT_MIN_RECORDS = 1000;
+    /**
+     * Size of the record header (length and checksum).
+     */
+    private static final int HEADER_SIZE = 8;
+    /**
+     * Maximum size of one record. Larger lengths are treated as corruption.
+     */
+    private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+    /**
+     * Record type for a scheduled task.
+     */
+    private static final byte TYPE_ADD = 1;
+    /**
+     * Record type for a completed task.
+     */
+    private static final byte TYPE_REMOVE = 2;
+    /**
+     * Record type for the largest task ID written when the journal is compacted.
+     */
+    private static final byte TYPE_MAX_ID = 3;
+    /**
+     * File channel for appending records.
+     */
+    private FileChannel channel;
+    /**
+     * Journal file.
+     */
+    private File file;
+    /**
+     * Live tasks by the task ID.
+     */
+    private Map<Long, byte[]> liveMap = new LinkedHashMap<Long, byte[]>();
+    /**
+     * Largest task ID in the journal.
+     */
+    private long maxId;
+    /**
+     * Number of records in the file.
+     */
+    private int recordCount;
+    /**
+     * Number of the last record which has been synced to the disk.
+     */
+    private long syncedSeq;
+    /**
+     * <code>true</code> while a sync is in progress.
+     */
+    private boolean syncing;
+    /**
+     * Number of the last written record.
+     */
+    private long writtenSeq;
+
+    /**
+     * Constructor for RequestJournal.
+     *
+     * @param  file  Journal file.
+     */
+    public RequestJournal(File file)
+    {
+        this.file = file;
+    }
+
+    /**
+     * Writes an add record for the task and waits until it has been synced to the disk. A task
+     * with the same ID is replaced.
+     *
+     * @param   id       Task ID from <code>nextId</code>.
+     * @param   payload  Serialized task.
+     *
+     * @throws  IOException  Thrown if the record could not be written.
+     */
+    public void add(long id, byte[] payload)
+             throws IOException
+    {
+        long seq;
+
+        synchronized (this)
+        {
+            seq = write(TYPE_ADD, id, payload);
+            liveMap.put(id, payload);
+        }
+
+        sync(seq);
+    }
+
+    /**
+     * Closes the journal file.
+     */
+    public synchronized void close()
+    {
+        if (channel == null)
+        {
+            return;
+        }
+
+        try
+        {
+            channel.force(false);
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            LOG.log(Severity.WARN, "Unable to close the request journal: " + file, e);
+        }
+
+        channel = null;
+    }
+
+    /**
+     * Returns the number of live tasks.
+     *
+     * @return  Live task count.
+     */
+    public synchronized int getLiveCount()
+    {
+        return liveMap.size();
+    }
+
+    /**
+     * Returns the number of records in the journal file.
+     *
+     * @return  Record count.
+     */
+    public synchronized int getRecordCount()
+    {
+        return recordCount;
+    }
+
+    /**
+     * Returns a new task ID.
+     *
+     * @return  Task ID.
+     */
+    public synchronized long nextId()
+    {
+        return ++maxId;
+    }
+
+    /**
+     * Opens the journal and reads the existing records. A corrupted or partially written end of
+     * the file is removed.
+     *
+     * @return  Live tasks by the task ID in the order they were added.
+     *
+     * @throws  IOException  Thrown if the file could not be read.
+     */
+    public synchronized Map<Long, byte[]> open()
+                                         throws IOException
+    {
+        liveMap.clear();
+        recordCount = 0;
+
+        long validLength = 0;
+
+        if (file.exists())
+        {
+            validLength = readRecords();
+        }
+
+        channel = new RandomAccessFile(file, "rw").getChannel();
+
+        if (channel.size() > validLength)
+        {
+            LOG.log(Severity.WARN,
+                    "Discarding " + (channel.size() - validLength) +
+                    " bytes of corrupted data at the end of the request journal: " + file);
+            channel.truncate(validLength);
+            channel.force(false);
+        }
+
+        channel.position(validLength);
+
+        return Collections.unmodifiableMap(new LinkedHashMap<Long, byte[]>(liveMap));
+    }
+
+    /**
+     * Writes a remove record for the task. The record is synced to the disk with the next add
+     * record. If the journal has mostly records of completed tasks, it is compacted.
+     *
+     * @param   id  Task ID.
+     *
+     * @throws  IOException  Thrown if the record could not be written.
+     */
+    public synchronized void remove(long id)
+                             throws IOException
+    {
+        if (liveMap.remove(id) == null)
+        {
+            return;
+        }
+
+        write(TYPE_REMOVE, id, null);
+
+        if ((recordCount >= COMPACT_MIN_RECORDS) && ((liveMap.size() * 4) < recordCount) &&
+                !syncing)
+        {
+            try
+            {
+                compact();
+            }
+            catch (IOException e)
+            {
+                // The remove record has been written, so the journal is still valid.
+                LOG.log(Severity.WARN, "Unable to compact the request journal: " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Rewrites the journal file with only the live tasks. The new file replaces the old one
+     * atomically. If the file could not be replaced, the old file is opened again.
+     *
+     * @throws  IOException  Thrown if the file could not be written.
+     */
+    private void compact()
+                  throws IOException
+    {
+        File tmpFile = new File(file.getPath() + ".tmp");
+        FileChannel newChannel = new RandomAccessFile(tmpFile, "rw").getChannel();
+        int oldCount = recordCount;
+
+        try
+        {
+            newChannel.truncate(0);
+            writeRecord(newChannel, TYPE_MAX_ID, maxId, null);
+
+            for (Map.Entry<Long, byte[]> entry : liveMap.entrySet())
+            {
+                writeRecord(newChannel, TYPE_ADD, entry.getKey(), entry.getValue());
+            }
+
+            newChannel.force(false);
+        }
+        catch (IOException e)
+        {
+            newChannel.close();
+            tmpFile.delete();
+
+            throw e;
+        }
+
+        newChannel.close();
+
+        // The file cannot be replaced on all platforms while it is open.
+        channel.close();
+        channel = null;
+
+        try
+        {
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e)
+        {
+            tmpFile.delete();
+            openChannel();
+
+            throw e;
+        }
+
+        openChannel();
+        recordCount = liveMap.size() + 1;
+        syncedSeq = writtenSeq;
+
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Compacted the request journal from " + oldCount + " to " + recordCount +
+                      " records.");
+        }
+    }
+
+    /**
+     * Opens the channel for appending records to the end of the journal file.
+     *
+     * @throws  IOException  Thrown if the file could not be opened.
+     */
+    private void openChannel()
+                      throws IOException
+    {
+        FileChannel newChannel = new RandomAccessFile(file, "rw").getChannel();
+
+        try
+        {
+            newChannel.position(newChannel.size());
+        }
+        catch (IOException e)
+        {
+            newChannel.close();
+
+            throw e;
+        }
+
+        channel = newChannel;
+    }
+
+    /**
+     * Reads the records from the journal file.
+     *
+     * @return  Length of the valid part of the file.
+     *
+     * @throws  IOException  Thrown if the file could not be read.
+     */
+    private long readRecords()
+                      throws IOException
+    {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        long validLength = 0;
+
+        try
+        {
+            CRC32 crc = new CRC32();
+
+            while (true)
+            {
+                int length;
+                int checksum;
+                byte[] body;
+
+                try
+                {
+                    length = in.readInt();
+                    checksum = in.readInt();
+
+                    if ((length < 9) || (length > MAX_RECORD_SIZE))
+                    {
+                        break;
+                    }
+
+                    body = new byte[length];
+                    in.readFully(body);
+                }
+                catch (EOFException e)
+                {
+                    break;
+                }
+
+                crc.reset();
+                crc.update(body);
+
+                if ((int) crc.getValue() != checksum)
+                {
+                    break;
+                }
+
+                ByteBuffer buf = ByteBuffer.wrap(body);
+                byte type = buf.get();
+                long id = buf.getLong();
+
+                if (type == TYPE_ADD)
+                {
+                    byte[] payload = new byte[buf.remaining()];
+
+                    buf.get(payload);
+                    liveMap.put(id, payload);
+                }
+                else if (type == TYPE_REMOVE)
+                {
+                    liveMap.remove(id);
+                }
+                else if (type != TYPE_MAX_ID)
+                {
+                    break;
+                }
+
+                maxId = Math.max(maxId, id);
+                recordCount++;
+                validLength += HEADER_SIZE + length;
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+
+        return validLength;
+    }
+
+    /**
+     * Syncs the written records to the disk. If another thread is already syncing, this waits
+     * for it and syncs again only if the record was not included.
+     *
+     * @param   seq  Number of the record which must be synced.
+     *
+     * @throws  IOException  Thrown if the sync failed.
+     */
+    private void sync(long seq)
+               throws IOException
+    {
+        FileChannel syncChannel;
+        long target;
+
+        synchronized (this)
+        {
+            while (syncedSeq < seq)
+            {
+                if (!syncing)
+                {
+                    break;
+                }
+
+                try
+                {
+                    wait();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+
+                    throw new InterruptedIOException("Interrupted while waiting for the request journal sync.");
+                }
+            }
+
+            if (syncedSeq >= seq)
+            {
+                return;
+            }
+
+            if (channel == null)
+            {
+                throw new IOException("Request journal is closed.");
+            }
+
+            syncing = true;
+            syncChannel = channel;
+            target = writtenSeq;
+        }
+
+        boolean success = false;
+
+        try
+        {
+            syncChannel.force(false);
+            success = true;
+        }
+        finally
+        {
+            synchronized (this)
+            {
+                syncing = false;
+
+                if (success)
+                {
+                    syncedSeq = Math.max(syncedSeq, target);
+                }
+
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Writes a record to the journal file.
+     *
+     * @param   type     Record type.
+     * @param   id       Task ID.
+     * @param   payload  Serialized task or <code>null</code>.
+     *
+     * @return  Record number.
+     *
+     * @throws  IOException  Thrown if the record could not be written.
+     */
+    private long write(byte type, long id, byte[] payload)
+                throws IOException
+    {
+        if (channel == null)
+        {
+            throw new IOException("Request journal is not open.");
+        }
+
+        writeRecord(channel, type, id, payload);
+        recordCount++;
+        maxId = Math.max(maxId, id);
+
+        return ++writtenSeq;
+    }
+
+    /**
+     * Writes a record to the channel.
+     *
+     * @param   out      Output channel.
+     * @param   type     Record type.
+     * @param   id       Task ID.
+     * @param   payload  Serialized task or <code>null</code>.
+     *
+     * @throws  IOException  Thrown if the record could not be written.
+     */
+    private static void writeRecord(FileChannel out, byte type, long id, byte[] payload)
+                             throws IOException
+    {
+        int length = 9 + ((payload != null) ? payload.length : 0);
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE + length);
+        CRC32 crc = new CRC32();
+
+        buf.position(HEADER_SIZE);
+        buf.put(type);
+        buf.putLong(id);
+
+        if (payload != null)
+        {
+            buf.put(payload);
+        }
+
+        crc.update(buf.array(), HEADER_SIZE, length);
+        buf.putInt(0, length);
+        buf.putInt(4, (int) crc.getValue());
+        buf.flip();
+
+        while (buf.hasRemaining())
+        {
+            out.write(buf);
+        }
+    }
+}
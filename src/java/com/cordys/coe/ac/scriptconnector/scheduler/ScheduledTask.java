@@ -0,0 +1,124 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.scheduler;
+
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Task waiting in the scheduler until its due time. Tasks with the same due time are run in the
+ * order they were scheduled.
+ */
+public class ScheduledTask
+    implements Delayed
+{
+    /**
+     * Sequence number generator.
+     */
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+    /**
+     * Time when the task should be run.
+     */
+    private long dueTime;
+    /**
+     * Next task in the same timing wheel slot.
+     */
+    ScheduledTask next;
+    /**
+     * Previous task in the same timing wheel slot.
+     */
+    ScheduledTask prev;
+    /**
+     * Sequence number for ordering tasks with the same due time.
+     */
+    private long sequence;
+    /**
+     * Timing wheel slot of the task.
+     */
+    int slot = TimingWheelDelayQueue.NOT_QUEUED;
+    /**
+     * Timing wheel tick when the task is due.
+     */
+    long tick;
+    /**
+     * Task to be run.
+     */
+    private Runnable task;
+
+    /**
+     * Constructor for ScheduledTask.
+     *
+     * @param  task     Task to be run.
+     * @param  dueTime  Time when the task should be run.
+     */
+    public ScheduledTask(Runnable task, long dueTime)
+    {
+        this.task = task;
+        this.dueTime = dueTime;
+        this.sequence = SEQUENCE.incrementAndGet();
+    }
+
+    /**
+     * @see  java.lang.Comparable#compareTo(java.lang.Object)
+     */
+    public int compareTo(Delayed o)
+    {
+        if (o == this)
+        {
+            return 0;
+        }
+
+        ScheduledTask other = (ScheduledTask) o;
+
+        if (dueTime != other.dueTime)
+        {
+            return (dueTime < other.dueTime) ? -1 : 1;
+        }
+
+        return (sequence < other.sequence) ? -1 : ((sequence == other.sequence) ? 0 : 1);
+    }
+
+    /**
+     * @see  java.util.concurrent.Delayed#getDelay(java.util.concurrent.TimeUnit)
+     */
+    public long getDelay(TimeUnit unit)
+    {
+        return unit.convert(dueTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the dueTime.
+     *
+     * @return  Returns the dueTime.
+     */
+    public long getDueTime()
+    {
+        return dueTime;
+    }
+
+    /**
+     * Returns the task.
+     *
+     * @return  Returns the task.
+     */
+    public Runnable getTask()
+    {
+        return task;
+    }
+}
@@ -0,0 +1,445 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.scheduler;
+
+import com.cordys.coe.ac.scriptconnector.exception.ScriptConnectorException;
+
+import com.eibus.util.logger.CordysLogger;
+import com.eibus.util.logger.Severity;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs tasks after a delay. One dispatcher thread waits for the tasks to become due and hands
+ * them to a bounded pool of worker threads, so a slow task does not delay the other tasks. The
+ * number of pending tasks is limited.
+ *
+ * <p>The tasks wait in a binary heap by default. With a tick length the scheduler uses a timing
+ * wheel instead, which keeps adding and cancelling a task O(1) when there are a very large number
+ * of pending tasks. The tasks can then be run up to one tick late.</p>
+ *
+ * <p>The scheduler keeps statistics of the schedule lag, which is the time between the due time
+ * of a task and the time a worker started running it.</p>
+ */
+public class TaskScheduler
+{
+    /**
+     * Logger for log messages from this class.
+     */
+    private static final CordysLogger LOG = CordysLogger.getCordysLogger(TaskScheduler.class);
+    /**
+     * Time after which idle worker threads are stopped in seconds.
+     */
+    private static final long IDLE_THREAD_TIMEOUT = 60;
+    /**
+     * Length of the dispatch rate measurement window in milliseconds.
+     */
+    private static final long RATE_WINDOW = 10000;
+    /**
+     * Number of slots in the timing wheel.
+     */
+    private static final int WHEEL_SIZE = 4096;
+    /**
+     * Tasks waiting for their due time.
+     */
+    private final IDelayQueue delayQueue;
+    /**
+     * Thread which moves the due tasks to the workers.
+     */
+    private Thread dispatcherThread;
+    /**
+     * Number of tasks which have been started.
+     */
+    private long dispatchedCount;
+    /**
+     * Dispatch rate of the last full measurement window in tasks per second.
+     */
+    private double dispatchRate;
+    /**
+     * Largest schedule lag in milliseconds.
+     */
+    private long maxLag;
+    /**
+     * Maximum number of pending tasks.
+     */
+    private int maxPending;
+    /**
+     * Number of tasks which have been scheduled but not yet started.
+     */
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    /**
+     * Set to <code>true</code> when the first measurement window has been completed.
+     */
+    private boolean rateMeasured;
+    /**
+     * Number of tasks started in the current measurement window.
+     */
+    private long rateWindowCount;
+    /**
+     * Start time of the current measurement window.
+     */
+    private long rateWindowStart = System.currentTimeMillis();
+    /**
+     * Set to <code>true</code> when the scheduler is stopped.
+     */
+    private volatile boolean stopped;
+    /**
+     * Timing wheel tick length in milliseconds or zero if the binary heap is used.
+     */
+    private long tickMillis;
+    /**
+     * Sum of the schedule lags in milliseconds.
+     */
+    private long totalLag;
+    /**
+     * Worker thread pool.
+     */
+    private ThreadPoolExecutor workers;
+
+    /**
+     * Constructor for TaskScheduler. The scheduler is started immediately and it uses the binary
+     * heap.
+     *
+     * @param  threads     Number of worker threads.
+     * @param  maxPending  Maximum number of pending tasks.
+     */
+    public TaskScheduler(int threads, int maxPending)
+    {
+        this(threads, maxPending, 0);
+    }
+
+    /**
+     * Constructor for TaskScheduler. The scheduler is started immediately.
+     *
+     * @param  threads     Number of worker threads.
+     * @param  maxPending  Maximum number of pending tasks.
+     * @param  tickMillis  Timing wheel tick length in milliseconds. If this is zero, the binary
+     *                     heap is used.
+     */
+    public TaskScheduler(int threads, int maxPending, long tickMillis)
+    {
+        final AtomicInteger threadCount = new AtomicInteger();
+
+        this.maxPending = maxPending;
+        this.tickMillis = tickMillis;
+
+        if (tickMillis > 0)
+        {
+            delayQueue = new TimingWheelDelayQueue(tickMillis, WHEEL_SIZE);
+        }
+        else
+        {
+            delayQueue = new HeapDelayQueue();
+        }
+
+        workers = new ThreadPoolExecutor(threads, threads, IDLE_THREAD_TIMEOUT, TimeUnit.SECONDS,
+                                         new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+            {
+                public Thread newThread(Runnable r)
+                {
+                    Thread t = new Thread(r,
+                                          "ScriptConnector-Scheduler-" +
+                                          threadCount.incrementAndGet());
+
+                    t.setDaemon(true);
+
+                    return t;
+                }
+            });
+        workers.allowCoreThreadTimeOut(true);
+
+        dispatcherThread = new Thread(new Runnable()
+            {
+                public void run()
+                {
+                    dispatch();
+                }
+            }, "ScriptConnector-Scheduler-Dispatcher");
+        dispatcherThread.setDaemon(true);
+        dispatcherThread.start();
+    }
+
+    /**
+     * Cancels the task if it has not been started yet.
+     *
+     * @param   task  Task returned by <code>schedule</code>.
+     *
+     * @return  <code>true</code> if the task was cancelled.
+     */
+    public boolean cancel(ScheduledTask task)
+    {
+        if (!delayQueue.remove(task))
+        {
+            return false;
+        }
+
+        pendingCount.decrementAndGet();
+
+        return true;
+    }
+
+    /**
+     * Returns the number of worker threads which are running tasks.
+     *
+     * @return  Number of active threads.
+     */
+    public int getActiveCount()
+    {
+        return workers.getActiveCount();
+    }
+
+    /**
+     * Returns the average schedule lag.
+     *
+     * @return  Average lag in milliseconds.
+     */
+    public synchronized long getAverageLag()
+    {
+        return (dispatchedCount > 0) ? (totalLag / dispatchedCount) : 0;
+    }
+
+    /**
+     * Returns the number of tasks which have been started.
+     *
+     * @return  Dispatched task count.
+     */
+    public synchronized long getDispatchedCount()
+    {
+        return dispatchedCount;
+    }
+
+    /**
+     * Returns the dispatch throughput. This is measured over the last full window of ten seconds,
+     * or over the current window if it is longer or the first window has not been completed.
+     *
+     * @return  Number of tasks started per second.
+     */
+    public synchronized double getDispatchRate()
+    {
+        long elapsed = System.currentTimeMillis() - rateWindowStart;
+
+        if (!rateMeasured || (elapsed >= RATE_WINDOW))
+        {
+            return (rateWindowCount * 1000.0) / Math.max(elapsed, 1);
+        }
+
+        return dispatchRate;
+    }
+
+    /**
+     * Returns the largest schedule lag.
+     *
+     * @return  Maximum lag in milliseconds.
+     */
+    public synchronized long getMaxLag()
+    {
+        return maxLag;
+    }
+
+    /**
+     * Returns the number of tasks which have been scheduled but not yet started.
+     *
+     * @return  Pending task count.
+     */
+    public int getPendingCount()
+    {
+        return pendingCount.get();
+    }
+
+    /**
+     * Returns the number of due tasks waiting for a free worker thread.
+     *
+     * @return  Ready task count.
+     */
+    public int getReadyCount()
+    {
+        return workers.getQueue().size();
+    }
+
+    /**
+     * Returns the timing wheel tick length.
+     *
+     * @return  Tick length in milliseconds or zero if the binary heap is used.
+     */
+    public long getTickMillis()
+    {
+        return tickMillis;
+    }
+
+    /**
+     * Schedules the task to be run after the delay.
+     *
+     * @param   task   Task to be run.
+     * @param   delay  Delay in milliseconds.
+     *
+     * @return  Scheduled task which can be used for cancelling the task.
+     *
+     * @throws  ScriptConnectorException  Thrown if the scheduler has been stopped or it has the
+     *                                    maximum number of pending tasks.
+     */
+    public ScheduledTask schedule(Runnable task, long delay)
+                  throws ScriptConnectorException
+    {
+        if (stopped)
+        {
+            throw new ScriptConnectorException("Task scheduler has been stopped.");
+        }
+
+        if (pendingCount.incrementAndGet() > maxPending)
+        {
+            pendingCount.decrementAndGet();
+
+            throw new ScriptConnectorException("Task scheduler queue is full. Maximum number of pending tasks: " +
+                                               maxPending);
+        }
+
+        ScheduledTask scheduledTask = new ScheduledTask(task,
+                                                        System.currentTimeMillis() +
+                                                        Math.max(delay, 0));
+
+        delayQueue.add(scheduledTask);
+
+        return scheduledTask;
+    }
+
+    /**
+     * Stops the scheduler. Running tasks are interrupted and pending tasks are dropped.
+     */
+    public void stop()
+    {
+        stopped = true;
+        dispatcherThread.interrupt();
+
+        int dropped = delayQueue.clear() + workers.shutdownNow().size();
+
+        if (dropped > 0)
+        {
+            LOG.log(Severity.WARN,
+                    "Task scheduler stopped. Number of pending tasks dropped: " + dropped);
+        }
+    }
+
+    /**
+     * Moves the due tasks to the worker pool until the scheduler is stopped.
+     */
+    private void dispatch()
+    {
+        while (!stopped)
+        {
+            ScheduledTask task;
+
+            try
+            {
+                task = delayQueue.take();
+            }
+            catch (InterruptedException e)
+            {
+                break;
+            }
+
+            try
+            {
+                workers.execute(new Worker(task));
+            }
+            catch (RejectedExecutionException e)
+            {
+                // The scheduler has been stopped.
+                break;
+            }
+        }
+    }
+
+    /**
+     * Updates the lag statistics.
+     *
+     * @param  lag  Schedule lag of a task in milliseconds.
+     */
+    private synchronized void recordLag(long lag)
+    {
+        long now = System.currentTimeMillis();
+
+        dispatchedCount++;
+        totalLag += lag;
+        rateWindowCount++;
+
+        if ((now - rateWindowStart) >= RATE_WINDOW)
+        {
+            dispatchRate = (rateWindowCount * 1000.0) / (now - rateWindowStart);
+            rateWindowStart = now;
+            rateWindowCount = 0;
+            rateMeasured = true;
+        }
+
+        if (lag > maxLag)
+        {
+            maxLag = lag;
+        }
+    }
+
+    /**
+     * Runs one task in a worker thread.
+     */
+    private class Worker
+        implements Runnable
+    {
+        /**
+         * Task to be run.
+         */
+        private ScheduledTask task;
+
+        /**
+         * Constructor for Worker.
+         *
+         * @param  task  Task to be run.
+         */
+        Worker(ScheduledTask task)
+        {
+            this.task = task;
+        }
+
+        /**
+         * @see  java.lang.Runnable#run()
+         */
+        public void run()
+        {
+            long lag = System.currentTimeMillis() - task.getDueTime();
+
+            pendingCount.decrementAndGet();
+            recordLag(Math.max(lag, 0));
+
+            if (LOG.isDebugEnabled())
+            {
+                LOG.debug("Running a scheduled task. Lag: " + lag + " ms.");
+            }
+
+            try
+            {
+                task.getTask().run();
+            }
+            catch (Throwable e)
+            {
+                LOG.log(Severity.ERROR, "Scheduled task failed.", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,362 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.scheduler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Delay queue backed by a hashed timing wheel. Time is divided into ticks and each tick maps to
+ * one slot of the wheel. A slot is a doubly linked list of the tasks, so adding and removing a
+ * task is O(1) regardless of the number of pending tasks. When a tick is reached, the tasks of
+ * that tick are moved from the slot to the ready list. Tasks which are due on a later round of
+ * the wheel are left in the slot.
+ *
+ * <p>Tasks are never run before their due time, but they can be run up to one tick late.</p>
+ */
+public class TimingWheelDelayQueue
+    implements IDelayQueue
+{
+    /**
+     * Slot index of a task which is not in the queue.
+     */
+    static final int NOT_QUEUED = -1;
+    /**
+     * Signalled when a task is ready or the queue is no longer empty.
+     */
+    private final Condition available;
+    /**
+     * Next tick to be processed. All earlier ticks have been moved to the ready list.
+     */
+    private long currentTick;
+    /**
+     * First task of each slot. The last slot is the ready list.
+     */
+    private final ScheduledTask[] heads;
+    /**
+     * Lock for the wheel.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * Mask for mapping a tick to a slot.
+     */
+    private final int mask;
+    /**
+     * Index of the ready list.
+     */
+    private final int readySlot;
+    /**
+     * Number of tasks in the queue.
+     */
+    private int size;
+    /**
+     * Time of tick zero.
+     */
+    private final long startTime;
+    /**
+     * Last task of each slot.
+     */
+    private final ScheduledTask[] tails;
+    /**
+     * Tick length in milliseconds.
+     */
+    private final long tickMillis;
+
+    /**
+     * Constructor for TimingWheelDelayQueue.
+     *
+     * @param  tickMillis  Tick length in milliseconds.
+     * @param  wheelSize   Number of slots. This is rounded up to a power of two.
+     */
+    public TimingWheelDelayQueue(long tickMillis, int wheelSize)
+    {
+        if (tickMillis <= 0)
+        {
+            throw new IllegalArgumentException("Invalid tick length: " + tickMillis);
+        }
+
+        int slots = Integer.highestOneBit(Math.max(wheelSize, 1));
+
+        if (slots < wheelSize)
+        {
+            slots <<= 1;
+        }
+
+        this.tickMillis = tickMillis;
+        this.mask = slots - 1;
+        this.readySlot = slots;
+        this.heads = new ScheduledTask[slots + 1];
+        this.tails = new ScheduledTask[slots + 1];
+        this.startTime = System.currentTimeMillis();
+        this.available = lock.newCondition();
+    }
+
+    /**
+     * @see  com.cordys.coe.ac.scriptconnector.scheduler.IDelayQueue#add(com.cordys.coe.ac.scriptconnector.scheduler.ScheduledTask)
+     */
+    public void add(ScheduledTask task)
+    {
+        lock.lock();
+
+        try
+        {
+            boolean wasEmpty = (size == 0);
+
+            if (wasEmpty)
+            {
+                // The dispatcher does not advance the wheel while the queue is empty.
+                currentTick = Math.max(currentTick,
+                                       (System.currentTimeMillis() - startTime) / tickMillis);
+            }
+
+            // Round up, so the task is not run before its due time.
+            long tick = ((task.getDueTime() - startTime) + tickMillis - 1) / tickMillis;
+
+            task.tick = tick;
+            size++;
+
+            if (tick < currentTick)
+            {
+                append(readySlot, task);
+                available.signal();
+            }
+            else
+            {
+                append((int) (tick & mask), task);
+
+                if (wasEmpty)
+                {
+                    available.signal();
+                }
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @see  com.cordys.coe.ac.scriptconnector.scheduler.IDelayQueue#clear()
+     */
+    public int clear()
+    {
+        lock.lock();
+
+        try
+        {
+            int count = size;
+
+            for (int i = 0; i < heads.length; i++)
+            {
+                while (heads[i] != null)
+                {
+                    unlink(heads[i]);
+                }
+            }
+
+            size = 0;
+
+            return count;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the tick length.
+     *
+     * @return  Tick length in milliseconds.
+     */
+    public long getTickMillis()
+    {
+        return tickMillis;
+    }
+
+    /**
+     * @see  com.cordys.coe.ac.scriptconnector.scheduler.IDelayQueue#remove(com.cordys.coe.ac.scriptconnector.scheduler.ScheduledTask)
+     */
+    public boolean remove(ScheduledTask task)
+    {
+        lock.lock();
+
+        try
+        {
+            if (task.slot == NOT_QUEUED)
+            {
+                return false;
+            }
+
+            unlink(task);
+            size--;
+
+            return true;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @see  com.cordys.coe.ac.scriptconnector.scheduler.IDelayQueue#size()
+     */
+    public int size()
+    {
+        lock.lock();
+
+        try
+        {
+            return size;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @see  com.cordys.coe.ac.scriptconnector.scheduler.IDelayQueue#take()
+     */
+    public ScheduledTask take()
+                       throws InterruptedException
+    {
+        lock.lockInterruptibly();
+
+        try
+        {
+            while (true)
+            {
+                ScheduledTask task = heads[readySlot];
+
+                if (task != null)
+                {
+                    unlink(task);
+                    size--;
+
+                    return task;
+                }
+
+                if (size == 0)
+                {
+                    available.await();
+                    continue;
+                }
+
+                long wait = (startTime + (currentTick * tickMillis)) - System.currentTimeMillis();
+
+                if (wait > 0)
+                {
+                    available.await(wait, TimeUnit.MILLISECONDS);
+                    continue;
+                }
+
+                expireTick(currentTick);
+                currentTick++;
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds the task to the end of the slot.
+     *
+     * @param  slot  Slot index.
+     * @param  task  Task to be added.
+     */
+    private void append(int slot, ScheduledTask task)
+    {
+        ScheduledTask tail = tails[slot];
+
+        task.slot = slot;
+        task.prev = tail;
+        task.next = null;
+
+        if (tail == null)
+        {
+            heads[slot] = task;
+        }
+        else
+        {
+            tail.next = task;
+        }
+
+        tails[slot] = task;
+    }
+
+    /**
+     * Moves the tasks of the tick from its slot to the ready list.
+     *
+     * @param  tick  Tick to be processed.
+     */
+    private void expireTick(long tick)
+    {
+        ScheduledTask task = heads[(int) (tick & mask)];
+
+        while (task != null)
+        {
+            ScheduledTask next = task.next;
+
+            if (task.tick <= tick)
+            {
+                unlink(task);
+                append(readySlot, task);
+            }
+
+            task = next;
+        }
+    }
+
+    /**
+     * Removes the task from its slot.
+     *
+     * @param  task  Task to be removed.
+     */
+    private void unlink(ScheduledTask task)
+    {
+        int slot = task.slot;
+
+        if (task.prev == null)
+        {
+            heads[slot] = task.next;
+        }
+        else
+        {
+            task.prev.next = task.next;
+        }
+
+        if (task.next == null)
+        {
+            tails[slot] = task.prev;
+        }
+        else
+        {
+            task.next.prev = task.prev;
+        }
+
+        task.slot = NOT_QUEUED;
+        task.prev = null;
+        task.next = null;
+    }
+}
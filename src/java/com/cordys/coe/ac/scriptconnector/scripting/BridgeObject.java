@@ -24,12 +24,28 @@ import com.cordys.coe.ac.scriptconnector.exception.ScriptConnectorException;
 import com.cordys.coe.ac.scriptconnector.exception.ScriptFaultException;
 import com.cordys.coe.ac.scriptconnector.methods.SavedSoapTransactions;
 import com.cordys.coe.ac.scriptconnector.soap.DelayedSoapRequest;
+import com.cordys.coe.ac.scriptconnector.soap.OutboundExecutor;
+import com.cordys.coe.ac.scriptconnector.soap.OutboundSoapRequest;
 import com.cordys.coe.ac.scriptconnector.soap.ScriptSoapMessage;
 
 import com.eibus.soap.BodyBlock;
 
 import com.eibus.util.logger.CordysLogger;
 
+import com.eibus.xml.nom.Document;
+import com.eibus.xml.nom.Node;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.Undefined;
+import org.mozilla.javascript.xml.XMLObject;
+import org.mozilla.javascript.xmlimpl.XMLLibImpl;
+
+import org.w3c.dom.Element;
+
 /**
  * A class to hold methods that can be called from the script.
  *
@@ -75,6 +91,10 @@ public class BridgeObject
      * Current transaction.
      */
     private final ScriptConnectorTransaction scriptConnectorTransaction;
+    /**
+     * Javascript scope of the script. This is needed for creating E4X objects.
+     */
+    private Scriptable scriptScope;
 
     /**
      * Constructor for BridgeObject.
@@ -124,6 +144,18 @@ public class BridgeObject
         responseAdded = true;
     }
 
+    /**
+     * Cancels a scheduled SOAP request which has not been sent yet.
+     *
+     * @param   taskId  Task ID returned by <code>scheduleSoapRequest</code>.
+     *
+     * @return  <code>true</code> if the request was cancelled.
+     */
+    public boolean cancelScheduledRequest(long taskId)
+    {
+        return scConnector.cancelScheduledRequest(taskId);
+    }
+
     /**
      * Creates a new Script SOAP message object this object is not added to the clean up list. The
      * returned object should only be used with the scheduleSoapRequest method.
@@ -179,13 +211,15 @@ public class BridgeObject
      * @param   sRequest  The request to be sent.
      * @param   lDelay    Time after the request is sent. This is in milliseconds.
      *
+     * @return  Task ID of the scheduled request.
+     *
      * @throws  ScriptConnectorException
      */
-    public void scheduleSoapRequest(String sUserDN, String sRequest, long lDelay)
+    public long scheduleSoapRequest(String sUserDN, String sRequest, long lDelay)
                              throws ScriptConnectorException
     {
     	String transactionSaveId = getTransactionSaveId();
-    	scheduleSoapRequest(sUserDN, sRequest, lDelay, transactionSaveId, true, true);
+    	return scheduleSoapRequest(sUserDN, sRequest, lDelay, transactionSaveId, true, true);
     }
     
     /**
@@ -199,9 +233,11 @@ public class BridgeObject
      * @param 	saveRequest Request will be saved when set to true
      * @param 	saveResponse Response will be saved when set to true
      *
+     * @return  Task ID of the scheduled request.
+     *
      * @throws  ScriptConnectorException
      */
-    public void scheduleSoapRequest(String sUserDN, String sRequest, long lDelay, String saveId, boolean saveRequest, boolean saveResponse)
+    public long scheduleSoapRequest(String sUserDN, String sRequest, long lDelay, String saveId, boolean saveRequest, boolean saveResponse)
                              throws ScriptConnectorException
     {
         ScriptSoapMessage requestMsg = new ScriptSoapMessage(scConnector.getDocument());
@@ -209,7 +245,7 @@ public class BridgeObject
         requestMsg.setUserDn(sUserDN);
         requestMsg.setMethodAsString(sRequest, false);
 
-        scheduleSoapRequestMessage(requestMsg, lDelay, saveId, saveRequest, saveResponse);
+        return scheduleSoapRequestMessage(requestMsg, lDelay, saveId, saveRequest, saveResponse);
     }
     
     /**
@@ -219,13 +255,15 @@ public class BridgeObject
      * @param   request  SOAP request.
      * @param   lDelay   Time after the request is sent. This is in milliseconds.
      *
+     * @return  Task ID of the scheduled request.
+     *
      * @throws  ScriptConnectorException
      */
-    public void scheduleSoapRequestMessage(ScriptSoapMessage request, long lDelay)
+    public long scheduleSoapRequestMessage(ScriptSoapMessage request, long lDelay)
                                     throws ScriptConnectorException
     {
     	String transactionSaveId = getTransactionSaveId();
-    	scheduleSoapRequestMessage(request, lDelay, transactionSaveId, true, true);
+    	return scheduleSoapRequestMessage(request, lDelay, transactionSaveId, true, true);
     }
     
     /**
@@ -237,9 +275,10 @@ public class BridgeObject
      * @param	saveId 		The transaction save Id
      * @param 	saveRequest Request will be saved when set to true
      * @param 	saveResponse Response will be saved when set to true
+     * @return  Task ID of the scheduled request.
      * @throws  ScriptConnectorException
      */
-    public void scheduleSoapRequestMessage(ScriptSoapMessage request, long lDelay, String saveId, boolean saveRequest, boolean saveResponse)
+    public long scheduleSoapRequestMessage(ScriptSoapMessage request, long lDelay, String saveId, boolean saveRequest, boolean saveResponse)
                                     throws ScriptConnectorException
     {
         DelayedSoapRequest req = new DelayedSoapRequest(scConnector,
@@ -250,7 +289,7 @@ public class BridgeObject
             LOG.debug("Scheduling a SOAP request after delay " + lDelay + ":\n" + request);
         }
 
-        scConnector.scheduleTasks(req, lDelay);
+        return scConnector.scheduleSoapRequest(req, lDelay);
     }
 
     /**
@@ -299,6 +338,237 @@ public class BridgeObject
         return responseMsg;
     }
 
+    /**
+     * Sends a SOAP request to a web service without waiting for the response. The request is sent
+     * by the connector outbound request threads and the script can fetch the response later
+     * from the returned handle. The request can be an E4X XML object or a string and the
+     * response is returned in the same format. Responses which are not fetched are deleted when
+     * the transaction ends.
+     *
+     * @param   sUserDN  The user DN to be used in the request.
+     * @param   request  The SOAP method to be sent.
+     *
+     * @return  Handle for fetching the response.
+     *
+     * @throws  ScriptConnectorException
+     */
+    public SoapRequestHandle sendSoapRequestAsync(String sUserDN, Object request)
+                                           throws ScriptConnectorException
+    {
+        ScriptSoapMessage requestMsg = createAsyncSoapMessage();
+        OutboundSoapRequest call = new OutboundSoapRequest(scConnector, requestMsg);
+
+        requestMsg.setUserDn(sUserDN);
+
+        boolean started = false;
+
+        try
+        {
+            setRequestMethod(requestMsg, request);
+            scConnector.getOutboundExecutor().execute(call);
+            started = true;
+        }
+        finally
+        {
+            if (!started)
+            {
+                // Delete the request message, also when the request XML was invalid.
+                call.fail(new ScriptConnectorException("SOAP request was not sent."));
+            }
+        }
+
+        scriptConnectorTransaction.addOutboundRequest(call);
+
+        return new SoapRequestHandle(this, call, request instanceof XMLObject,
+                                     scConnector.getScriptConfig().getSoapRequestTimeout());
+    }
+
+    /**
+     * Sends SOAP requests concurrently and waits for all responses. Uses the connector SOAP
+     * request timeout as the overall timeout.
+     *
+     * @param   sUserDN   The user DN to be used in the requests.
+     * @param   requests  Javascript array of requests.
+     *
+     * @return  Javascript array of results.
+     *
+     * @throws  ScriptConnectorException
+     *
+     * @see     #sendSoapRequestsParallel(String, Object, long)
+     */
+    public Object sendSoapRequestsParallel(String sUserDN, Object requests)
+                                    throws ScriptConnectorException
+    {
+        return sendSoapRequestsParallel(sUserDN, requests, 0);
+    }
+
+    /**
+     * Sends SOAP requests concurrently and waits for all responses. The requests are sent by the
+     * connector outbound request threads, so the total time is about the time of the slowest
+     * request. Requests can be E4X XML objects or strings and the responses are returned in the
+     * same format. This method is only available in Javascript E4X scripts.
+     *
+     * <p>The result array contains an object for each request in the same order. The object has
+     * the <code>response</code> property set on success and the <code>error</code> property set
+     * to the error message if the request failed or did not finish in time.</p>
+     *
+     * @param   sUserDN   The user DN to be used in the requests.
+     * @param   requests  Javascript array of requests.
+     * @param   timeout   Overall timeout in milliseconds. If zero, the connector SOAP request
+     *                    timeout is used.
+     *
+     * @return  Javascript array of results.
+     *
+     * @throws  ScriptConnectorException
+     */
+    public Object sendSoapRequestsParallel(String sUserDN, Object requests, long timeout)
+                                    throws ScriptConnectorException
+    {
+        Context cx = Context.getCurrentContext();
+
+        if ((cx == null) || (scriptScope == null))
+        {
+            throw new IllegalStateException("Parallel SOAP requests are only available in Javascript E4X scripts.");
+        }
+
+        if (!(requests instanceof Scriptable))
+        {
+            throw new ScriptConnectorException("SOAP requests must be given as an array.");
+        }
+
+        if (timeout <= 0)
+        {
+            timeout = scConnector.getScriptConfig().getSoapRequestTimeout();
+        }
+
+        Scriptable requestArray = (Scriptable) requests;
+        int count = (int) Context.toNumber(ScriptableObject.getProperty(requestArray, "length"));
+        OutboundSoapRequest[] calls = new OutboundSoapRequest[count];
+        boolean[] xmlResponses = new boolean[count];
+        long deadline = System.currentTimeMillis() + timeout;
+
+        try
+        {
+            OutboundExecutor executor = scConnector.getOutboundExecutor();
+
+            for (int i = 0; i < count; i++)
+            {
+                ScriptSoapMessage requestMsg = createAsyncSoapMessage();
+
+                requestMsg.setUserDn(sUserDN);
+                calls[i] = new OutboundSoapRequest(scConnector, requestMsg);
+
+                try
+                {
+                    Object request = ScriptableObject.getProperty(requestArray, i);
+
+                    xmlResponses[i] = (request instanceof XMLObject);
+                    setRequestMethod(requestMsg, request);
+                    executor.execute(calls[i]);
+                }
+                catch (Exception e)
+                {
+                    // The error is reported in the result of this request only, e.g. an invalid
+                    // request XML or a full request queue.
+                    calls[i].fail(e);
+                }
+            }
+
+            Object[] results = new Object[count];
+
+            for (int i = 0; i < count; i++)
+            {
+                OutboundSoapRequest call = calls[i];
+                Scriptable result = cx.newObject(scriptScope);
+
+                if (!call.await(deadline - System.currentTimeMillis()))
+                {
+                    call.abandon();
+                    result.put("error", result,
+                               "SOAP request did not finish in " + timeout + " ms.");
+                }
+                else if (call.getError() != null)
+                {
+                    Exception error = call.getError();
+
+                    result.put("error", result,
+                               (error.getMessage() != null) ? error.getMessage()
+                                                            : error.toString());
+                }
+                else
+                {
+                    ScriptSoapMessage responseMsg = call.takeResponse();
+
+                    try
+                    {
+                        result.put("response", result,
+                                   createResponseObject(responseMsg, xmlResponses[i]));
+                    }
+                    finally
+                    {
+                        responseMsg.clear();
+                    }
+                }
+
+                results[i] = result;
+            }
+
+            return cx.newArray(scriptScope, results);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+
+            throw new ScriptConnectorException("Interrupted while waiting for the SOAP responses.",
+                                               e);
+        }
+        finally
+        {
+            // Make sure that unfinished requests do not leave NOM nodes behind.
+            for (OutboundSoapRequest call : calls)
+            {
+                if (call != null)
+                {
+                    call.abandon();
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends a SOAP request to a web service. The request and response are E4X XML objects which
+     * are converted directly from and to NOM, so this is faster than sendSoapRequest() which
+     * passes the XML as strings. This method is only available in Javascript E4X scripts.
+     *
+     * @param   sUserDN  The user DN to be used in the request.
+     * @param   request  The SOAP method XML object to be sent. Strings are parsed as in
+     *                   sendSoapRequest().
+     *
+     * @return  The SOAP response method XML object or <code>undefined</code> if the response
+     *          has no SOAP method.
+     *
+     * @throws  ScriptConnectorException
+     */
+    public Object sendSoapRequestXML(String sUserDN, Object request)
+                              throws ScriptConnectorException
+    {
+        ScriptSoapMessage requestMsg = createSoapMessage();
+
+        requestMsg.setUserDn(sUserDN);
+        setRequestMethod(requestMsg, request);
+
+        ScriptSoapMessage responseMsg = scConnector.sendSoapRequestAndWait(requestMsg);
+
+        try
+        {
+            return createXMLObject(responseMsg.getSoapMethodRoot());
+        }
+        finally
+        {
+            responseMsg.clear();
+        }
+    }
+
     /**
      * Creates a SOAP fault in the SOAP response. .
      *
@@ -365,6 +635,21 @@ public class BridgeObject
         return soapRequestContext.getRequestUserDn();
     }
 
+    /**
+     * Returns the SOAP request method as an E4X XML object. The object is converted directly from
+     * the request NOM nodes, so this is faster than calling <code>new XML(getRequest())</code>.
+     * This method is only available in Javascript E4X scripts.
+     *
+     * @return  Request XML object or <code>undefined</code> if the request has no SOAP method.
+     *
+     * @throws  ScriptConnectorException  Thrown if the XML object could not be created.
+     */
+    public Object getRequestXML()
+                         throws ScriptConnectorException
+    {
+        return createXMLObject(soapRequest.getSoapMethodRoot());
+    }
+
     /**
      * Returns the SOAP response body block.
      *
@@ -431,6 +716,78 @@ public class BridgeObject
         responseAdded = true;
     }
 
+    /**
+     * Sets the SOAP response from an E4X object. This clears all other response elements possibly
+     * set. For an XML object the children are added to the response as with setResponse(). For an
+     * XMLList object the list elements are added. The XML is converted directly into NOM nodes,
+     * so this is faster than calling <code>setResponse(xml.toXMLString())</code>. Other values are
+     * converted to a string and passed to setResponse().
+     *
+     * @param   xml  The response to set.
+     *
+     * @throws  ScriptConnectorException
+     */
+    public void setResponseXML(Object xml)
+                        throws ScriptConnectorException
+    {
+        if ((xml == null) || (xml instanceof Undefined))
+        {
+            soapResponse.setMethodNode(0, true);
+            responseAdded = true;
+            return;
+        }
+
+        if (!(xml instanceof XMLObject))
+        {
+            setResponse(Context.toString(xml));
+            return;
+        }
+
+        XMLObject xmlObject = (XMLObject) xml;
+        Document doc = scConnector.getDocument();
+
+        if ("XMLList".equals(xmlObject.getClassName()))
+        {
+            int root = doc.createElement("root");
+
+            try
+            {
+                for (Object id : xmlObject.getIds())
+                {
+                    if (id instanceof Integer)
+                    {
+                        Object item = xmlObject.get(((Integer) id).intValue(), xmlObject);
+
+                        NomDomConverter.toNom(XMLLibImpl.toDomNode(item), doc, root);
+                    }
+                }
+            }
+            catch (RuntimeException e)
+            {
+                Node.delete(root);
+                throw e;
+            }
+
+            soapResponse.setMethodNode(root, true);
+        }
+        else
+        {
+            soapResponse.setMethodNode(createNomElement(xmlObject), true);
+        }
+
+        responseAdded = true;
+    }
+
+    /**
+     * Sets the Javascript scope of the script. This is called by the E4X script handler.
+     *
+     * @param  scriptScope  Script scope.
+     */
+    public void setScriptScope(Scriptable scriptScope)
+    {
+        this.scriptScope = scriptScope;
+    }
+
     /**
      * Sets the SOAP response. This clears all other response elements possibly set.
      *
@@ -480,4 +837,110 @@ public class BridgeObject
     {
         return scriptConnectorTransaction.getTransactionSaveId();
     }
+
+    /**
+     * Converts the SOAP response method for the script.
+     *
+     * @param   responseMsg  Response message.
+     * @param   xml          If <code>true</code>, an E4X XML object is returned, otherwise a
+     *                       string.
+     *
+     * @return  Response XML object or string.
+     *
+     * @throws  ScriptConnectorException  Thrown if the XML object could not be created.
+     */
+    Object createResponseObject(ScriptSoapMessage responseMsg, boolean xml)
+                         throws ScriptConnectorException
+    {
+        return xml ? createXMLObject(responseMsg.getSoapMethodRoot())
+                   : responseMsg.getMethodAsString();
+    }
+
+    /**
+     * Converts the E4X XML element into a new NOM element.
+     *
+     * @param   xml  XML object.
+     *
+     * @return  Created NOM element. The caller is responsible for deleting this.
+     *
+     * @throws  ScriptConnectorException  Thrown if the object is not an XML element.
+     */
+    private int createNomElement(XMLObject xml)
+                          throws ScriptConnectorException
+    {
+        if (!"XML".equals(xml.getClassName()))
+        {
+            throw new ScriptConnectorException("The XML object must be an element, not " +
+                                               xml.getClassName());
+        }
+
+        org.w3c.dom.Node domNode = XMLLibImpl.toDomNode(xml);
+
+        if (domNode.getNodeType() != org.w3c.dom.Node.ELEMENT_NODE)
+        {
+            throw new ScriptConnectorException("The XML object must be an element.");
+        }
+
+        return NomDomConverter.toNom(domNode, scConnector.getDocument(), 0);
+    }
+
+    /**
+     * Sets the SOAP method of the request message from an E4X XML object or a string.
+     *
+     * @param   requestMsg  Request message.
+     * @param   request     XML object or string.
+     *
+     * @throws  ScriptConnectorException  Thrown if the XML could not be converted.
+     */
+    private void setRequestMethod(ScriptSoapMessage requestMsg, Object request)
+                           throws ScriptConnectorException
+    {
+        if (request instanceof XMLObject)
+        {
+            requestMsg.setMethodNode(createNomElement((XMLObject) request), false);
+        }
+        else
+        {
+            requestMsg.setMethodAsString(Context.toString(request), false);
+        }
+    }
+
+    /**
+     * Creates an E4X XML object from the NOM element.
+     *
+     * @param   node  NOM element or zero.
+     *
+     * @return  XML object or <code>undefined</code> if the node is zero.
+     *
+     * @throws  ScriptConnectorException  Thrown if the XML object could not be created.
+     */
+    private Object createXMLObject(int node)
+                            throws ScriptConnectorException
+    {
+        Context cx = Context.getCurrentContext();
+
+        if ((cx == null) || (scriptScope == null))
+        {
+            throw new IllegalStateException("XML objects are only available in Javascript E4X scripts.");
+        }
+
+        if (node == 0)
+        {
+            return Context.getUndefinedValue();
+        }
+
+        Element element;
+
+        try
+        {
+            element = NomDomConverter.toDom(node);
+        }
+        catch (ParserConfigurationException e)
+        {
+            throw new ScriptConnectorException("Unable to create the XML object.", e);
+        }
+
+        return cx.newObject(scriptScope, "XML",
+                            new Object[] { Context.javaToJS(element, scriptScope) });
+    }
 }
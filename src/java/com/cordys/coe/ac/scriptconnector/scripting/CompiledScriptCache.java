@@ -0,0 +1,437 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.scripting;
+
+import com.cordys.coe.ac.scriptconnector.exception.ScriptConnectorException;
+import com.cordys.coe.util.FileUtils;
+
+import com.eibus.util.logger.CordysLogger;
+import com.eibus.util.logger.Severity;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import java.security.MessageDigest;
+
+import org.mozilla.javascript.CompilerEnvirons;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.GeneratedClassLoader;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.optimizer.ClassCompiler;
+
+/**
+ * On-disk cache for compiled E4X scripts. Scripts are compiled with the Rhino class compiler and
+ * the generated class files are stored in the cache folder. When the connector is restarted or the
+ * configuration is reloaded, the classes are loaded from the cache instead of compiling the
+ * script again, as long as the script source is unchanged.
+ *
+ * <p>The cache entry is keyed by the script path, the script contents, the Rhino version and the
+ * context settings which affect the generated code. Scripts executed in interpreted mode
+ * (optimization level -1) are not cached, because no class files are generated for them.</p>
+ */
+public class CompiledScriptCache
+{
+    /**
+     * Logger for log messages from this class.
+     */
+    private static final CordysLogger LOG = CordysLogger.getCordysLogger(CompiledScriptCache.class);
+    /**
+     * Identifies the cache file format. Files with a different value are ignored.
+     */
+    private static final int CACHE_FILE_MAGIC = 0x53434A31;
+    /**
+     * File name extension for the cache files.
+     */
+    private static final String CACHE_FILE_EXTENSION = ".jsc";
+    /**
+     * Package name for the generated script classes.
+     */
+    private static final String CLASS_NAME_PREFIX = "com.cordys.coe.ac.scriptconnector.generated.Script_";
+    /**
+     * Line number of the first script line. This matches the value used for non-cached scripts.
+     */
+    private static final int FIRST_LINE_NUMBER = 0;
+    /**
+     * Folder where the cache files are stored.
+     */
+    private File cacheFolder;
+
+    /**
+     * Constructor for CompiledScriptCache.
+     *
+     * @param   cacheFolder  Folder where the cache files are stored.
+     *
+     * @throws  ScriptConnectorException  Thrown if the folder could not be created.
+     */
+    public CompiledScriptCache(File cacheFolder)
+                        throws ScriptConnectorException
+    {
+        this.cacheFolder = cacheFolder;
+
+        if (!cacheFolder.exists())
+        {
+            if (!cacheFolder.mkdirs())
+            {
+                throw new ScriptConnectorException("Unable to create the script cache folder: " +
+                                                   cacheFolder);
+            }
+        }
+    }
+
+    /**
+     * Returns a compiled script for the given source. The script classes are loaded from the
+     * cache if they are available, otherwise the script is compiled and the classes are written
+     * to the cache. The optimization level and other compiler settings are taken from the
+     * context.
+     *
+     * @param   cx          Current Rhino context.
+     * @param   scriptFile  Script file. This is used for the cache key and the source name.
+     * @param   source      Script source code.
+     *
+     * @return  Compiled script.
+     *
+     * @throws  ScriptConnectorException  Thrown if the script could not be compiled.
+     */
+    public Script getScript(Context cx, File scriptFile, String source)
+                     throws ScriptConnectorException
+    {
+        String sourceName = scriptFile.getAbsolutePath();
+
+        if (cx.getOptimizationLevel() < 0)
+        {
+            return cx.compileString(source, sourceName, FIRST_LINE_NUMBER, null);
+        }
+
+        String pathHash = toHex(digest(sourceName));
+        String key = toHex(digest(createKeyString(cx, sourceName, source)));
+        File cacheFile = new File(cacheFolder, pathHash + "_" + key + CACHE_FILE_EXTENSION);
+        Object[] classFiles = null;
+
+        if (cacheFile.exists())
+        {
+            try
+            {
+                classFiles = readCacheFile(cacheFile, key);
+            }
+            catch (IOException e)
+            {
+                LOG.log(Severity.WARN, "Unable to read the script cache file: " + cacheFile, e);
+            }
+
+            if (classFiles != null)
+            {
+                if (LOG.isDebugEnabled())
+                {
+                    LOG.debug("Loading compiled script " + sourceName + " from cache file: " +
+                              cacheFile);
+                }
+
+                try
+                {
+                    return defineScript(cx, classFiles);
+                }
+                catch (Exception e)
+                {
+                    LOG.log(Severity.WARN,
+                            "Unable to load the compiled script from cache file: " + cacheFile, e);
+                }
+            }
+
+            // The file is invalid, so it will be replaced.
+            cacheFile.delete();
+        }
+
+        CompilerEnvirons env = new CompilerEnvirons();
+
+        env.initFromContext(cx);
+
+        ClassCompiler compiler = new ClassCompiler(env);
+
+        classFiles = compiler.compileToClassFiles(source, sourceName, FIRST_LINE_NUMBER,
+                                                  CLASS_NAME_PREFIX + key);
+
+        try
+        {
+            writeCacheFile(cacheFile, key, classFiles);
+            removeStaleFiles(pathHash, cacheFile);
+        }
+        catch (IOException e)
+        {
+            LOG.log(Severity.WARN, "Unable to write the script cache file: " + cacheFile, e);
+        }
+
+        try
+        {
+            return defineScript(cx, classFiles);
+        }
+        catch (Exception e)
+        {
+            throw new ScriptConnectorException("Unable to load the compiled script " + sourceName,
+                                               e);
+        }
+    }
+
+    /**
+     * Returns the cache folder.
+     *
+     * @return  Cache folder.
+     */
+    public File getCacheFolder()
+    {
+        return cacheFolder;
+    }
+
+    /**
+     * Creates the string from which the cache key is calculated. All settings that affect the
+     * generated classes must be included here.
+     *
+     * @param   cx          Current Rhino context.
+     * @param   sourceName  Script source name.
+     * @param   source      Script source code.
+     *
+     * @return  Key string.
+     */
+    private static String createKeyString(Context cx, String sourceName, String source)
+    {
+        StringBuilder sb = new StringBuilder(source.length() + 256);
+
+        sb.append(CACHE_FILE_MAGIC).append('\n');
+        sb.append(cx.getImplementationVersion()).append('\n');
+        sb.append(cx.getLanguageVersion()).append('\n');
+        sb.append(cx.getOptimizationLevel()).append('\n');
+        sb.append(cx.hasFeature(Context.FEATURE_DYNAMIC_SCOPE)).append('\n');
+        sb.append(cx.getInstructionObserverThreshold()).append('\n');
+        sb.append(sourceName).append('\n');
+        sb.append(source);
+
+        return sb.toString();
+    }
+
+    /**
+     * Defines the classes and creates the script object.
+     *
+     * @param   cx          Current Rhino context.
+     * @param   classFiles  Array of class names and class bytes. The first class is the script
+     *                      class.
+     *
+     * @return  Script object.
+     *
+     * @throws  Exception  Thrown if the classes could not be loaded.
+     */
+    private static Script defineScript(Context cx, Object[] classFiles)
+                                throws Exception
+    {
+        GeneratedClassLoader loader = cx.createClassLoader(cx.getApplicationClassLoader());
+        Class<?> scriptClass = null;
+
+        for (int i = 0; i < classFiles.length; i += 2)
+        {
+            Class<?> c = loader.defineClass((String) classFiles[i], (byte[]) classFiles[i + 1]);
+
+            if (i == 0)
+            {
+                scriptClass = c;
+            }
+        }
+
+        loader.linkClass(scriptClass);
+
+        return (Script) scriptClass.newInstance();
+    }
+
+    /**
+     * Calculates a SHA-1 digest from the string.
+     *
+     * @param   str  String.
+     *
+     * @return  Digest bytes.
+     *
+     * @throws  ScriptConnectorException  Thrown if the digest could not be calculated.
+     */
+    private static byte[] digest(String str)
+                          throws ScriptConnectorException
+    {
+        try
+        {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+
+            return md.digest(str.getBytes("UTF-8"));
+        }
+        catch (Exception e)
+        {
+            throw new ScriptConnectorException("Unable to calculate the script cache key.", e);
+        }
+    }
+
+    /**
+     * Converts the bytes to a hex string.
+     *
+     * @param   bytes  Bytes.
+     *
+     * @return  Hex string.
+     */
+    private static String toHex(byte[] bytes)
+    {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+
+        for (byte b : bytes)
+        {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Reads the class files from a cache file.
+     *
+     * @param   cacheFile  Cache file.
+     * @param   key        Expected cache key.
+     *
+     * @return  Array of class names and class bytes or <code>null</code> if the file did not
+     *          match.
+     *
+     * @throws  IOException  Thrown if the file could not be read.
+     */
+    private static Object[] readCacheFile(File cacheFile, String key)
+                                   throws IOException
+    {
+        DataInputStream in = null;
+
+        try
+        {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+
+            if ((in.readInt() != CACHE_FILE_MAGIC) || !key.equals(in.readUTF()))
+            {
+                return null;
+            }
+
+            int count = in.readInt();
+            Object[] res = new Object[count * 2];
+
+            for (int i = 0; i < count; i++)
+            {
+                byte[] bytes;
+
+                res[i * 2] = in.readUTF();
+                bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                res[(i * 2) + 1] = bytes;
+            }
+
+            return res;
+        }
+        finally
+        {
+            FileUtils.closeStream(in);
+        }
+    }
+
+    /**
+     * Removes older cache files of the same script.
+     *
+     * @param  pathHash   Script path hash, which is the file name prefix.
+     * @param  cacheFile  Current cache file, which is not removed.
+     */
+    private void removeStaleFiles(String pathHash, File cacheFile)
+    {
+        File[] files = cacheFolder.listFiles();
+
+        if (files == null)
+        {
+            return;
+        }
+
+        for (File file : files)
+        {
+            String name = file.getName();
+
+            if (name.startsWith(pathHash + "_") && name.endsWith(CACHE_FILE_EXTENSION) &&
+                    !file.equals(cacheFile))
+            {
+                if (LOG.isDebugEnabled())
+                {
+                    LOG.debug("Removing stale script cache file: " + file);
+                }
+
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Writes the class files to a cache file. The file is first written to a temporary file, so
+     * other readers never see a partially written file.
+     *
+     * @param   cacheFile   Cache file.
+     * @param   key         Cache key.
+     * @param   classFiles  Array of class names and class bytes.
+     *
+     * @throws  IOException  Thrown if the file could not be written.
+     */
+    private void writeCacheFile(File cacheFile, String key, Object[] classFiles)
+                         throws IOException
+    {
+        File tmpFile = File.createTempFile("tmp", CACHE_FILE_EXTENSION + ".tmp", cacheFolder);
+        DataOutputStream out = null;
+
+        try
+        {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+
+            out.writeInt(CACHE_FILE_MAGIC);
+            out.writeUTF(key);
+            out.writeInt(classFiles.length / 2);
+
+            for (int i = 0; i < classFiles.length; i += 2)
+            {
+                byte[] bytes = (byte[]) classFiles[i + 1];
+
+                out.writeUTF((String) classFiles[i]);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            out.close();
+            out = null;
+
+            if (!tmpFile.renameTo(cacheFile))
+            {
+                cacheFile.delete();
+
+                if (!tmpFile.renameTo(cacheFile))
+                {
+                    throw new IOException("Unable to rename the temporary file to " + cacheFile);
+                }
+            }
+        }
+        finally
+        {
+            FileUtils.closeStream(out);
+            tmpFile.delete();
+        }
+    }
+}
@@ -23,6 +23,9 @@ import com.cordys.coe.ac.scriptconnector.exception.ScriptConnectorException;
 
 import java.io.File;
 
+import javax.script.CompiledScript;
+
+import org.mozilla.javascript.Function;
 import org.mozilla.javascript.Script;
 import org.mozilla.javascript.ScriptableObject;
 
@@ -37,10 +40,24 @@ public abstract class ConfiguredScript
      * Indicates whether the script file has been loaded.
      */
     protected volatile boolean loaded;
+    /**
+     * Name of the function which is called for each request. If this is <code>null</code>, the
+     * whole script is executed for each request.
+     */
+    protected String handlerFunctionName;
+    /**
+     * Maximum number of Rhino instructions per request or 0 if there is no limit.
+     */
+    protected long instructionLimit;
     /**
      * Contains the script locator (name, namespace) for this script.
      */
     protected ScriptLocator locator;
+    /**
+     * Rhino optimization level used when compiling and executing this script. This is ignored
+     * for other than Javascript scripts.
+     */
+    protected int optimizationLevel = ScriptContextFactory.DEFAULT_OPTIMIZATION_LEVEL;
     /**
      * Script name. This is taken from the file name.
      */
@@ -49,6 +66,10 @@ public abstract class ConfiguredScript
      * Script type. This is current the file extension.
      */
     protected String scriptType;
+    /**
+     * Maximum execution time per request in milliseconds or 0 if there is no limit.
+     */
+    protected long timeout;
     /**
      * Script file timestamp object.
      */
@@ -105,6 +126,65 @@ public abstract class ConfiguredScript
         return script;
     }
 
+    /**
+     * Creates a new instance of this script from the same file. This is used when the script file
+     * has been modified. The script options are copied to the new instance.
+     *
+     * @return  New script instance, which is not loaded.
+     *
+     * @throws  ScriptConnectorException  Thrown if the script type could not be determined.
+     */
+    public ConfiguredScript createNewInstance()
+                                       throws ScriptConnectorException
+    {
+        ConfiguredScript script = createInstance(locator, timestamp.getFile());
+
+        script.optimizationLevel = optimizationLevel;
+        script.handlerFunctionName = handlerFunctionName;
+        script.timeout = timeout;
+        script.instructionLimit = instructionLimit;
+
+        return script;
+    }
+
+    /**
+     * Checks if the other script has the same definition as this one, i.e. it is loaded from the
+     * same file with the same options. In that case this instance can be used instead of the
+     * other one and the script does not need to be compiled again.
+     *
+     * @param   other  Script to be compared.
+     *
+     * @return  <code>true</code> if the definitions are equal.
+     */
+    public boolean hasSameDefinition(ConfiguredScript other)
+    {
+        if ((other == null) || (getClass() != other.getClass()))
+        {
+            return false;
+        }
+
+        if (!locator.equals(other.locator) || !scriptType.equals(other.scriptType) ||
+                !timestamp.getFile().equals(other.timestamp.getFile()) ||
+                (optimizationLevel != other.optimizationLevel) || (timeout != other.timeout) ||
+                (instructionLimit != other.instructionLimit))
+        {
+            return false;
+        }
+
+        return (handlerFunctionName != null) ? handlerFunctionName.equals(other.handlerFunctionName)
+                                             : (other.handlerFunctionName == null);
+    }
+
+    /**
+     * Returns the handlerFunctionName.
+     *
+     * @return  Returns the handlerFunctionName.
+     */
+    public String getHandlerFunctionName()
+    {
+        return handlerFunctionName;
+    }
+
     /**
      * Returns the locator.
      *
@@ -115,6 +195,26 @@ public abstract class ConfiguredScript
         return locator;
     }
 
+    /**
+     * Returns the instructionLimit.
+     *
+     * @return  Returns the instructionLimit.
+     */
+    public long getInstructionLimit()
+    {
+        return instructionLimit;
+    }
+
+    /**
+     * Returns the optimizationLevel.
+     *
+     * @return  Returns the optimizationLevel.
+     */
+    public int getOptimizationLevel()
+    {
+        return optimizationLevel;
+    }
+
     /**
      * Returns the scriptName.
      *
@@ -135,6 +235,16 @@ public abstract class ConfiguredScript
         return scriptType;
     }
 
+    /**
+     * Returns the timeout.
+     *
+     * @return  Returns the timeout.
+     */
+    public long getTimeout()
+    {
+        return timeout;
+    }
+
     /**
      * Returns the timestamp.
      *
@@ -155,6 +265,16 @@ public abstract class ConfiguredScript
         return loaded;
     }
 
+    /**
+     * Sets the handlerFunctionName.
+     *
+     * @param  handlerFunctionName  The handlerFunctionName to be set.
+     */
+    public void setHandlerFunctionName(String handlerFunctionName)
+    {
+        this.handlerFunctionName = handlerFunctionName;
+    }
+
     /**
      * Sets the loaded.
      *
@@ -165,6 +285,46 @@ public abstract class ConfiguredScript
         this.loaded = loaded;
     }
 
+    /**
+     * Returns <code>true</code> if the script has a time or instruction limit.
+     *
+     * @return  <code>true</code> if the execution budget is set.
+     */
+    public boolean hasExecutionBudget()
+    {
+        return (timeout > 0) || (instructionLimit > 0);
+    }
+
+    /**
+     * Sets the instructionLimit.
+     *
+     * @param  instructionLimit  The instructionLimit to be set.
+     */
+    public void setInstructionLimit(long instructionLimit)
+    {
+        this.instructionLimit = instructionLimit;
+    }
+
+    /**
+     * Sets the timeout.
+     *
+     * @param  timeout  The timeout to be set.
+     */
+    public void setTimeout(long timeout)
+    {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Sets the optimizationLevel.
+     *
+     * @param  optimizationLevel  The optimizationLevel to be set.
+     */
+    public void setOptimizationLevel(int optimizationLevel)
+    {
+        this.optimizationLevel = optimizationLevel;
+    }
+
     /**
      * Sets the scriptName.
      *
@@ -182,6 +342,11 @@ public abstract class ConfiguredScript
      */
     public static class E4XScript extends ConfiguredScript
     {
+        /**
+         * Contains the handler function when the script is executed in the handler function
+         * mode.
+         */
+        public Function fHandler;
         /**
          * Contains a compiled script.
          */
@@ -208,6 +373,12 @@ public abstract class ConfiguredScript
      */
     public static class GenericScript extends ConfiguredScript
     {
+        /**
+         * Contains the compiled script, if the script engine supports compilation and the
+         * engine is shared by all threads. Otherwise this is <code>null</code> and the script
+         * is compiled separately for each pooled engine.
+         */
+        public CompiledScript compiledScript;
         /**
          * Contains cached script text from the file.
          */
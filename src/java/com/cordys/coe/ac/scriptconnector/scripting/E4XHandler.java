@@ -21,17 +21,26 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.Reader;
 
+import java.util.concurrent.ScheduledFuture;
+
+import org.mozilla.javascript.Callable;
 import org.mozilla.javascript.Context;
-import org.mozilla.javascript.ContextFactory;
 import org.mozilla.javascript.EcmaError;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.ScriptRuntime;
 import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
 
+import com.cordys.coe.ac.scriptconnector.ScriptConnector;
 import com.cordys.coe.ac.scriptconnector.ScriptConnectorTransaction;
+import com.cordys.coe.ac.scriptconnector.exception.ScriptAbortedException;
 import com.cordys.coe.ac.scriptconnector.exception.ScriptConnectorException;
 import com.cordys.coe.ac.scriptconnector.exception.ScriptFaultException;
 import com.cordys.coe.ac.scriptconnector.exception.SoapFaultWrapException;
 import com.cordys.coe.ac.scriptconnector.scripting.ConfiguredScript.E4XScript;
+import com.cordys.coe.util.FileUtils;
 import com.eibus.util.logger.CordysLogger;
+import com.eibus.util.logger.Severity;
 
 /**
  * Script handler for Javascript with E4X extension.
@@ -55,17 +64,18 @@ public class E4XHandler
                        throws Exception
     {
         ConfiguredScript.E4XScript e4xScript = (E4XScript) script;
-        Context cContext = ContextFactory.getGlobal().enterContext();
+        ScriptConnector connector = transaction.getConnector();
+        ScriptContextFactory contextFactory = connector.getContextFactory();
+        Context cContext = contextFactory.enterContext(e4xScript);
 
         try
         {
-            cContext.setLanguageVersion(Context.VERSION_DEFAULT);
-
             synchronized (e4xScript)
             {
                 if (!e4xScript.isLoaded())
                 {
-                    loadScript(cContext, e4xScript);
+                    loadScript(cContext, e4xScript, connector.getRootScope(),
+                               connector.getCompiledScriptCache());
                 }
             }
 
@@ -78,6 +88,7 @@ public class E4XHandler
 
             // Initialize the java <-> javascript bridge object
             scriptScope.put("Cordys", scriptScope, bridgeObject);
+            bridgeObject.setScriptScope(scriptScope);
             scriptScope.put("LOG", scriptScope, LOG);
 
             if (LOG.isDebugEnabled())
@@ -87,13 +98,40 @@ public class E4XHandler
 
             // Execute the script.
             Object result;
+            ExecutionBudget budget = null;
+            ScheduledFuture<?> watchdogFuture = null;
+
+            if (e4xScript.hasExecutionBudget())
+            {
+                budget = new ExecutionBudget(e4xScript);
+                cContext.putThreadLocal(ExecutionBudget.class, budget);
+                watchdogFuture = connector.getScriptWatchdog().watch(budget);
+            }
 
             try
             {
-                result = e4xScript.sScript.exec(cContext, scriptScope);
+                if (e4xScript.fHandler != null)
+                {
+                    // Call the handler function with the request XML. The XML object
+                    // can only be created inside a top-level call.
+                    HandlerCall call = new HandlerCall(e4xScript.fHandler, bridgeObject);
+
+                    result = ScriptRuntime.doTopCall(call, cContext, scriptScope, scriptScope,
+                                                     ScriptRuntime.emptyArgs);
+                }
+                else
+                {
+                    result = e4xScript.sScript.exec(cContext, scriptScope);
+                }
             }
             catch (org.mozilla.javascript.WrappedException e)
             {
+                if ((budget != null) && (budget.getAbortReason() != null))
+                {
+                    // A blocking call was interrupted by the watchdog.
+                    throw abortScript(connector, e4xScript, budget, budget.getAbortReason());
+                }
+
                 Throwable wrapped = e.getWrappedException();
 
                 // Pass through exceptions thrown from Cordys.* methods.
@@ -123,6 +161,33 @@ public class E4XHandler
                     throw e;
                 }
             }
+            catch (ScriptAbortedError e)
+            {
+                throw abortScript(connector, e4xScript, e.getBudget(), e.getMessage());
+            }
+            catch (RuntimeException e)
+            {
+                if ((budget != null) && (budget.getAbortReason() != null))
+                {
+                    // A blocking call was interrupted by the watchdog.
+                    throw abortScript(connector, e4xScript, budget, budget.getAbortReason());
+                }
+
+                throw e;
+            }
+            finally
+            {
+                if (budget != null)
+                {
+                    budget.finish();
+                    cContext.removeThreadLocal(ExecutionBudget.class);
+
+                    if (watchdogFuture != null)
+                    {
+                        watchdogFuture.cancel(false);
+                    }
+                }
+            }
 
             if (!bridgeObject.isResponseAdded())
             {
@@ -178,16 +243,113 @@ public class E4XHandler
         }
     }
 
+    /**
+     * @see  com.cordys.coe.ac.scriptconnector.scripting.IScriptHandler#loadScript(com.cordys.coe.ac.scriptconnector.scripting.ConfiguredScript,
+     *       com.cordys.coe.ac.scriptconnector.ScriptConnector)
+     */
+    public void loadScript(ConfiguredScript script, ScriptConnector connector)
+                    throws Exception
+    {
+        ConfiguredScript.E4XScript e4xScript = (E4XScript) script;
+        Context cContext = connector.getContextFactory().enterContext(e4xScript);
+
+        try
+        {
+            synchronized (e4xScript)
+            {
+                if (!e4xScript.isLoaded())
+                {
+                    loadScript(cContext, e4xScript, connector.getRootScope(),
+                               connector.getCompiledScriptCache());
+                }
+            }
+        }
+        finally
+        {
+            Context.exit();
+        }
+    }
+
+    /**
+     * Records and logs an aborted script run.
+     *
+     * @param   connector  Connector.
+     * @param   script     Aborted script.
+     * @param   budget     Budget of the aborted script.
+     * @param   reason     Abort reason.
+     *
+     * @return  Exception to be thrown.
+     */
+    private ScriptAbortedException abortScript(ScriptConnector connector,
+                                               ConfiguredScript.E4XScript script,
+                                               ExecutionBudget budget, String reason)
+    {
+        connector.getScriptWatchdog().recordAbort(budget);
+
+        LOG.log(Severity.WARN, "Script " + script.getScriptName() + " was aborted: " + reason);
+
+        return new ScriptAbortedException(script.getScriptName(), reason, budget.getElapsedTime(),
+                                          budget.getInstructionCount());
+    }
+
+    /**
+     * Executes the script top-level code once into the script shared scope and finds the handler
+     * function from it. The shared scope is sealed after this, so requests cannot modify it.
+     *
+     * @param   context      Rhino context.
+     * @param   script       Script object.
+     * @param   handlerName  Handler function name.
+     *
+     * @throws  ScriptConnectorException  Thrown if the script failed or the function was not
+     *                                    found.
+     */
+    private void initializeHandler(Context context, ConfiguredScript.E4XScript script,
+                                   String handlerName)
+                            throws ScriptConnectorException
+    {
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Initializing handler function " + handlerName + " for script: " +
+                      script.getScriptName());
+        }
+
+        try
+        {
+            script.sSharedScope.put("LOG", script.sSharedScope, LOG);
+            script.sScript.exec(context, script.sSharedScope);
+        }
+        catch (Exception e)
+        {
+            throw new ScriptConnectorException("Unable to initialize script " +
+                                               script.getScriptName(), e);
+        }
+
+        Object handler = ScriptableObject.getProperty(script.sSharedScope, handlerName);
+
+        if (!(handler instanceof Function))
+        {
+            throw new ScriptConnectorException("Handler function " + handlerName +
+                                               " not found from script " +
+                                               script.getScriptName());
+        }
+
+        script.fHandler = (Function) handler;
+        script.sSharedScope.sealObject();
+    }
+
     /**
      * Loads the script if it has not yet been loaded. Calls to this method must be synchronized
      * over the script object.
      *
-     * @param   context  Rhino context.
-     * @param   script   Script object to be loaded.
+     * @param   context    Rhino context.
+     * @param   script     Script object to be loaded.
+     * @param   rootScope  Sealed root scope containing the standard objects.
+     * @param   cache      Compiled script cache or <code>null</code> if caching is not enabled.
      *
      * @throws  ScriptConnectorException
      */
-    private void loadScript(Context context, ConfiguredScript.E4XScript script)
+    private void loadScript(Context context, ConfiguredScript.E4XScript script,
+                            ScriptableObject rootScope, CompiledScriptCache cache)
                      throws ScriptConnectorException
     {
         Reader rFileInput = null;
@@ -209,15 +371,25 @@ public class E4XHandler
 
         try
         {
-            // Initialize the standard objects (Object, Function, etc.)
-            // This must be done before scripts can be executed.
-            script.sSharedScope = context.initStandardObjects(null, true);
+            // Create the script scope on top of the shared standard objects (Object,
+            // Function, etc.) The root scope is sealed, so scripts cannot modify it. Note that
+            // the E4X library belongs to the root scope, so the settings changed with
+            // XML.setSettings() apply to all scripts, not only to the calling script.
+            script.sSharedScope = (ScriptableObject) context.newObject(rootScope);
+            script.sSharedScope.setPrototype(rootScope);
+            script.sSharedScope.setParentScope(null);
+
+            // Load the file and compile the script or load it from the cache.
+            if (cache != null)
+            {
+                String source = FileUtils.readReaderContents(rFileInput);
 
-            // Seal the script scope, so scripts cannot modify it anymore.
-            // csScript.sSharedScope.sealObject();
-            // Load the file and compile the script.
-            script.sScript = context.compileReader(rFileInput, file.getAbsolutePath(), 0, null);
-            script.setLoaded(true);
+                script.sScript = cache.getScript(context, file, source);
+            }
+            else
+            {
+                script.sScript = context.compileReader(rFileInput, file.getAbsolutePath(), 0, null);
+            }
         }
         catch (Exception e)
         {
@@ -236,5 +408,64 @@ public class E4XHandler
                 }
             }
         }
+
+        String handlerName = script.getHandlerFunctionName();
+
+        if (handlerName != null)
+        {
+            initializeHandler(context, script, handlerName);
+        }
+
+        script.setLoaded(true);
+    }
+
+    /**
+     * Calls the script handler function with the request XML.
+     */
+    private static class HandlerCall
+        implements Callable
+    {
+        /**
+         * Script handler function.
+         */
+        private Function handler;
+        /**
+         * Bridge object which provides the request XML.
+         */
+        private BridgeObject bridgeObject;
+
+        /**
+         * Constructor for HandlerCall.
+         *
+         * @param  handler       Script handler function.
+         * @param  bridgeObject  Bridge object which provides the request XML.
+         */
+        HandlerCall(Function handler, BridgeObject bridgeObject)
+        {
+            this.handler = handler;
+            this.bridgeObject = bridgeObject;
+        }
+
+        /**
+         * @see  org.mozilla.javascript.Callable#call(org.mozilla.javascript.Context,
+         *       org.mozilla.javascript.Scriptable, org.mozilla.javascript.Scriptable,
+         *       java.lang.Object[])
+         */
+        public Object call(Context cx, Scriptable scope, Scriptable thisObj, Object[] args)
+        {
+            Object request;
+
+            try
+            {
+                // The request is converted directly from NOM without a string.
+                request = bridgeObject.getRequestXML();
+            }
+            catch (ScriptConnectorException e)
+            {
+                throw new org.mozilla.javascript.WrappedException(e);
+            }
+
+            return handler.call(cx, scope, thisObj, new Object[] { request });
+        }
     }
 }
@@ -0,0 +1,240 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.scripting;
+
+import org.mozilla.javascript.Context;
+
+/**
+ * Execution budget of one script run. The budget is stored in the Rhino context and it is checked
+ * by the context factory whenever the instruction observer is called. The script is aborted when
+ * it runs over the instruction limit or the deadline, or when the watchdog has aborted it.
+ */
+public class ExecutionBudget
+{
+    /**
+     * Time after which the script is aborted or 0 if there is no deadline.
+     */
+    private long deadline;
+    /**
+     * Set to <code>true</code> when the script run has finished.
+     */
+    private volatile boolean finished;
+    /**
+     * Set to <code>true</code> when the watchdog has interrupted the script thread.
+     */
+    private boolean interrupted;
+    /**
+     * Number of instructions executed so far.
+     */
+    private long instructionCount;
+    /**
+     * Maximum number of instructions or 0 if there is no limit.
+     */
+    private long instructionLimit;
+    /**
+     * Set by the watchdog when the script has to be aborted.
+     */
+    private volatile String abortReason;
+    /**
+     * Script which is being executed.
+     */
+    private ConfiguredScript script;
+    /**
+     * Time when the script run was started.
+     */
+    private long startTime;
+    /**
+     * Thread which is executing the script.
+     */
+    private Thread thread;
+
+    /**
+     * Constructor for ExecutionBudget. The budget starts from the current time.
+     *
+     * @param  script  Script to be executed.
+     */
+    public ExecutionBudget(ConfiguredScript script)
+    {
+        this.script = script;
+        this.startTime = System.currentTimeMillis();
+        this.deadline = (script.getTimeout() > 0) ? (startTime + script.getTimeout()) : 0;
+        this.instructionLimit = script.getInstructionLimit();
+        this.thread = Thread.currentThread();
+    }
+
+    /**
+     * Marks the script to be aborted and interrupts the script thread. The script is stopped when
+     * it next calls the instruction observer, or when a blocking call made by the script (e.g. a
+     * SOAP request or a sleep) notices the interrupt.
+     *
+     * @param   reason  Abort reason.
+     *
+     * @return  <code>false</code> if the script run had already finished.
+     */
+    public synchronized boolean abort(String reason)
+    {
+        if (finished)
+        {
+            return false;
+        }
+
+        abortReason = reason;
+        interrupted = true;
+        thread.interrupt();
+
+        return true;
+    }
+
+    /**
+     * Called from the instruction observer. Adds the executed instructions and checks if the
+     * budget has been exceeded.
+     *
+     * @param   count  Number of instructions executed since the last call.
+     *
+     * @throws  ScriptAbortedError  Thrown if the budget has been exceeded.
+     */
+    public void addInstructions(int count)
+                         throws ScriptAbortedError
+    {
+        instructionCount += count;
+
+        if (abortReason != null)
+        {
+            throw new ScriptAbortedError(abortReason, this);
+        }
+
+        if ((instructionLimit > 0) && (instructionCount > instructionLimit))
+        {
+            throw new ScriptAbortedError("Instruction limit of " + instructionLimit +
+                                         " exceeded", this);
+        }
+
+        if ((deadline > 0) && (System.currentTimeMillis() > deadline))
+        {
+            throw new ScriptAbortedError("Timeout of " + script.getTimeout() + " ms exceeded",
+                                         this);
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the script running in the current thread has been aborted by
+     * the watchdog or the budget. The interrupt status cannot be used for this, because blocking
+     * calls can clear it.
+     *
+     * @return  <code>true</code> if the current script has been aborted.
+     */
+    public static boolean isCurrentScriptAborted()
+    {
+        Context cx = Context.getCurrentContext();
+
+        if (cx == null)
+        {
+            return false;
+        }
+
+        ExecutionBudget budget = (ExecutionBudget) cx.getThreadLocal(ExecutionBudget.class);
+
+        return (budget != null) && (budget.getAbortReason() != null);
+    }
+
+    /**
+     * Marks the script run as finished. This must be called from the script thread. If the
+     * watchdog has interrupted the thread, the interrupt status is cleared, so it does not affect
+     * the next request handled by the thread.
+     */
+    public synchronized void finish()
+    {
+        finished = true;
+
+        if (interrupted)
+        {
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * Returns the abort reason set by the watchdog.
+     *
+     * @return  Abort reason or <code>null</code> if the script has not been aborted.
+     */
+    public String getAbortReason()
+    {
+        return abortReason;
+    }
+
+    /**
+     * Returns the deadline.
+     *
+     * @return  Returns the deadline.
+     */
+    public long getDeadline()
+    {
+        return deadline;
+    }
+
+    /**
+     * Returns the time elapsed since the script was started.
+     *
+     * @return  Elapsed time in milliseconds.
+     */
+    public long getElapsedTime()
+    {
+        return System.currentTimeMillis() - startTime;
+    }
+
+    /**
+     * Returns the instructionCount. This is approximate, because the instruction observer is
+     * called only after a number of instructions.
+     *
+     * @return  Returns the instructionCount.
+     */
+    public long getInstructionCount()
+    {
+        return instructionCount;
+    }
+
+    /**
+     * Returns the script.
+     *
+     * @return  Returns the script.
+     */
+    public ConfiguredScript getScript()
+    {
+        return script;
+    }
+
+    /**
+     * Returns the thread.
+     *
+     * @return  Returns the thread.
+     */
+    public Thread getThread()
+    {
+        return thread;
+    }
+
+    /**
+     * Returns the finished.
+     *
+     * @return  Returns the finished.
+     */
+    public boolean isFinished()
+    {
+        return finished;
+    }
+}
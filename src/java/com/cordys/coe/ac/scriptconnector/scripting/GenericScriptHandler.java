@@ -17,6 +17,7 @@
  */
 package com.cordys.coe.ac.scriptconnector.scripting;
 
+import com.cordys.coe.ac.scriptconnector.ScriptConnector;
 import com.cordys.coe.ac.scriptconnector.ScriptConnectorTransaction;
 import com.cordys.coe.ac.scriptconnector.exception.ScriptConnectorException;
 import com.cordys.coe.util.FileUtils;
@@ -30,8 +31,7 @@ import java.io.StringWriter;
 
 import javax.script.Bindings;
 import javax.script.ScriptContext;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
 import javax.script.SimpleScriptContext;
 
 /**
@@ -47,10 +47,6 @@ public class GenericScriptHandler
      * Logger for log messages from this class.
      */
     private static final CordysLogger LOG = CordysLogger.getCordysLogger(GenericScriptHandler.class);
-    /**
-     * Contains a shared script engine manager instance for loading scripts.
-     */
-    private static ScriptEngineManager scriptManager = new ScriptEngineManager();
 
     /**
      * @see  com.cordys.coe.ac.scriptconnector.scripting.IScriptHandler#executeScript(com.cordys.coe.ac.scriptconnector.scripting.ConfiguredScript,
@@ -61,34 +57,39 @@ public class GenericScriptHandler
                        throws Exception
     {
         ConfiguredScript.GenericScript genericScript = (ConfiguredScript.GenericScript) script;
+        ScriptEnginePool enginePool = transaction.getConnector().getScriptEnginePool();
 
-        synchronized (genericScript)
-        {
-            if (!genericScript.isLoaded())
-            {
-                loadScript(genericScript);
-            }
-        }
+        loadScript(genericScript, transaction.getConnector());
 
         SimpleScriptContext ctx = new SimpleScriptContext();
         StringWriter out = new StringWriter(1024);
 
         ctx.setWriter(out);
 
-        ScriptEngine engine = scriptManager.getEngineByExtension(genericScript.getScriptType());
-
-        if (engine == null)
-        {
-            throw new ScriptConnectorException("No scripting engine found with type: " +
-                                               genericScript.getScriptType());
-        }
-
         Bindings bindings = ctx.getBindings(ScriptContext.ENGINE_SCOPE);
 
         bindings.put("Cordys", bridgeObject);
         bindings.put("LOG", LOG);
 
-        Object result = engine.eval(genericScript.scriptText, ctx);
+        Object result;
+
+        if (genericScript.compiledScript != null)
+        {
+            result = genericScript.compiledScript.eval(ctx);
+        }
+        else
+        {
+            ScriptEnginePool.PooledEngine engine = enginePool.acquire(genericScript.getScriptType());
+
+            try
+            {
+                result = engine.eval(genericScript, ctx);
+            }
+            finally
+            {
+                enginePool.release(engine);
+            }
+        }
 
         if (!bridgeObject.isResponseAdded())
         {
@@ -118,16 +119,37 @@ public class GenericScriptHandler
         }
     }
 
+    /**
+     * @see  com.cordys.coe.ac.scriptconnector.scripting.IScriptHandler#loadScript(com.cordys.coe.ac.scriptconnector.scripting.ConfiguredScript,
+     *       com.cordys.coe.ac.scriptconnector.ScriptConnector)
+     */
+    public void loadScript(ConfiguredScript script, ScriptConnector connector)
+                    throws Exception
+    {
+        ConfiguredScript.GenericScript genericScript = (ConfiguredScript.GenericScript) script;
+
+        synchronized (genericScript)
+        {
+            if (!genericScript.isLoaded())
+            {
+                loadScript(genericScript, connector.getScriptEnginePool());
+            }
+        }
+    }
+
     /**
      * Loads the script if it has not yet been loaded. Calls to this method must be synchronized
-     * over the script object.
+     * over the script object. If the script engine supports compilation and the engine is shared
+     * by all threads, the script is also compiled here.
      *
-     * @param   script  Script object to be loaded.
+     * @param   script      Script object to be loaded.
+     * @param   enginePool  Script engine pool.
      *
-     * @throws  IOException  Thrown if the script file could not be read.
+     * @throws  IOException               Thrown if the script file could not be read.
+     * @throws  ScriptConnectorException  Thrown if the script could not be compiled.
      */
-    private void loadScript(ConfiguredScript.GenericScript script)
-                     throws IOException
+    private void loadScript(ConfiguredScript.GenericScript script, ScriptEnginePool enginePool)
+                     throws IOException, ScriptConnectorException
     {
         Reader r = null;
 
@@ -140,5 +162,30 @@ public class GenericScriptHandler
         {
             FileUtils.closeReader(r);
         }
+
+        // The compiled script is shared by all requests, so it can only be cached
+        // here when the engine can be called from multiple threads. Otherwise
+        // the script is compiled separately for each pooled engine.
+        ScriptEnginePool.PooledEngine engine = enginePool.getSharedEngine(script.getScriptType());
+
+        if (engine != null)
+        {
+            if (LOG.isDebugEnabled())
+            {
+                LOG.debug("Compiling script: " + script.getScriptName());
+            }
+
+            try
+            {
+                script.compiledScript = engine.compile(script);
+            }
+            catch (ScriptException e)
+            {
+                throw new ScriptConnectorException("Unable to compile script " +
+                                                   script.getScriptName(), e);
+            }
+        }
+
+        script.setLoaded(true);
     }
 }
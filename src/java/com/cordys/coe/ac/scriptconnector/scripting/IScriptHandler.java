@@ -17,6 +17,7 @@
  */
 package com.cordys.coe.ac.scriptconnector.scripting;
 
+import com.cordys.coe.ac.scriptconnector.ScriptConnector;
 import com.cordys.coe.ac.scriptconnector.ScriptConnectorTransaction;
 
 /**
@@ -38,4 +39,16 @@ public interface IScriptHandler
     void executeScript(ConfiguredScript script, BridgeObject bridgeObject,
                        ScriptConnectorTransaction transaction)
                 throws Exception;
+
+    /**
+     * Loads and compiles the script, if it has not yet been loaded. This is called before the
+     * script is executed and it can also be called in advance to warm up the script.
+     *
+     * @param   script     Script object.
+     * @param   connector  Connector instance.
+     *
+     * @throws  Exception
+     */
+    void loadScript(ConfiguredScript script, ScriptConnector connector)
+             throws Exception;
 }
@@ -0,0 +1,295 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.scripting;
+
+import com.cordys.coe.ac.scriptconnector.Utils;
+
+import com.eibus.xml.nom.Document;
+import com.eibus.xml.nom.Node;
+import com.eibus.xml.nom.NodeType;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+
+/**
+ * Converts XML trees directly between NOM nodes and W3C DOM nodes. The E4X implementation of
+ * Rhino is backed by a W3C DOM, so this is used to pass XML between the SOAP messages and the
+ * scripts without serializing it to a string and parsing it again.
+ *
+ * <p>Whitespace text nodes, comments and processing instructions are skipped when converting
+ * into DOM. This matches the default E4X settings which are used when a script parses XML.</p>
+ */
+public class NomDomConverter
+{
+    /**
+     * Factory for the DOM documents.
+     */
+    private static final DocumentBuilderFactory dbFactory;
+    /**
+     * Contains a document builder for each thread, as the builders are not thread-safe.
+     */
+    private static final ThreadLocal<DocumentBuilder> documentBuilders = new ThreadLocal<DocumentBuilder>();
+
+    static
+    {
+        dbFactory = DocumentBuilderFactory.newInstance();
+        dbFactory.setNamespaceAware(true);
+    }
+
+    /**
+     * Converts the NOM element into a new DOM document.
+     *
+     * @param   node  NOM element.
+     *
+     * @return  Converted DOM element.
+     *
+     * @throws  ParserConfigurationException  Thrown if the DOM document could not be created.
+     */
+    public static Element toDom(int node)
+                         throws ParserConfigurationException
+    {
+        DocumentBuilder builder = documentBuilders.get();
+
+        if (builder == null)
+        {
+            builder = dbFactory.newDocumentBuilder();
+            documentBuilders.set(builder);
+        }
+
+        org.w3c.dom.Document domDoc = builder.newDocument();
+        Element res = toDom(node, domDoc);
+
+        domDoc.appendChild(res);
+
+        return res;
+    }
+
+    /**
+     * Converts the DOM node into NOM. Namespace declarations are added to the NOM elements when
+     * the DOM tree does not declare the namespaces it uses, which is the case with XML modified
+     * by E4X.
+     *
+     * @param   domNode  DOM element or text node.
+     * @param   doc      NOM document.
+     * @param   parent   Parent NOM node or zero.
+     *
+     * @return  Created NOM node or zero if the node type is not supported.
+     */
+    public static int toNom(org.w3c.dom.Node domNode, Document doc, int parent)
+    {
+        return toNom(domNode, doc, parent, new HashMap<String, String>());
+    }
+
+    /**
+     * Declares the namespace on the NOM element if the prefix is not already bound to this
+     * namespace.
+     *
+     * @param  node     NOM element.
+     * @param  prefix   Namespace prefix or <code>null</code> for the default namespace.
+     * @param  uri      Namespace URI or <code>null</code>.
+     * @param  inScope  Namespaces in scope. This is modified.
+     */
+    private static void declareNamespace(int node, String prefix, String uri,
+                                         Map<String, String> inScope)
+    {
+        String key = (prefix != null) ? prefix : "";
+        String value = (uri != null) ? uri : "";
+        String current = inScope.get(key);
+
+        if (value.equals((current != null) ? current : ""))
+        {
+            return;
+        }
+
+        if ((prefix != null) && (value.length() == 0))
+        {
+            // Prefixes cannot be undeclared in XML 1.0.
+            return;
+        }
+
+        Node.setAttribute(node, (prefix != null) ? ("xmlns:" + prefix) : "xmlns", value);
+        inScope.put(key, value);
+    }
+
+    /**
+     * Checks if the string contains only whitespace.
+     *
+     * @param   value  String to be checked.
+     *
+     * @return  <code>true</code> if the string is empty or contains only whitespace.
+     */
+    private static boolean isWhitespace(String value)
+    {
+        if (value == null)
+        {
+            return true;
+        }
+
+        for (int i = 0, count = value.length(); i < count; i++)
+        {
+            if (!Character.isWhitespace(value.charAt(i)))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Converts the NOM element and its children into DOM.
+     *
+     * @param   node    NOM element.
+     * @param   domDoc  DOM document.
+     *
+     * @return  Converted DOM element.
+     */
+    private static Element toDom(int node, org.w3c.dom.Document domDoc)
+    {
+        Element res = domDoc.createElementNS(Node.getNamespaceURI(node), Node.getName(node));
+
+        for (int i = 0, count = Node.getNumAttributes(node); i < count; i++)
+        {
+            String name = Node.getAttributeName(node, i + 1);
+            String prefix = Node.getAttributePrefix(node, i + 1);
+            String value = Node.getAttribute(node, name);
+
+            if ("xmlns".equals(name) || "xmlns".equals(prefix))
+            {
+                res.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, name, value);
+            }
+            else if (prefix != null)
+            {
+                res.setAttributeNS(Utils.lookupNamespaceURI(node, prefix), name, value);
+            }
+            else
+            {
+                res.setAttributeNS(null, name, value);
+            }
+        }
+
+        for (int child = Node.getFirstChild(node); child != 0; child = Node.getNextSibling(child))
+        {
+            switch (Node.getType(child))
+            {
+                case NodeType.ELEMENT:
+                    res.appendChild(toDom(child, domDoc));
+                    break;
+
+                case NodeType.DATA:
+                    if (!isWhitespace(Node.getData(child)))
+                    {
+                        res.appendChild(domDoc.createTextNode(Node.getData(child)));
+                    }
+                    break;
+
+                case NodeType.CDATA:
+                    res.appendChild(domDoc.createCDATASection(Node.getData(child)));
+                    break;
+            }
+        }
+
+        return res;
+    }
+
+    /**
+     * Converts the DOM node and its children into NOM.
+     *
+     * @param   domNode  DOM node.
+     * @param   doc      NOM document.
+     * @param   parent   Parent NOM node or zero.
+     * @param   inScope  Namespaces declared in the parent NOM elements.
+     *
+     * @return  Created NOM node or zero if the node type is not supported.
+     */
+    private static int toNom(org.w3c.dom.Node domNode, Document doc, int parent,
+                             Map<String, String> inScope)
+    {
+        switch (domNode.getNodeType())
+        {
+            case org.w3c.dom.Node.ELEMENT_NODE:
+                break;
+
+            case org.w3c.dom.Node.TEXT_NODE:
+                return (parent != 0) ? doc.createText(domNode.getNodeValue(), parent)
+                                     : doc.createText(domNode.getNodeValue());
+
+            case org.w3c.dom.Node.CDATA_SECTION_NODE:
+                return doc.createCDataNode(domNode.getNodeValue(), parent);
+
+            default:
+                return 0;
+        }
+
+        int node = (parent != 0) ? doc.createElement(domNode.getNodeName(), parent)
+                                 : doc.createElement(domNode.getNodeName());
+        Map<String, String> scope = new HashMap<String, String>(inScope);
+        NamedNodeMap attributes = domNode.getAttributes();
+
+        // Copy the existing namespace declarations first.
+        for (int i = 0, count = attributes.getLength(); i < count; i++)
+        {
+            Attr attr = (Attr) attributes.item(i);
+
+            if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attr.getNamespaceURI()))
+            {
+                String prefix = "xmlns".equals(attr.getName()) ? "" : attr.getLocalName();
+
+                Node.setAttribute(node, attr.getName(), attr.getValue());
+                scope.put(prefix, attr.getValue());
+            }
+        }
+
+        declareNamespace(node, domNode.getPrefix(), domNode.getNamespaceURI(), scope);
+
+        for (int i = 0, count = attributes.getLength(); i < count; i++)
+        {
+            Attr attr = (Attr) attributes.item(i);
+            String uri = attr.getNamespaceURI();
+
+            if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(uri))
+            {
+                continue;
+            }
+
+            if ((attr.getPrefix() != null) && !XMLConstants.XML_NS_URI.equals(uri))
+            {
+                declareNamespace(node, attr.getPrefix(), uri, scope);
+            }
+
+            Node.setAttribute(node, attr.getName(), attr.getValue());
+        }
+
+        for (org.w3c.dom.Node child = domNode.getFirstChild(); child != null;
+                 child = child.getNextSibling())
+        {
+            toNom(child, doc, node, scope);
+        }
+
+        return node;
+    }
+}
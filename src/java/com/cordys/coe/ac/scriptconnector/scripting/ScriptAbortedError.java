@@ -0,0 +1,52 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.scripting;
+
+/**
+ * Thrown from the instruction observer when a script has exceeded its execution budget. This is
+ * an error so that the script cannot catch it.
+ */
+public class ScriptAbortedError extends Error
+{
+    /**
+     * Budget of the aborted script.
+     */
+    private transient ExecutionBudget budget;
+
+    /**
+     * Constructor for ScriptAbortedError.
+     *
+     * @param  reason  Abort reason.
+     * @param  budget  Budget of the aborted script.
+     */
+    public ScriptAbortedError(String reason, ExecutionBudget budget)
+    {
+        super(reason);
+        this.budget = budget;
+    }
+
+    /**
+     * Returns the budget.
+     *
+     * @return  Returns the budget.
+     */
+    public ExecutionBudget getBudget()
+    {
+        return budget;
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.scripting;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+import org.mozilla.javascript.ScriptableObject;
+
+/**
+ * Rhino context factory used by the connector. All Javascript contexts for compiling and executing
+ * the E4X scripts are created through this factory, so the context settings are the same for
+ * loading and running a script.
+ */
+public class ScriptContextFactory extends ContextFactory
+{
+    /**
+     * Optimization level used when nothing is configured for the script. This is the Rhino
+     * default, i.e. scripts are compiled into JVM bytecode without extra optimizations.
+     */
+    public static final int DEFAULT_OPTIMIZATION_LEVEL = 0;
+    /**
+     * Context thread local key which is set when the context is entered for a script which is
+     * executed in the handler function mode.
+     */
+    private static final String HANDLER_MODE_KEY = "ScriptContextFactory.handlerMode";
+    /**
+     * Number of instructions between the instruction observer calls for scripts which have an
+     * execution budget.
+     */
+    public static final int INSTRUCTION_OBSERVER_THRESHOLD = 10000;
+
+    /**
+     * Creates a sealed root scope which contains the standard objects (Object, Function, XML,
+     * etc.). The scope can be shared by all scripts, because its objects cannot be modified. The
+     * E4X settings (e.g. XML.setSettings()) are kept in the XML library of this scope, so they
+     * are shared by all scripts.
+     *
+     * @return  Sealed root scope.
+     */
+    public ScriptableObject createSealedRootScope()
+    {
+        Context cx = enterContext();
+
+        try
+        {
+            ScriptableObject scope = cx.initStandardObjects(null, true);
+
+            // Some of the standard objects (e.g. XML) are initialized lazily on the first
+            // access, so they need to be initialized before the scope is sealed.
+            Object[] ids = scope.getAllIds();
+
+            for (int i = 0; i < ids.length; i++)
+            {
+                if (ids[i] instanceof String)
+                {
+                    ScriptableObject.getProperty(scope, (String) ids[i]);
+                }
+            }
+
+            scope.sealObject();
+
+            return scope;
+        }
+        finally
+        {
+            Context.exit();
+        }
+    }
+
+    /**
+     * Enters a context for the current thread and sets the given optimization level to it. The
+     * caller must call <code>Context.exit()</code> when done.
+     *
+     * @param   optimizationLevel  Rhino optimization level (-1 for interpreted mode, 0-9 for
+     *                             compiled mode).
+     *
+     * @return  Entered context.
+     */
+    public Context enterContext(int optimizationLevel)
+    {
+        Context cx = enterContext();
+
+        cx.setOptimizationLevel(optimizationLevel);
+
+        return cx;
+    }
+
+    /**
+     * Enters a context for the current thread with the settings of the script. If the script has
+     * an execution budget, the instruction observer is enabled, and if the script is executed in
+     * the handler function mode, dynamic scope is enabled. This must be used both for compiling
+     * and for executing the script. The caller must call <code>Context.exit()</code> when done.
+     *
+     * @param   script  Script to be compiled or executed.
+     *
+     * @return  Entered context.
+     */
+    public Context enterContext(ConfiguredScript script)
+    {
+        Context cx = enterContext(script.getOptimizationLevel());
+
+        cx.setInstructionObserverThreshold(script.hasExecutionBudget()
+                                           ? INSTRUCTION_OBSERVER_THRESHOLD : 0);
+
+        if (script.getHandlerFunctionName() != null)
+        {
+            cx.putThreadLocal(HANDLER_MODE_KEY, Boolean.TRUE);
+        }
+        else
+        {
+            cx.removeThreadLocal(HANDLER_MODE_KEY);
+        }
+
+        return cx;
+    }
+
+    /**
+     * Enables dynamic scope for scripts executed in the handler function mode, so functions
+     * defined in the script's sealed shared scope resolve the per-request variables (e.g. the
+     * Cordys object) from the scope they are called with. Other scripts run in their own request
+     * scope and use the normal lexical scoping.
+     *
+     * @see  org.mozilla.javascript.ContextFactory#hasFeature(org.mozilla.javascript.Context, int)
+     */
+    @Override
+    protected boolean hasFeature(Context cx, int featureIndex)
+    {
+        if (featureIndex == Context.FEATURE_DYNAMIC_SCOPE)
+        {
+            return cx.getThreadLocal(HANDLER_MODE_KEY) != null;
+        }
+
+        return super.hasFeature(cx, featureIndex);
+    }
+
+    /**
+     * Checks the execution budget of the current script run, if one has been set to the context.
+     *
+     * @see  org.mozilla.javascript.ContextFactory#observeInstructionCount(org.mozilla.javascript.Context,
+     *       int)
+     */
+    @Override
+    protected void observeInstructionCount(Context cx, int instructionCount)
+    {
+        ExecutionBudget budget = (ExecutionBudget) cx.getThreadLocal(ExecutionBudget.class);
+
+        if (budget != null)
+        {
+            budget.addInstructions(instructionCount);
+        }
+    }
+
+    /**
+     * @see  org.mozilla.javascript.ContextFactory#makeContext()
+     */
+    @Override
+    protected Context makeContext()
+    {
+        Context cx = super.makeContext();
+
+        cx.setLanguageVersion(Context.VERSION_DEFAULT);
+        cx.setOptimizationLevel(DEFAULT_OPTIMIZATION_LEVEL);
+
+        return cx;
+    }
+}
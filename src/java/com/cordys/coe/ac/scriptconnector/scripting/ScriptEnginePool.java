@@ -0,0 +1,584 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.scripting;
+
+import com.cordys.coe.ac.scriptconnector.exception.ScriptConnectorException;
+
+import com.eibus.util.logger.CordysLogger;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+
+/**
+ * Pool of Java scripting API engines. Engines are pooled per script type (file extension) and
+ * the pooling method is selected by the engine's <code>THREADING</code> parameter:
+ *
+ * <ul>
+ *   <li>MULTITHREADED and STATELESS engines are shared by all threads.</li>
+ *   <li>THREAD-ISOLATED engines are kept per thread.</li>
+ *   <li>Other engines are checked out from the pool for one request and returned after it. At
+ *     most the configured number of engines can be checked out per script type. When all
+ *     engines are in use, the caller waits until one is returned or the checkout timeout
+ *     expires.</li>
+ * </ul>
+ */
+public class ScriptEnginePool
+{
+    /**
+     * Logger for log messages from this class.
+     */
+    private static final CordysLogger LOG = CordysLogger.getCordysLogger(ScriptEnginePool.class);
+    /**
+     * Default maximum number of engines checked out per script type.
+     */
+    public static final int DEFAULT_POOL_SIZE = 10;
+    /**
+     * Default time in milliseconds to wait for a free engine.
+     */
+    public static final long DEFAULT_CHECKOUT_TIMEOUT = 30000L;
+    /**
+     * Time in milliseconds to wait for a free engine.
+     */
+    private long checkoutTimeout;
+    /**
+     * Number of checkouts which timed out.
+     */
+    private AtomicLong checkoutTimeoutCount = new AtomicLong();
+    /**
+     * Number of times an existing engine was used.
+     */
+    private AtomicLong hitCount = new AtomicLong();
+    /**
+     * Maximum number of engines checked out per script type.
+     */
+    private int maxPoolSize;
+    /**
+     * Number of times a new engine was created.
+     */
+    private AtomicLong missCount = new AtomicLong();
+    /**
+     * Script engine manager used for creating the engines.
+     */
+    private ScriptEngineManager scriptManager;
+    /**
+     * Contains the engine pools by script type.
+     */
+    private ConcurrentMap<String, TypePool> typePoolMap = new ConcurrentHashMap<String, TypePool>();
+
+    /**
+     * Constructor for ScriptEnginePool.
+     *
+     * @param  maxPoolSize  Maximum number of engines checked out per script type.
+     */
+    public ScriptEnginePool(int maxPoolSize)
+    {
+        this(maxPoolSize, DEFAULT_CHECKOUT_TIMEOUT, new ScriptEngineManager());
+    }
+
+    /**
+     * Constructor for ScriptEnginePool.
+     *
+     * @param  maxPoolSize      Maximum number of engines checked out per script type.
+     * @param  checkoutTimeout  Time in milliseconds to wait for a free engine.
+     * @param  scriptManager    Script engine manager used for creating the engines.
+     */
+    ScriptEnginePool(int maxPoolSize, long checkoutTimeout, ScriptEngineManager scriptManager)
+    {
+        this.maxPoolSize = Math.max(maxPoolSize, 1);
+        this.checkoutTimeout = checkoutTimeout;
+        this.scriptManager = scriptManager;
+    }
+
+    /**
+     * Returns an engine for the script type. The engine must be returned with
+     * <code>release()</code> when the request is finished.
+     *
+     * @param   scriptType  Script type (file extension).
+     *
+     * @return  Pooled engine.
+     *
+     * @throws  ScriptConnectorException  Thrown if no engine was found for the type or no engine
+     *                                    became free within the checkout timeout.
+     */
+    public PooledEngine acquire(String scriptType)
+                         throws ScriptConnectorException
+    {
+        TypePool typePool = typePoolMap.get(scriptType);
+
+        if (typePool == null)
+        {
+            // Create the first engine to find out the threading model.
+            PooledEngine engine = createEngine(scriptType);
+            TypePool newPool = new TypePool(scriptType, engine);
+
+            typePool = typePoolMap.putIfAbsent(scriptType, newPool);
+
+            if (typePool == null)
+            {
+                if (LOG.isDebugEnabled())
+                {
+                    LOG.debug("Created engine pool for script type " + scriptType +
+                              ". Threading model: " + newPool.threading);
+                }
+
+                return newPool.initialEngine(engine);
+            }
+        }
+
+        return typePool.acquire();
+    }
+
+    /**
+     * Returns the number of checkouts which timed out.
+     *
+     * @return  Checkout timeout count.
+     */
+    public long getCheckoutTimeoutCount()
+    {
+        return checkoutTimeoutCount.get();
+    }
+
+    /**
+     * Returns the number of times an existing engine was used.
+     *
+     * @return  Hit count.
+     */
+    public long getHitCount()
+    {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the maximum number of engines checked out per script type.
+     *
+     * @return  Maximum pool size.
+     */
+    public int getMaxPoolSize()
+    {
+        return maxPoolSize;
+    }
+
+    /**
+     * Returns the number of times a new engine was created.
+     *
+     * @return  Miss count.
+     */
+    public long getMissCount()
+    {
+        return missCount.get();
+    }
+
+    /**
+     * Returns a shared engine for the script type, if engines of this type are shared by all
+     * threads.
+     *
+     * @param   scriptType  Script type (file extension).
+     *
+     * @return  Shared engine or <code>null</code> if the engines are not shared.
+     *
+     * @throws  ScriptConnectorException  Thrown if no engine was found for the type.
+     */
+    public PooledEngine getSharedEngine(String scriptType)
+                                 throws ScriptConnectorException
+    {
+        TypePool typePool = typePoolMap.get(scriptType);
+
+        if (typePool != null)
+        {
+            // Known type, so no engine is checked out for finding out the threading model.
+            if (typePool.sharedEngine != null)
+            {
+                hitCount.incrementAndGet();
+            }
+
+            return typePool.sharedEngine;
+        }
+
+        PooledEngine engine = acquire(scriptType);
+
+        release(engine);
+
+        return engine.isShared() ? engine : null;
+    }
+
+    /**
+     * Returns the engine back to the pool.
+     *
+     * @param  engine  Engine returned by <code>acquire()</code>.
+     */
+    public void release(PooledEngine engine)
+    {
+        engine.typePool.release(engine);
+    }
+
+    /**
+     * @see  java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return "ScriptEnginePool[hits=" + hitCount.get() + ", misses=" + missCount.get() +
+               ", timeouts=" + checkoutTimeoutCount.get() + ", maxPoolSize=" + maxPoolSize + "]";
+    }
+
+    /**
+     * Creates a new engine.
+     *
+     * @param   scriptType  Script type (file extension).
+     *
+     * @return  New engine.
+     *
+     * @throws  ScriptConnectorException  Thrown if no engine was found for the type.
+     */
+    private PooledEngine createEngine(String scriptType)
+                               throws ScriptConnectorException
+    {
+        ScriptEngine engine;
+
+        synchronized (scriptManager)
+        {
+            engine = scriptManager.getEngineByExtension(scriptType);
+        }
+
+        if (engine == null)
+        {
+            throw new ScriptConnectorException("No scripting engine found with type: " +
+                                               scriptType);
+        }
+
+        missCount.incrementAndGet();
+
+        return new PooledEngine(engine);
+    }
+
+    /**
+     * Wraps a script engine and the scripts compiled with it.
+     */
+    public static class PooledEngine
+    {
+        /**
+         * Scripts compiled with this engine. The scripts are weakly referenced, so replaced
+         * scripts are removed automatically.
+         */
+        private Map<ConfiguredScript.GenericScript, CompiledScript> compiledScripts = new WeakHashMap<ConfiguredScript.GenericScript, CompiledScript>();
+        /**
+         * Contains the script engine.
+         */
+        private ScriptEngine engine;
+        /**
+         * Pool where this engine belongs to.
+         */
+        private TypePool typePool;
+
+        /**
+         * Constructor for PooledEngine.
+         *
+         * @param  engine  Script engine.
+         */
+        PooledEngine(ScriptEngine engine)
+        {
+            this.engine = engine;
+        }
+
+        /**
+         * Compiles the script with this engine, if the engine supports compilation.
+         *
+         * @param   script  Script to be compiled.
+         *
+         * @return  Compiled script or <code>null</code> if the engine does not support
+         *          compilation.
+         *
+         * @throws  ScriptException  Thrown if the compilation failed.
+         */
+        public CompiledScript compile(ConfiguredScript.GenericScript script)
+                               throws ScriptException
+        {
+            if (!(engine instanceof Compilable))
+            {
+                return null;
+            }
+
+            synchronized (compiledScripts)
+            {
+                CompiledScript compiled = compiledScripts.get(script);
+
+                if (compiled == null)
+                {
+                    compiled = ((Compilable) engine).compile(script.scriptText);
+                    compiledScripts.put(script, compiled);
+                }
+
+                return compiled;
+            }
+        }
+
+        /**
+         * Evaluates the script with this engine. The script is compiled on the first call, if
+         * the engine supports compilation.
+         *
+         * @param   script  Script to be executed.
+         * @param   ctx     Script context.
+         *
+         * @return  Script result.
+         *
+         * @throws  ScriptException  Thrown if the script failed.
+         */
+        public Object eval(ConfiguredScript.GenericScript script, ScriptContext ctx)
+                    throws ScriptException
+        {
+            CompiledScript compiled = compile(script);
+
+            if (compiled != null)
+            {
+                return compiled.eval(ctx);
+            }
+
+            return engine.eval(script.scriptText, ctx);
+        }
+
+        /**
+         * Returns the script engine.
+         *
+         * @return  Script engine.
+         */
+        public ScriptEngine getEngine()
+        {
+            return engine;
+        }
+
+        /**
+         * Returns <code>true</code> if this engine is shared by all threads.
+         *
+         * @return  <code>true</code> if this engine is shared.
+         */
+        public boolean isShared()
+        {
+            return typePool.sharedEngine != null;
+        }
+    }
+
+    /**
+     * Engine pool for one script type.
+     */
+    private class TypePool
+    {
+        /**
+         * Limits the number of checked out engines for engines which are not thread-safe.
+         */
+        private Semaphore checkouts;
+        /**
+         * Idle engines for engines which are not thread-safe.
+         */
+        private BlockingQueue<PooledEngine> idleEngines;
+        /**
+         * Shared engine for MULTITHREADED and STATELESS engines.
+         */
+        private PooledEngine sharedEngine;
+        /**
+         * Script type (file extension).
+         */
+        private String scriptType;
+        /**
+         * Engines for THREAD-ISOLATED engines.
+         */
+        private ThreadLocal<PooledEngine> threadEngines;
+        /**
+         * Engine <code>THREADING</code> parameter.
+         */
+        private Object threading;
+
+        /**
+         * Constructor for TypePool.
+         *
+         * @param  scriptType  Script type (file extension).
+         * @param  engine      First engine created for this type.
+         */
+        TypePool(String scriptType, PooledEngine engine)
+        {
+            this.scriptType = scriptType;
+            this.threading = engine.engine.getFactory().getParameter("THREADING");
+
+            if ("MULTITHREADED".equals(threading) || "STATELESS".equals(threading))
+            {
+                sharedEngine = engine;
+            }
+            else if ("THREAD-ISOLATED".equals(threading))
+            {
+                threadEngines = new ThreadLocal<PooledEngine>();
+            }
+            else
+            {
+                idleEngines = new ArrayBlockingQueue<PooledEngine>(maxPoolSize);
+                checkouts = new Semaphore(maxPoolSize, true);
+
+                // Reserve a permit for the first engine, which is given to the caller.
+                checkouts.acquireUninterruptibly();
+            }
+
+            engine.typePool = this;
+        }
+
+        /**
+         * Returns an engine from this pool.
+         *
+         * @return  Engine.
+         *
+         * @throws  ScriptConnectorException  Thrown if the engine could not be created or no
+         *                                    engine became free within the checkout timeout.
+         */
+        PooledEngine acquire()
+                      throws ScriptConnectorException
+        {
+            PooledEngine engine;
+
+            if (sharedEngine != null)
+            {
+                engine = sharedEngine;
+            }
+            else if (threadEngines != null)
+            {
+                engine = threadEngines.get();
+
+                if (engine == null)
+                {
+                    engine = newEngine();
+                    threadEngines.set(engine);
+
+                    return engine;
+                }
+            }
+            else
+            {
+                waitForCheckout();
+
+                engine = idleEngines.poll();
+
+                if (engine == null)
+                {
+                    try
+                    {
+                        return newEngine();
+                    }
+                    catch (ScriptConnectorException e)
+                    {
+                        checkouts.release();
+                        throw e;
+                    }
+                }
+            }
+
+            hitCount.incrementAndGet();
+
+            return engine;
+        }
+
+        /**
+         * Handles the first engine which was created when this pool was created.
+         *
+         * @param   engine  First engine.
+         *
+         * @return  The engine for the caller.
+         */
+        PooledEngine initialEngine(PooledEngine engine)
+        {
+            if (threadEngines != null)
+            {
+                threadEngines.set(engine);
+            }
+
+            return engine;
+        }
+
+        /**
+         * Returns an engine to this pool.
+         *
+         * @param  engine  Engine to be returned.
+         */
+        void release(PooledEngine engine)
+        {
+            if (idleEngines != null)
+            {
+                idleEngines.offer(engine);
+                checkouts.release();
+            }
+        }
+
+        /**
+         * Creates a new engine for this pool.
+         *
+         * @return  New engine.
+         *
+         * @throws  ScriptConnectorException  Thrown if the engine could not be created.
+         */
+        private PooledEngine newEngine()
+                                throws ScriptConnectorException
+        {
+            PooledEngine engine = createEngine(scriptType);
+
+            engine.typePool = this;
+
+            return engine;
+        }
+
+        /**
+         * Waits until an engine can be checked out from this pool.
+         *
+         * @throws  ScriptConnectorException  Thrown if no engine became free within the checkout
+         *                                    timeout or the thread was interrupted.
+         */
+        private void waitForCheckout()
+                              throws ScriptConnectorException
+        {
+            boolean acquired;
+
+            try
+            {
+                acquired = checkouts.tryAcquire(checkoutTimeout, TimeUnit.MILLISECONDS);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new ScriptConnectorException("Interrupted while waiting for a script engine of type: " +
+                                                   scriptType);
+            }
+
+            if (!acquired)
+            {
+                checkoutTimeoutCount.incrementAndGet();
+                throw new ScriptConnectorException("No free script engine of type " + scriptType +
+                                                   " within " + checkoutTimeout + " ms. Maximum pool size is " +
+                                                   maxPoolSize + ".");
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.scripting;
+
+import com.cordys.coe.ac.scriptconnector.ScriptConnector;
+import com.cordys.coe.ac.scriptconnector.exception.ScriptConnectorException;
+
+import com.eibus.util.logger.CordysLogger;
+import com.eibus.util.logger.Severity;
+
+import java.util.Collection;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Loads and compiles the configured scripts in parallel when the connector is started. This way
+ * the first request of each method does not have to wait for the script compilation.
+ */
+public class ScriptWarmup
+{
+    /**
+     * Logger for log messages from this class.
+     */
+    private static final CordysLogger LOG = CordysLogger.getCordysLogger(ScriptWarmup.class);
+    /**
+     * Connector instance.
+     */
+    private ScriptConnector connector;
+    /**
+     * If <code>true</code>, the warm-up is stopped on the first compilation error.
+     */
+    private boolean failFast;
+    /**
+     * Number of threads used for the compilation.
+     */
+    private int parallelism;
+
+    /**
+     * Constructor for ScriptWarmup.
+     *
+     * @param  connector    Connector instance.
+     * @param  parallelism  Number of threads used for the compilation.
+     * @param  failFast     If <code>true</code>, the warm-up is stopped on the first compilation
+     *                      error.
+     */
+    public ScriptWarmup(ScriptConnector connector, int parallelism, boolean failFast)
+    {
+        this.connector = connector;
+        this.parallelism = parallelism;
+        this.failFast = failFast;
+    }
+
+    /**
+     * Loads and compiles the scripts. Scripts which fail to compile are logged and they will
+     * be compiled again by the first request, unless fail fast mode is set.
+     *
+     * @param   scripts  Scripts to be loaded.
+     *
+     * @return  Number of scripts which failed to compile.
+     *
+     * @throws  ScriptConnectorException  Thrown in fail fast mode if a script failed to compile.
+     */
+    public int run(Collection<ConfiguredScript> scripts)
+            throws ScriptConnectorException
+    {
+        long startTime = System.currentTimeMillis();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        CompletionService<Long> completionService = new ExecutorCompletionService<Long>(pool);
+        int count = 0;
+        int failedCount = 0;
+
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Starting script warm-up for " + scripts.size() + " scripts. Parallelism: " +
+                      parallelism);
+        }
+
+        try
+        {
+            for (ConfiguredScript script : scripts)
+            {
+                completionService.submit(new LoadTask(script));
+                count++;
+            }
+
+            for (int i = 0; i < count; i++)
+            {
+                Future<Long> future = completionService.take();
+
+                try
+                {
+                    future.get();
+                }
+                catch (ExecutionException e)
+                {
+                    Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+
+                    failedCount++;
+
+                    if (failFast)
+                    {
+                        throw new ScriptConnectorException("Script warm-up failed.", cause);
+                    }
+
+                    LOG.log(Severity.WARN, "Script warm-up failed.", cause);
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+
+            throw new ScriptConnectorException("Script warm-up was interrupted.", e);
+        }
+        finally
+        {
+            // In fail fast mode this cancels the remaining scripts.
+            pool.shutdownNow();
+        }
+
+        if (LOG.isInfoEnabled())
+        {
+            LOG.log(Severity.INFO,
+                    "Script warm-up finished in " + (System.currentTimeMillis() - startTime) +
+                    " ms. Scripts: " + count + ", failed: " + failedCount);
+        }
+
+        return failedCount;
+    }
+
+    /**
+     * Loads one script.
+     */
+    private class LoadTask
+        implements Callable<Long>
+    {
+        /**
+         * Script to be loaded.
+         */
+        private ConfiguredScript script;
+
+        /**
+         * Constructor for LoadTask.
+         *
+         * @param  script  Script to be loaded.
+         */
+        LoadTask(ConfiguredScript script)
+        {
+            this.script = script;
+        }
+
+        /**
+         * Loads the script.
+         *
+         * @return  Compilation time in milliseconds.
+         *
+         * @throws  ScriptConnectorException  Thrown if the script could not be loaded.
+         */
+        public Long call()
+                  throws ScriptConnectorException
+        {
+            long startTime = System.currentTimeMillis();
+
+            try
+            {
+                script.createHandler().loadScript(script, connector);
+            }
+            catch (Exception e)
+            {
+                throw new ScriptConnectorException("Unable to compile script " +
+                                                   script.getScriptName() + " for method " +
+                                                   script.getLocator(), e);
+            }
+
+            long time = System.currentTimeMillis() - startTime;
+
+            if (LOG.isInfoEnabled())
+            {
+                LOG.log(Severity.INFO,
+                        "Compiled script " + script.getScriptName() + " for method " +
+                        script.getLocator() + " in " + time + " ms.");
+            }
+
+            return time;
+        }
+    }
+}
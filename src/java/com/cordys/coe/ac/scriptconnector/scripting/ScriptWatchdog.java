@@ -0,0 +1,159 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.scripting;
+
+import com.eibus.util.logger.CordysLogger;
+import com.eibus.util.logger.Severity;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Watches running scripts which have a deadline. When a script is still running after its
+ * deadline, the watchdog logs it, aborts the script and interrupts the script thread. The script
+ * is stopped when it next calls the instruction observer or when a blocking call made by the
+ * script is interrupted. The watchdog also keeps count of aborted script runs per method.
+ */
+public class ScriptWatchdog
+{
+    /**
+     * Logger for log messages from this class.
+     */
+    private static final CordysLogger LOG = CordysLogger.getCordysLogger(ScriptWatchdog.class);
+    /**
+     * Number of aborted script runs by the script locator.
+     */
+    private ConcurrentMap<String, AtomicLong> abortCounts = new ConcurrentHashMap<String, AtomicLong>();
+    /**
+     * Executor for the deadline checks.
+     */
+    private ScheduledThreadPoolExecutor executor;
+
+    /**
+     * Constructor for ScriptWatchdog.
+     */
+    public ScriptWatchdog()
+    {
+        executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory()
+            {
+                public Thread newThread(Runnable r)
+                {
+                    Thread t = new Thread(r, "ScriptConnector-Watchdog");
+
+                    t.setDaemon(true);
+
+                    return t;
+                }
+            });
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Returns the number of aborted script runs by the script locator.
+     *
+     * @return  Abort counts.
+     */
+    public Map<String, Long> getAbortCounts()
+    {
+        Map<String, Long> res = new HashMap<String, Long>();
+
+        for (Map.Entry<String, AtomicLong> entry : abortCounts.entrySet())
+        {
+            res.put(entry.getKey(), entry.getValue().get());
+        }
+
+        return res;
+    }
+
+    /**
+     * Records an aborted script run.
+     *
+     * @param  budget  Budget of the aborted script.
+     */
+    public void recordAbort(ExecutionBudget budget)
+    {
+        String key = budget.getScript().getLocator().toString();
+        AtomicLong count = abortCounts.get(key);
+
+        if (count == null)
+        {
+            AtomicLong newCount = new AtomicLong();
+
+            count = abortCounts.putIfAbsent(key, newCount);
+
+            if (count == null)
+            {
+                count = newCount;
+            }
+        }
+
+        count.incrementAndGet();
+    }
+
+    /**
+     * Stops the watchdog thread.
+     */
+    public void stop()
+    {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Starts watching the script run. The returned future must be cancelled when the script has
+     * finished.
+     *
+     * @param   budget  Script execution budget.
+     *
+     * @return  Deadline check future or <code>null</code> if the script has no deadline.
+     */
+    public ScheduledFuture<?> watch(final ExecutionBudget budget)
+    {
+        if (budget.getDeadline() <= 0)
+        {
+            return null;
+        }
+
+        long delay = Math.max(budget.getDeadline() - System.currentTimeMillis(), 0);
+
+        return executor.schedule(new Runnable()
+            {
+                public void run()
+                {
+                    if (!budget.abort("Timeout of " + budget.getScript().getTimeout() +
+                                          " ms exceeded"))
+                    {
+                        return;
+                    }
+
+                    LOG.log(Severity.WARN,
+                            "Script " + budget.getScript().getScriptName() + " for method " +
+                            budget.getScript().getLocator() + " in thread " +
+                            budget.getThread().getName() + " has been running for " +
+                            budget.getElapsedTime() + " ms. Aborted the script.");
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.scripting;
+
+import com.cordys.coe.ac.scriptconnector.exception.ScriptConnectorException;
+import com.cordys.coe.ac.scriptconnector.soap.OutboundSoapRequest;
+import com.cordys.coe.ac.scriptconnector.soap.ScriptSoapMessage;
+
+/**
+ * Handle for an asynchronous SOAP request sent from a script. The script can continue with other
+ * work and fetch the response later with the get() method. The request is tracked by the
+ * transaction, so the response is deleted when the transaction ends even if the script never
+ * fetches it.
+ */
+public class SoapRequestHandle
+{
+    /**
+     * Bridge object which converts the response for the script.
+     */
+    private BridgeObject bridgeObject;
+    /**
+     * Set to <code>true</code> when the request has been cancelled.
+     */
+    private boolean cancelled;
+    /**
+     * Timeout used when no timeout is given to the get() method.
+     */
+    private long defaultTimeout;
+    /**
+     * Outbound request.
+     */
+    private OutboundSoapRequest request;
+    /**
+     * Response converted for the script.
+     */
+    private Object result;
+    /**
+     * Set to <code>true</code> when the result has been converted.
+     */
+    private boolean resultAvailable;
+    /**
+     * If <code>true</code>, the response is returned as an E4X XML object, otherwise as a string.
+     */
+    private boolean xmlResponse;
+
+    /**
+     * Constructor for SoapRequestHandle.
+     *
+     * @param  bridgeObject    Bridge object which converts the response for the script.
+     * @param  request         Outbound request.
+     * @param  xmlResponse     If <code>true</code>, the response is returned as an E4X XML object.
+     * @param  defaultTimeout  Timeout used when no timeout is given to the get() method.
+     */
+    SoapRequestHandle(BridgeObject bridgeObject, OutboundSoapRequest request, boolean xmlResponse,
+                      long defaultTimeout)
+    {
+        this.bridgeObject = bridgeObject;
+        this.request = request;
+        this.xmlResponse = xmlResponse;
+        this.defaultTimeout = defaultTimeout;
+    }
+
+    /**
+     * Cancels the request. A request which is still waiting for a free outbound thread is not
+     * sent. A request which is already being sent cannot be stopped; its response is deleted when
+     * it arrives. In both cases get() throws an exception after this.
+     *
+     * @return  <code>true</code> if the request was not sent, <code>false</code> if it had
+     *          already been sent or it was being sent.
+     */
+    public boolean cancel()
+    {
+        cancelled = true;
+
+        return request.abandon();
+    }
+
+    /**
+     * Waits for the response with the connector SOAP request timeout.
+     *
+     * @return  Response XML object or string.
+     *
+     * @throws  ScriptConnectorException
+     *
+     * @see     #get(long)
+     */
+    public Object get()
+               throws ScriptConnectorException
+    {
+        return get(0);
+    }
+
+    /**
+     * Waits for the response. The response can be fetched multiple times. If the request failed,
+     * the error is thrown here.
+     *
+     * @param   timeout  Maximum time to wait in milliseconds. If zero, the connector SOAP request
+     *                   timeout is used.
+     *
+     * @return  Response XML object or string.
+     *
+     * @throws  ScriptConnectorException  Thrown if the request failed, did not finish in time or
+     *                                    was cancelled.
+     */
+    public Object get(long timeout)
+               throws ScriptConnectorException
+    {
+        if (resultAvailable)
+        {
+            return result;
+        }
+
+        if (cancelled)
+        {
+            throw new ScriptConnectorException("SOAP request has been cancelled.");
+        }
+
+        if (timeout <= 0)
+        {
+            timeout = defaultTimeout;
+        }
+
+        try
+        {
+            if (!request.await(timeout))
+            {
+                throw new ScriptConnectorException("SOAP request did not finish in " + timeout +
+                                                   " ms.");
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+
+            throw new ScriptConnectorException("Interrupted while waiting for the SOAP response.",
+                                               e);
+        }
+
+        Exception error = request.getError();
+
+        if (error != null)
+        {
+            if (error instanceof ScriptConnectorException)
+            {
+                throw (ScriptConnectorException) error;
+            }
+
+            if (error instanceof RuntimeException)
+            {
+                throw (RuntimeException) error;
+            }
+
+            throw new ScriptConnectorException("SOAP request failed.", error);
+        }
+
+        ScriptSoapMessage responseMsg = request.takeResponse();
+
+        try
+        {
+            result = bridgeObject.createResponseObject(responseMsg, xmlResponse);
+            resultAvailable = true;
+        }
+        finally
+        {
+            responseMsg.clear();
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns <code>true</code> if the request has finished or failed.
+     *
+     * @return  <code>true</code> if the response is available.
+     */
+    public boolean isDone()
+    {
+        return request.isDone();
+    }
+}
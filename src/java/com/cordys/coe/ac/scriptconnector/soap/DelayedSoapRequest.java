@@ -17,34 +17,84 @@
  */
 package com.cordys.coe.ac.scriptconnector.soap;
 
-import java.util.TimerTask;
-
 import com.cordys.coe.ac.scriptconnector.ScriptConnector;
 import com.cordys.coe.ac.scriptconnector.Utils;
+import com.cordys.coe.ac.scriptconnector.exception.ScriptConnectorException;
 import com.cordys.coe.ac.scriptconnector.methods.SavedSoapTransactions;
+import com.cordys.coe.ac.scriptconnector.scheduler.ScheduledTask;
 import com.eibus.util.logger.CordysLogger;
 import com.eibus.util.logger.Severity;
 import com.eibus.xml.nom.Node;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import java.nio.charset.Charset;
+
 /**
  * Simple task which sends a SOAP request after a delay.
  *
  * @author  mpoyhone
  */
-public class DelayedSoapRequest extends TimerTask
+public class DelayedSoapRequest
+    implements Runnable
 {
     /**
      * Logger for log messages from this class.
      */
     private static final CordysLogger LOG = CordysLogger.getCordysLogger(DelayedSoapRequest.class);
+    /**
+     * Version of the serialized format.
+     */
+    private static final int SERIALIZED_VERSION = 1;
+    /**
+     * Character set for serialized strings.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
     /**
      * ScriptConnector instance.
      */
     private ScriptConnector connector;
     /**
-     * SOAP request message.
+     * Time when the request should be sent. This is read by the management methods.
+     */
+    private volatile long dueTime;
+    /**
+     * ID of the request in the request journal or 0 if the request is not journaled.
+     */
+    private long journalId;
+    /**
+     * Method name of the request taken when the request was scheduled.
+     */
+    private String methodName;
+    /**
+     * Method namespace of the request taken when the request was scheduled.
+     */
+    private String namespace;
+    /**
+     * Organization DN of the request taken when the request was scheduled.
+     */
+    private String orgDn;
+    /**
+     * SOAP request message. This is owned by the worker thread after the request has been
+     * started.
      */
     private ScriptSoapMessage request;
+    /**
+     * Scheduler task of the request. This is used for cancelling the request.
+     */
+    private ScheduledTask scheduledTask;
+    /**
+     * Set to <code>true</code> when a scheduler worker has started the request.
+     */
+    private volatile boolean started;
+    /**
+     * ID of the request for the management methods.
+     */
+    private long taskId;
     /**
      * If set, request and response will be saved.
      */
@@ -57,7 +107,11 @@ public class DelayedSoapRequest extends TimerTask
      * true, if response must be saved.
      */
     private boolean transactionSaveResponse;
-    
+    /**
+     * User DN of the request taken when the request was scheduled.
+     */
+    private String userDn;
+
     /**
      * Constructor for DelayedSoapRequest.
      *
@@ -69,44 +123,265 @@ public class DelayedSoapRequest extends TimerTask
      */
     public DelayedSoapRequest(ScriptConnector conn, String transactionSaveId, ScriptSoapMessage msg, boolean transactionSaveRequest, boolean transactionSaveResponse)
     {
-        super();
         this.connector = conn;
         this.request = msg;
         this.transactionSaveId = transactionSaveId;
         this.transactionSaveRequest = transactionSaveRequest;
         this.transactionSaveResponse = transactionSaveResponse;
+
+        // The management methods use these instead of the message, because the message is not
+        // thread-safe.
+        this.methodName = msg.getMethodName();
+        this.namespace = msg.getNamespace();
+        this.userDn = msg.getUserDn();
+        this.orgDn = msg.getOrgDn();
     }
 
     /**
-     * @see  java.util.TimerTask#run()
+     * Creates the request from the serialized form.
+     *
+     * @param   conn  ScriptConnector instance.
+     * @param   data  Serialized request from <code>serialize</code>.
+     *
+     * @return  Created request.
+     *
+     * @throws  ScriptConnectorException  Thrown if the data is invalid.
      */
-    @Override
-    public void run()
+    public static DelayedSoapRequest deserialize(ScriptConnector conn, byte[] data)
+                                          throws ScriptConnectorException
     {
-        if ((transactionSaveId != null) && transactionSaveRequest)
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        ScriptSoapMessage msg = new ScriptSoapMessage(conn.getDocument());
+
+        try
         {
-            try
+            int version = in.readInt();
+
+            if (version != SERIALIZED_VERSION)
             {
-                SavedSoapTransactions.writeTransactionFile(connector, transactionSaveId,
-                                                           request.getSoapMethodRoot(), true);
+                throw new ScriptConnectorException("Unsupported serialized request version: " +
+                                                   version);
             }
-            catch (Exception e)
+
+            long dueTime = in.readLong();
+            String saveId = readString(in);
+            boolean saveRequest = in.readBoolean();
+            boolean saveResponse = in.readBoolean();
+
+            msg.setUserDn(readString(in));
+            msg.setOrgDn(readString(in));
+            msg.setSoapNamespacePrefix(readString(in));
+            msg.setHeaderAsString(readString(in));
+
+            String methodXml = readString(in);
+
+            msg.setMethodAsString(methodXml, in.readBoolean());
+
+            DelayedSoapRequest res = new DelayedSoapRequest(conn, saveId, msg, saveRequest,
+                                                            saveResponse);
+
+            res.dueTime = dueTime;
+            msg = null;
+
+            return res;
+        }
+        catch (IOException e)
+        {
+            throw new ScriptConnectorException("Unable to read the serialized request.", e);
+        }
+        finally
+        {
+            if (msg != null)
             {
-                LOG.log(Severity.ERROR, "Unable to store SOAP request.", e);
+                msg.clear();
             }
         }
+    }
 
-        ScriptSoapMessage response = null;
+    /**
+     * Returns the dueTime.
+     *
+     * @return  Returns the dueTime.
+     */
+    public long getDueTime()
+    {
+        return dueTime;
+    }
+
+    /**
+     * Returns the journalId.
+     *
+     * @return  Returns the journalId.
+     */
+    public long getJournalId()
+    {
+        return journalId;
+    }
+
+    /**
+     * Returns the methodName.
+     *
+     * @return  Returns the methodName.
+     */
+    public String getMethodName()
+    {
+        return methodName;
+    }
+
+    /**
+     * Returns the namespace.
+     *
+     * @return  Returns the namespace.
+     */
+    public String getNamespace()
+    {
+        return namespace;
+    }
+
+    /**
+     * Returns the orgDn.
+     *
+     * @return  Returns the orgDn.
+     */
+    public String getOrgDn()
+    {
+        return orgDn;
+    }
+
+    /**
+     * Returns the request.
+     *
+     * @return  Returns the request.
+     */
+    public ScriptSoapMessage getRequest()
+    {
+        return request;
+    }
+
+    /**
+     * Returns the scheduledTask.
+     *
+     * @return  Returns the scheduledTask.
+     */
+    public synchronized ScheduledTask getScheduledTask()
+    {
+        return scheduledTask;
+    }
+
+    /**
+     * Returns the taskId.
+     *
+     * @return  Returns the taskId.
+     */
+    public long getTaskId()
+    {
+        return taskId;
+    }
+
+    /**
+     * Returns the userDn.
+     *
+     * @return  Returns the userDn.
+     */
+    public String getUserDn()
+    {
+        return userDn;
+    }
+
+    /**
+     * Returns <code>true</code> if a scheduler worker has started the request.
+     *
+     * @return  <code>true</code> if the request has been started.
+     */
+    public boolean isStarted()
+    {
+        return started;
+    }
+
+    /**
+     * Sets the dueTime.
+     *
+     * @param  dueTime  The dueTime to be set.
+     */
+    public void setDueTime(long dueTime)
+    {
+        this.dueTime = dueTime;
+    }
+
+    /**
+     * Sets the journalId.
+     *
+     * @param  journalId  The journalId to be set.
+     */
+    public void setJournalId(long journalId)
+    {
+        this.journalId = journalId;
+    }
+
+    /**
+     * Sets the scheduledTask.
+     *
+     * @param  scheduledTask  The scheduledTask to be set.
+     */
+    public synchronized void setScheduledTask(ScheduledTask scheduledTask)
+    {
+        this.scheduledTask = scheduledTask;
+    }
+
+    /**
+     * Sets the taskId.
+     *
+     * @param  taskId  The taskId to be set.
+     */
+    public void setTaskId(long taskId)
+    {
+        this.taskId = taskId;
+    }
+
+    /**
+     * Serializes the request, the due time and the transaction save settings for the request
+     * journal.
+     *
+     * @return  Serialized request.
+     */
+    public byte[] serialize()
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        DataOutputStream out = new DataOutputStream(bytes);
 
         try
         {
-            response = connector.sendSoapRequestAndWait(request, false);
+            out.writeInt(SERIALIZED_VERSION);
+            out.writeLong(dueTime);
+            writeString(out, transactionSaveId);
+            out.writeBoolean(transactionSaveRequest);
+            out.writeBoolean(transactionSaveResponse);
+            writeString(out, request.getUserDn());
+            writeString(out, request.getOrgDn());
+            writeString(out, request.getSoapNamespacePrefix());
+            writeString(out, request.getHeaderAsString());
+            writeString(out, request.getMethodAsString());
+            out.writeBoolean(request.isUseMethodChildren());
+            out.flush();
         }
-        catch (Exception e)
+        catch (IOException e)
         {
-            LOG.log(Severity.ERROR, "SOAP request failed.", e);
+            // Not possible with a byte array.
+            throw new IllegalStateException(e);
         }
 
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Called when the request has been sent. This saves the response if it is configured and
+     * removes the request from the journal.
+     *
+     * @param  response  Received response or <code>null</code> if the request failed. This object
+     *                   takes the ownership of the response.
+     */
+    public void complete(ScriptSoapMessage response)
+    {
         try
         {
             if ((response != null) && (transactionSaveId != null) && transactionSaveResponse)
@@ -139,6 +414,118 @@ public class DelayedSoapRequest extends TimerTask
             {
                 response.clear();
             }
+
+            connector.completeScheduledRequest(this);
+        }
+    }
+
+    /**
+     * Sends the request now, unless request batching is enabled. In that case the request is
+     * passed to the batcher.
+     *
+     * @see  java.lang.Runnable#run()
+     */
+    public void run()
+    {
+        started = true;
+
+        RequestBatcher batcher = connector.getRequestBatcher();
+
+        if (batcher != null)
+        {
+            batcher.add(this);
+            return;
         }
+
+        send();
+    }
+
+    /**
+     * Saves the request if it is configured. This must be called before the request is sent.
+     */
+    public void saveRequest()
+    {
+        if ((transactionSaveId != null) && transactionSaveRequest)
+        {
+            try
+            {
+                SavedSoapTransactions.writeTransactionFile(connector, transactionSaveId,
+                                                           request.getSoapMethodRoot(), true);
+            }
+            catch (Exception e)
+            {
+                LOG.log(Severity.ERROR, "Unable to store SOAP request.", e);
+            }
+        }
+    }
+
+    /**
+     * Saves the request, sends it and waits for the response.
+     */
+    public void send()
+    {
+        saveRequest();
+
+        ScriptSoapMessage response = null;
+
+        try
+        {
+            response = connector.sendSoapRequestAndWait(request, false);
+        }
+        catch (Exception e)
+        {
+            LOG.log(Severity.ERROR, "SOAP request failed.", e);
+        }
+
+        complete(response);
+    }
+
+    /**
+     * Reads a string written by <code>writeString</code>.
+     *
+     * @param   in  Input stream.
+     *
+     * @return  Read string or <code>null</code>.
+     *
+     * @throws  IOException
+     */
+    private static String readString(DataInputStream in)
+                              throws IOException
+    {
+        int length = in.readInt();
+
+        if (length < 0)
+        {
+            return null;
+        }
+
+        byte[] data = new byte[length];
+
+        in.readFully(data);
+
+        return new String(data, UTF8);
+    }
+
+    /**
+     * Writes a string which can be <code>null</code> or longer than the limit of writeUTF().
+     *
+     * @param   out    Output stream.
+     * @param   value  String to be written.
+     *
+     * @throws  IOException
+     */
+    private static void writeString(DataOutputStream out, String value)
+                             throws IOException
+    {
+        if (value == null)
+        {
+            out.writeInt(-1);
+            return;
+        }
+
+        byte[] data = value.getBytes(UTF8);
+
+        out.writeInt(data.length);
+        out.write(data);
     }
 }
@@ -0,0 +1,152 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.soap;
+
+import com.cordys.coe.ac.scriptconnector.exception.ScriptConnectorException;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connector level thread pool for sending outbound SOAP requests concurrently from scripts. The
+ * number of threads is bounded, so scripts cannot create an unlimited number of concurrent
+ * requests. Requests are queued when all threads are busy and rejected when the queue is full.
+ */
+public class OutboundExecutor
+{
+    /**
+     * Time after which idle threads are stopped in seconds.
+     */
+    private static final long IDLE_THREAD_TIMEOUT = 60;
+    /**
+     * Thread pool.
+     */
+    private ThreadPoolExecutor executor;
+    /**
+     * Maximum number of queued requests.
+     */
+    private int maxQueueSize;
+
+    /**
+     * Constructor for OutboundExecutor.
+     *
+     * @param  threads       Maximum number of threads.
+     * @param  maxQueueSize  Maximum number of requests waiting for a free thread.
+     */
+    public OutboundExecutor(int threads, int maxQueueSize)
+    {
+        this("Outbound", threads, maxQueueSize);
+    }
+
+    /**
+     * Constructor for OutboundExecutor.
+     *
+     * @param  name          Name used in the thread names.
+     * @param  threads       Maximum number of threads.
+     * @param  maxQueueSize  Maximum number of requests waiting for a free thread.
+     */
+    public OutboundExecutor(final String name, int threads, int maxQueueSize)
+    {
+        final AtomicInteger threadCount = new AtomicInteger();
+
+        this.maxQueueSize = maxQueueSize;
+
+        executor = new ThreadPoolExecutor(threads, threads, IDLE_THREAD_TIMEOUT, TimeUnit.SECONDS,
+                                          new LinkedBlockingQueue<Runnable>(maxQueueSize),
+                                          new ThreadFactory()
+            {
+                public Thread newThread(Runnable r)
+                {
+                    Thread t = new Thread(r,
+                                          "ScriptConnector-" + name + "-" +
+                                          threadCount.incrementAndGet());
+
+                    t.setDaemon(true);
+
+                    return t;
+                }
+            });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Sends the request in a pool thread.
+     *
+     * @param   request  Request to be sent.
+     *
+     * @throws  ScriptConnectorException  Thrown if the executor has been stopped or the queue is
+     *                                    full.
+     */
+    public void execute(OutboundSoapRequest request)
+                 throws ScriptConnectorException
+    {
+        try
+        {
+            executor.execute(request);
+        }
+        catch (RejectedExecutionException e)
+        {
+            if (executor.isShutdown())
+            {
+                throw new ScriptConnectorException("Outbound request executor has been stopped.", e);
+            }
+
+            throw new ScriptConnectorException("Outbound request queue is full. Maximum queue size is " +
+                                               maxQueueSize + ".", e);
+        }
+    }
+
+    /**
+     * Returns the number of threads which are sending requests.
+     *
+     * @return  Number of active threads.
+     */
+    public int getActiveCount()
+    {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * Returns the number of requests waiting for a free thread.
+     *
+     * @return  Queue size.
+     */
+    public int getQueueSize()
+    {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Stops the executor. Requests which are being sent are interrupted and queued requests are
+     * marked failed.
+     */
+    public void stop()
+    {
+        for (Runnable r : executor.shutdownNow())
+        {
+            if (r instanceof OutboundSoapRequest)
+            {
+                ((OutboundSoapRequest) r).fail(new ScriptConnectorException("Outbound request executor has been stopped."));
+            }
+        }
+    }
+}
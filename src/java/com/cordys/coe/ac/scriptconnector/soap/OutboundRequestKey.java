@@ -0,0 +1,286 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.soap;
+
+import com.cordys.coe.ac.scriptconnector.Utils;
+
+import com.eibus.xml.nom.Node;
+import com.eibus.xml.nom.NodeType;
+
+import java.nio.charset.Charset;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import java.util.Arrays;
+
+/**
+ * Identifies identical outbound SOAP requests. The key contains the method name, namespace,
+ * organization and user DN and a hash of the canonical form of the SOAP method XML. In the
+ * canonical form the namespace prefixes, attribute order and whitespace text nodes do not matter.
+ * SOAP headers are not part of the key.
+ */
+public class OutboundRequestKey
+{
+    /**
+     * Character set for the digest input.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    /**
+     * Hash of the canonical SOAP method XML.
+     */
+    private final String bodyHash;
+    /**
+     * Cached hash code.
+     */
+    private final int hashCode;
+    /**
+     * Method name.
+     */
+    private final String methodName;
+    /**
+     * Method namespace.
+     */
+    private final String namespace;
+    /**
+     * Organization DN.
+     */
+    private final String orgDn;
+    /**
+     * User DN.
+     */
+    private final String userDn;
+
+    /**
+     * Constructor for OutboundRequestKey.
+     *
+     * @param  methodName  Method name.
+     * @param  namespace   Method namespace.
+     * @param  orgDn       Organization DN.
+     * @param  userDn      User DN.
+     * @param  bodyHash    Hash of the canonical SOAP method XML.
+     */
+    public OutboundRequestKey(String methodName, String namespace, String orgDn, String userDn,
+                              String bodyHash)
+    {
+        this.methodName = methodName;
+        this.namespace = namespace;
+        this.orgDn = orgDn;
+        this.userDn = userDn;
+        this.bodyHash = bodyHash;
+        this.hashCode = Arrays.hashCode(new Object[] { methodName, namespace, orgDn, userDn, bodyHash });
+    }
+
+    /**
+     * Creates the key for the request message.
+     *
+     * @param   msg  Request message.
+     *
+     * @return  Request key.
+     */
+    public static OutboundRequestKey create(ScriptSoapMessage msg)
+    {
+        MessageDigest digest;
+
+        try
+        {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException("SHA-256 digest is not available.", e);
+        }
+
+        int method = msg.getSoapMethodRoot();
+
+        if (method != 0)
+        {
+            updateDigest(digest, method);
+        }
+
+        StringBuilder hash = new StringBuilder(64);
+
+        for (byte b : digest.digest())
+        {
+            hash.append(Character.forDigit((b >> 4) & 0xF, 16));
+            hash.append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return new OutboundRequestKey(msg.getMethodName(), msg.getNamespace(), msg.getOrgDn(),
+                                      msg.getUserDn(), hash.toString());
+    }
+
+    /**
+     * @see  java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+        {
+            return true;
+        }
+
+        if (!(obj instanceof OutboundRequestKey))
+        {
+            return false;
+        }
+
+        OutboundRequestKey other = (OutboundRequestKey) obj;
+
+        return (hashCode == other.hashCode) && equals(methodName, other.methodName) &&
+               equals(namespace, other.namespace) && equals(orgDn, other.orgDn) &&
+               equals(userDn, other.userDn) && equals(bodyHash, other.bodyHash);
+    }
+
+    /**
+     * @see  java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode()
+    {
+        return hashCode;
+    }
+
+    /**
+     * Returns the methodName.
+     *
+     * @return  Returns the methodName.
+     */
+    public String getMethodName()
+    {
+        return methodName;
+    }
+
+    /**
+     * @see  java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return "[" + methodName + ", " + namespace + ", " + bodyHash + "]";
+    }
+
+    /**
+     * Compares two objects which can be <code>null</code>.
+     *
+     * @param   a  First object.
+     * @param   b  Second object.
+     *
+     * @return  <code>true</code> if the objects are equal.
+     */
+    private static boolean equals(Object a, Object b)
+    {
+        return (a != null) ? a.equals(b) : (b == null);
+    }
+
+    /**
+     * Adds a string to the digest. Each string is terminated with a zero character, so adjacent
+     * strings cannot be confused.
+     *
+     * @param  digest  Digest.
+     * @param  value   String to be added.
+     */
+    private static void update(MessageDigest digest, String value)
+    {
+        if (value != null)
+        {
+            digest.update(value.getBytes(UTF8));
+        }
+
+        digest.update((byte) 0);
+    }
+
+    /**
+     * Adds the canonical form of the element to the digest.
+     *
+     * @param  digest  Digest.
+     * @param  node    NOM element.
+     */
+    private static void updateDigest(MessageDigest digest, int node)
+    {
+        update(digest, "<");
+        update(digest, Node.getNamespaceURI(node));
+        update(digest, Node.getLocalName(node));
+
+        int attrCount = Node.getNumAttributes(node);
+
+        if (attrCount > 0)
+        {
+            String[] attributes = new String[attrCount];
+            int count = 0;
+
+            for (int i = 0; i < attrCount; i++)
+            {
+                String name = Node.getAttributeName(node, i + 1);
+                String prefix = Node.getAttributePrefix(node, i + 1);
+
+                if ("xmlns".equals(name) || "xmlns".equals(prefix))
+                {
+                    // Namespace declarations are covered by the resolved URIs.
+                    continue;
+                }
+
+                String localName = name;
+                String uri = null;
+
+                if (prefix != null)
+                {
+                    localName = name.substring(prefix.length() + 1);
+                    uri = Utils.lookupNamespaceURI(node, prefix);
+                }
+
+                attributes[count++] = "{" + ((uri != null) ? uri : "") + "}" + localName + "\u0000" +
+                                      Node.getAttribute(node, name);
+            }
+
+            Arrays.sort(attributes, 0, count);
+
+            for (int i = 0; i < count; i++)
+            {
+                update(digest, "@");
+                update(digest, attributes[i]);
+            }
+        }
+
+        String text;
+
+        for (int child = Node.getFirstChild(node); child != 0; child = Node.getNextSibling(child))
+        {
+            switch (Node.getType(child))
+            {
+                case NodeType.ELEMENT:
+                    updateDigest(digest, child);
+                    break;
+
+                case NodeType.DATA:
+                case NodeType.CDATA:
+                    text = Node.getData(child);
+
+                    if ((text != null) && (text.trim().length() > 0))
+                    {
+                        update(digest, "#");
+                        update(digest, text);
+                    }
+                    break;
+            }
+        }
+
+        update(digest, ">");
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.soap;
+
+import com.cordys.coe.ac.scriptconnector.ScriptConnector;
+
+/**
+ * SOAP request which is sent by a thread of the outbound executor while the script waits for the
+ * response. This object owns the request message and deletes it after the request has been
+ * sent. The response is kept here until the script takes it. If the script stops waiting for the
+ * response, the request is abandoned. An abandoned request which is still waiting in the executor
+ * queue is not sent at all. If it is already being sent, the response is deleted when it
+ * arrives.
+ */
+public class OutboundSoapRequest
+    implements Runnable
+{
+    /**
+     * Set to <code>true</code> when the caller is no longer interested in the response.
+     */
+    private boolean abandoned;
+    /**
+     * If <code>true</code>, a SOAP fault response is reported as an error.
+     */
+    private boolean checkSoapFault;
+    /**
+     * ScriptConnector instance.
+     */
+    private ScriptConnector connector;
+    /**
+     * Error received when sending the request.
+     */
+    private Exception error;
+    /**
+     * Set to <code>true</code> when the request has been sent and the response or error has been
+     * received.
+     */
+    private boolean finished;
+    /**
+     * SOAP request message.
+     */
+    private ScriptSoapMessage request;
+    /**
+     * Received SOAP response message.
+     */
+    private ScriptSoapMessage response;
+    /**
+     * Set to <code>true</code> when an executor thread has started sending the request.
+     */
+    private boolean started;
+
+    /**
+     * Constructor for OutboundSoapRequest.
+     *
+     * @param  connector  ScriptConnector instance.
+     * @param  request    SOAP request message. This object takes the ownership of the message.
+     */
+    public OutboundSoapRequest(ScriptConnector connector, ScriptSoapMessage request)
+    {
+        this(connector, request, true);
+    }
+
+    /**
+     * Constructor for OutboundSoapRequest.
+     *
+     * @param  connector       ScriptConnector instance.
+     * @param  request         SOAP request message. This object takes the ownership of the
+     *                         message.
+     * @param  checkSoapFault  If <code>false</code>, a SOAP fault is returned as the response
+     *                         instead of an error.
+     */
+    public OutboundSoapRequest(ScriptConnector connector, ScriptSoapMessage request,
+                               boolean checkSoapFault)
+    {
+        this.connector = connector;
+        this.request = request;
+        this.checkSoapFault = checkSoapFault;
+    }
+
+    /**
+     * Marks the request abandoned. If the request has not been started, it will not be sent.
+     * Otherwise the response is deleted now, or when it arrives.
+     *
+     * @return  <code>true</code> if the request was not sent, <code>false</code> if it had
+     *          already been started.
+     */
+    public synchronized boolean abandon()
+    {
+        abandoned = true;
+
+        if (response != null)
+        {
+            response.clear();
+            response = null;
+        }
+
+        if (started || finished)
+        {
+            return false;
+        }
+
+        request.clear();
+        finished = true;
+        notifyAll();
+
+        return true;
+    }
+
+    /**
+     * Waits until the response has been received.
+     *
+     * @param   timeout  Maximum time to wait in milliseconds.
+     *
+     * @return  <code>true</code> if the request has finished.
+     *
+     * @throws  InterruptedException  Thrown if the waiting thread was interrupted.
+     */
+    public synchronized boolean await(long timeout)
+                               throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + timeout;
+
+        while (!finished)
+        {
+            long remaining = deadline - System.currentTimeMillis();
+
+            if (remaining <= 0)
+            {
+                break;
+            }
+
+            wait(remaining);
+        }
+
+        return finished;
+    }
+
+    /**
+     * Marks the request failed without sending it.
+     *
+     * @param  e  Error to be reported.
+     */
+    public synchronized void fail(Exception e)
+    {
+        request.clear();
+        error = e;
+        finished = true;
+        notifyAll();
+    }
+
+    /**
+     * Sends the request and waits for the response.
+     *
+     * @see  java.lang.Runnable#run()
+     */
+    public void run()
+    {
+        ScriptSoapMessage res = null;
+        Exception err = null;
+
+        synchronized (this)
+        {
+            if (abandoned || finished)
+            {
+                // The request was abandoned while it was in the queue.
+                return;
+            }
+
+            started = true;
+        }
+
+        try
+        {
+            res = connector.sendSoapRequestAndWait(request, checkSoapFault);
+        }
+        catch (Exception e)
+        {
+            err = e;
+        }
+        finally
+        {
+            request.clear();
+        }
+
+        synchronized (this)
+        {
+            if (abandoned)
+            {
+                if (res != null)
+                {
+                    res.clear();
+                }
+            }
+            else
+            {
+                response = res;
+                error = err;
+            }
+
+            finished = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Returns the response and passes the ownership of it to the caller.
+     *
+     * @return  Response message or <code>null</code> if the request has not finished or it
+     *          failed.
+     */
+    public synchronized ScriptSoapMessage takeResponse()
+    {
+        ScriptSoapMessage res = response;
+
+        response = null;
+
+        return res;
+    }
+
+    /**
+     * Returns the error.
+     *
+     * @return  Returns the error or <code>null</code> if the request has not failed.
+     */
+    public synchronized Exception getError()
+    {
+        return error;
+    }
+
+    /**
+     * Returns the finished.
+     *
+     * @return  Returns the finished.
+     */
+    public synchronized boolean isDone()
+    {
+        return finished;
+    }
+}
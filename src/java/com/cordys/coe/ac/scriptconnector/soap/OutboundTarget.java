@@ -0,0 +1,353 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.soap;
+
+import com.cordys.coe.ac.scriptconnector.config.OutboundPolicy;
+import com.cordys.coe.ac.scriptconnector.exception.BulkheadFullException;
+import com.cordys.coe.ac.scriptconnector.exception.CircuitOpenException;
+
+import com.cordys.coe.util.soap.SoapFaultInfo;
+
+import com.eibus.util.logger.CordysLogger;
+import com.eibus.util.logger.Severity;
+
+/**
+ * Guards the outbound SOAP requests sent to one target method. The number of concurrent requests
+ * is limited by the bulkhead and the circuit breaker stops sending requests to a method which
+ * keeps failing.
+ *
+ * <p>The breaker opens after the configured number of consecutive failures. While it is open,
+ * requests fail immediately. When the open time has passed, one probe request is let through. If
+ * the probe succeeds, the breaker is closed, otherwise it is opened again. A SOAP:Fault response
+ * counts as a failure.</p>
+ */
+public class OutboundTarget
+{
+    /**
+     * Breaker state when requests are sent normally.
+     */
+    public static final String STATE_CLOSED = "closed";
+    /**
+     * Breaker state when a probe request is allowed.
+     */
+    public static final String STATE_HALF_OPEN = "half-open";
+    /**
+     * Breaker state when requests fail immediately.
+     */
+    public static final String STATE_OPEN = "open";
+    /**
+     * Logger for log messages from this class.
+     */
+    private static final CordysLogger LOG = CordysLogger.getCordysLogger(OutboundTarget.class);
+    /**
+     * Number of requests in progress.
+     */
+    private int activeCount;
+    /**
+     * Number of consecutive failures.
+     */
+    private int consecutiveFailures;
+    /**
+     * Total number of failed requests.
+     */
+    private long failureCount;
+    /**
+     * Target method name.
+     */
+    private String methodName;
+    /**
+     * Target method namespace.
+     */
+    private String namespace;
+    /**
+     * Number of times the breaker has been opened.
+     */
+    private long openCount;
+    /**
+     * Time when the open breaker lets a probe request through.
+     */
+    private long openUntil;
+    /**
+     * <code>true</code> if the half-open probe request is in progress.
+     */
+    private boolean probeInProgress;
+    /**
+     * Number of requests rejected because of the concurrency limit.
+     */
+    private long rejectedCount;
+    /**
+     * Number of requests rejected because the breaker was open.
+     */
+    private long shortCircuitCount;
+    /**
+     * Current breaker state.
+     */
+    private String state = STATE_CLOSED;
+    /**
+     * Total number of successful requests.
+     */
+    private long successCount;
+
+    /**
+     * Constructor for OutboundTarget.
+     *
+     * @param  methodName  Target method name.
+     * @param  namespace   Target method namespace.
+     */
+    public OutboundTarget(String methodName, String namespace)
+    {
+        this.methodName = methodName;
+        this.namespace = namespace;
+    }
+
+    /**
+     * Reserves a slot for a request. Every successful call must be followed by a call to
+     * <code>release</code>.
+     *
+     * @param   policy  Outbound policy of the method.
+     *
+     * @return  <code>true</code> if this request is the half-open probe.
+     *
+     * @throws  CircuitOpenException    Thrown if the breaker is open.
+     * @throws  BulkheadFullException  Thrown if the concurrency limit has been reached.
+     */
+    public synchronized boolean acquire(OutboundPolicy policy)
+                                 throws CircuitOpenException, BulkheadFullException
+    {
+        boolean probe = false;
+
+        if (policy.isBreakerEnabled() && (state != STATE_CLOSED))
+        {
+            if ((state == STATE_OPEN) && (System.currentTimeMillis() >= openUntil))
+            {
+                state = STATE_HALF_OPEN;
+            }
+
+            if ((state == STATE_OPEN) || probeInProgress)
+            {
+                shortCircuitCount++;
+
+                throw new CircuitOpenException("Circuit breaker is open for method " + this);
+            }
+
+            probe = true;
+        }
+
+        int maxConcurrent = policy.getMaxConcurrent();
+
+        if ((maxConcurrent > 0) && (activeCount >= maxConcurrent))
+        {
+            rejectedCount++;
+
+            throw new BulkheadFullException("Too many concurrent requests for method " + this +
+                                            ". Limit: " + maxConcurrent);
+        }
+
+        activeCount++;
+        probeInProgress |= probe;
+
+        return probe;
+    }
+
+    /**
+     * Releases the slot reserved by <code>acquire</code> and updates the breaker state from the
+     * response. The request failed if there is no response or the response is a SOAP:Fault.
+     *
+     * @param  policy           Outbound policy of the method.
+     * @param  probe            Return value of <code>acquire</code>.
+     * @param  responseEnvNode  Response SOAP envelope or zero if the request failed.
+     */
+    public void release(OutboundPolicy policy, boolean probe, int responseEnvNode)
+    {
+        boolean success = (responseEnvNode != 0) &&
+                          (SoapFaultInfo.findSoapFault(responseEnvNode) == null);
+
+        release(policy, probe, success);
+    }
+
+    /**
+     * Releases the slot reserved by <code>acquire</code> and updates the breaker state.
+     *
+     * @param  policy   Outbound policy of the method.
+     * @param  probe    Return value of <code>acquire</code>.
+     * @param  success  <code>true</code> if the request succeeded.
+     */
+    public synchronized void release(OutboundPolicy policy, boolean probe, boolean success)
+    {
+        activeCount--;
+
+        if (probe)
+        {
+            probeInProgress = false;
+        }
+
+        if (success)
+        {
+            successCount++;
+            consecutiveFailures = 0;
+
+            if (state != STATE_CLOSED)
+            {
+                state = STATE_CLOSED;
+
+                if (LOG.isInfoEnabled())
+                {
+                    LOG.log(Severity.INFO, "Circuit breaker closed for method " + this);
+                }
+            }
+
+            return;
+        }
+
+        failureCount++;
+        consecutiveFailures++;
+
+        if (!policy.isBreakerEnabled())
+        {
+            return;
+        }
+
+        if (probe ||
+                ((state == STATE_CLOSED) &&
+                     (consecutiveFailures >= policy.getBreakerFailureThreshold())))
+        {
+            state = STATE_OPEN;
+            openUntil = System.currentTimeMillis() + policy.getBreakerOpenTime();
+            openCount++;
+
+            LOG.log(Severity.WARN,
+                    "Circuit breaker opened for method " + this + " after " +
+                    consecutiveFailures + " consecutive failures.");
+        }
+    }
+
+    /**
+     * Returns the activeCount.
+     *
+     * @return  Returns the activeCount.
+     */
+    public synchronized int getActiveCount()
+    {
+        return activeCount;
+    }
+
+    /**
+     * Returns the consecutiveFailures.
+     *
+     * @return  Returns the consecutiveFailures.
+     */
+    public synchronized int getConsecutiveFailures()
+    {
+        return consecutiveFailures;
+    }
+
+    /**
+     * Returns the failureCount.
+     *
+     * @return  Returns the failureCount.
+     */
+    public synchronized long getFailureCount()
+    {
+        return failureCount;
+    }
+
+    /**
+     * Returns the methodName.
+     *
+     * @return  Returns the methodName.
+     */
+    public String getMethodName()
+    {
+        return methodName;
+    }
+
+    /**
+     * Returns the namespace.
+     *
+     * @return  Returns the namespace.
+     */
+    public String getNamespace()
+    {
+        return namespace;
+    }
+
+    /**
+     * Returns the openCount.
+     *
+     * @return  Returns the openCount.
+     */
+    public synchronized long getOpenCount()
+    {
+        return openCount;
+    }
+
+    /**
+     * Returns the rejectedCount.
+     *
+     * @return  Returns the rejectedCount.
+     */
+    public synchronized long getRejectedCount()
+    {
+        return rejectedCount;
+    }
+
+    /**
+     * Returns the shortCircuitCount.
+     *
+     * @return  Returns the shortCircuitCount.
+     */
+    public synchronized long getShortCircuitCount()
+    {
+        return shortCircuitCount;
+    }
+
+    /**
+     * Returns the breaker state. An open breaker whose open time has passed is reported as
+     * half-open.
+     *
+     * @return  One of the <code>STATE_</code> constants.
+     */
+    public synchronized String getState()
+    {
+        if ((state == STATE_OPEN) && (System.currentTimeMillis() >= openUntil))
+        {
+            return STATE_HALF_OPEN;
+        }
+
+        return state;
+    }
+
+    /**
+     * Returns the successCount.
+     *
+     * @return  Returns the successCount.
+     */
+    public synchronized long getSuccessCount()
+    {
+        return successCount;
+    }
+
+    /**
+     * @see  java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return "{" + namespace + "}" + methodName;
+    }
+}
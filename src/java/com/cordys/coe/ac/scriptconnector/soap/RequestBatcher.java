@@ -0,0 +1,433 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.soap;
+
+import com.cordys.coe.ac.scriptconnector.ScriptConnector;
+import com.cordys.coe.ac.scriptconnector.exception.ScriptConnectorException;
+
+import com.eibus.util.logger.CordysLogger;
+import com.eibus.util.logger.Severity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups scheduled SOAP requests which become due at about the same time. Requests with the same
+ * method name, namespace, user and organization are collected for the batch window and then
+ * sent together. The requests of a batch are sent concurrently by the batcher's own executor and
+ * the scheduler thread waits for all of them, instead of one scheduler thread waiting for each
+ * request. The executor is not shared with the scripts, so a large batch cannot take the outbound
+ * request threads of the scripts.
+ *
+ * <p>Cordys methods do not accept several method elements in one SOAP envelope, so each request
+ * is still sent as its own envelope. Request and response files are saved separately for each
+ * request.</p>
+ */
+public class RequestBatcher
+{
+    /**
+     * Logger for log messages from this class.
+     */
+    private static final CordysLogger LOG = CordysLogger.getCordysLogger(RequestBatcher.class);
+    /**
+     * Maximum number of requests in one batch. A full batch is sent immediately.
+     */
+    static final int MAX_BATCH_SIZE = 100;
+    /**
+     * Time to wait between the checks of the sent requests in milliseconds.
+     */
+    private static final long WAIT_INTERVAL = 60000;
+    /**
+     * Contains the open batches by the batch key.
+     */
+    private Map<BatchKey, Batch> batchMap = new HashMap<BatchKey, Batch>();
+    /**
+     * Number of requests sent in batches.
+     */
+    private long batchedCount;
+    /**
+     * Number of batches sent.
+     */
+    private long batchCount;
+    /**
+     * ScriptConnector instance.
+     */
+    private ScriptConnector connector;
+    /**
+     * Executor for sending the requests of a batch.
+     */
+    private OutboundExecutor executor;
+    /**
+     * Batch window in milliseconds.
+     */
+    private long window;
+
+    /**
+     * Constructor for RequestBatcher. Batches are dispatched by the scheduler threads and each of
+     * them has at most one batch in the executor, so the executor queue size must be at least
+     * the number of scheduler threads multiplied by the maximum batch size.
+     *
+     * @param  connector  ScriptConnector instance.
+     * @param  window     Batch window in milliseconds.
+     * @param  executor   Executor for sending the requests of a batch.
+     */
+    public RequestBatcher(ScriptConnector connector, long window, OutboundExecutor executor)
+    {
+        this.connector = connector;
+        this.window = window;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the executor queue size needed for the given number of scheduler threads.
+     *
+     * @param   schedulerThreads  Number of scheduler threads.
+     *
+     * @return  Queue size.
+     */
+    public static int getQueueSize(int schedulerThreads)
+    {
+        return schedulerThreads * MAX_BATCH_SIZE;
+    }
+
+    /**
+     * Adds a due request to its batch. The first request of a batch schedules the batch to be
+     * sent after the batch window.
+     *
+     * @param  req  Due request.
+     */
+    public void add(DelayedSoapRequest req)
+    {
+        BatchKey key = new BatchKey(req);
+        Batch batch;
+        boolean newBatch = false;
+        boolean full = false;
+
+        synchronized (this)
+        {
+            batch = batchMap.get(key);
+
+            if (batch == null)
+            {
+                batch = new Batch(key);
+                batchMap.put(key, batch);
+                newBatch = true;
+            }
+
+            batch.requests.add(req);
+            full = (batch.requests.size() >= MAX_BATCH_SIZE);
+        }
+
+        if (full)
+        {
+            dispatch(batch);
+            return;
+        }
+
+        if (newBatch)
+        {
+            try
+            {
+                connector.scheduleTasks(batch, window);
+            }
+            catch (ScriptConnectorException e)
+            {
+                LOG.log(Severity.WARN, "Unable to schedule the request batch. Sending it now.", e);
+                dispatch(batch);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of requests sent in batches.
+     *
+     * @return  Batched request count.
+     */
+    public synchronized long getBatchedCount()
+    {
+        return batchedCount;
+    }
+
+    /**
+     * Returns the number of batches sent.
+     *
+     * @return  Batch count.
+     */
+    public synchronized long getBatchCount()
+    {
+        return batchCount;
+    }
+
+    /**
+     * Returns the number of requests waiting in open batches.
+     *
+     * @return  Waiting request count.
+     */
+    public synchronized int getWaitingCount()
+    {
+        int count = 0;
+
+        for (Batch batch : batchMap.values())
+        {
+            count += batch.requests.size();
+        }
+
+        return count;
+    }
+
+    /**
+     * Stops the executor. Requests which are being sent are interrupted.
+     */
+    public void stop()
+    {
+        executor.stop();
+    }
+
+    /**
+     * Sends the requests of the batch and waits for the responses. This does nothing if the batch
+     * has already been sent.
+     *
+     * @param  batch  Batch to be sent.
+     */
+    private void dispatch(Batch batch)
+    {
+        List<DelayedSoapRequest> requests;
+
+        synchronized (this)
+        {
+            if (batch.dispatched)
+            {
+                return;
+            }
+
+            batch.dispatched = true;
+
+            if (batchMap.get(batch.key) == batch)
+            {
+                batchMap.remove(batch.key);
+            }
+
+            requests = batch.requests;
+            batchCount++;
+            batchedCount += requests.size();
+        }
+
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Sending a batch of " + requests.size() + " requests for " + batch.key);
+        }
+
+        if (requests.size() == 1)
+        {
+            // No need to use another thread for one request.
+            requests.get(0).send();
+            return;
+        }
+
+        List<OutboundSoapRequest> sent = new ArrayList<OutboundSoapRequest>(requests.size());
+
+        for (DelayedSoapRequest req : requests)
+        {
+            OutboundSoapRequest outbound = new OutboundSoapRequest(connector, req.getRequest(),
+                                                                   false);
+
+            req.saveRequest();
+
+            try
+            {
+                executor.execute(outbound);
+            }
+            catch (ScriptConnectorException e)
+            {
+                outbound.fail(e);
+            }
+
+            sent.add(outbound);
+        }
+
+        for (int i = 0; i < requests.size(); i++)
+        {
+            OutboundSoapRequest outbound = sent.get(i);
+
+            try
+            {
+                while (!outbound.await(WAIT_INTERVAL))
+                {
+                    // The request has its own timeout, so this will finish.
+                }
+            }
+            catch (InterruptedException e)
+            {
+                // The scheduler is stopped. The remaining requests stay in the journal.
+                for (int j = i; j < requests.size(); j++)
+                {
+                    sent.get(j).abandon();
+                }
+
+                Thread.currentThread().interrupt();
+
+                return;
+            }
+
+            if (outbound.getError() != null)
+            {
+                LOG.log(Severity.ERROR, "SOAP request failed.", outbound.getError());
+            }
+
+            requests.get(i).complete(outbound.takeResponse());
+        }
+    }
+
+    /**
+     * Requests which are sent together.
+     */
+    private class Batch
+        implements Runnable
+    {
+        /**
+         * Set to <code>true</code> when the batch has been sent. Guarded by the batcher.
+         */
+        private boolean dispatched;
+        /**
+         * Batch key.
+         */
+        private BatchKey key;
+        /**
+         * Requests in the batch. Guarded by the batcher.
+         */
+        private List<DelayedSoapRequest> requests = new ArrayList<DelayedSoapRequest>();
+
+        /**
+         * Constructor for Batch.
+         *
+         * @param  key  Batch key.
+         */
+        Batch(BatchKey key)
+        {
+            this.key = key;
+        }
+
+        /**
+         * Sends the batch when the batch window has passed.
+         *
+         * @see  java.lang.Runnable#run()
+         */
+        public void run()
+        {
+            dispatch(this);
+        }
+    }
+
+    /**
+     * Key for grouping the requests by the method name, namespace, user and organization.
+     */
+    private static class BatchKey
+    {
+        /**
+         * Method name.
+         */
+        private String methodName;
+        /**
+         * Method namespace.
+         */
+        private String namespace;
+        /**
+         * Organization DN.
+         */
+        private String orgDn;
+        /**
+         * User DN.
+         */
+        private String userDn;
+
+        /**
+         * Constructor for BatchKey.
+         *
+         * @param  req  Request.
+         */
+        BatchKey(DelayedSoapRequest req)
+        {
+            this.methodName = req.getMethodName();
+            this.namespace = req.getNamespace();
+            this.userDn = req.getUserDn();
+            this.orgDn = req.getOrgDn();
+        }
+
+        /**
+         * @see  java.lang.Object#equals(java.lang.Object)
+         */
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj)
+            {
+                return true;
+            }
+
+            if (!(obj instanceof BatchKey))
+            {
+                return false;
+            }
+
+            BatchKey other = (BatchKey) obj;
+
+            return equals(methodName, other.methodName) && equals(namespace, other.namespace) &&
+                   equals(userDn, other.userDn) && equals(orgDn, other.orgDn);
+        }
+
+        /**
+         * @see  java.lang.Object#hashCode()
+         */
+        @Override
+        public int hashCode()
+        {
+            int res = 17;
+
+            res = (31 * res) + ((methodName != null) ? methodName.hashCode() : 0);
+            res = (31 * res) + ((namespace != null) ? namespace.hashCode() : 0);
+            res = (31 * res) + ((userDn != null) ? userDn.hashCode() : 0);
+            res = (31 * res) + ((orgDn != null) ? orgDn.hashCode() : 0);
+
+            return res;
+        }
+
+        /**
+         * @see  java.lang.Object#toString()
+         */
+        @Override
+        public String toString()
+        {
+            return "[" + methodName + ", " + namespace + ", " + userDn + ", " + orgDn + "]";
+        }
+
+        /**
+         * Compares two strings which can be <code>null</code>.
+         *
+         * @param   a  First string.
+         * @param   b  Second string.
+         *
+         * @return  <code>true</code> if the strings are equal.
+         */
+        private static boolean equals(String a, String b)
+        {
+            return (a == null) ? (b == null) : a.equals(b);
+        }
+    }
+}
@@ -0,0 +1,420 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.soap;
+
+import com.cordys.coe.ac.scriptconnector.exception.ScriptConnectorException;
+
+import com.eibus.util.logger.CordysLogger;
+
+import com.eibus.xml.nom.Node;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces identical outbound SOAP requests which are sent at the same time. The first caller
+ * sends the request and the callers which arrive while the request is in flight wait for the
+ * same response. Each caller receives its own copy of the response envelope. If the first
+ * caller is interrupted, the waiting callers do not receive its error. Instead they join again
+ * and one of them sends the request.
+ */
+public class RequestCoalescer
+{
+    /**
+     * Logger for log messages from this class.
+     */
+    private static final CordysLogger LOG = CordysLogger.getCordysLogger(RequestCoalescer.class);
+    /**
+     * Number of calls which received the response of another call.
+     */
+    private final AtomicLong coalescedCount = new AtomicLong();
+    /**
+     * Requests in flight by the request key.
+     */
+    private final ConcurrentMap<OutboundRequestKey, Flight> flightMap = new ConcurrentHashMap<OutboundRequestKey, Flight>();
+
+    /**
+     * Joins the request with the given key. If an identical request is in flight, the returned
+     * call waits for its response. Otherwise the returned call is the leader which must send the
+     * request and call <code>complete</code> or <code>fail</code>.
+     *
+     * @param   key  Request key.
+     *
+     * @return  Call object.
+     */
+    public Call join(OutboundRequestKey key)
+    {
+        while (true)
+        {
+            Flight flight = new Flight(key);
+            Flight existing = flightMap.putIfAbsent(key, flight);
+
+            if (existing == null)
+            {
+                return new Call(flight, true);
+            }
+
+            if (existing.addFollower())
+            {
+                coalescedCount.incrementAndGet();
+
+                if (LOG.isDebugEnabled())
+                {
+                    LOG.debug("Coalescing the SOAP request with an identical request in flight: " +
+                              key);
+                }
+
+                return new Call(existing, false);
+            }
+
+            // The flight was just completed.
+            flightMap.remove(key, existing);
+        }
+    }
+
+    /**
+     * Returns the number of calls which received the response of another call.
+     *
+     * @return  Coalesced call count.
+     */
+    public long getCoalescedCount()
+    {
+        return coalescedCount.get();
+    }
+
+    /**
+     * Returns the number of requests in flight.
+     *
+     * @return  Request count.
+     */
+    public int getInFlightCount()
+    {
+        return flightMap.size();
+    }
+
+    /**
+     * One caller of a coalesced request.
+     */
+    public class Call
+    {
+        /**
+         * Request in flight.
+         */
+        private Flight flight;
+        /**
+         * <code>true</code> if this caller sends the request.
+         */
+        private boolean leader;
+
+        /**
+         * Constructor for Call.
+         *
+         * @param  flight  Request in flight.
+         * @param  leader  <code>true</code> if this caller sends the request.
+         */
+        Call(Flight flight, boolean leader)
+        {
+            this.flight = flight;
+            this.leader = leader;
+        }
+
+        /**
+         * Waits for the response of the leader. Only followers can call this.
+         *
+         * @param   timeout  Timeout in milliseconds.
+         *
+         * @return  Copy of the response SOAP envelope. The caller is responsible for deleting
+         *          this. Zero is returned if the leader abandoned the request, in which case the
+         *          caller must join again.
+         *
+         * @throws  ScriptConnectorException  Thrown if the leader failed or the response did not
+         *                                    arrive in time. If the leader failed, the leader's
+         *                                    exception is thrown, so the exception type (e.g.
+         *                                    CircuitOpenException) is kept.
+         */
+        public int awaitResponse(long timeout)
+                          throws ScriptConnectorException
+        {
+            if (leader)
+            {
+                throw new IllegalStateException("The leader cannot wait for the response.");
+            }
+
+            return flight.awaitResponse(timeout);
+        }
+
+        /**
+         * Releases the followers without a response, so they send the request themselves. This
+         * is used when the leader was interrupted, because the failure was not caused by the
+         * request. Only the leader can call this.
+         */
+        public void abandon()
+        {
+            if (!leader)
+            {
+                throw new IllegalStateException("Only the leader can abandon the request.");
+            }
+
+            flightMap.remove(flight.key, flight);
+            flight.abandon();
+        }
+
+        /**
+         * Publishes the response to the followers. Only the leader can call this.
+         *
+         * @param  responseEnvNode  Response SOAP envelope. This is not modified and the caller
+         *                          keeps the ownership.
+         */
+        public void complete(int responseEnvNode)
+        {
+            if (!leader)
+            {
+                throw new IllegalStateException("Only the leader can complete the request.");
+            }
+
+            flightMap.remove(flight.key, flight);
+            flight.complete(responseEnvNode, null);
+        }
+
+        /**
+         * Publishes the error to the followers. Only the leader can call this.
+         *
+         * @param  error  Error received when sending the request.
+         */
+        public void fail(Exception error)
+        {
+            if (!leader)
+            {
+                throw new IllegalStateException("Only the leader can fail the request.");
+            }
+
+            flightMap.remove(flight.key, flight);
+            flight.complete(0, error);
+        }
+
+        /**
+         * Returns <code>true</code> if this caller sends the request.
+         *
+         * @return  <code>true</code> for the leader.
+         */
+        public boolean isLeader()
+        {
+            return leader;
+        }
+    }
+
+    /**
+     * Request in flight. The leader publishes a copy of the response which the followers
+     * duplicate. The copy is deleted when the last follower has taken its response.
+     */
+    private static class Flight
+    {
+        /**
+         * Set to <code>true</code> when the leader has abandoned the request.
+         */
+        private boolean abandoned;
+        /**
+         * Set to <code>true</code> when the leader has completed the request. No more followers
+         * can join after this.
+         */
+        private boolean completed;
+        /**
+         * Error received by the leader.
+         */
+        private Exception error;
+        /**
+         * Number of followers which have not yet taken the response.
+         */
+        private int followerCount;
+        /**
+         * Request key.
+         */
+        private OutboundRequestKey key;
+        /**
+         * Shared copy of the response SOAP envelope.
+         */
+        private int sharedEnvNode;
+
+        /**
+         * Constructor for Flight.
+         *
+         * @param  key  Request key.
+         */
+        Flight(OutboundRequestKey key)
+        {
+            this.key = key;
+        }
+
+        /**
+         * Completes the request without a response and wakes up the followers, which then join
+         * again.
+         */
+        synchronized void abandon()
+        {
+            if (completed)
+            {
+                return;
+            }
+
+            completed = true;
+            abandoned = true;
+            notifyAll();
+        }
+
+        /**
+         * Adds a follower, unless the request has already completed.
+         *
+         * @return  <code>true</code> if the follower was added.
+         */
+        synchronized boolean addFollower()
+        {
+            if (completed)
+            {
+                return false;
+            }
+
+            followerCount++;
+
+            return true;
+        }
+
+        /**
+         * Waits for the response and returns a copy of it.
+         *
+         * @param   timeout  Timeout in milliseconds.
+         *
+         * @return  Copy of the response SOAP envelope or zero if the leader abandoned the
+         *          request.
+         *
+         * @throws  ScriptConnectorException  Thrown if the leader failed or the response did not
+         *                                    arrive in time.
+         */
+        synchronized int awaitResponse(long timeout)
+                                throws ScriptConnectorException
+        {
+            long deadline = System.currentTimeMillis() + timeout;
+
+            try
+            {
+                while (!completed)
+                {
+                    long remaining = deadline - System.currentTimeMillis();
+
+                    if (remaining <= 0)
+                    {
+                        throw new ScriptConnectorException("Timeout while waiting for the response of a coalesced SOAP request.");
+                    }
+
+                    wait(remaining);
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                releaseFollower();
+
+                throw new ScriptConnectorException("Interrupted while waiting for the response of a coalesced SOAP request.",
+                                                   e);
+            }
+            catch (ScriptConnectorException e)
+            {
+                releaseFollower();
+
+                throw e;
+            }
+
+            if (abandoned)
+            {
+                releaseFollower();
+
+                return 0;
+            }
+
+            if (error != null)
+            {
+                releaseFollower();
+
+                // Rethrow the leader's exception, so the callers can handle the error type.
+                if (error instanceof ScriptConnectorException)
+                {
+                    throw (ScriptConnectorException) error;
+                }
+
+                if (error instanceof RuntimeException)
+                {
+                    throw (RuntimeException) error;
+                }
+
+                throw new ScriptConnectorException("Coalesced SOAP request failed.", error);
+            }
+
+            int res = Node.duplicate(sharedEnvNode);
+
+            releaseFollower();
+
+            return res;
+        }
+
+        /**
+         * Completes the request and wakes up the followers.
+         *
+         * @param  responseEnvNode  Response SOAP envelope or 0 if the request failed.
+         * @param  error            Error received by the leader or <code>null</code>.
+         */
+        synchronized void complete(int responseEnvNode, Exception error)
+        {
+            if (completed)
+            {
+                return;
+            }
+
+            completed = true;
+
+            if (followerCount > 0)
+            {
+                if (responseEnvNode != 0)
+                {
+                    sharedEnvNode = Node.duplicate(responseEnvNode);
+                }
+                else
+                {
+                    this.error = (error != null)
+                                 ? error : new ScriptConnectorException("No response received.");
+                }
+            }
+
+            notifyAll();
+        }
+
+        /**
+         * Removes one follower. The shared response is deleted when the last follower is
+         * removed after the request has completed.
+         */
+        private void releaseFollower()
+        {
+            followerCount--;
+
+            if ((followerCount == 0) && (sharedEnvNode != 0))
+            {
+                Node.delete(sharedEnvNode);
+                sharedEnvNode = 0;
+            }
+        }
+    }
+}
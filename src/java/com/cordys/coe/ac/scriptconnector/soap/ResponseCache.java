@@ -0,0 +1,338 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.soap;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache for responses of outbound SOAP requests. Responses are stored as serialized XML, so each
+ * cache hit is parsed into new NOM nodes and callers never share nodes. Each method has its own
+ * time-to-live and entry limit. When a method has too many entries, its least recently used
+ * entry is removed. The total size of all responses is also limited. When it is exceeded, the
+ * least recently used entry of all methods is removed.
+ */
+public class ResponseCache
+{
+    /**
+     * Current size of the cached responses in bytes.
+     */
+    private long byteCount;
+    /**
+     * Number of entries removed because of the size limits.
+     */
+    private long evictionCount;
+    /**
+     * Number of entries removed because their time-to-live had passed.
+     */
+    private long expiredCount;
+    /**
+     * Number of cache hits.
+     */
+    private long hitCount;
+    /**
+     * Maximum size of the cached responses in bytes.
+     */
+    private long maxBytes;
+    /**
+     * Number of cache misses.
+     */
+    private long missCount;
+    /**
+     * Cache entries by the method name. The maps are in access order.
+     */
+    private Map<String, LinkedHashMap<OutboundRequestKey, Entry>> segments = new HashMap<String, LinkedHashMap<OutboundRequestKey, Entry>>();
+    /**
+     * Counter for the entry access order.
+     */
+    private long tick;
+
+    /**
+     * Constructor for ResponseCache.
+     *
+     * @param  maxBytes  Maximum size of the cached responses in bytes.
+     */
+    public ResponseCache(long maxBytes)
+    {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public synchronized void clear()
+    {
+        segments.clear();
+        byteCount = 0;
+    }
+
+    /**
+     * Returns the cached response.
+     *
+     * @param   key  Request key.
+     *
+     * @return  Serialized response SOAP envelope or <code>null</code> if the response is not in
+     *          the cache or it has expired.
+     */
+    public synchronized String get(OutboundRequestKey key)
+    {
+        LinkedHashMap<OutboundRequestKey, Entry> segment = segments.get(key.getMethodName());
+        Entry entry = (segment != null) ? segment.get(key) : null;
+
+        if (entry == null)
+        {
+            missCount++;
+            return null;
+        }
+
+        if (entry.expiryTime <= System.currentTimeMillis())
+        {
+            remove(segment, key, entry);
+            expiredCount++;
+            missCount++;
+            return null;
+        }
+
+        entry.lastAccess = ++tick;
+        hitCount++;
+
+        return entry.response;
+    }
+
+    /**
+     * Adds the response to the cache.
+     *
+     * @param  key         Request key.
+     * @param  response    Serialized response SOAP envelope.
+     * @param  ttl         Time-to-live in milliseconds.
+     * @param  maxEntries  Maximum number of entries for the method.
+     */
+    public synchronized void put(OutboundRequestKey key, String response, long ttl,
+                                 int maxEntries)
+    {
+        Entry entry = new Entry(response, System.currentTimeMillis() + ttl, ++tick);
+
+        if (entry.size > maxBytes)
+        {
+            return;
+        }
+
+        LinkedHashMap<OutboundRequestKey, Entry> segment = segments.get(key.getMethodName());
+
+        if (segment == null)
+        {
+            segment = new LinkedHashMap<OutboundRequestKey, Entry>(16, 0.75f, true);
+            segments.put(key.getMethodName(), segment);
+        }
+
+        Entry old = segment.put(key, entry);
+
+        if (old != null)
+        {
+            byteCount -= old.size;
+        }
+
+        byteCount += entry.size;
+
+        while (segment.size() > maxEntries)
+        {
+            Map.Entry<OutboundRequestKey, Entry> eldest = segment.entrySet().iterator().next();
+
+            remove(segment, eldest.getKey(), eldest.getValue());
+            evictionCount++;
+        }
+
+        trimToSize();
+    }
+
+    /**
+     * Returns the number of bytes used by the cached responses.
+     *
+     * @return  Cache size in bytes.
+     */
+    public synchronized long getByteCount()
+    {
+        return byteCount;
+    }
+
+    /**
+     * Returns the number of cached responses.
+     *
+     * @return  Number of entries.
+     */
+    public synchronized int getEntryCount()
+    {
+        int res = 0;
+
+        for (LinkedHashMap<OutboundRequestKey, Entry> segment : segments.values())
+        {
+            res += segment.size();
+        }
+
+        return res;
+    }
+
+    /**
+     * Returns the evictionCount.
+     *
+     * @return  Returns the evictionCount.
+     */
+    public synchronized long getEvictionCount()
+    {
+        return evictionCount;
+    }
+
+    /**
+     * Returns the expiredCount.
+     *
+     * @return  Returns the expiredCount.
+     */
+    public synchronized long getExpiredCount()
+    {
+        return expiredCount;
+    }
+
+    /**
+     * Returns the hitCount.
+     *
+     * @return  Returns the hitCount.
+     */
+    public synchronized long getHitCount()
+    {
+        return hitCount;
+    }
+
+    /**
+     * Returns the maxBytes.
+     *
+     * @return  Returns the maxBytes.
+     */
+    public synchronized long getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+    /**
+     * Returns the missCount.
+     *
+     * @return  Returns the missCount.
+     */
+    public synchronized long getMissCount()
+    {
+        return missCount;
+    }
+
+    /**
+     * Sets the maximum size of the cached responses. Entries are removed if the cache is now too
+     * large.
+     *
+     * @param  maxBytes  Maximum size in bytes.
+     */
+    public synchronized void setMaxBytes(long maxBytes)
+    {
+        this.maxBytes = maxBytes;
+        trimToSize();
+    }
+
+    /**
+     * Removes the entry from the segment.
+     *
+     * @param  segment  Segment containing the entry.
+     * @param  key      Entry key.
+     * @param  entry    Entry to be removed.
+     */
+    private void remove(LinkedHashMap<OutboundRequestKey, Entry> segment, OutboundRequestKey key,
+                        Entry entry)
+    {
+        segment.remove(key);
+        byteCount -= entry.size;
+
+        if (segment.isEmpty())
+        {
+            segments.remove(key.getMethodName());
+        }
+    }
+
+    /**
+     * Removes the least recently used entries until the cache is within the size limit.
+     */
+    private void trimToSize()
+    {
+        while ((byteCount > maxBytes) && !segments.isEmpty())
+        {
+            LinkedHashMap<OutboundRequestKey, Entry> oldestSegment = null;
+            Map.Entry<OutboundRequestKey, Entry> oldest = null;
+
+            for (Iterator<LinkedHashMap<OutboundRequestKey, Entry>> iter = segments.values().iterator();
+                     iter.hasNext();)
+            {
+                LinkedHashMap<OutboundRequestKey, Entry> segment = iter.next();
+                Map.Entry<OutboundRequestKey, Entry> eldest = segment.entrySet().iterator().next();
+
+                if ((oldest == null) || (eldest.getValue().lastAccess < oldest.getValue().lastAccess))
+                {
+                    oldest = eldest;
+                    oldestSegment = segment;
+                }
+            }
+
+            remove(oldestSegment, oldest.getKey(), oldest.getValue());
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Cached response.
+     */
+    private static class Entry
+    {
+        /**
+         * Time when the entry expires.
+         */
+        private long expiryTime;
+        /**
+         * Access counter value of the last access.
+         */
+        private long lastAccess;
+        /**
+         * Serialized response SOAP envelope.
+         */
+        private String response;
+        /**
+         * Estimated memory size of the response in bytes.
+         */
+        private long size;
+
+        /**
+         * Constructor for Entry.
+         *
+         * @param  response    Serialized response SOAP envelope.
+         * @param  expiryTime  Time when the entry expires.
+         * @param  lastAccess  Access counter value.
+         */
+        Entry(String response, long expiryTime, long lastAccess)
+        {
+            this.response = response;
+            this.expiryTime = expiryTime;
+            this.lastAccess = lastAccess;
+            this.size = 2L * response.length();
+        }
+    }
+}
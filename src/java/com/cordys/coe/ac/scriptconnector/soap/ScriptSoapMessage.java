@@ -442,6 +442,17 @@ public class ScriptSoapMessage
         return userDn;
     }
 
+    /**
+     * Returns <code>true</code> if only the children of the SOAP method node are added to the
+     * SOAP message.
+     *
+     * @return  Returns the useMethodChildren.
+     */
+    public boolean isUseMethodChildren()
+    {
+        return useMethodChildren;
+    }
+
     /**
      * Sets the SOAP header from the XML string.
      *
@@ -500,6 +511,19 @@ public class ScriptSoapMessage
             throw new ScriptConnectorException("Unable to parse the SOAP method XML.", e);
         }
 
+        setMethodNode(node, addChildren);
+    }
+
+    /**
+     * Sets the SOAP method XML node. This object takes the ownership of the node and deletes it
+     * in the clear() method.
+     *
+     * @param  node         New SOAP method node or zero.
+     * @param  addChildren  If <code>true</code>, the children of this node are added to the SOAP
+     *                      message appendToSoapEnvelope() method.
+     */
+    public void setMethodNode(int node, boolean addChildren)
+    {
         if (soapMethodRoot != 0)
         {
             Node.delete(soapMethodRoot);
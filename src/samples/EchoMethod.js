@@ -3,7 +3,7 @@
 */
 
 // Read the incoming SOAP request.
-var connectorRequest = new XML(Cordys.getRequest());
+var connectorRequest = Cordys.getRequestXML();
 var connectorResponse;
 
 // Create the SOAP response.
@@ -17,6 +17,6 @@ connectorResponse =
 
 // Set the SOAP response to the application connector.
 if (connectorResponse != null) {
-	Cordys.setResponse(connectorResponse.toXMLString());
+	Cordys.setResponseXML(connectorResponse);
 }
 
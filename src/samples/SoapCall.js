@@ -18,7 +18,7 @@ function soapCall(xmlRequest) {
 	var soapRes;
 
  	// Send the request.
-	soapRes = new XML(Cordys.sendSoapRequest(userDN, soapReq.toXMLString()));
+	soapRes = Cordys.sendSoapRequestXML(userDN, soapReq);
 
 	// Create the response structure.
 	var res = <myemps>
@@ -51,6 +51,10 @@ public abstract class ScriptConnectorTestCase extends NomTestCase
      * Contains a stub NOM connector for catching SOAP requests from the application connector.
      */
     protected NomConnectorStub nomConnector;
+    /**
+     * Optional properties which are appended to the generated config.properties file.
+     */
+    protected String extraConfigProperties;
     /**
      * Contains file where the current logger configuration was loaded.
      */
@@ -204,20 +208,54 @@ public abstract class ScriptConnectorTestCase extends NomTestCase
     }
     
     public void executeScriptMethod(ISoapRequestContext request, File scriptFile) throws Exception
+    {
+        int methodNode = request.getRequestMethodNode();
+        String name = Node.getLocalName(methodNode);
+        String configContents = name  + "=" + scriptFile.getAbsolutePath().replace('\\', '/');
+        
+        if (extraConfigProperties != null) {
+            configContents += "\n" + extraConfigProperties;
+        }
+        
+        executeScriptMethod(createConnector(configContents), request, scriptFile);
+    }
+    
+    /**
+     * Executes the script with an existing connector, so that the loaded scripts are kept between
+     * the calls.
+     */
+    public int executeScriptMethod(ScriptConnector connector, String requestXml, File scriptFile) throws Exception
+    {
+        ISoapRequestContext request = createSoapRequest(requestXml);
+        
+        executeScriptMethod(connector, request, scriptFile);
+        
+        return request.getResponseMethodNode();
+    }
+    
+    public void executeScriptMethod(ScriptConnector connector, ISoapRequestContext request, File scriptFile) throws Exception
     {
         int methodNode = request.getRequestMethodNode();
         String name = Node.getLocalName(methodNode);
         String namespace = Node.getNamespaceURI(methodNode);
         ScriptLocator scriptId = new ScriptLocator(name, namespace, scriptFile); 
-        File configFile = createTextFile("config.properties", name  + "=" + scriptFile.getAbsolutePath().replace('\\', '/'));
-        ScriptConnectorConfiguration config  = new ScriptConnectorConfiguration(null, createAppConfigXml(configFile, null, null), configFolder);
-        ScriptConnector connector = new ScriptConnectorStub(config, nomConnector);
         ScriptConnectorTransaction txn = new ScriptConnectorTransaction(connector);
         
         txn.executeScriptMethod(request, scriptId);
         txn.cleanSoapMessages();
     }
     
+    /**
+     * Creates a connector stub which reads the given config.properties contents.
+     */
+    public ScriptConnector createConnector(String configContents) throws Exception
+    {
+        File configFile = createTextFile("config.properties", configContents);
+        ScriptConnectorConfiguration config  = new ScriptConnectorConfiguration(null, createAppConfigXml(configFile, null, null), configFolder);
+        
+        return new ScriptConnectorStub(config, nomConnector);
+    }
+    
     public int executeScriptMethodReturnEnvelope(String requestXml, String script) throws Exception
     {
         ISoapRequestContext request = createSoapRequest(requestXml);
@@ -0,0 +1,149 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.config;
+
+import java.io.File;
+import java.io.FileWriter;
+
+import junit.framework.TestCase;
+
+/**
+ * Test cases for the file watcher.
+ */
+public class FileWatcherTest extends TestCase
+{
+    /**
+     * Test file.
+     */
+    private File testFile;
+
+    /**
+     * Tests that network file systems are detected from the file store type.
+     */
+    public void testNetworkFileStore()
+    {
+        assertTrue(FileWatcher.isNetworkFileStore("nfs"));
+        assertTrue(FileWatcher.isNetworkFileStore("NFS4"));
+        assertTrue(FileWatcher.isNetworkFileStore("cifs"));
+        assertFalse(FileWatcher.isNetworkFileStore("ext4"));
+        assertFalse(FileWatcher.isNetworkFileStore("NTFS"));
+        assertFalse(FileWatcher.isNetworkFileStore(null));
+    }
+
+    /**
+     * Tests that polling marks the timestamp as changed.
+     *
+     * @throws  Exception
+     */
+    public void testPolling()
+                     throws Exception
+    {
+        checkWatcher(new FileWatcher(true, 50));
+    }
+
+    /**
+     * Tests that the watch service marks the timestamp as changed.
+     *
+     * @throws  Exception
+     */
+    public void testWatchService()
+                          throws Exception
+    {
+        checkWatcher(new FileWatcher(false, 50));
+    }
+
+    /**
+     * @see  junit.framework.TestCase#setUp()
+     */
+    @Override
+    protected void setUp()
+                  throws Exception
+    {
+        super.setUp();
+
+        File folder = new File("./build/test/FileWatcherTest");
+
+        folder.mkdirs();
+        testFile = new File(folder, "test.properties");
+        writeFile("a=1");
+        testFile.setLastModified(System.currentTimeMillis() - 10000);
+    }
+
+    /**
+     * Modifies the file and checks that the watcher detects the change.
+     *
+     * @param   watcher  Watcher to be tested.
+     *
+     * @throws  Exception
+     */
+    private void checkWatcher(FileWatcher watcher)
+                       throws Exception
+    {
+        FileTimestamp timestamp = new FileTimestamp(testFile);
+
+        watcher.watch(timestamp);
+        watcher.start();
+
+        try
+        {
+            assertTrue(timestamp.isWatched());
+            assertFalse(timestamp.hasChanged());
+
+            // Let the watcher register the folder.
+            Thread.sleep(200);
+            writeFile("a=2");
+
+            boolean changed = false;
+
+            for (int i = 0; (i < 50) && !changed; i++)
+            {
+                Thread.sleep(100);
+                changed = timestamp.hasChanged();
+            }
+
+            assertTrue(changed);
+            assertFalse(timestamp.hasChanged());
+        }
+        finally
+        {
+            watcher.stop();
+        }
+    }
+
+    /**
+     * Writes the test file.
+     *
+     * @param   contents  File contents.
+     *
+     * @throws  Exception
+     */
+    private void writeFile(String contents)
+                    throws Exception
+    {
+        FileWriter out = new FileWriter(testFile);
+
+        try
+        {
+            out.write(contents);
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,547 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.config;
+
+import com.cordys.coe.ac.scriptconnector.ScriptConnector;
+import com.cordys.coe.ac.scriptconnector.ScriptConnectorStub;
+import com.cordys.coe.ac.scriptconnector.ScriptConnectorTestCase;
+import com.cordys.coe.ac.scriptconnector.aclib.ISoapRequestContext;
+import com.cordys.coe.ac.scriptconnector.processor.IScriptPreProcessor;
+import com.cordys.coe.ac.scriptconnector.scripting.ConfiguredScript;
+
+import java.io.File;
+
+import java.util.Map;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+
+/**
+ * Test cases for loading the script configuration.
+ */
+public class ScriptConnectorConfigurationTest extends ScriptConnectorTestCase
+{
+    /**
+     * Namespace of the test methods.
+     */
+    private static final String NAMESPACE = "http://test";
+    /**
+     * Time to wait after a file has been changed, so that the change is detected.
+     */
+    private static final long SCAN_WAIT = 400L;
+    /**
+     * Parameters passed to the last initialized test pre-processor.
+     */
+    private static Map<String, String> preProcessorParams;
+
+    /**
+     * Tests that a script gets a new instance when its options are changed in the
+     * configuration.
+     *
+     * @throws  Exception
+     */
+    public void testReloadChangedOptions()
+                                  throws Exception
+    {
+        String properties = "property.file.default.namespace=" + NAMESPACE + "\n" +
+                            "Test=Test.js\n";
+        File configFile = new File(configFolder, "config.properties");
+
+        createTextFile("Test.js", "function handle() {}\n");
+
+        ScriptConnectorConfiguration config = createConfiguration(properties);
+        ScriptLocator locator = new ScriptLocator("Test", NAMESPACE);
+        ConfiguredScript script = config.getScript(locator);
+        ConfiguredScript newScript;
+
+        properties += "Test.handler=handle\n";
+        changeFile(configFile, properties);
+        newScript = config.getScript(locator);
+        assertNotSame(script, newScript);
+        assertEquals("handle", newScript.getHandlerFunctionName());
+        script = newScript;
+
+        properties += "Test.timeout=5\n";
+        changeFile(configFile, properties);
+        newScript = config.getScript(locator);
+        assertNotSame(script, newScript);
+        assertEquals(5000, newScript.getTimeout());
+        script = newScript;
+
+        properties += "Test.optimization=-1\n";
+        changeFile(configFile, properties);
+        newScript = config.getScript(locator);
+        assertNotSame(script, newScript);
+        assertEquals(-1, newScript.getOptimizationLevel());
+        config.close();
+    }
+
+    /**
+     * Tests that unchanged scripts and pre-processors are kept when the configuration is
+     * reloaded, and that the script routes are resolved again from the new configuration.
+     *
+     * @throws  Exception
+     */
+    public void testReloadKeepsUnchangedScripts()
+                                         throws Exception
+    {
+        String properties = "property.file.default.namespace=" + NAMESPACE + "\n" +
+                            "Test=Test.js\n" + "Test.preprocessor=" +
+                            TestPreProcessor.class.getName() + "\n" + "Other=Other.js\n";
+
+        createTextFile("Test.js", "var a = 1;\n");
+        createTextFile("Other.js", "var b = 1;\n");
+
+        ScriptConnector connector = new ScriptConnectorStub(null, nomConnector);
+        ScriptConnectorConfiguration config = createConfiguration(properties);
+        ScriptLocator locator = new ScriptLocator("Test", NAMESPACE);
+        ScriptLocator otherLocator = new ScriptLocator("Other", NAMESPACE);
+        ConfiguredScript script = loadScript(config, connector, locator);
+        ConfiguredScript otherScript = loadScript(config, connector, otherLocator);
+        IScriptPreProcessor preProcessor = config.findPreProcessor(locator);
+
+        assertEquals(2, config.getRouteCacheSize());
+
+        changeFile(new File(configFolder, "config.properties"), properties + "Other.timeout=5\n");
+
+        // The compiled script and the pre-processor are used in the new configuration.
+        assertSame(script, config.getScript(locator));
+        assertTrue(script.isLoaded());
+        assertEquals(1, config.getRouteCacheSize());
+        assertSame(preProcessor, config.findPreProcessor(locator));
+
+        ConfiguredScript newOtherScript = config.getScript(otherLocator);
+
+        assertNotSame(otherScript, newOtherScript);
+        assertFalse(newOtherScript.isLoaded());
+        assertEquals(5000, newOtherScript.getTimeout());
+        config.close();
+    }
+
+    /**
+     * Tests that a script with a compilation error is not used, and the previous version is
+     * still used.
+     *
+     * @throws  Exception
+     */
+    public void testRecompileError()
+                            throws Exception
+    {
+        File scriptFile = createTextFile("Test.js", "var a = 1;\n");
+
+        createTextFile("Other.js", "var b = 1;\n");
+
+        CompileMonitor monitor = new CompileMonitor();
+        ScriptConnector connector = createConnector(monitor);
+        ScriptConnectorConfiguration config = createConfiguration("property.file.default.namespace=" + NAMESPACE + "\n" +
+                                                                  "Test=Test.js\n" +
+                                                                  "Other=Other.js\n",
+                                                                  connector);
+        ScriptLocator locator = new ScriptLocator("Test", NAMESPACE);
+        ConfiguredScript oldScript = loadScript(config, connector, locator);
+
+        changeFile(scriptFile, "var a = ;\n");
+        assertSame(oldScript, config.getScript(locator));
+        waitForCompiler(config, connector, monitor);
+
+        assertSame(oldScript, config.getScript(locator));
+        assertTrue(oldScript.isLoaded());
+        config.close();
+    }
+
+    /**
+     * Tests that the previous version of a changed script is used while the new version is
+     * compiled.
+     *
+     * @throws  Exception
+     */
+    public void testRecompileServesOldVersion()
+                                       throws Exception
+    {
+        File scriptFile = createTextFile("Test.js", "var a = 1;\n");
+
+        createTextFile("Other.js", "var b = 1;\n");
+
+        CompileMonitor monitor = new CompileMonitor();
+        ScriptConnector connector = createConnector(monitor);
+        ScriptConnectorConfiguration config = createConfiguration("property.file.default.namespace=" + NAMESPACE + "\n" +
+                                                                  "Test=Test.js\n" +
+                                                                  "Other=Other.js\n",
+                                                                  connector);
+        ScriptLocator locator = new ScriptLocator("Test", NAMESPACE);
+        ConfiguredScript oldScript = loadScript(config, connector, locator);
+
+        monitor.setBlocked(true);
+        changeFile(scriptFile, "var a = 2;\n");
+        assertSame(oldScript, config.getScript(locator));
+        monitor.waitForStarted(1);
+
+        // The new version is being compiled.
+        assertSame(oldScript, config.getScript(locator));
+        assertTrue(oldScript.isLoaded());
+
+        monitor.setBlocked(false);
+        waitForCompiler(config, connector, monitor);
+
+        ConfiguredScript newScript = config.getScript(locator);
+
+        assertNotSame(oldScript, newScript);
+        assertTrue(newScript.isLoaded());
+        config.close();
+    }
+
+    /**
+     * Tests that a script compiled in the background does not replace the script of a
+     * configuration which was reloaded during the compilation.
+     *
+     * @throws  Exception
+     */
+    public void testRecompileWithReload()
+                                 throws Exception
+    {
+        String properties = "property.file.default.namespace=" + NAMESPACE + "\n" +
+                            "Test=Test.js\n" + "Other=Other.js\n";
+        File scriptFile = createTextFile("Test.js", "var a = 1;\n");
+
+        createTextFile("Other.js", "var b = 1;\n");
+
+        CompileMonitor monitor = new CompileMonitor();
+        ScriptConnector connector = createConnector(monitor);
+        ScriptConnectorConfiguration config = createConfiguration(properties, connector);
+        ScriptLocator locator = new ScriptLocator("Test", NAMESPACE);
+        ConfiguredScript oldScript = loadScript(config, connector, locator);
+
+        monitor.setBlocked(true);
+        changeFile(scriptFile, "var a = 2;\n");
+        assertSame(oldScript, config.getScript(locator));
+        monitor.waitForStarted(1);
+
+        // Reload the configuration with a changed script definition.
+        changeFile(new File(configFolder, "config.properties"), properties + "Test.timeout=5\n");
+
+        ConfiguredScript reloadedScript = config.getScript(locator);
+
+        assertNotSame(oldScript, reloadedScript);
+        assertEquals(5000, reloadedScript.getTimeout());
+
+        monitor.setBlocked(false);
+        waitForCompiler(config, connector, monitor);
+
+        assertSame(reloadedScript, config.getScript(locator));
+        config.close();
+    }
+
+    /**
+     * Tests that pre-processor parameters whose names end with a method setting suffix are passed
+     * to the pre-processor.
+     *
+     * @throws  Exception
+     */
+    public void testPreProcessorParameterSuffixes()
+                                           throws Exception
+    {
+        createTextFile("Test.js", "var a = 1;\n");
+
+        ScriptConnectorConfiguration config = createConfiguration("property.file.default.namespace=" + NAMESPACE + "\n" +
+                                                                  "Test=Test.js\n" +
+                                                                  "Test.timeout=5\n" +
+                                                                  "Test.preprocessor=" +
+                                                                  TestPreProcessor.class.getName() +
+                                                                  "\n" +
+                                                                  "Test.preprocessor.timeout=10\n" +
+                                                                  "Test.preprocessor.instructionLimit=20\n" +
+                                                                  "Test.preprocessor.optimization=1\n" +
+                                                                  "Test.preprocessor.handler=h\n" +
+                                                                  "Test.preprocessor.namespace=ns\n");
+
+        assertNotNull(preProcessorParams);
+        assertEquals("10", preProcessorParams.get("timeout"));
+        assertEquals("20", preProcessorParams.get("instructionLimit"));
+        assertEquals("1", preProcessorParams.get("optimization"));
+        assertEquals("h", preProcessorParams.get("handler"));
+        assertEquals("ns", preProcessorParams.get("namespace"));
+
+        ScriptLocator locator = new ScriptLocator("Test", NAMESPACE);
+
+        assertTrue(config.findPreProcessor(locator) instanceof TestPreProcessor);
+        assertEquals(5000, config.getScript(locator).getTimeout());
+        config.close();
+    }
+
+    /**
+     * @see  com.cordys.coe.ac.scriptconnector.ScriptConnectorTestCase#setUp()
+     */
+    @Override
+    protected void setUp()
+                  throws Exception
+    {
+        super.setUp();
+        preProcessorParams = null;
+    }
+
+    /**
+     * Writes new contents to the file and waits until the change can be detected.
+     *
+     * @param   file      File to be changed.
+     * @param   contents  New contents.
+     *
+     * @throws  Exception
+     */
+    private void changeFile(File file, String contents)
+                     throws Exception
+    {
+        long previous = file.lastModified();
+
+        createTextFile(file, contents);
+        file.setLastModified(Math.max(previous, file.lastModified()) + 2000);
+        Thread.sleep(SCAN_WAIT);
+    }
+
+    /**
+     * Creates the configuration from the given config.properties contents.
+     *
+     * @param   properties  Contents of the config.properties file.
+     *
+     * @return  Loaded configuration.
+     *
+     * @throws  Exception
+     */
+    private ScriptConnectorConfiguration createConfiguration(String properties)
+                                                      throws Exception
+    {
+        return createConfiguration(properties, null);
+    }
+
+    /**
+     * Creates the configuration from the given config.properties contents. The changed scripts
+     * are compiled in the background when the connector is set.
+     *
+     * @param   properties  Contents of the config.properties file.
+     * @param   connector   Connector or <code>null</code>.
+     *
+     * @return  Loaded configuration.
+     *
+     * @throws  Exception
+     */
+    private ScriptConnectorConfiguration createConfiguration(String properties,
+                                                             ScriptConnector connector)
+                                                      throws Exception
+    {
+        File configFile = createTextFile("config.properties", properties);
+
+        return new ScriptConnectorConfiguration(connector,
+                                                createAppConfigXml(configFile, null, null),
+                                                configFolder);
+    }
+
+    /**
+     * Creates a connector whose script compilations are reported to the monitor.
+     *
+     * @param   monitor  Compilation monitor.
+     *
+     * @return  Connector.
+     */
+    private ScriptConnector createConnector(CompileMonitor monitor)
+    {
+        ScriptConnector connector = new ScriptConnectorStub(null, nomConnector);
+
+        connector.getContextFactory().addListener(monitor);
+
+        return connector;
+    }
+
+    /**
+     * Returns the script and loads it in the current thread.
+     *
+     * @param   config     Configuration.
+     * @param   connector  Connector.
+     * @param   locator    Script locator.
+     *
+     * @return  Loaded script.
+     *
+     * @throws  Exception
+     */
+    private ConfiguredScript loadScript(ScriptConnectorConfiguration config,
+                                        ScriptConnector connector, ScriptLocator locator)
+                                 throws Exception
+    {
+        ConfiguredScript script = config.getScript(locator);
+
+        script.createHandler().loadScript(script, connector);
+
+        return script;
+    }
+
+    /**
+     * Waits until the previously started background compilations have completed. The compiler
+     * runs the compilations in order, so this is done by changing the Other script and waiting
+     * until its compilation has started.
+     *
+     * @param   config     Configuration.
+     * @param   connector  Connector.
+     * @param   monitor    Compilation monitor.
+     *
+     * @throws  Exception
+     */
+    private void waitForCompiler(ScriptConnectorConfiguration config, ScriptConnector connector,
+                                 CompileMonitor monitor)
+                          throws Exception
+    {
+        ScriptLocator locator = new ScriptLocator("Other", NAMESPACE);
+        int startedCount = monitor.getStartedCount();
+
+        loadScript(config, connector, locator);
+        changeFile(new File(configFolder, "Other.js"), "var b = " + startedCount + ";\n");
+        config.getScript(locator);
+        monitor.waitForStarted(startedCount + 1);
+    }
+
+    /**
+     * Context factory listener which counts the Rhino contexts entered by the script compiler
+     * thread. The compiler can be blocked before the compilation starts.
+     */
+    private static class CompileMonitor
+        implements ContextFactory.Listener
+    {
+        /**
+         * Indicates if the compiler is blocked.
+         */
+        private boolean blocked;
+        /**
+         * Number of started compilations.
+         */
+        private int startedCount;
+
+        /**
+         * @see  org.mozilla.javascript.ContextFactory.Listener#contextCreated(org.mozilla.javascript.Context)
+         */
+        public void contextCreated(Context cx)
+        {
+            if (!isCompilerThread())
+            {
+                return;
+            }
+
+            synchronized (this)
+            {
+                startedCount++;
+                notifyAll();
+
+                try
+                {
+                    while (blocked)
+                    {
+                        wait();
+                    }
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        /**
+         * @see  org.mozilla.javascript.ContextFactory.Listener#contextReleased(org.mozilla.javascript.Context)
+         */
+        public void contextReleased(Context cx)
+        {
+        }
+
+        /**
+         * Returns the number of started compilations.
+         *
+         * @return  Returns the number of started compilations.
+         */
+        public synchronized int getStartedCount()
+        {
+            return startedCount;
+        }
+
+        /**
+         * Sets the blocked flag.
+         *
+         * @param  blocked  The blocked flag to set.
+         */
+        public synchronized void setBlocked(boolean blocked)
+        {
+            this.blocked = blocked;
+            notifyAll();
+        }
+
+        /**
+         * Waits until the given number of compilations have started.
+         *
+         * @param   count  Number of compilations.
+         *
+         * @throws  InterruptedException
+         */
+        public synchronized void waitForStarted(int count)
+                                         throws InterruptedException
+        {
+            long endTime = System.currentTimeMillis() + 10000;
+
+            while (startedCount < count)
+            {
+                long remaining = endTime - System.currentTimeMillis();
+
+                assertTrue("Compilation did not start.", remaining > 0);
+                wait(remaining);
+            }
+        }
+
+        /**
+         * Returns <code>true</code> if the current thread is the script compiler thread.
+         *
+         * @return  <code>true</code> if this is the compiler thread.
+         */
+        private static boolean isCompilerThread()
+        {
+            return "ScriptConnector-Compiler".equals(Thread.currentThread().getName());
+        }
+    }
+
+    /**
+     * Pre-processor which records its parameters.
+     */
+    public static class TestPreProcessor
+        implements IScriptPreProcessor
+    {
+        /**
+         * @see  com.cordys.coe.ac.scriptconnector.processor.IScriptPreProcessor#execute(com.cordys.coe.ac.scriptconnector.ScriptConnector,
+         *       com.cordys.coe.ac.scriptconnector.scripting.ConfiguredScript,
+         *       com.cordys.coe.ac.scriptconnector.aclib.ISoapRequestContext)
+         */
+        public boolean execute(ScriptConnector connector, ConfiguredScript script,
+                               ISoapRequestContext requestContext)
+        {
+            return true;
+        }
+
+        /**
+         * @see  com.cordys.coe.ac.scriptconnector.processor.IScriptPreProcessor#initialize(com.cordys.coe.ac.scriptconnector.ScriptConnector,
+         *       java.util.Map)
+         */
+        public boolean initialize(ScriptConnector connector, Map<String, String> params)
+        {
+            preProcessorParams = params;
+
+            return true;
+        }
+    }
+}
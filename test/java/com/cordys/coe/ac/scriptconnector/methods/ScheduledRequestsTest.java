@@ -0,0 +1,347 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.methods;
+
+import com.cordys.coe.ac.scriptconnector.ScriptConnectorStub;
+import com.cordys.coe.ac.scriptconnector.ScriptConnectorTestCase;
+import com.cordys.coe.ac.scriptconnector.config.ScriptConnectorConfiguration;
+import com.cordys.coe.ac.scriptconnector.exception.ScriptConnectorException;
+import com.cordys.coe.ac.scriptconnector.scheduler.RequestJournal;
+import com.cordys.coe.ac.scriptconnector.soap.DelayedSoapRequest;
+import com.cordys.coe.ac.scriptconnector.soap.ScriptSoapMessage;
+
+import com.eibus.xml.nom.Node;
+
+import java.io.File;
+
+import java.util.Map;
+
+/**
+ * Test cases for the scheduled request management methods.
+ */
+public class ScheduledRequestsTest extends ScriptConnectorTestCase
+{
+    /**
+     * Delay which is long enough so that the scheduler does not send the requests during the
+     * test.
+     */
+    private static final long DELAY = 600000;
+    /**
+     * Connector which sends the requests.
+     */
+    private SchedulerConnectorStub connector;
+    /**
+     * Request journal of the connector.
+     */
+    private RequestJournal journal;
+    /**
+     * Journal file.
+     */
+    private File journalFile;
+
+    /**
+     * Tests that a pending request is cancelled and removed from the journal, and that a started
+     * request cannot be cancelled.
+     *
+     * @throws  Exception
+     */
+    public void testCancel()
+                    throws Exception
+    {
+        long id1 = connector.scheduleSoapRequest(createRequest("GetData"), DELAY);
+        DelayedSoapRequest req2 = createRequest("GetOther");
+        long id2 = connector.scheduleSoapRequest(req2, DELAY);
+
+        assertEquals(2, journal.getLiveCount());
+
+        assertTrue(connector.cancelScheduledRequest(id1));
+        assertFalse(connector.cancelScheduledRequest(id1));
+        assertEquals(1, journal.getLiveCount());
+        assertEquals(1, connector.getScheduledRequests().size());
+
+        // The request cannot be cancelled while a worker is sending it.
+        connector.onSend = new Runnable()
+            {
+                public void run()
+                {
+                    assertFalse(connector.cancelScheduledRequest(connector.sendingTaskId));
+                }
+            };
+        req2.run();
+
+        assertEquals(id2, connector.sendingTaskId);
+        assertEquals(0, journal.getLiveCount());
+        assertEquals(0, connector.getScheduledRequests().size());
+    }
+
+    /**
+     * Tests that the list contains only the requests which have not been started, ordered by the
+     * due time, and that the statistics count only them.
+     *
+     * @throws  Exception
+     */
+    public void testListAndStatistics()
+                               throws Exception
+    {
+        long id1 = connector.scheduleSoapRequest(createRequest("GetData"), DELAY * 3);
+        long id2 = connector.scheduleSoapRequest(createRequest("GetOther"), DELAY);
+        DelayedSoapRequest req3 = createRequest("GetThird");
+
+        connector.scheduleSoapRequest(req3, DELAY * 2);
+
+        int list = parse("<ListScheduledRequestsResponse/>");
+        int stats = parse("<GetSchedulerStatisticsResponse/>");
+
+        ScheduledRequests.writeScheduledRequests(connector, list);
+        assertTaskIds(list, id2, req3.getTaskId(), id1);
+
+        int task = Node.getFirstChildElement(list);
+
+        assertEquals("GetOther", Node.getDataElement(task, "method", ""));
+        assertEquals("http://test", Node.getDataElement(task, "namespace", ""));
+        assertEquals("cn=user", Node.getDataElement(task, "user", ""));
+        assertEquals("o=org", Node.getDataElement(task, "organization", ""));
+        assertEquals("true", Node.getDataElement(task, "journaled", ""));
+
+        long dueIn = Long.parseLong(Node.getDataElement(task, "dueIn", ""));
+
+        assertTrue(Long.toString(dueIn), (dueIn > 0) && (dueIn <= DELAY));
+
+        ScheduledRequests.writeSchedulerStatistics(connector, stats);
+        assertEquals("3", Node.getDataElement(stats, "scheduledRequestCount", ""));
+        assertEquals("3", Node.getDataElement(stats, "queueDepth", ""));
+        assertEquals("0", Node.getDataElement(stats, "oldestDueAge", ""));
+
+        // A started request is not listed.
+        final int sendingList = parse("<ListScheduledRequestsResponse/>");
+        final int sendingStats = parse("<GetSchedulerStatisticsResponse/>");
+
+        connector.onSend = new Runnable()
+            {
+                public void run()
+                {
+                    ScheduledRequests.writeScheduledRequests(connector, sendingList);
+                    ScheduledRequests.writeSchedulerStatistics(connector, sendingStats);
+                }
+            };
+        req3.run();
+
+        assertTaskIds(sendingList, id2, id1);
+        assertEquals("2", Node.getDataElement(sendingStats, "scheduledRequestCount", ""));
+    }
+
+    /**
+     * Tests that a pending request is rescheduled and the new due time is written to the
+     * journal.
+     *
+     * @throws  Exception
+     */
+    public void testReschedule()
+                        throws Exception
+    {
+        long id1 = connector.scheduleSoapRequest(createRequest("GetData"), DELAY);
+        long id2 = connector.scheduleSoapRequest(createRequest("GetOther"), DELAY * 2);
+        long before = System.currentTimeMillis();
+
+        assertTrue(connector.rescheduleScheduledRequest(id1, DELAY * 3));
+        assertFalse(connector.rescheduleScheduledRequest(12345, DELAY));
+
+        int list = parse("<ListScheduledRequestsResponse/>");
+
+        ScheduledRequests.writeScheduledRequests(connector, list);
+        assertTaskIds(list, id2, id1);
+
+        // The journal entry is rewritten with the new due time.
+        assertEquals(2, journal.getLiveCount());
+        journal.close();
+
+        RequestJournal reopened = new RequestJournal(journalFile);
+        Map<Long, byte[]> entries = reopened.open();
+
+        try
+        {
+            assertEquals(2, entries.size());
+
+            DelayedSoapRequest replayed = DelayedSoapRequest.deserialize(connector,
+                                                                         entries.get(id1));
+
+            try
+            {
+                assertTrue(replayed.getDueTime() >= (before + (DELAY * 3)));
+                assertEquals("GetData", replayed.getMethodName());
+            }
+            finally
+            {
+                replayed.getRequest().clear();
+            }
+        }
+        finally
+        {
+            reopened.close();
+        }
+    }
+
+    /**
+     * Tests that the scripts receive the task IDs and can cancel the requests with them.
+     *
+     * @throws  Exception
+     */
+    public void testScriptTaskId()
+                          throws Exception
+    {
+        String script = "var id1 = Cordys.scheduleSoapRequest('cn=user', \"<GetData xmlns='http://test'/>\", 600000);\n" +
+                        "var id2 = Cordys.scheduleSoapRequest('cn=user', \"<GetData xmlns='http://test'/>\", 600000);\n" +
+                        "Cordys.addResponseElement(<valid>{(id1 > 0) && (id1 != id2)}</valid>.toXMLString());\n" +
+                        "Cordys.addResponseElement(<cancelled>{Cordys.cancelScheduledRequest(id1)}</cancelled>.toXMLString());\n" +
+                        "Cordys.addResponseElement(<again>{Cordys.cancelScheduledRequest(id1)}</again>.toXMLString());\n" +
+                        "Cordys.cancelScheduledRequest(id2);\n";
+        String requestXml = "<Test xmlns=\"http://schemas.cordys.com/1.0/coe/ScriptConnector\" />";
+        String responseXml = "<TestResponse xmlns=\"http://schemas.cordys.com/1.0/coe/ScriptConnector\">" +
+                             "<valid>true</valid><cancelled>true</cancelled><again>false</again>" +
+                             "</TestResponse>";
+        int expectedResponse = parse(responseXml);
+        int actualResponse = executeScriptMethod(requestXml, script);
+
+        assertNodesEqual(expectedResponse, getSoapMethod(actualResponse), true);
+    }
+
+    /**
+     * @see  com.cordys.coe.ac.scriptconnector.ScriptConnectorTestCase#setUp()
+     */
+    @Override
+    protected void setUp()
+                  throws Exception
+    {
+        super.setUp();
+
+        ScriptConnectorConfiguration config = new ScriptConnectorConfiguration(null,
+                                                                               createAppConfigXml(null,
+                                                                                                  null,
+                                                                                                  null),
+                                                                               configFolder);
+
+        journalFile = new File(configFolder, "journal.dat");
+        journal = new RequestJournal(journalFile);
+        journal.open();
+        connector = new SchedulerConnectorStub(config, journal);
+    }
+
+    /**
+     * @see  com.cordys.coe.ac.scriptconnector.ScriptConnectorTestCase#tearDown()
+     */
+    @Override
+    protected void tearDown()
+                     throws Exception
+    {
+        connector.getTaskScheduler().stop();
+        journal.close();
+        super.tearDown();
+    }
+
+    /**
+     * Checks the task IDs in the list response.
+     *
+     * @param  list  List response element.
+     * @param  ids   Expected task IDs in the order.
+     */
+    private static void assertTaskIds(int list, long... ids)
+    {
+        int task = Node.getFirstChildElement(list);
+
+        for (long id : ids)
+        {
+            assertTrue("Task " + id + " is missing.", task != 0);
+            assertEquals(Long.toString(id), Node.getAttribute(task, "id"));
+            task = Node.getNextElement(task);
+        }
+
+        assertEquals(0, task);
+    }
+
+    /**
+     * Creates a request.
+     *
+     * @param   methodName  Method name.
+     *
+     * @return  New request.
+     *
+     * @throws  ScriptConnectorException
+     */
+    private DelayedSoapRequest createRequest(String methodName)
+                                      throws ScriptConnectorException
+    {
+        ScriptSoapMessage msg = new ScriptSoapMessage(connector.getDocument());
+
+        msg.setUserDn("cn=user");
+        msg.setOrgDn("o=org");
+        msg.setMethodAsString("<" + methodName + " xmlns='http://test'/>", false);
+
+        return new DelayedSoapRequest(connector, null, msg, false, false);
+    }
+
+    /**
+     * Connector stub which runs a callback instead of sending the request.
+     */
+    private static class SchedulerConnectorStub extends ScriptConnectorStub
+    {
+        /**
+         * Called when a request is sent.
+         */
+        private Runnable onSend;
+        /**
+         * Task ID of the request which is being sent.
+         */
+        private long sendingTaskId;
+
+        /**
+         * Constructor for SchedulerConnectorStub.
+         *
+         * @param  config   Configuration object.
+         * @param  journal  Request journal.
+         */
+        SchedulerConnectorStub(ScriptConnectorConfiguration config, RequestJournal journal)
+        {
+            super(config, null);
+            this.requestJournal = journal;
+        }
+
+        /**
+         * @see  com.cordys.coe.ac.scriptconnector.ScriptConnector#sendSoapRequestAndWait(com.cordys.coe.ac.scriptconnector.soap.ScriptSoapMessage,
+         *       boolean)
+         */
+        @Override
+        public ScriptSoapMessage sendSoapRequestAndWait(ScriptSoapMessage msg,
+                                                        boolean checkSoapFault)
+        {
+            for (DelayedSoapRequest req : getScheduledRequests())
+            {
+                if (req.getRequest() == msg)
+                {
+                    sendingTaskId = req.getTaskId();
+                }
+            }
+
+            if (onSend != null)
+            {
+                onSend.run();
+            }
+
+            return null;
+        }
+    }
+}
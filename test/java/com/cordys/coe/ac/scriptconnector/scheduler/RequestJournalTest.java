@@ -0,0 +1,252 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.scheduler;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * Test cases for the scheduled request journal.
+ */
+public class RequestJournalTest extends TestCase
+{
+    /**
+     * Journal file.
+     */
+    private File journalFile;
+
+    /**
+     * Tests that the journal is compacted when most of the records are removed.
+     *
+     * @throws  Exception
+     */
+    public void testCompaction()
+                        throws Exception
+    {
+        RequestJournal journal = new RequestJournal(journalFile);
+
+        journal.open();
+
+        for (int i = 0; i < 1000; i++)
+        {
+            long id = journal.nextId();
+
+            journal.add(id, ("task" + id).getBytes("UTF-8"));
+
+            if (i > 0)
+            {
+                journal.remove(id);
+            }
+        }
+
+        // The file contains only the live task after the compaction.
+        assertEquals(1, journal.getLiveCount());
+        assertTrue(journal.getRecordCount() < 1000);
+        journal.close();
+
+        journal = new RequestJournal(journalFile);
+
+        Map<Long, byte[]> tasks = journal.open();
+
+        assertEquals(1, tasks.size());
+        assertEquals("task1", new String(tasks.get(1L), "UTF-8"));
+        assertTrue(journal.nextId() > 1000);
+        journal.close();
+    }
+
+    /**
+     * Tests that the task IDs of removed tasks are not reused after the journal has been
+     * compacted and opened again.
+     *
+     * @throws  Exception
+     */
+    public void testCompactionKeepsMaxId()
+                                  throws Exception
+    {
+        RequestJournal journal = new RequestJournal(journalFile);
+        long lastId = 0;
+
+        journal.open();
+        journal.add(journal.nextId(), "live".getBytes("UTF-8"));
+
+        // The last remove compacts the journal.
+        for (int i = 0; i < 500; i++)
+        {
+            lastId = journal.nextId();
+            journal.add(lastId, ("task" + lastId).getBytes("UTF-8"));
+            journal.remove(lastId);
+        }
+
+        assertTrue(journal.getRecordCount() <= 2);
+        journal.close();
+
+        journal = new RequestJournal(journalFile);
+
+        assertEquals(1, journal.open().size());
+        assertEquals(lastId + 1, journal.nextId());
+        journal.close();
+    }
+
+    /**
+     * Tests that the journal can still be used when the compaction fails.
+     *
+     * @throws  Exception
+     */
+    public void testCompactionFailure()
+                               throws Exception
+    {
+        RequestJournal journal = new RequestJournal(journalFile);
+        File tmpFolder = new File(journalFile.getPath() + ".tmp");
+        File tmpChild = new File(tmpFolder, "child");
+
+        // The temporary file cannot be created, because a folder has the same name.
+        tmpFolder.mkdirs();
+        new RandomAccessFile(tmpChild, "rw").close();
+
+        try
+        {
+            journal.open();
+
+            for (int i = 0; i < 1000; i++)
+            {
+                long id = journal.nextId();
+
+                journal.add(id, ("task" + id).getBytes("UTF-8"));
+
+                if (i > 0)
+                {
+                    journal.remove(id);
+                }
+            }
+
+            assertEquals(1999, journal.getRecordCount());
+
+            long id = journal.nextId();
+
+            journal.add(id, "last".getBytes("UTF-8"));
+            journal.close();
+
+            journal = new RequestJournal(journalFile);
+
+            Map<Long, byte[]> tasks = journal.open();
+
+            assertEquals(2, tasks.size());
+            assertEquals("task1", new String(tasks.get(1L), "UTF-8"));
+            assertEquals("last", new String(tasks.get(id), "UTF-8"));
+            journal.close();
+        }
+        finally
+        {
+            tmpChild.delete();
+            tmpFolder.delete();
+        }
+    }
+
+    /**
+     * Tests that a partially written record at the end of the file is discarded.
+     *
+     * @throws  Exception
+     */
+    public void testCorruptTail()
+                         throws Exception
+    {
+        RequestJournal journal = new RequestJournal(journalFile);
+
+        journal.open();
+        journal.add(journal.nextId(), "a".getBytes("UTF-8"));
+        journal.add(journal.nextId(), "b".getBytes("UTF-8"));
+        journal.close();
+
+        RandomAccessFile raf = new RandomAccessFile(journalFile, "rw");
+
+        try
+        {
+            raf.setLength(raf.length() - 1);
+        }
+        finally
+        {
+            raf.close();
+        }
+
+        journal = new RequestJournal(journalFile);
+
+        Map<Long, byte[]> tasks = journal.open();
+
+        assertEquals(1, tasks.size());
+        assertEquals("a", new String(tasks.get(1L), "UTF-8"));
+
+        // New records are written after the valid part.
+        journal.add(journal.nextId(), "c".getBytes("UTF-8"));
+        journal.close();
+
+        journal = new RequestJournal(journalFile);
+        tasks = journal.open();
+        assertEquals(2, tasks.size());
+        journal.close();
+    }
+
+    /**
+     * Tests that the live tasks are read when the journal is opened again.
+     *
+     * @throws  Exception
+     */
+    public void testReopen()
+                    throws Exception
+    {
+        RequestJournal journal = new RequestJournal(journalFile);
+
+        assertTrue(journal.open().isEmpty());
+
+        long id1 = journal.nextId();
+        long id2 = journal.nextId();
+
+        journal.add(id1, "first".getBytes("UTF-8"));
+        journal.add(id2, "second".getBytes("UTF-8"));
+        journal.remove(id1);
+        journal.close();
+
+        journal = new RequestJournal(journalFile);
+
+        Map<Long, byte[]> tasks = journal.open();
+
+        assertEquals(1, tasks.size());
+        assertEquals("second", new String(tasks.get(id2), "UTF-8"));
+        assertTrue(journal.nextId() > id2);
+        journal.close();
+    }
+
+    /**
+     * @see  junit.framework.TestCase#setUp()
+     */
+    @Override
+    protected void setUp()
+                  throws Exception
+    {
+        super.setUp();
+
+        File folder = new File("./build/test/RequestJournalTest");
+
+        folder.mkdirs();
+        journalFile = new File(folder, "test.journal");
+        journalFile.delete();
+    }
+}
@@ -0,0 +1,342 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.scheduler;
+
+import java.util.Random;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the task scheduler queues with <code>java.util.Timer</code>. For each task count the
+ * benchmark schedules the tasks with random delays, cancels some of them and waits until the rest
+ * have been run. It prints the schedule and cancel cost per task, the time from the last due time
+ * to the completion and the largest lateness of a task.
+ *
+ * <p>Run with a large heap, e.g. <code>-Xmx2g</code>.</p>
+ */
+public class SchedulerBenchmark
+{
+    /**
+     * Number of cancelled tasks in each run.
+     */
+    private static final int CANCEL_COUNT = 1000;
+    /**
+     * Delays are spread over this many milliseconds.
+     */
+    private static final int DELAY_RANGE = 2000;
+    /**
+     * Timing wheel tick length used in the benchmark.
+     */
+    private static final long TICK_MILLIS = 10;
+    /**
+     * Number of worker threads used by the task scheduler.
+     */
+    private static final int WORKER_THREADS = 4;
+
+    /**
+     * Main method.
+     *
+     * @param   args  Optional task counts. The default is 10000, 100000 and 1000000.
+     *
+     * @throws  Exception
+     */
+    public static void main(String[] args)
+                     throws Exception
+    {
+        int[] counts = { 10000, 100000, 1000000 };
+
+        if (args.length > 0)
+        {
+            counts = new int[args.length];
+
+            for (int i = 0; i < args.length; i++)
+            {
+                counts[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        System.out.println("queue        tasks  schedule ns/task  cancel ns/task  drain ms  max late ms");
+
+        for (int count : counts)
+        {
+            print("timer", count, runTimer(count));
+            print("heap", count, runScheduler(count, 0));
+            print("wheel", count, runScheduler(count, TICK_MILLIS));
+        }
+    }
+
+    /**
+     * Creates the random delays. The same seed is used for all queues.
+     *
+     * @param   count  Number of tasks.
+     *
+     * @return  Delays in milliseconds.
+     */
+    private static long[] createDelays(int count)
+    {
+        Random random = new Random(count);
+        long[] delays = new long[count];
+
+        for (int i = 0; i < count; i++)
+        {
+            delays[i] = 500 + random.nextInt(DELAY_RANGE);
+        }
+
+        return delays;
+    }
+
+    /**
+     * Prints one result line.
+     *
+     * @param  name    Queue name.
+     * @param  count   Number of tasks.
+     * @param  result  Result from the run.
+     */
+    private static void print(String name, int count, Result result)
+    {
+        System.out.println(String.format("%-8s %9d  %16d  %14d  %8d  %11d", name, count,
+                                         result.scheduleNanos / count,
+                                         result.cancelNanos / CANCEL_COUNT, result.drainMillis,
+                                         result.maxLateness.get()));
+    }
+
+    /**
+     * Runs the benchmark with the task scheduler.
+     *
+     * @param   count       Number of tasks.
+     * @param   tickMillis  Timing wheel tick length or zero for the binary heap.
+     *
+     * @return  Result.
+     *
+     * @throws  Exception
+     */
+    private static Result runScheduler(int count, long tickMillis)
+                                throws Exception
+    {
+        TaskScheduler scheduler = new TaskScheduler(WORKER_THREADS, count, tickMillis);
+        long[] delays = createDelays(count);
+        ScheduledTask[] tasks = new ScheduledTask[CANCEL_COUNT];
+        Result result = new Result(count - CANCEL_COUNT);
+        long maxDue = 0;
+
+        try
+        {
+            long start = System.nanoTime();
+
+            for (int i = 0; i < count; i++)
+            {
+                long due = System.currentTimeMillis() + delays[i];
+                ScheduledTask task = scheduler.schedule(new BenchmarkTask(result, due), delays[i]);
+
+                maxDue = Math.max(maxDue, due);
+
+                if (i < CANCEL_COUNT)
+                {
+                    tasks[i] = task;
+                }
+            }
+
+            result.scheduleNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+
+            for (ScheduledTask task : tasks)
+            {
+                scheduler.cancel(task);
+            }
+
+            result.cancelNanos = System.nanoTime() - start;
+            result.await(maxDue);
+        }
+        finally
+        {
+            scheduler.stop();
+        }
+
+        return result;
+    }
+
+    /**
+     * Runs the benchmark with <code>java.util.Timer</code>.
+     *
+     * @param   count  Number of tasks.
+     *
+     * @return  Result.
+     *
+     * @throws  Exception
+     */
+    private static Result runTimer(int count)
+                            throws Exception
+    {
+        Timer timer = new Timer(true);
+        long[] delays = createDelays(count);
+        TimerTask[] tasks = new TimerTask[CANCEL_COUNT];
+        Result result = new Result(count - CANCEL_COUNT);
+        long maxDue = 0;
+
+        try
+        {
+            long start = System.nanoTime();
+
+            for (int i = 0; i < count; i++)
+            {
+                long due = System.currentTimeMillis() + delays[i];
+                final BenchmarkTask task = new BenchmarkTask(result, due);
+                TimerTask timerTask = new TimerTask()
+                {
+                    @Override
+                    public void run()
+                    {
+                        task.run();
+                    }
+                };
+
+                timer.schedule(timerTask, delays[i]);
+                maxDue = Math.max(maxDue, due);
+
+                if (i < CANCEL_COUNT)
+                {
+                    tasks[i] = timerTask;
+                }
+            }
+
+            result.scheduleNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+
+            for (TimerTask task : tasks)
+            {
+                task.cancel();
+            }
+
+            result.cancelNanos = System.nanoTime() - start;
+            result.await(maxDue);
+        }
+        finally
+        {
+            timer.cancel();
+        }
+
+        return result;
+    }
+
+    /**
+     * Task which records its lateness.
+     */
+    private static class BenchmarkTask
+        implements Runnable
+    {
+        /**
+         * Due time of the task.
+         */
+        private long dueTime;
+        /**
+         * Result of the run.
+         */
+        private Result result;
+
+        /**
+         * Constructor for BenchmarkTask.
+         *
+         * @param  result   Result of the run.
+         * @param  dueTime  Due time of the task.
+         */
+        BenchmarkTask(Result result, long dueTime)
+        {
+            this.result = result;
+            this.dueTime = dueTime;
+        }
+
+        /**
+         * @see  java.lang.Runnable#run()
+         */
+        public void run()
+        {
+            long late = System.currentTimeMillis() - dueTime;
+            long max;
+
+            while (late > (max = result.maxLateness.get()))
+            {
+                if (result.maxLateness.compareAndSet(max, late))
+                {
+                    break;
+                }
+            }
+
+            result.latch.countDown();
+        }
+    }
+
+    /**
+     * Result of one run.
+     */
+    private static class Result
+    {
+        /**
+         * Time used for cancelling the tasks in nanoseconds.
+         */
+        private long cancelNanos;
+        /**
+         * Time from the last due time until all tasks have been run in milliseconds.
+         */
+        private long drainMillis;
+        /**
+         * Counted down when a task is run.
+         */
+        private CountDownLatch latch;
+        /**
+         * Largest lateness of a task in milliseconds.
+         */
+        private AtomicLong maxLateness = new AtomicLong();
+        /**
+         * Time used for scheduling the tasks in nanoseconds.
+         */
+        private long scheduleNanos;
+
+        /**
+         * Constructor for Result.
+         *
+         * @param  expected  Number of tasks which should be run.
+         */
+        Result(int expected)
+        {
+            latch = new CountDownLatch(expected);
+        }
+
+        /**
+         * Waits until all tasks have been run.
+         *
+         * @param   maxDue  Last due time.
+         *
+         * @throws  Exception
+         */
+        void await(long maxDue)
+            throws Exception
+        {
+            if (!latch.await(10 * DELAY_RANGE, TimeUnit.MILLISECONDS))
+            {
+                throw new IllegalStateException("Tasks were not run. Remaining: " +
+                                                latch.getCount());
+            }
+
+            drainMillis = Math.max(System.currentTimeMillis() - maxDue, 0);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.scheduler;
+
+import com.cordys.coe.ac.scriptconnector.exception.ScriptConnectorException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+/**
+ * Test cases for the task scheduler.
+ */
+public class TaskSchedulerTest extends TestCase
+{
+    /**
+     * Tests that the tasks are run in the order of their due time.
+     *
+     * @throws  Exception
+     */
+    public void testOrder()
+                   throws Exception
+    {
+        TaskScheduler scheduler = new TaskScheduler(1, 100);
+        final List<String> result = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch latch = new CountDownLatch(3);
+
+        try
+        {
+            scheduler.schedule(new AddTask(result, "3", latch), 150);
+            scheduler.schedule(new AddTask(result, "1", latch), 50);
+            scheduler.schedule(new AddTask(result, "2", latch), 100);
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals("[1, 2, 3]", result.toString());
+            assertEquals(3, scheduler.getDispatchedCount());
+            assertEquals(0, scheduler.getPendingCount());
+            assertTrue(scheduler.getMaxLag() >= scheduler.getAverageLag());
+            assertTrue(scheduler.getDispatchRate() > 0);
+        }
+        finally
+        {
+            scheduler.stop();
+        }
+    }
+
+    /**
+     * Tests that the tasks are run in the order of their due time with the timing wheel.
+     *
+     * @throws  Exception
+     */
+    public void testTimingWheelOrder()
+                              throws Exception
+    {
+        TaskScheduler scheduler = new TaskScheduler(1, 100, 10);
+        final List<String> result = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch latch = new CountDownLatch(3);
+
+        try
+        {
+            scheduler.schedule(new AddTask(result, "3", latch), 150);
+            scheduler.schedule(new AddTask(result, "1", latch), 50);
+            scheduler.schedule(new AddTask(result, "2", latch), 100);
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals("[1, 2, 3]", result.toString());
+            assertEquals(10, scheduler.getTickMillis());
+            assertEquals(0, scheduler.getPendingCount());
+        }
+        finally
+        {
+            scheduler.stop();
+        }
+    }
+
+    /**
+     * Tests that a cancelled task is not run.
+     *
+     * @throws  Exception
+     */
+    public void testCancel()
+                    throws Exception
+    {
+        checkCancel(new TaskScheduler(1, 100));
+        checkCancel(new TaskScheduler(1, 100, 10));
+    }
+
+    /**
+     * Tests the pending task limit.
+     *
+     * @throws  Exception
+     */
+    public void testMaxPending()
+                        throws Exception
+    {
+        TaskScheduler scheduler = new TaskScheduler(1, 2);
+        final List<String> result = Collections.synchronizedList(new ArrayList<String>());
+
+        try
+        {
+            scheduler.schedule(new AddTask(result, "1", null), 60000);
+            scheduler.schedule(new AddTask(result, "2", null), 60000);
+
+            try
+            {
+                scheduler.schedule(new AddTask(result, "3", null), 60000);
+                fail("Exception was not thrown.");
+            }
+            catch (ScriptConnectorException ignored)
+            {
+            }
+
+            assertEquals(2, scheduler.getPendingCount());
+        }
+        finally
+        {
+            scheduler.stop();
+        }
+
+        try
+        {
+            scheduler.schedule(new AddTask(result, "4", null), 0);
+            fail("Exception was not thrown.");
+        }
+        catch (ScriptConnectorException ignored)
+        {
+        }
+    }
+
+    /**
+     * Tests that a slow task does not delay the other tasks.
+     *
+     * @throws  Exception
+     */
+    public void testSlowTask()
+                      throws Exception
+    {
+        TaskScheduler scheduler = new TaskScheduler(2, 100);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> result = Collections.synchronizedList(new ArrayList<String>());
+        CountDownLatch latch = new CountDownLatch(1);
+
+        try
+        {
+            scheduler.schedule(new Runnable()
+                {
+                    public void run()
+                    {
+                        try
+                        {
+                            release.await();
+                        }
+                        catch (InterruptedException ignored)
+                        {
+                        }
+                    }
+                }, 0);
+            scheduler.schedule(new AddTask(result, "1", latch), 50);
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals(2, scheduler.getDispatchedCount());
+        }
+        finally
+        {
+            release.countDown();
+            scheduler.stop();
+        }
+    }
+
+    /**
+     * Cancels one of two tasks and checks that only the other one is run.
+     *
+     * @param   scheduler  Scheduler to be tested.
+     *
+     * @throws  Exception
+     */
+    private void checkCancel(TaskScheduler scheduler)
+                      throws Exception
+    {
+        final List<String> result = Collections.synchronizedList(new ArrayList<String>());
+        CountDownLatch latch = new CountDownLatch(1);
+
+        try
+        {
+            ScheduledTask cancelled = scheduler.schedule(new AddTask(result, "1", null), 50);
+
+            scheduler.schedule(new AddTask(result, "2", latch), 100);
+
+            assertTrue(scheduler.cancel(cancelled));
+            assertFalse(scheduler.cancel(cancelled));
+            assertEquals(1, scheduler.getPendingCount());
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals("[2]", result.toString());
+        }
+        finally
+        {
+            scheduler.stop();
+        }
+    }
+
+    /**
+     * Task which adds a value to the list.
+     */
+    private static class AddTask
+        implements Runnable
+    {
+        /**
+         * Latch which is counted down when the task is run.
+         */
+        private CountDownLatch latch;
+        /**
+         * Result list.
+         */
+        private List<String> list;
+        /**
+         * Value to be added.
+         */
+        private String value;
+
+        /**
+         * Constructor for AddTask.
+         *
+         * @param  list   Result list.
+         * @param  value  Value to be added.
+         * @param  latch  Latch which is counted down when the task is run or <code>null</code>.
+         */
+        AddTask(List<String> list, String value, CountDownLatch latch)
+        {
+            this.list = list;
+            this.value = value;
+            this.latch = latch;
+        }
+
+        /**
+         * @see  java.lang.Runnable#run()
+         */
+        public void run()
+        {
+            list.add(value);
+
+            if (latch != null)
+            {
+                latch.countDown();
+            }
+        }
+    }
+}
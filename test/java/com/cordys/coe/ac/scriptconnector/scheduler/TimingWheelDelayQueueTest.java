@@ -0,0 +1,102 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.scheduler;
+
+import junit.framework.TestCase;
+
+/**
+ * Test cases for the timing wheel delay queue.
+ */
+public class TimingWheelDelayQueueTest extends TestCase
+{
+    /**
+     * Tests that a removed task is not returned.
+     *
+     * @throws  Exception
+     */
+    public void testRemove()
+                    throws Exception
+    {
+        TimingWheelDelayQueue queue = new TimingWheelDelayQueue(5, 16);
+        long now = System.currentTimeMillis();
+        ScheduledTask t1 = new ScheduledTask(null, now + 20);
+        ScheduledTask t2 = new ScheduledTask(null, now + 20);
+        ScheduledTask t3 = new ScheduledTask(null, now + 20);
+
+        queue.add(t1);
+        queue.add(t2);
+        queue.add(t3);
+
+        assertTrue(queue.remove(t2));
+        assertFalse(queue.remove(t2));
+        assertEquals(2, queue.size());
+
+        assertSame(t1, queue.take());
+        assertSame(t3, queue.take());
+        assertFalse(queue.remove(t3));
+        assertEquals(0, queue.size());
+    }
+
+    /**
+     * Tests that the tasks are returned in the order of the due time and not before it. The
+     * delays are longer than one round of the wheel.
+     *
+     * @throws  Exception
+     */
+    public void testTake()
+                  throws Exception
+    {
+        TimingWheelDelayQueue queue = new TimingWheelDelayQueue(5, 4);
+        long now = System.currentTimeMillis();
+        ScheduledTask late = new ScheduledTask(null, now + 120);
+        ScheduledTask early = new ScheduledTask(null, now + 30);
+        ScheduledTask due = new ScheduledTask(null, now - 10);
+
+        queue.add(late);
+        queue.add(early);
+        queue.add(due);
+
+        assertSame(due, queue.take());
+        assertSame(early, queue.take());
+        assertTrue(System.currentTimeMillis() >= early.getDueTime());
+        assertSame(late, queue.take());
+        assertTrue(System.currentTimeMillis() >= late.getDueTime());
+        assertEquals(0, queue.size());
+    }
+
+    /**
+     * Tests that clear removes the tasks.
+     *
+     * @throws  Exception
+     */
+    public void testClear()
+                   throws Exception
+    {
+        TimingWheelDelayQueue queue = new TimingWheelDelayQueue(5, 16);
+        long now = System.currentTimeMillis();
+        ScheduledTask t1 = new ScheduledTask(null, now - 10);
+        ScheduledTask t2 = new ScheduledTask(null, now + 60000);
+
+        queue.add(t1);
+        queue.add(t2);
+
+        assertEquals(2, queue.clear());
+        assertEquals(0, queue.size());
+        assertFalse(queue.remove(t2));
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.scripting;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.Scriptable;
+
+/**
+ * Test cases for the compiled script cache.
+ */
+public class CompiledScriptCacheTest extends TestCase
+{
+    /**
+     * Cache folder used by the tests.
+     */
+    private File cacheFolder;
+    /**
+     * Script file used for the cache key. The file does not need to exist.
+     */
+    private File scriptFile;
+
+    /**
+     * Tests that the same source is loaded from the cache file.
+     *
+     * @throws  Exception
+     */
+    public void testCacheHit()
+                      throws Exception
+    {
+        String source = "var x = <a><b>{1 + 2}</b></a>; x.b.toString();";
+
+        assertEquals("3", execute(source, 0));
+        assertEquals(1, getCacheFileCount());
+
+        long modified = cacheFolder.listFiles()[0].lastModified();
+
+        assertEquals("3", execute(source, 0));
+        assertEquals(1, getCacheFileCount());
+        assertEquals(modified, cacheFolder.listFiles()[0].lastModified());
+    }
+
+    /**
+     * Tests that a changed source replaces the old cache file.
+     *
+     * @throws  Exception
+     */
+    public void testChangedSource()
+                           throws Exception
+    {
+        assertEquals("1", execute("'1';", 0));
+        assertEquals("2", execute("'2';", 0));
+        assertEquals(1, getCacheFileCount());
+    }
+
+    /**
+     * Tests that interpreted scripts are not cached.
+     *
+     * @throws  Exception
+     */
+    public void testInterpreted()
+                         throws Exception
+    {
+        assertEquals("1", execute("'1';", -1));
+        assertEquals(0, getCacheFileCount());
+    }
+
+    /**
+     * Tests that a different optimization level creates a separate cache entry.
+     *
+     * @throws  Exception
+     */
+    public void testOptimizationLevel()
+                               throws Exception
+    {
+        File otherScript = new File(cacheFolder.getParentFile(), "Other.js");
+
+        assertEquals("1", execute("'1';", 0));
+        scriptFile = otherScript;
+        assertEquals("1", execute("'1';", 9));
+        assertEquals(2, getCacheFileCount());
+    }
+
+    /**
+     * @see  junit.framework.TestCase#setUp()
+     */
+    @Override
+    protected void setUp()
+                  throws Exception
+    {
+        super.setUp();
+
+        cacheFolder = new File("./build/test/CompiledScriptCacheTest/cache");
+        scriptFile = new File(cacheFolder.getParentFile(), "Test.js");
+
+        if (cacheFolder.exists())
+        {
+            for (File f : cacheFolder.listFiles())
+            {
+                f.delete();
+            }
+        }
+    }
+
+    /**
+     * Compiles the script through the cache and executes it.
+     *
+     * @param   source             Script source.
+     * @param   optimizationLevel  Rhino optimization level.
+     *
+     * @return  Script result as a string.
+     *
+     * @throws  Exception
+     */
+    private String execute(String source, int optimizationLevel)
+                    throws Exception
+    {
+        CompiledScriptCache cache = new CompiledScriptCache(cacheFolder);
+        Context cx = new ScriptContextFactory().enterContext(optimizationLevel);
+
+        try
+        {
+            Scriptable scope = cx.initStandardObjects();
+            Script script = cache.getScript(cx, scriptFile, source);
+
+            return Context.toString(script.exec(cx, scope));
+        }
+        finally
+        {
+            Context.exit();
+        }
+    }
+
+    /**
+     * Returns the number of files in the cache folder.
+     *
+     * @return  File count.
+     */
+    private int getCacheFileCount()
+    {
+        return cacheFolder.listFiles().length;
+    }
+}
@@ -17,6 +17,16 @@
  */
 package com.cordys.coe.ac.scriptconnector.scripting;
 
+import com.cordys.coe.ac.scriptconnector.ScriptConnector;
+import com.cordys.coe.ac.scriptconnector.config.ScriptLocator;
+import com.cordys.coe.ac.scriptconnector.exception.ScriptAbortedException;
+import com.cordys.coe.ac.scriptconnector.exception.ScriptConnectorException;
+import com.cordys.coe.ac.scriptconnector.scripting.ConfiguredScript.E4XScript;
+
+import java.io.File;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Test cases for Javascript with E4X extension.
  *
@@ -24,6 +34,19 @@ package com.cordys.coe.ac.scriptconnector.scripting;
  */
 public class E4XHandlerTest extends ScriptHandlerTestCase
 {
+    /**
+     * Script which returns the optimization level of the Rhino context it is executed in.
+     */
+    private static final String OPTIMIZATION_LEVEL_SCRIPT = "var level = Packages.org.mozilla.javascript.Context.getCurrentContext().getOptimizationLevel();\n" +
+                                                            "Cordys.addResponseElement(<result xmlns='xxx'><data>{level}</data></result>.toXMLString());\n";
+    /**
+     * Namespace of the test methods.
+     */
+    private static final String NAMESPACE = "http://schemas.cordys.com/1.0/coe/ScriptConnector";
+    /**
+     * Number of times the top-level code of the handler function test script has been executed.
+     */
+    public static final AtomicInteger topLevelCount = new AtomicInteger();
     /**
      * Test XML for namespaces.
      */
@@ -149,4 +172,203 @@ public class E4XHandlerTest extends ScriptHandlerTestCase
 
         executeTest(script, "js", "<MESSAGE_ID>{CF1D101B-C5DA-407F-8B1C-82D3A44BD265}</MESSAGE_ID>");
     }
+    
+    /**
+     * Tests that a script is executed in interpreted mode (optimization level -1).
+     *
+     * @throws  Exception
+     */
+    public void testJavascriptE4X_Interpreted()
+                                                    throws Exception
+    {
+        extraConfigProperties = "Test.optimization=-1";
+        executeTest(OPTIMIZATION_LEVEL_SCRIPT, "js", "<result xmlns='xxx'><data>-1</data></result>");
+    }
+    
+    /**
+     * Tests that a script is executed with full optimization configured as the file default.
+     *
+     * @throws  Exception
+     */
+    public void testJavascriptE4X_DefaultOptimization()
+                                                    throws Exception
+    {
+        extraConfigProperties = "property.file.default.optimization=9";
+        executeTest(OPTIMIZATION_LEVEL_SCRIPT, "js", "<result xmlns='xxx'><data>9</data></result>");
+    }
+    
+    /**
+     * Tests that an invalid optimization level is rejected.
+     *
+     * @throws  Exception
+     */
+    public void testJavascriptE4X_InvalidOptimization()
+                                                    throws Exception
+    {
+        extraConfigProperties = "Test.optimization=10";
+        
+        try {
+            executeStaticTest("'';", "js");
+            fail("Invalid optimization level was accepted.");
+        }
+        catch (ScriptConnectorException expected) {
+        }
+    }
+    
+    /**
+     * Tests that the scripts use the same root scope for the standard objects, but have their own
+     * script scopes.
+     *
+     * @throws  Exception
+     */
+    public void testJavascriptE4X_SharedRootScope()
+                                                  throws Exception
+    {
+        String output = "Cordys.addResponseElement(<result xmlns='xxx'><data>{typeof leaked}</data></result>.toXMLString());\n";
+        File first = createTextFile("First.js", "var leaked = 'first';\n" + output);
+        File second = createTextFile("Second.js", output);
+        ScriptConnector connector = createConnector("First=" + first.getAbsolutePath().replace('\\', '/') + "\n" +
+                                                    "Second=" + second.getAbsolutePath().replace('\\', '/'));
+        
+        assertNodesEqual(parse("<FirstResponse xmlns='" + NAMESPACE + "'><result xmlns='xxx'><data>string</data></result></FirstResponse>"),
+                         getSoapMethod(executeScriptMethod(connector, "<First xmlns='" + NAMESPACE + "'/>", first)), true);
+        // Top-level variables of one script are not visible to the other scripts.
+        assertNodesEqual(parse("<SecondResponse xmlns='" + NAMESPACE + "'><result xmlns='xxx'><data>undefined</data></result></SecondResponse>"),
+                         getSoapMethod(executeScriptMethod(connector, "<Second xmlns='" + NAMESPACE + "'/>", second)), true);
+        
+        E4XScript firstScript = (E4XScript) connector.getScriptConfig().getScript(new ScriptLocator("First", NAMESPACE));
+        E4XScript secondScript = (E4XScript) connector.getScriptConfig().getScript(new ScriptLocator("Second", NAMESPACE));
+        
+        assertNotSame(firstScript.sSharedScope, secondScript.sSharedScope);
+        assertSame(connector.getRootScope(), firstScript.sSharedScope.getPrototype());
+        assertSame(connector.getRootScope(), secondScript.sSharedScope.getPrototype());
+    }
+    
+    /**
+     * Tests the handler function mode where the top-level code is executed only once.
+     *
+     * @throws  Exception
+     */
+    public void testJavascriptE4X_HandlerFunction()
+                                                    throws Exception
+    {
+        String script = "Packages." + E4XHandlerTest.class.getName() + ".topLevelCount.incrementAndGet();\n" +
+                        "function createResult(value) {\n" +
+                        "   return <result xmlns='xxx'><data>{value}</data></result>;\n" +
+                        "}\n" +
+                        "function handle(request) {\n" +
+                        "   Cordys.addResponseElement(createResult(request.localName()).toXMLString());\n" +
+                        "}\n";
+        File scriptFile = createTextFile("Test.js", script);
+        ScriptConnector connector = createConnector("Test=" + scriptFile.getAbsolutePath().replace('\\', '/') + "\n" +
+                                                    "Test.handler=handle");
+        int expected = parse("<TestResponse xmlns='" + NAMESPACE + "'><result xmlns='xxx'><data>Test</data></result></TestResponse>");
+        
+        topLevelCount.set(0);
+        
+        for (int i = 0; i < 2; i++) {
+            assertNodesEqual(expected, getSoapMethod(executeScriptMethod(connector, "<Test xmlns='" + NAMESPACE + "'/>", scriptFile)), true);
+        }
+        
+        // The top-level code is executed only when the script is loaded.
+        assertEquals(1, topLevelCount.get());
+    }
+    
+    /**
+     * Tests reading the request as an XML object.
+     *
+     * @throws  Exception
+     */
+    public void testJavascriptE4X_GetRequestXML()
+                                                    throws Exception
+    {
+        String script = "var request = Cordys.getRequestXML();\n" +
+                        "var result = <result xmlns='xxx'><data>{request.localName()}</data></result>;\n" +
+                        "Cordys.addResponseElement(result.toXMLString());\n";
+
+        executeTest(script, "js", "<result xmlns='xxx'><data>Test</data></result>");
+    }
+
+    /**
+     * Tests setting the response from an XML object.
+     *
+     * @throws  Exception
+     */
+    public void testJavascriptE4X_SetResponseXML()
+                                                    throws Exception
+    {
+        String script = "var ns = new Namespace('xxx');\n" +
+                        "var result = <response><result/></response>;\n" +
+                        "result.result.ns::data = 'value';\n" +
+                        "Cordys.setResponseXML(result);\n";
+
+        executeTest(script, "js", "<result><data xmlns='xxx'>value</data></result>");
+    }
+
+    /**
+     * Tests setting the response from an XML list object.
+     *
+     * @throws  Exception
+     */
+    public void testJavascriptE4X_SetResponseXMLList()
+                                                    throws Exception
+    {
+        String script = "Cordys.setResponseXML(<><result xmlns='xxx'><data>1</data></result><result xmlns='xxx'><data>2</data></result></>);\n";
+
+        executeTest(script, "js", "<result xmlns='xxx'><data>1</data></result><result xmlns='xxx'><data>2</data></result>");
+    }
+
+    /**
+     * Tests that a missing handler function is reported.
+     *
+     * @throws  Exception
+     */
+    public void testJavascriptE4X_HandlerFunctionMissing()
+                                                    throws Exception
+    {
+        extraConfigProperties = "Test.handler=handle";
+        
+        try {
+            executeStaticTest("function other() {}", "js");
+            fail("Missing handler function was not reported.");
+        }
+        catch (ScriptConnectorException expected) {
+        }
+    }
+    
+    /**
+     * Tests that a script exceeding the instruction limit is aborted.
+     *
+     * @throws  Exception
+     */
+    public void testJavascriptE4X_InstructionLimit()
+                                            throws Exception
+    {
+        extraConfigProperties = "Test.instructionLimit=100000";
+        
+        try {
+            executeStaticTest("try { while (true) {} } catch (e) {}", "js");
+            fail("Script was not aborted.");
+        }
+        catch (ScriptAbortedException expected) {
+        }
+    }
+    
+    /**
+     * Tests that a script exceeding the timeout is aborted.
+     *
+     * @throws  Exception
+     */
+    public void testJavascriptE4X_Timeout()
+                                   throws Exception
+    {
+        extraConfigProperties = "Test.timeout=0.2";
+        
+        try {
+            executeStaticTest("while (true) {}", "js");
+            fail("Script was not aborted.");
+        }
+        catch (ScriptAbortedException expected) {
+        }
+    }
 }
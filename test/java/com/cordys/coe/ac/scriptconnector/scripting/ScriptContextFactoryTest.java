@@ -0,0 +1,83 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.scripting;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import org.mozilla.javascript.Context;
+
+/**
+ * Test cases for the Rhino context factory.
+ */
+public class ScriptContextFactoryTest extends TestCase
+{
+    /**
+     * Tests that dynamic scope is enabled only for scripts executed in the handler function mode.
+     *
+     * @throws  Exception
+     */
+    public void testDynamicScope()
+                          throws Exception
+    {
+        ScriptContextFactory factory = new ScriptContextFactory();
+        ConfiguredScript script = ConfiguredScript.createInstance(null, new File("test.js"));
+
+        assertFalse(hasDynamicScope(factory, script));
+
+        script.setHandlerFunctionName("handle");
+        assertTrue(hasDynamicScope(factory, script));
+
+        script.setHandlerFunctionName(null);
+        assertFalse(hasDynamicScope(factory, script));
+
+        Context cx = factory.enterContext(ScriptContextFactory.DEFAULT_OPTIMIZATION_LEVEL);
+
+        try
+        {
+            assertFalse(cx.hasFeature(Context.FEATURE_DYNAMIC_SCOPE));
+        }
+        finally
+        {
+            Context.exit();
+        }
+    }
+
+    /**
+     * Enters a context for the script and returns the dynamic scope feature flag.
+     *
+     * @param   factory  Context factory.
+     * @param   script   Script.
+     *
+     * @return  <code>true</code> if dynamic scope is enabled.
+     */
+    private boolean hasDynamicScope(ScriptContextFactory factory, ConfiguredScript script)
+    {
+        Context cx = factory.enterContext(script);
+
+        try
+        {
+            return cx.hasFeature(Context.FEATURE_DYNAMIC_SCOPE);
+        }
+        finally
+        {
+            Context.exit();
+        }
+    }
+}
@@ -0,0 +1,376 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.scripting;
+
+import com.cordys.coe.ac.scriptconnector.exception.ScriptConnectorException;
+
+import java.io.Reader;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.script.AbstractScriptEngine;
+import javax.script.Bindings;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptEngineManager;
+import javax.script.SimpleBindings;
+
+import junit.framework.TestCase;
+
+/**
+ * Test cases for the script engine pool.
+ */
+public class ScriptEnginePoolTest extends TestCase
+{
+    /**
+     * Tests that engines which are not thread-safe are checked out and returned.
+     *
+     * @throws  Exception
+     */
+    public void testCheckoutPool()
+                          throws Exception
+    {
+        ScriptEnginePool pool = createPool(null, 2, 1000);
+        ScriptEnginePool.PooledEngine e1 = pool.acquire("test");
+        ScriptEnginePool.PooledEngine e2 = pool.acquire("test");
+
+        assertNotSame(e1, e2);
+        assertFalse(e1.isShared());
+        assertEquals(2, pool.getMissCount());
+
+        pool.release(e1);
+        pool.release(e2);
+
+        // Returned engines are reused.
+        assertSame(e1, pool.acquire("test"));
+        assertSame(e2, pool.acquire("test"));
+        assertEquals(2, pool.getHitCount());
+        assertEquals(2, pool.getMissCount());
+    }
+
+    /**
+     * Tests that the number of checked out engines is bounded by the pool size.
+     *
+     * @throws  Exception
+     */
+    public void testCheckoutLimit()
+                           throws Exception
+    {
+        final ScriptEnginePool pool = createPool(null, 1, 100);
+        final ScriptEnginePool.PooledEngine e1 = pool.acquire("test");
+
+        try
+        {
+            pool.acquire("test");
+            fail("Checkout should have timed out.");
+        }
+        catch (ScriptConnectorException expected)
+        {
+        }
+
+        assertEquals(1, pool.getCheckoutTimeoutCount());
+        assertEquals(1, pool.getMissCount());
+        assertNull(pool.getSharedEngine("test"));
+
+        // A waiting caller gets the engine when it is returned.
+        Thread t = new Thread(new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        Thread.sleep(20);
+                    }
+                    catch (InterruptedException ignored)
+                    {
+                    }
+
+                    pool.release(e1);
+                }
+            });
+
+        t.start();
+
+        assertSame(e1, pool.acquire("test"));
+        t.join();
+        assertEquals(1, pool.getMissCount());
+    }
+
+    /**
+     * Tests that MULTITHREADED engines are shared.
+     *
+     * @throws  Exception
+     */
+    public void testSharedEngine()
+                          throws Exception
+    {
+        ScriptEnginePool pool = createPool("MULTITHREADED", 1, 1000);
+        ScriptEnginePool.PooledEngine e1 = pool.acquire("test");
+
+        pool.release(e1);
+
+        assertTrue(e1.isShared());
+        assertSame(e1, pool.acquire("test"));
+        assertSame(e1, pool.getSharedEngine("test"));
+        assertEquals(1, pool.getMissCount());
+        assertEquals(2, pool.getHitCount());
+    }
+
+    /**
+     * Tests that THREAD-ISOLATED engines are kept per thread.
+     *
+     * @throws  Exception
+     */
+    public void testThreadIsolatedEngine()
+                                  throws Exception
+    {
+        final ScriptEnginePool pool = createPool("THREAD-ISOLATED", 1, 1000);
+        final ScriptEnginePool.PooledEngine[] other = new ScriptEnginePool.PooledEngine[1];
+        final Exception[] error = new Exception[1];
+        ScriptEnginePool.PooledEngine e1 = pool.acquire("test");
+
+        pool.release(e1);
+        assertSame(e1, pool.acquire("test"));
+        assertNull(pool.getSharedEngine("test"));
+
+        Thread t = new Thread(new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        other[0] = pool.acquire("test");
+                    }
+                    catch (Exception e)
+                    {
+                        error[0] = e;
+                    }
+                }
+            });
+
+        t.start();
+        t.join();
+
+        if (error[0] != null)
+        {
+            // Fail the test with the exception from the other thread.
+            throw error[0];
+        }
+
+        assertNotNull(other[0]);
+        assertNotSame(e1, other[0]);
+        assertEquals(2, pool.getMissCount());
+    }
+
+    /**
+     * Creates a pool with the test engine factory.
+     *
+     * @param   threading        Engine THREADING parameter.
+     * @param   maxPoolSize      Pool size.
+     * @param   checkoutTimeout  Checkout timeout in milliseconds.
+     *
+     * @return  New pool.
+     */
+    private ScriptEnginePool createPool(String threading, int maxPoolSize, long checkoutTimeout)
+    {
+        ScriptEngineManager manager = new ScriptEngineManager();
+
+        manager.registerEngineExtension("test", new TestEngineFactory(threading));
+
+        return new ScriptEnginePool(maxPoolSize, checkoutTimeout, manager);
+    }
+
+    /**
+     * Script engine which returns the script text.
+     */
+    private static class TestEngine extends AbstractScriptEngine
+    {
+        /**
+         * Factory which created this engine.
+         */
+        private ScriptEngineFactory factory;
+
+        /**
+         * Constructor for TestEngine.
+         *
+         * @param  factory  Factory.
+         */
+        TestEngine(ScriptEngineFactory factory)
+        {
+            this.factory = factory;
+        }
+
+        /**
+         * @see  javax.script.ScriptEngine#createBindings()
+         */
+        public Bindings createBindings()
+        {
+            return new SimpleBindings();
+        }
+
+        /**
+         * @see  javax.script.ScriptEngine#eval(java.io.Reader, javax.script.ScriptContext)
+         */
+        public Object eval(Reader reader, ScriptContext context)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * @see  javax.script.ScriptEngine#eval(java.lang.String, javax.script.ScriptContext)
+         */
+        public Object eval(String script, ScriptContext context)
+        {
+            return script;
+        }
+
+        /**
+         * @see  javax.script.ScriptEngine#getFactory()
+         */
+        public ScriptEngineFactory getFactory()
+        {
+            return factory;
+        }
+    }
+
+    /**
+     * Factory for the test engine.
+     */
+    private static class TestEngineFactory
+        implements ScriptEngineFactory
+    {
+        /**
+         * Engine THREADING parameter.
+         */
+        private String threading;
+
+        /**
+         * Constructor for TestEngineFactory.
+         *
+         * @param  threading  Engine THREADING parameter.
+         */
+        TestEngineFactory(String threading)
+        {
+            this.threading = threading;
+        }
+
+        /**
+         * @see  javax.script.ScriptEngineFactory#getEngineName()
+         */
+        public String getEngineName()
+        {
+            return "test";
+        }
+
+        /**
+         * @see  javax.script.ScriptEngineFactory#getEngineVersion()
+         */
+        public String getEngineVersion()
+        {
+            return "1.0";
+        }
+
+        /**
+         * @see  javax.script.ScriptEngineFactory#getExtensions()
+         */
+        public List<String> getExtensions()
+        {
+            return Collections.singletonList("test");
+        }
+
+        /**
+         * @see  javax.script.ScriptEngineFactory#getLanguageName()
+         */
+        public String getLanguageName()
+        {
+            return "test";
+        }
+
+        /**
+         * @see  javax.script.ScriptEngineFactory#getLanguageVersion()
+         */
+        public String getLanguageVersion()
+        {
+            return "1.0";
+        }
+
+        /**
+         * @see  javax.script.ScriptEngineFactory#getMethodCallSyntax(java.lang.String,
+         *       java.lang.String, java.lang.String[])
+         */
+        public String getMethodCallSyntax(String obj, String m, String... args)
+        {
+            return null;
+        }
+
+        /**
+         * @see  javax.script.ScriptEngineFactory#getMimeTypes()
+         */
+        public List<String> getMimeTypes()
+        {
+            return Collections.emptyList();
+        }
+
+        /**
+         * @see  javax.script.ScriptEngineFactory#getNames()
+         */
+        public List<String> getNames()
+        {
+            return Collections.singletonList("test");
+        }
+
+        /**
+         * @see  javax.script.ScriptEngineFactory#getOutputStatement(java.lang.String)
+         */
+        public String getOutputStatement(String toDisplay)
+        {
+            return null;
+        }
+
+        /**
+         * @see  javax.script.ScriptEngineFactory#getParameter(java.lang.String)
+         */
+        public Object getParameter(String key)
+        {
+            if ("THREADING".equals(key))
+            {
+                return threading;
+            }
+
+            return null;
+        }
+
+        /**
+         * @see  javax.script.ScriptEngineFactory#getProgram(java.lang.String[])
+         */
+        public String getProgram(String... statements)
+        {
+            return null;
+        }
+
+        /**
+         * @see  javax.script.ScriptEngineFactory#getScriptEngine()
+         */
+        public ScriptEngine getScriptEngine()
+        {
+            return new TestEngine(this);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.scripting;
+
+import java.io.File;
+
+import java.util.concurrent.ScheduledFuture;
+
+import junit.framework.TestCase;
+
+/**
+ * Test cases for the script watchdog.
+ */
+public class ScriptWatchdogTest extends TestCase
+{
+    /**
+     * Watchdog used by the tests.
+     */
+    private ScriptWatchdog watchdog;
+
+    /**
+     * Tests that a finished script run is not aborted.
+     *
+     * @throws  Exception
+     */
+    public void testFinishedScript()
+                            throws Exception
+    {
+        ExecutionBudget budget = new ExecutionBudget(createScript(10000));
+
+        budget.finish();
+
+        assertFalse(budget.abort("test"));
+        assertNull(budget.getAbortReason());
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    /**
+     * Tests that a script blocked in a call is interrupted when the deadline has passed and that
+     * the interrupt status is cleared when the run is finished.
+     *
+     * @throws  Exception
+     */
+    public void testInterruptBlockedScript()
+                                    throws Exception
+    {
+        ExecutionBudget budget = new ExecutionBudget(createScript(50));
+        ScheduledFuture<?> future = watchdog.watch(budget);
+        boolean interrupted = false;
+
+        try
+        {
+            Thread.sleep(5000);
+        }
+        catch (InterruptedException e)
+        {
+            interrupted = true;
+
+            // Leave the interrupt status set, as a blocking call could do.
+            Thread.currentThread().interrupt();
+        }
+
+        future.cancel(false);
+        budget.finish();
+
+        assertTrue(interrupted);
+        assertNotNull(budget.getAbortReason());
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    /**
+     * @see  junit.framework.TestCase#setUp()
+     */
+    @Override
+    protected void setUp()
+                  throws Exception
+    {
+        super.setUp();
+
+        watchdog = new ScriptWatchdog();
+    }
+
+    /**
+     * @see  junit.framework.TestCase#tearDown()
+     */
+    @Override
+    protected void tearDown()
+                     throws Exception
+    {
+        watchdog.stop();
+
+        // Clear the interrupt status in case a test failed.
+        Thread.interrupted();
+
+        super.tearDown();
+    }
+
+    /**
+     * Creates a script with the given timeout.
+     *
+     * @param   timeout  Timeout in milliseconds.
+     *
+     * @return  Script.
+     *
+     * @throws  Exception
+     */
+    private ConfiguredScript createScript(long timeout)
+                                   throws Exception
+    {
+        ConfiguredScript script = ConfiguredScript.createInstance(null, new File("test.js"));
+
+        script.setTimeout(timeout);
+
+        return script;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.soap;
+
+import com.cordys.coe.ac.scriptconnector.ScriptConnectorStub;
+import com.cordys.coe.ac.scriptconnector.ScriptConnectorTestCase;
+import com.cordys.coe.ac.scriptconnector.config.ScriptConnectorConfiguration;
+import com.cordys.coe.ac.scriptconnector.exception.ScriptConnectorException;
+
+/**
+ * Test cases for the outbound SOAP request.
+ */
+public class OutboundSoapRequestTest extends ScriptConnectorTestCase
+{
+    /**
+     * Connector which records the sent requests.
+     */
+    private SendConnectorStub connector;
+
+    /**
+     * Tests that a request which is abandoned while it is in the queue is not sent.
+     *
+     * @throws  Exception
+     */
+    public void testAbandonQueued()
+                           throws Exception
+    {
+        OutboundSoapRequest request = new OutboundSoapRequest(connector, createMessage());
+
+        assertTrue(request.abandon());
+        assertTrue(request.isDone());
+
+        request.run();
+
+        assertEquals(0, connector.sendCount);
+        assertNull(request.takeResponse());
+        assertNull(request.getError());
+    }
+
+    /**
+     * Tests that a request which is abandoned while it is being sent is not stopped and its
+     * response is deleted.
+     *
+     * @throws  Exception
+     */
+    public void testAbandonInFlight()
+                             throws Exception
+    {
+        final OutboundSoapRequest request = new OutboundSoapRequest(connector, createMessage());
+        final boolean[] abandoned = new boolean[1];
+
+        connector.onSend = new Runnable()
+            {
+                public void run()
+                {
+                    abandoned[0] = request.abandon();
+                }
+            };
+        request.run();
+
+        assertFalse(abandoned[0]);
+        assertEquals(1, connector.sendCount);
+        assertTrue(request.isDone());
+        assertNull(request.takeResponse());
+        assertFalse(request.abandon());
+    }
+
+    /**
+     * Tests that the response of a request which is not abandoned is kept.
+     *
+     * @throws  Exception
+     */
+    public void testResponse()
+                      throws Exception
+    {
+        OutboundSoapRequest request = new OutboundSoapRequest(connector, createMessage());
+
+        request.run();
+
+        ScriptSoapMessage response = request.takeResponse();
+
+        assertNotNull(response);
+        assertEquals("GetDataResponse", response.getMethodName());
+        response.clear();
+        assertFalse(request.abandon());
+    }
+
+    /**
+     * @see  com.cordys.coe.ac.scriptconnector.ScriptConnectorTestCase#setUp()
+     */
+    @Override
+    protected void setUp()
+                  throws Exception
+    {
+        super.setUp();
+
+        ScriptConnectorConfiguration config = new ScriptConnectorConfiguration(null,
+                                                                               createAppConfigXml(null,
+                                                                                                  null,
+                                                                                                  null),
+                                                                               configFolder);
+
+        connector = new SendConnectorStub(config);
+    }
+
+    /**
+     * Creates a request message.
+     *
+     * @return  New message.
+     *
+     * @throws  ScriptConnectorException
+     */
+    private ScriptSoapMessage createMessage()
+                                     throws ScriptConnectorException
+    {
+        ScriptSoapMessage msg = new ScriptSoapMessage(connector.getDocument());
+
+        msg.setMethodAsString("<GetData xmlns='http://test'/>", false);
+
+        return msg;
+    }
+
+    /**
+     * Connector stub which counts the sent requests and returns a response for each of them.
+     */
+    private static class SendConnectorStub extends ScriptConnectorStub
+    {
+        /**
+         * Called when a request is sent.
+         */
+        private Runnable onSend;
+        /**
+         * Number of sent requests.
+         */
+        private int sendCount;
+
+        /**
+         * Constructor for SendConnectorStub.
+         *
+         * @param  config  Configuration object.
+         */
+        SendConnectorStub(ScriptConnectorConfiguration config)
+        {
+            super(config, null);
+        }
+
+        /**
+         * @see  com.cordys.coe.ac.scriptconnector.ScriptConnector#sendSoapRequestAndWait(com.cordys.coe.ac.scriptconnector.soap.ScriptSoapMessage,
+         *       boolean)
+         */
+        @Override
+        public ScriptSoapMessage sendSoapRequestAndWait(ScriptSoapMessage msg,
+                                                        boolean checkSoapFault)
+                                                 throws ScriptConnectorException
+        {
+            ScriptSoapMessage res = new ScriptSoapMessage(getDocument());
+
+            sendCount++;
+
+            if (onSend != null)
+            {
+                onSend.run();
+            }
+
+            res.setMethodAsString("<GetDataResponse xmlns='http://test'/>", false);
+
+            return res;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.soap;
+
+import com.cordys.coe.ac.scriptconnector.config.OutboundPolicy;
+import com.cordys.coe.ac.scriptconnector.exception.BulkheadFullException;
+import com.cordys.coe.ac.scriptconnector.exception.CircuitOpenException;
+import com.cordys.coe.util.test.junit.NomTestCase;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Test cases for the outbound target guard.
+ */
+public class OutboundTargetTest extends NomTestCase
+{
+    /**
+     * Tests that the breaker opens after consecutive failures and is closed by a successful
+     * probe.
+     *
+     * @throws  Exception
+     */
+    public void testBreaker()
+                     throws Exception
+    {
+        OutboundPolicy policy = createPolicy(OutboundPolicy.SETTING_BREAKER_FAILURE_THRESHOLD, "2",
+                                             OutboundPolicy.SETTING_BREAKER_OPEN_TIME, "0.1");
+        OutboundTarget target = new OutboundTarget("GetData", "http://test");
+
+        target.release(policy, target.acquire(policy), false);
+        assertEquals(OutboundTarget.STATE_CLOSED, target.getState());
+
+        target.release(policy, target.acquire(policy), false);
+        assertEquals(OutboundTarget.STATE_OPEN, target.getState());
+
+        try
+        {
+            target.acquire(policy);
+            fail("Exception was not thrown.");
+        }
+        catch (CircuitOpenException ignored)
+        {
+        }
+
+        Thread.sleep(150);
+        assertEquals(OutboundTarget.STATE_HALF_OPEN, target.getState());
+
+        // Only one probe is let through.
+        boolean probe = target.acquire(policy);
+
+        assertTrue(probe);
+
+        try
+        {
+            target.acquire(policy);
+            fail("Exception was not thrown.");
+        }
+        catch (CircuitOpenException ignored)
+        {
+        }
+
+        target.release(policy, probe, true);
+
+        assertEquals(OutboundTarget.STATE_CLOSED, target.getState());
+        assertFalse(target.acquire(policy));
+        assertEquals(2, target.getShortCircuitCount());
+        assertEquals(1, target.getOpenCount());
+    }
+
+    /**
+     * Tests that a SOAP:Fault response counts as a failure, also for the probe, and a normal
+     * response closes the breaker.
+     *
+     * @throws  Exception
+     */
+    public void testBreakerFault()
+                          throws Exception
+    {
+        OutboundPolicy policy = createPolicy(OutboundPolicy.SETTING_BREAKER_FAILURE_THRESHOLD, "2",
+                                             OutboundPolicy.SETTING_BREAKER_OPEN_TIME, "0.1");
+        OutboundTarget target = new OutboundTarget("GetData", "http://test");
+        int fault = parse("<SOAP:Envelope xmlns:SOAP=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
+                          "<SOAP:Body><SOAP:Fault><faultcode>Server</faultcode>" +
+                          "<faultstring>Test error</faultstring></SOAP:Fault></SOAP:Body>" +
+                          "</SOAP:Envelope>");
+        int response = parse("<SOAP:Envelope xmlns:SOAP=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
+                             "<SOAP:Body><GetDataResponse xmlns=\"http://test\"/></SOAP:Body>" +
+                             "</SOAP:Envelope>");
+
+        target.release(policy, target.acquire(policy), fault);
+        target.release(policy, target.acquire(policy), fault);
+        assertEquals(OutboundTarget.STATE_OPEN, target.getState());
+        assertEquals(2, target.getFailureCount());
+
+        // A probe which receives a fault does not close the breaker.
+        Thread.sleep(150);
+        target.release(policy, target.acquire(policy), fault);
+        assertEquals(OutboundTarget.STATE_OPEN, target.getState());
+
+        Thread.sleep(150);
+        target.release(policy, target.acquire(policy), response);
+        assertEquals(OutboundTarget.STATE_CLOSED, target.getState());
+
+        // No response is a failure.
+        target.release(policy, target.acquire(policy), 0);
+        assertEquals(4, target.getFailureCount());
+    }
+
+    /**
+     * Tests that a failed probe opens the breaker again.
+     *
+     * @throws  Exception
+     */
+    public void testBreakerProbeFails()
+                               throws Exception
+    {
+        OutboundPolicy policy = createPolicy(OutboundPolicy.SETTING_BREAKER_FAILURE_THRESHOLD, "1",
+                                             OutboundPolicy.SETTING_BREAKER_OPEN_TIME, "0.1");
+        OutboundTarget target = new OutboundTarget("GetData", "http://test");
+
+        target.release(policy, target.acquire(policy), false);
+        Thread.sleep(150);
+        target.release(policy, target.acquire(policy), false);
+
+        assertEquals(OutboundTarget.STATE_OPEN, target.getState());
+        assertEquals(2, target.getOpenCount());
+    }
+
+    /**
+     * Tests the concurrency limit.
+     *
+     * @throws  Exception
+     */
+    public void testBulkhead()
+                      throws Exception
+    {
+        OutboundPolicy policy = createPolicy(OutboundPolicy.SETTING_MAX_CONCURRENT, "2");
+        OutboundTarget target = new OutboundTarget("GetData", "http://test");
+
+        target.acquire(policy);
+        target.acquire(policy);
+
+        try
+        {
+            target.acquire(policy);
+            fail("Exception was not thrown.");
+        }
+        catch (BulkheadFullException ignored)
+        {
+        }
+
+        target.release(policy, false, true);
+        target.acquire(policy);
+
+        assertEquals(2, target.getActiveCount());
+        assertEquals(1, target.getRejectedCount());
+
+        // Failures do not open the breaker when it is not enabled.
+        target.release(policy, false, false);
+        target.release(policy, false, false);
+        assertEquals(OutboundTarget.STATE_CLOSED, target.getState());
+    }
+
+    /**
+     * Creates a policy from the setting names and values.
+     *
+     * @param   settings  Setting names and values.
+     *
+     * @return  Policy.
+     *
+     * @throws  Exception
+     */
+    private static OutboundPolicy createPolicy(String... settings)
+                                        throws Exception
+    {
+        Map<String, String> map = new HashMap<String, String>();
+
+        for (int i = 0; i < settings.length; i += 2)
+        {
+            map.put(settings[i], settings[i + 1]);
+        }
+
+        return OutboundPolicy.parse("outbound.GetData.", map);
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.soap;
+
+import com.cordys.coe.ac.scriptconnector.ScriptConnectorStub;
+import com.cordys.coe.ac.scriptconnector.ScriptConnectorTestCase;
+import com.cordys.coe.ac.scriptconnector.config.ScriptConnectorConfiguration;
+import com.cordys.coe.ac.scriptconnector.exception.ScriptConnectorException;
+import com.cordys.coe.ac.scriptconnector.scheduler.RequestJournal;
+import com.cordys.coe.ac.scriptconnector.scheduler.ScheduledTask;
+
+import com.eibus.xml.nom.Node;
+
+import java.io.File;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Test cases for the scheduled request batcher.
+ */
+public class RequestBatcherTest extends ScriptConnectorTestCase
+{
+    /**
+     * Batch window used by the tests.
+     */
+    private static final long WINDOW = 5000;
+    /**
+     * Connector which records the scheduled tasks and sent requests.
+     */
+    private BatchConnectorStub connector;
+    /**
+     * Executor of the batcher.
+     */
+    private OutboundExecutor executor;
+    /**
+     * Folder for the saved transactions.
+     */
+    private File txnSaveFolder;
+
+    /**
+     * Tests that the requests are grouped by the method and that the batch is sent after the
+     * batch window.
+     *
+     * @throws  Exception
+     */
+    public void testGrouping()
+                      throws Exception
+    {
+        RequestBatcher batcher = createBatcher();
+
+        batcher.add(createRequest("GetData", null, "1"));
+        batcher.add(createRequest("GetData", null, "2"));
+        batcher.add(createRequest("GetOther", null, "3"));
+
+        // One task for each batch, scheduled after the window.
+        assertEquals(2, connector.tasks.size());
+        assertEquals(WINDOW, connector.delays.get(0).longValue());
+        assertEquals(WINDOW, connector.delays.get(1).longValue());
+        assertEquals(3, batcher.getWaitingCount());
+        assertEquals(0, connector.sent.size());
+
+        connector.tasks.get(0).run();
+
+        assertEquals(1, batcher.getWaitingCount());
+        assertEquals(1, batcher.getBatchCount());
+        assertEquals(2, batcher.getBatchedCount());
+        assertEquals(2, connector.sent.size());
+        assertTrue(connector.sent.contains("GetData-1"));
+        assertTrue(connector.sent.contains("GetData-2"));
+
+        connector.tasks.get(1).run();
+
+        assertEquals(0, batcher.getWaitingCount());
+        assertEquals(2, batcher.getBatchCount());
+        assertEquals(3, batcher.getBatchedCount());
+        assertTrue(connector.sent.contains("GetOther-3"));
+
+        // Running the task again does not send the batch twice.
+        connector.tasks.get(0).run();
+        assertEquals(3, connector.sent.size());
+    }
+
+    /**
+     * Tests that a full batch is sent immediately without waiting for the batch window.
+     *
+     * @throws  Exception
+     */
+    public void testFullBatch()
+                       throws Exception
+    {
+        RequestBatcher batcher = createBatcher();
+
+        for (int i = 0; i < RequestBatcher.MAX_BATCH_SIZE; i++)
+        {
+            batcher.add(createRequest("GetData", null, Integer.toString(i)));
+        }
+
+        assertEquals(1, connector.tasks.size());
+        assertEquals(0, batcher.getWaitingCount());
+        assertEquals(1, batcher.getBatchCount());
+        assertEquals(RequestBatcher.MAX_BATCH_SIZE, batcher.getBatchedCount());
+        assertEquals(RequestBatcher.MAX_BATCH_SIZE, connector.sent.size());
+
+        // The next request starts a new batch.
+        batcher.add(createRequest("GetData", null, "next"));
+        assertEquals(2, connector.tasks.size());
+        assertEquals(1, batcher.getWaitingCount());
+
+        // The window task of the full batch does nothing.
+        connector.tasks.get(0).run();
+        assertEquals(RequestBatcher.MAX_BATCH_SIZE, connector.sent.size());
+    }
+
+    /**
+     * Tests that the request and response are saved for each request of the batch and the
+     * requests are removed from the journal.
+     *
+     * @throws  Exception
+     */
+    public void testSaveAndJournal()
+                            throws Exception
+    {
+        RequestJournal journal = new RequestJournal(new File(configFolder, "journal.dat"));
+
+        journal.open();
+        connector.setJournal(journal);
+
+        RequestBatcher batcher = createBatcher();
+        DelayedSoapRequest req1 = createRequest("GetData", "txn1", "1");
+        DelayedSoapRequest req2 = createRequest("GetData", "txn2", "2");
+
+        connector.scheduleSoapRequest(req1, 0);
+        connector.scheduleSoapRequest(req2, 0);
+        connector.tasks.clear();
+        connector.delays.clear();
+
+        assertEquals(2, journal.getLiveCount());
+        assertEquals(2, connector.getScheduledRequests().size());
+
+        // The scheduler passes the due requests to the batcher.
+        batcher.add(req1);
+        batcher.add(req2);
+        connector.tasks.get(0).run();
+
+        assertEquals(2, connector.sent.size());
+        assertEquals(0, journal.getLiveCount());
+        assertEquals(0, connector.getScheduledRequests().size());
+
+        for (String id : new String[] { "txn1", "txn2" })
+        {
+            assertTrue(id, new File(txnSaveFolder, id + "_request_1.xml").exists());
+            assertTrue(id, new File(txnSaveFolder, id + "_response_1.xml").exists());
+            assertFalse(id, new File(txnSaveFolder, id + "_request_2.xml").exists());
+        }
+
+        journal.close();
+    }
+
+    /**
+     * @see  com.cordys.coe.ac.scriptconnector.ScriptConnectorTestCase#setUp()
+     */
+    @Override
+    protected void setUp()
+                  throws Exception
+    {
+        super.setUp();
+
+        txnSaveFolder = new File(configFolder, "txn").getAbsoluteFile();
+        txnSaveFolder.mkdirs();
+
+        ScriptConnectorConfiguration config = new ScriptConnectorConfiguration(null,
+                                                                               createAppConfigXml(null,
+                                                                                                  null,
+                                                                                                  txnSaveFolder),
+                                                                               configFolder);
+
+        connector = new BatchConnectorStub(config);
+        executor = new OutboundExecutor("Batch", 4, RequestBatcher.getQueueSize(1));
+    }
+
+    /**
+     * @see  com.cordys.coe.ac.scriptconnector.ScriptConnectorTestCase#tearDown()
+     */
+    @Override
+    protected void tearDown()
+                     throws Exception
+    {
+        executor.stop();
+        super.tearDown();
+    }
+
+    /**
+     * Creates the batcher.
+     *
+     * @return  New batcher.
+     */
+    private RequestBatcher createBatcher()
+    {
+        return new RequestBatcher(connector, WINDOW, executor);
+    }
+
+    /**
+     * Creates a request.
+     *
+     * @param   methodName  Method name.
+     * @param   saveId      Transaction save ID or <code>null</code>.
+     * @param   id          Value of the id element.
+     *
+     * @return  New request.
+     *
+     * @throws  ScriptConnectorException
+     */
+    private DelayedSoapRequest createRequest(String methodName, String saveId, String id)
+                                      throws ScriptConnectorException
+    {
+        ScriptSoapMessage msg = new ScriptSoapMessage(dDoc);
+
+        msg.setUserDn("cn=user");
+        msg.setOrgDn("o=org");
+        msg.setMethodAsString("<" + methodName + " xmlns='http://test'><id>" + id + "</id></" +
+                              methodName + ">", false);
+
+        return new DelayedSoapRequest(connector, saveId, msg, true, true);
+    }
+
+    /**
+     * Connector stub which records the scheduled tasks and returns a response for each sent
+     * request.
+     */
+    private static class BatchConnectorStub extends ScriptConnectorStub
+    {
+        /**
+         * Delays of the scheduled tasks.
+         */
+        private List<Long> delays = new ArrayList<Long>();
+        /**
+         * Sent requests as method name and id element value.
+         */
+        private List<String> sent = Collections.synchronizedList(new ArrayList<String>());
+        /**
+         * Scheduled tasks.
+         */
+        private List<Runnable> tasks = new ArrayList<Runnable>();
+
+        /**
+         * Constructor for BatchConnectorStub.
+         *
+         * @param  config  Configuration object.
+         */
+        BatchConnectorStub(ScriptConnectorConfiguration config)
+        {
+            super(config, null);
+        }
+
+        /**
+         * @see  com.cordys.coe.ac.scriptconnector.ScriptConnector#scheduleTasks(java.lang.Runnable,
+         *       long)
+         */
+        @Override
+        public ScheduledTask scheduleTasks(Runnable task, long delay)
+        {
+            tasks.add(task);
+            delays.add(delay);
+
+            return null;
+        }
+
+        /**
+         * @see  com.cordys.coe.ac.scriptconnector.ScriptConnector#sendSoapRequestAndWait(com.cordys.coe.ac.scriptconnector.soap.ScriptSoapMessage,
+         *       boolean)
+         */
+        @Override
+        public ScriptSoapMessage sendSoapRequestAndWait(ScriptSoapMessage msg,
+                                                        boolean checkSoapFault)
+                                                 throws ScriptConnectorException
+        {
+            String id = Node.getDataElement(msg.getSoapMethodRoot(), "id", "");
+            ScriptSoapMessage res = new ScriptSoapMessage(getDocument());
+
+            sent.add(msg.getMethodName() + "-" + id);
+            res.setMethodAsString("<" + msg.getMethodName() + "Response xmlns='http://test'><id>" +
+                                  id + "</id></" + msg.getMethodName() + "Response>", false);
+
+            return res;
+        }
+
+        /**
+         * Sets the request journal.
+         *
+         * @param  journal  Request journal.
+         */
+        void setJournal(RequestJournal journal)
+        {
+            this.requestJournal = journal;
+        }
+    }
+}
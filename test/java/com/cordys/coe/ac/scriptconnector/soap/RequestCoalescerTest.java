@@ -0,0 +1,412 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.soap;
+
+import com.cordys.coe.ac.scriptconnector.ScriptConnector;
+import com.cordys.coe.ac.scriptconnector.ScriptConnectorStub;
+import com.cordys.coe.ac.scriptconnector.ScriptConnectorTestCase;
+import com.cordys.coe.ac.scriptconnector.aclib.NomConnectorStub;
+import com.cordys.coe.ac.scriptconnector.config.ScriptConnectorConfiguration;
+import com.cordys.coe.ac.scriptconnector.exception.CircuitOpenException;
+import com.cordys.coe.ac.scriptconnector.exception.ScriptConnectorException;
+import com.cordys.coe.util.soap.SOAPException;
+
+import com.eibus.exception.ExceptionGroup;
+import com.eibus.exception.TimeoutException;
+
+import com.eibus.xml.nom.Document;
+
+import java.io.File;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test cases for the request coalescer.
+ */
+public class RequestCoalescerTest extends ScriptConnectorTestCase
+{
+    /**
+     * Tests that the followers of an abandoned request receive no response and join again.
+     *
+     * @throws  Exception
+     */
+    public void testAbandon()
+                     throws Exception
+    {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        RequestCoalescer.Call leader = coalescer.join(createKey("1"));
+        RequestCoalescer.Call follower = coalescer.join(createKey("1"));
+
+        leader.abandon();
+
+        assertEquals(0, follower.awaitResponse(1000));
+        assertEquals(0, coalescer.getInFlightCount());
+        assertTrue(coalescer.join(createKey("1")).isLeader());
+    }
+
+    /**
+     * Tests that a follower receives its own copy of the leader's response.
+     *
+     * @throws  Exception
+     */
+    public void testCoalesce()
+                      throws Exception
+    {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        RequestCoalescer.Call leader = coalescer.join(createKey("1"));
+        RequestCoalescer.Call follower = coalescer.join(createKey("1"));
+        RequestCoalescer.Call other = coalescer.join(createKey("2"));
+
+        assertTrue(leader.isLeader());
+        assertFalse(follower.isLeader());
+        assertTrue(other.isLeader());
+        assertEquals(1, coalescer.getCoalescedCount());
+        assertEquals(2, coalescer.getInFlightCount());
+
+        int response = addNomGarbage(parse("<response><a>1</a></response>"));
+
+        leader.complete(response);
+
+        int copy = addNomGarbage(follower.awaitResponse(1000));
+
+        assertTrue(copy != response);
+        assertNodesEqual(response, copy);
+        assertEquals(1, coalescer.getInFlightCount());
+
+        // The completed request is not joined anymore.
+        assertTrue(coalescer.join(createKey("1")).isLeader());
+    }
+
+    /**
+     * Tests that the leader's error is passed to the followers with the same exception type.
+     *
+     * @throws  Exception
+     */
+    public void testFail()
+                  throws Exception
+    {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        RequestCoalescer.Call leader = coalescer.join(createKey("1"));
+        RequestCoalescer.Call follower = coalescer.join(createKey("1"));
+
+        RequestCoalescer.Call follower2 = coalescer.join(createKey("1"));
+        ScriptConnectorException error = new CircuitOpenException("Test error");
+
+        leader.fail(error);
+
+        try
+        {
+            follower.awaitResponse(1000);
+            fail("Exception was not thrown.");
+        }
+        catch (CircuitOpenException e)
+        {
+            assertEquals("Test error", e.getMessage());
+        }
+
+        try
+        {
+            follower2.awaitResponse(1000);
+            fail("Exception was not thrown.");
+        }
+        catch (ScriptConnectorException e)
+        {
+            assertSame(error, e);
+        }
+
+        assertEquals(0, coalescer.getInFlightCount());
+    }
+
+    /**
+     * Tests that a follower waits for the leader which completes the request in another thread.
+     *
+     * @throws  Exception
+     */
+    public void testWait()
+                  throws Exception
+    {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        final RequestCoalescer.Call leader = coalescer.join(createKey("1"));
+        RequestCoalescer.Call follower = coalescer.join(createKey("1"));
+        final int response = addNomGarbage(parse("<response><a>1</a></response>"));
+        Thread t = new Thread(new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        Thread.sleep(100);
+                    }
+                    catch (InterruptedException ignored)
+                    {
+                    }
+
+                    leader.complete(response);
+                }
+            });
+
+        t.start();
+
+        int copy = addNomGarbage(follower.awaitResponse(5000));
+
+        t.join();
+
+        assertNodesEqual(response, copy);
+    }
+
+    /**
+     * Tests that a follower fails immediately when the leader throws an Error, and that the
+     * request is not left in flight.
+     *
+     * @throws  Exception
+     */
+    public void testLeaderError()
+                         throws Exception
+    {
+        BlockingConnectorStub nom = new BlockingConnectorStub(dDoc);
+        ScriptConnector connector = createConnector(nom);
+        Thread leader = startRequest(connector, new Object[1]);
+        Object[] followerResult = new Object[1];
+        Thread follower;
+
+        nom.leaderStarted.await();
+        follower = startRequest(connector, followerResult);
+        waitForFollower(connector);
+
+        long start = System.currentTimeMillis();
+
+        nom.leaderError = new LinkageError("Test error");
+        nom.release.countDown();
+        leader.join(5000);
+        follower.join(5000);
+
+        assertTrue(String.valueOf(followerResult[0]),
+                   followerResult[0] instanceof ScriptConnectorException);
+        assertTrue((System.currentTimeMillis() - start) < 5000);
+        assertEquals(0, connector.getRequestCoalescer().getInFlightCount());
+        assertEquals(1, nom.callCount.get());
+    }
+
+    /**
+     * Tests that a follower sends the request itself when the leader is interrupted, instead of
+     * receiving the leader's error.
+     *
+     * @throws  Exception
+     */
+    public void testLeaderInterrupted()
+                               throws Exception
+    {
+        BlockingConnectorStub nom = new BlockingConnectorStub(dDoc);
+        ScriptConnector connector = createConnector(nom);
+        Object[] leaderResult = new Object[1];
+        Object[] followerResult = new Object[1];
+        Thread leader = startRequest(connector, leaderResult);
+        Thread follower;
+
+        nom.leaderStarted.await();
+        follower = startRequest(connector, followerResult);
+        waitForFollower(connector);
+
+        leader.interrupt();
+        leader.join(5000);
+        follower.join(5000);
+
+        assertTrue(String.valueOf(leaderResult[0]),
+                   leaderResult[0] instanceof ScriptConnectorException);
+        assertTrue(String.valueOf(followerResult[0]),
+                   followerResult[0] instanceof ScriptSoapMessage);
+        assertEquals("GetDataResponse", ((ScriptSoapMessage) followerResult[0]).getMethodName());
+        ((ScriptSoapMessage) followerResult[0]).clear();
+        assertEquals(2, nom.callCount.get());
+    }
+
+    /**
+     * Creates a connector which coalesces the GetData requests.
+     *
+     * @param   nom  NOM connector stub.
+     *
+     * @return  Connector.
+     *
+     * @throws  Exception
+     */
+    private ScriptConnector createConnector(NomConnectorStub nom)
+                                     throws Exception
+    {
+        File configFile = createTextFile("config.properties", "outbound.GetData.coalesce=true\n");
+        ScriptConnectorConfiguration config = new ScriptConnectorConfiguration(null,
+                                                                               createAppConfigXml(configFile,
+                                                                                                  null,
+                                                                                                  null),
+                                                                               configFolder);
+
+        return new ScriptConnectorStub(config, nom);
+    }
+
+    /**
+     * Sends a GetData request in a new thread.
+     *
+     * @param   connector  Connector.
+     * @param   result     Receives the response message or the exception.
+     *
+     * @return  Started thread.
+     *
+     * @throws  ScriptConnectorException
+     */
+    private Thread startRequest(final ScriptConnector connector, final Object[] result)
+                         throws ScriptConnectorException
+    {
+        final ScriptSoapMessage msg = new ScriptSoapMessage(dDoc);
+
+        msg.setUserDn("cn=user");
+        msg.setMethodAsString("<GetData xmlns='http://test'><id>1</id></GetData>", false);
+        addNomGarbage(msg.getSoapMethodRoot());
+
+        Thread t = new Thread(new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        result[0] = connector.sendSoapRequestAndWait(msg);
+                    }
+                    catch (Throwable e)
+                    {
+                        result[0] = e;
+                    }
+                }
+            });
+
+        t.start();
+
+        return t;
+    }
+
+    /**
+     * Waits until a follower has joined the request in flight.
+     *
+     * @param   connector  Connector.
+     *
+     * @throws  InterruptedException
+     */
+    private static void waitForFollower(ScriptConnector connector)
+                                 throws InterruptedException
+    {
+        for (int i = 0; (i < 100) && (connector.getRequestCoalescer().getCoalescedCount() == 0);
+                 i++)
+        {
+            Thread.sleep(50);
+        }
+
+        assertEquals(1, connector.getRequestCoalescer().getCoalescedCount());
+    }
+
+    /**
+     * Creates a request key.
+     *
+     * @param   bodyHash  Request body hash.
+     *
+     * @return  Request key.
+     */
+    private static OutboundRequestKey createKey(String bodyHash)
+    {
+        return new OutboundRequestKey("GetData", "http://test", "o=org", "cn=user", bodyHash);
+    }
+
+    /**
+     * NOM connector stub which blocks the first request until it is released or interrupted.
+     */
+    private static class BlockingConnectorStub extends NomConnectorStub
+    {
+        /**
+         * Number of received requests.
+         */
+        private AtomicInteger callCount = new AtomicInteger();
+        /**
+         * NOM document for the responses.
+         */
+        private Document doc;
+        /**
+         * Error thrown by the first request when it is released.
+         */
+        private volatile Error leaderError;
+        /**
+         * Released when the first request has been received.
+         */
+        private CountDownLatch leaderStarted = new CountDownLatch(1);
+        /**
+         * Releases the first request.
+         */
+        private CountDownLatch release = new CountDownLatch(1);
+
+        /**
+         * Constructor for BlockingConnectorStub.
+         *
+         * @param  doc  NOM document.
+         */
+        BlockingConnectorStub(Document doc)
+        {
+            super(doc);
+            this.doc = doc;
+        }
+
+        /**
+         * @see  com.cordys.coe.ac.scriptconnector.aclib.NomConnectorStub#sendAndWait(int, long,
+         *       boolean)
+         */
+        @Override
+        public int sendAndWait(int requestMethodNode, long timeout, boolean checkSoapFault)
+                        throws TimeoutException, ExceptionGroup, SOAPException
+        {
+            if (callCount.incrementAndGet() == 1)
+            {
+                leaderStarted.countDown();
+
+                try
+                {
+                    release.await();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+
+                    throw new SOAPException("sendAndWait was interrupted.");
+                }
+
+                if (leaderError != null)
+                {
+                    throw leaderError;
+                }
+            }
+
+            try
+            {
+                synchronized (doc)
+                {
+                    return doc.parseString("<SOAP:Envelope xmlns:SOAP=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
+                                           "<SOAP:Body><GetDataResponse xmlns='http://test'/>" +
+                                           "</SOAP:Body></SOAP:Envelope>");
+                }
+            }
+            catch (Exception e)
+            {
+                throw new SOAPException("Unable to create the response: " + e);
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ *   Copyright 2026 Cordys R&D B.V.
+ *
+ *   This file is part of the Cordys Script Connector.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.cordys.coe.ac.scriptconnector.soap;
+
+import junit.framework.TestCase;
+
+/**
+ * Test cases for the outbound response cache.
+ */
+public class ResponseCacheTest extends TestCase
+{
+    /**
+     * Tests that the least recently used entries are removed when the cache size limit is
+     * exceeded.
+     */
+    public void testByteLimit()
+    {
+        // Each 10 character response takes 20 bytes.
+        ResponseCache cache = new ResponseCache(40);
+
+        cache.put(createKey("A", "1"), "0123456789", 60000, 10);
+        cache.put(createKey("B", "1"), "0123456789", 60000, 10);
+        assertNotNull(cache.get(createKey("A", "1")));
+
+        cache.put(createKey("A", "2"), "0123456789", 60000, 10);
+
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(40, cache.getByteCount());
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.get(createKey("B", "1")));
+        assertNotNull(cache.get(createKey("A", "1")));
+        assertNotNull(cache.get(createKey("A", "2")));
+
+        cache.setMaxBytes(20);
+
+        assertEquals(1, cache.getEntryCount());
+        assertNotNull(cache.get(createKey("A", "2")));
+    }
+
+    /**
+     * Tests that the cached responses are returned by the key.
+     */
+    public void testGet()
+    {
+        ResponseCache cache = new ResponseCache(1000);
+
+        assertNull(cache.get(createKey("A", "1")));
+        cache.put(createKey("A", "1"), "response1", 60000, 10);
+
+        assertEquals("response1", cache.get(createKey("A", "1")));
+        assertNull(cache.get(createKey("A", "2")));
+        assertNull(cache.get(createKey("B", "1")));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+
+        cache.clear();
+
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getByteCount());
+    }
+
+    /**
+     * Tests that the method entry limit removes the least recently used entry of that method.
+     */
+    public void testMaxEntries()
+    {
+        ResponseCache cache = new ResponseCache(1000);
+
+        cache.put(createKey("A", "1"), "r", 60000, 2);
+        cache.put(createKey("A", "2"), "r", 60000, 2);
+        cache.put(createKey("B", "1"), "r", 60000, 2);
+        assertNotNull(cache.get(createKey("A", "1")));
+
+        cache.put(createKey("A", "3"), "r", 60000, 2);
+
+        assertEquals(3, cache.getEntryCount());
+        assertEquals(1, cache.getEvictionCount());
+        assertNotNull(cache.get(createKey("A", "1")));
+        assertNull(cache.get(createKey("A", "2")));
+        assertNotNull(cache.get(createKey("A", "3")));
+        assertNotNull(cache.get(createKey("B", "1")));
+    }
+
+    /**
+     * Tests that expired entries are not returned.
+     *
+     * @throws  Exception
+     */
+    public void testTtl()
+                 throws Exception
+    {
+        ResponseCache cache = new ResponseCache(1000);
+
+        cache.put(createKey("A", "1"), "r", 50, 10);
+        cache.put(createKey("A", "2"), "r", 60000, 10);
+        Thread.sleep(100);
+
+        assertNull(cache.get(createKey("A", "1")));
+        assertNotNull(cache.get(createKey("A", "2")));
+        assertEquals(1, cache.getExpiredCount());
+        assertEquals(1, cache.getEntryCount());
+    }
+
+    /**
+     * Creates a request key.
+     *
+     * @param   methodName  Method name.
+     * @param   bodyHash    Request body hash.
+     *
+     * @return  Request key.
+     */
+    private static OutboundRequestKey createKey(String methodName, String bodyHash)
+    {
+        return new OutboundRequestKey(methodName, "http://test", "o=org", "cn=user", bodyHash);
+    }
+}
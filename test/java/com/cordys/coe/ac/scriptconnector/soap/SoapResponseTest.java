@@ -22,11 +22,18 @@ import com.cordys.coe.ac.scriptconnector.aclib.ISoapRequestContext;
 import com.cordys.coe.ac.scriptconnector.aclib.NomConnectorStub;
 import com.cordys.coe.ac.scriptconnector.aclib.SoapMethodDefinitionStub;
 import com.cordys.coe.util.FileUtils;
+import com.cordys.coe.util.soap.SOAPException;
 
+import com.eibus.exception.ExceptionGroup;
+import com.eibus.exception.TimeoutException;
+
+import com.eibus.xml.nom.Document;
 import com.eibus.xml.nom.Node;
 
 import java.text.MessageFormat;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Test cases for connector SOAP response manipulation.
  *
@@ -79,6 +86,192 @@ public class SoapResponseTest extends ScriptConnectorTestCase
         assertNodesEqual(connectorResponse, actualResponse, true);
     }
 
+    /**
+     * Tests that Cordys.sendSoapRequestXML() sends and returns E4X XML objects.
+     *
+     * @throws  Exception
+     */
+    public void testResponse_sendSoapRequestXML()
+                                        throws Exception
+    {
+        String script = "var ns = new Namespace('xxx');\n" +
+                        "var res = Cordys.sendSoapRequestXML('dummy-user-dn', <ExternalCall xmlns='xxx'><id>1</id></ExternalCall>);\n" +
+                        "Cordys.addResponseElement(<result>{res.ns::value.toString()}</result>.toXMLString());\n";
+        String requestXml = "<Test xmlns=\"http://schemas.cordys.com/1.0/coe/ScriptConnector\" />";
+        String responseXml = "<TestResponse xmlns=\"http://schemas.cordys.com/1.0/coe/ScriptConnector\">" +
+                             "<result>42</result>" +
+                             "</TestResponse>";
+        int connectorResponse = parse("<SOAP:Envelope xmlns:SOAP=\"http://schemas.xmlsoap.org/soap/envelope/\">\r\n" +
+                                      "    <SOAP:Body>" +
+                                      "        <ExternalCallResponse xmlns='xxx'><value>42</value></ExternalCallResponse>" +
+                                      "    </SOAP:Body>\r\n" +
+                                      "</SOAP:Envelope>");
+        int expectedRequest = parse("<ExternalCall xmlns='xxx'><id>1</id></ExternalCall>");
+        int expectedResponse = parse(responseXml);
+        int actualResponse;
+        int actualConnectorRequest;
+        NomConnectorStub.WaitThread responseWaiter;
+
+        nomConnector = new NomConnectorStub(dDoc);
+        responseWaiter = nomConnector.startWaitThread(connectorResponse);
+        actualResponse = executeScriptMethod(requestXml, script);
+        actualConnectorRequest = responseWaiter.getRequestNode();
+        addNomGarbage(Node.getRoot(actualConnectorRequest));
+
+        assertNodesEqual(expectedRequest, getSoapMethod(actualConnectorRequest), true);
+        assertNodesEqual(expectedResponse, getSoapMethod(actualResponse), true);
+    }
+
+    /**
+     * Tests that Cordys.sendSoapRequestAsync() returns a handle for fetching the response.
+     *
+     * @throws  Exception
+     */
+    public void testResponse_sendSoapRequestAsync()
+                                          throws Exception
+    {
+        String script = "var ns = new Namespace('xxx');\n" +
+                        "var handle = Cordys.sendSoapRequestAsync('dummy-user-dn', <ExternalCall xmlns='xxx'/>);\n" +
+                        "var res = handle.get(10000);\n" +
+                        "Cordys.addResponseElement(<value>{res.ns::value.toString()}</value>.toXMLString());\n" +
+                        "Cordys.addResponseElement(<done>{handle.isDone()}</done>.toXMLString());\n";
+        String requestXml = "<Test xmlns=\"http://schemas.cordys.com/1.0/coe/ScriptConnector\" />";
+        String responseXml = "<TestResponse xmlns=\"http://schemas.cordys.com/1.0/coe/ScriptConnector\">" +
+                             "<value>42</value><done>true</done>" +
+                             "</TestResponse>";
+        int connectorResponse = parse("<SOAP:Envelope xmlns:SOAP=\"http://schemas.xmlsoap.org/soap/envelope/\">\r\n" +
+                                      "    <SOAP:Body>" +
+                                      "        <ExternalCallResponse xmlns='xxx'><value>42</value></ExternalCallResponse>" +
+                                      "    </SOAP:Body>\r\n" +
+                                      "</SOAP:Envelope>");
+        int expectedResponse = parse(responseXml);
+        int actualResponse;
+        int actualConnectorRequest;
+        NomConnectorStub.WaitThread responseWaiter;
+
+        nomConnector = new NomConnectorStub(dDoc);
+        responseWaiter = nomConnector.startWaitThread(connectorResponse);
+        actualResponse = executeScriptMethod(requestXml, script);
+        actualConnectorRequest = responseWaiter.getRequestNode();
+        addNomGarbage(Node.getRoot(actualConnectorRequest));
+
+        assertNodesEqual(expectedResponse, getSoapMethod(actualResponse), true);
+    }
+
+    /**
+     * Tests that Cordys.sendSoapRequestsParallel() returns the responses in order and reports the
+     * errors per request.
+     *
+     * @throws  Exception
+     */
+    public void testResponse_sendSoapRequestsParallel()
+                                              throws Exception
+    {
+        String script = "var ns = new Namespace('xxx');\n" +
+                        "var res = Cordys.sendSoapRequestsParallel('dummy-user-dn', [ <><a/><b/></>, <ExternalCall xmlns='xxx'/> ], 10000);\n" +
+                        "Cordys.addResponseElement(<result>{res.length}</result>.toXMLString());\n" +
+                        "Cordys.addResponseElement(<error>{res[0].error != null}</error>.toXMLString());\n" +
+                        "Cordys.addResponseElement(<value>{res[1].response.ns::value.toString()}</value>.toXMLString());\n";
+        String requestXml = "<Test xmlns=\"http://schemas.cordys.com/1.0/coe/ScriptConnector\" />";
+        String responseXml = "<TestResponse xmlns=\"http://schemas.cordys.com/1.0/coe/ScriptConnector\">" +
+                             "<result>2</result><error>true</error><value>42</value>" +
+                             "</TestResponse>";
+        int connectorResponse = parse("<SOAP:Envelope xmlns:SOAP=\"http://schemas.xmlsoap.org/soap/envelope/\">\r\n" +
+                                      "    <SOAP:Body>" +
+                                      "        <ExternalCallResponse xmlns='xxx'><value>42</value></ExternalCallResponse>" +
+                                      "    </SOAP:Body>\r\n" +
+                                      "</SOAP:Envelope>");
+        int expectedResponse = parse(responseXml);
+        int actualResponse;
+        int actualConnectorRequest;
+        NomConnectorStub.WaitThread responseWaiter;
+
+        nomConnector = new NomConnectorStub(dDoc);
+        responseWaiter = nomConnector.startWaitThread(connectorResponse);
+        actualResponse = executeScriptMethod(requestXml, script);
+        actualConnectorRequest = responseWaiter.getRequestNode();
+        addNomGarbage(Node.getRoot(actualConnectorRequest));
+
+        assertNodesEqual(expectedResponse, getSoapMethod(actualResponse), true);
+    }
+
+    /**
+     * Tests that Cordys.sendSoapRequestsParallel() sends the requests concurrently, returns the
+     * responses in the request order and reports requests which did not finish in time.
+     *
+     * @throws  Exception
+     */
+    public void testResponse_sendSoapRequestsParallelDelayed()
+                                                     throws Exception
+    {
+        String script = "var ns = new Namespace('xxx');\n" +
+                        "var start = new Date().getTime();\n" +
+                        "var res = Cordys.sendSoapRequestsParallel('dummy-user-dn', [ <ExternalCall xmlns='xxx'><id>1</id><delay>600</delay></ExternalCall>, <ExternalCall xmlns='xxx'><id>2</id><delay>400</delay></ExternalCall> ], 5000);\n" +
+                        "var parallel = (new Date().getTime() - start) < 1000;\n" +
+                        "Cordys.addResponseElement(<parallel>{parallel}</parallel>.toXMLString());\n" +
+                        "Cordys.addResponseElement(<value>{res[0].response.ns::value.toString()}</value>.toXMLString());\n" +
+                        "Cordys.addResponseElement(<value>{res[1].response.ns::value.toString()}</value>.toXMLString());\n" +
+                        "res = Cordys.sendSoapRequestsParallel('dummy-user-dn', [ <ExternalCall xmlns='xxx'><id>3</id><delay>1500</delay></ExternalCall>, <ExternalCall xmlns='xxx'><id>4</id><delay>0</delay></ExternalCall> ], 300);\n" +
+                        "var timedOut = (res[0].response === undefined) && (res[0].error.indexOf('did not finish') >= 0);\n" +
+                        "Cordys.addResponseElement(<timeout>{timedOut}</timeout>.toXMLString());\n" +
+                        "Cordys.addResponseElement(<value>{res[1].response.ns::value.toString()}</value>.toXMLString());\n";
+        String requestXml = "<Test xmlns=\"http://schemas.cordys.com/1.0/coe/ScriptConnector\" />";
+        String responseXml = "<TestResponse xmlns=\"http://schemas.cordys.com/1.0/coe/ScriptConnector\">" +
+                             "<parallel>true</parallel><value>1</value><value>2</value>" +
+                             "<timeout>true</timeout><value>4</value>" +
+                             "</TestResponse>";
+        int expectedResponse = parse(responseXml);
+        DelayedConnectorStub delayedConnector = new DelayedConnectorStub(dDoc);
+        int actualResponse;
+
+        nomConnector = delayedConnector;
+        actualResponse = executeScriptMethod(requestXml, script);
+
+        // Wait for the timed out request, so it does not outlive the test document.
+        for (int i = 0; (i < 100) && (delayedConnector.activeCount.get() > 0); i++)
+        {
+            Thread.sleep(50);
+        }
+
+        assertEquals(0, delayedConnector.activeCount.get());
+        assertNodesEqual(expectedResponse, getSoapMethod(actualResponse), true);
+    }
+
+    /**
+     * Tests that cancelling an asynchronous request which is waiting for a free outbound thread
+     * prevents it from being sent.
+     *
+     * @throws  Exception
+     */
+    public void testResponse_sendSoapRequestAsyncCancel()
+                                                throws Exception
+    {
+        // All outbound threads are busy, so the last request waits in the queue.
+        String script = "var handles = [];\n" +
+                        "for (var i = 0; i < 10; i++) {\n" +
+                        "    handles.push(Cordys.sendSoapRequestAsync('dummy-user-dn', <ExternalCall xmlns='xxx'><id>{i}</id><delay>300</delay></ExternalCall>));\n" +
+                        "}\n" +
+                        "var queued = Cordys.sendSoapRequestAsync('dummy-user-dn', <ExternalCall xmlns='xxx'><id>queued</id></ExternalCall>);\n" +
+                        "Cordys.addResponseElement(<cancelled>{queued.cancel()}</cancelled>.toXMLString());\n" +
+                        "var failed = false;\n" +
+                        "try { queued.get(1000); } catch (e) { failed = true; }\n" +
+                        "Cordys.addResponseElement(<failed>{failed}</failed>.toXMLString());\n" +
+                        "for (var i = 0; i < handles.length; i++) { handles[i].get(5000); }\n";
+        String requestXml = "<Test xmlns=\"http://schemas.cordys.com/1.0/coe/ScriptConnector\" />";
+        String responseXml = "<TestResponse xmlns=\"http://schemas.cordys.com/1.0/coe/ScriptConnector\">" +
+                             "<cancelled>true</cancelled><failed>true</failed>" +
+                             "</TestResponse>";
+        int expectedResponse = parse(responseXml);
+        DelayedConnectorStub delayedConnector = new DelayedConnectorStub(dDoc);
+        int actualResponse;
+
+        nomConnector = delayedConnector;
+        actualResponse = executeScriptMethod(requestXml, script);
+
+        assertNodesEqual(expectedResponse, getSoapMethod(actualResponse), true);
+        assertEquals(10, delayedConnector.sentCount.get());
+    }
+
     /**
      * Test case for Cordys.getResponseMessage().removeChildElementNamespaces() method.
      *
@@ -209,4 +402,71 @@ public class SoapResponseTest extends ScriptConnectorTestCase
 
         assertNodesEqual(expectedResponse, getSoapMethod(actualResponse), true);
     }
+
+    /**
+     * Connector stub which answers each request after the delay given in the request. The
+     * response contains the request ID as the value.
+     */
+    private static class DelayedConnectorStub extends NomConnectorStub
+    {
+        /**
+         * Number of requests being handled.
+         */
+        private AtomicInteger activeCount = new AtomicInteger();
+        /**
+         * NOM document for the responses.
+         */
+        private Document doc;
+        /**
+         * Number of received requests.
+         */
+        private AtomicInteger sentCount = new AtomicInteger();
+
+        /**
+         * Constructor for DelayedConnectorStub.
+         *
+         * @param  doc  NOM document.
+         */
+        DelayedConnectorStub(Document doc)
+        {
+            super(doc);
+            this.doc = doc;
+        }
+
+        /**
+         * @see  com.cordys.coe.ac.scriptconnector.aclib.NomConnectorStub#sendAndWait(int, long,
+         *       boolean)
+         */
+        @Override
+        public int sendAndWait(int requestMethodNode, long timeout, boolean checkSoapFault)
+                        throws TimeoutException, ExceptionGroup, SOAPException
+        {
+            activeCount.incrementAndGet();
+            sentCount.incrementAndGet();
+
+            try
+            {
+                String id = Node.getDataElement(requestMethodNode, "id", "");
+                long delay = Long.parseLong(Node.getDataElement(requestMethodNode, "delay", "0"));
+
+                Thread.sleep(delay);
+
+                synchronized (doc)
+                {
+                    return doc.parseString("<SOAP:Envelope xmlns:SOAP=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
+                                           "<SOAP:Body><ExternalCallResponse xmlns='xxx'><value>" + id +
+                                           "</value></ExternalCallResponse></SOAP:Body>" +
+                                           "</SOAP:Envelope>");
+                }
+            }
+            catch (Exception e)
+            {
+                throw new SOAPException("Unable to create the response: " + e);
+            }
+            finally
+            {
+                activeCount.decrementAndGet();
+            }
+        }
+    }
 }